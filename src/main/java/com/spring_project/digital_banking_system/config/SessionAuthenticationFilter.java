@@ -45,4 +45,13 @@ public class SessionAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Restores the authentication on async dispatches too: the authorization filter checks them
+     * again, and the dispatch completing an event stream would otherwise be denied.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
 }
@@ -0,0 +1,127 @@
+package com.spring_project.digital_banking_system.config;
+
+import com.spring_project.digital_banking_system.repository.DurabilityMode;
+import com.spring_project.digital_banking_system.repository.StorageBackend;
+import com.spring_project.digital_banking_system.repository.StorageFormat;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Storage settings bound from the {@code app.storage.*} properties.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.storage")
+public class StorageProperties {
+
+    /** Which storage implementation holds the data. */
+    private StorageBackend backend = StorageBackend.FILE;
+
+    /** Directory holding the data files. */
+    private String dataDir = "data/";
+
+    /** When committed batches are forced to disk. */
+    private DurabilityMode durability = DurabilityMode.FSYNC_PER_BATCH;
+
+    /** Interval between fsyncs in {@link DurabilityMode#PERIODIC_FSYNC} mode. */
+    private long fsyncIntervalMs = 50;
+
+    /** Maximum number of pending writes committed together in one batch. */
+    private int maxBatchSize = 1024;
+
+    /** How often to check whether a snapshot is due. */
+    private long snapshotIntervalMs = 60_000;
+
+    /** Size the current journal segment must reach before a snapshot is taken. */
+    private long snapshotJournalBytes = 64L * 1024 * 1024;
+
+    /** Format new snapshots are written in. */
+    private StorageFormat snapshotFormat = StorageFormat.BINARY;
+
+    /**
+     * Number of stripe locks ordering the in-memory and journal updates of each wallet in the
+     * {@link StorageBackend#FILE} backend, and the database transactions writing each wallet in
+     * the {@link StorageBackend#SQL} backend. Balance checks are guarded by {@code app.wallet.lock-stripes}.
+     */
+    private int walletLockStripes = 1024;
+
+    /** Number of IDs reserved at a time; the high-water mark is persisted once per block. */
+    private int idBlockSize = 1024;
+
+    /** Age in days after which transactions move to compressed monthly archive segments; 0 disables archiving. */
+    private int archiveAfterDays = 90;
+
+    /** Number of archive segments kept fully loaded for wallet history queries. */
+    private int archiveCacheSegments = 4;
+
+    /** Hours of per-minute transaction rollups kept; hourly and daily rollups are kept for the whole ledger. */
+    private int rollupMinuteHours = 48;
+
+    /** Number of a wallet's transactions between two running-balance checkpoints for point-in-time balances. */
+    private int balanceCheckpointInterval = 64;
+
+    /** Hours an idempotency key and the response it replays are kept. */
+    private int idempotencyKeyHours = 24;
+
+    /** Maximum number of idempotency keys kept; the oldest are evicted first. */
+    private int idempotencyKeyCapacity = 100_000;
+
+    /** JDBC URL of the {@link StorageBackend#SQL} database; defaults to an H2 file in the data directory. */
+    private String sqlUrl;
+
+    /** Number of pooled connections to the {@link StorageBackend#SQL} database. */
+    private int sqlPoolSize = 16;
+
+    public StorageBackend getBackend() { return backend; }
+    public void setBackend(StorageBackend backend) { this.backend = backend; }
+
+    public String getDataDir() { return dataDir; }
+    public void setDataDir(String dataDir) { this.dataDir = dataDir; }
+
+    public DurabilityMode getDurability() { return durability; }
+    public void setDurability(DurabilityMode durability) { this.durability = durability; }
+
+    public long getFsyncIntervalMs() { return fsyncIntervalMs; }
+    public void setFsyncIntervalMs(long fsyncIntervalMs) { this.fsyncIntervalMs = fsyncIntervalMs; }
+
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public void setMaxBatchSize(int maxBatchSize) { this.maxBatchSize = maxBatchSize; }
+
+    public long getSnapshotIntervalMs() { return snapshotIntervalMs; }
+    public void setSnapshotIntervalMs(long snapshotIntervalMs) { this.snapshotIntervalMs = snapshotIntervalMs; }
+
+    public StorageFormat getSnapshotFormat() { return snapshotFormat; }
+    public void setSnapshotFormat(StorageFormat snapshotFormat) { this.snapshotFormat = snapshotFormat; }
+
+    public int getWalletLockStripes() { return walletLockStripes; }
+    public void setWalletLockStripes(int walletLockStripes) { this.walletLockStripes = walletLockStripes; }
+
+    public int getIdBlockSize() { return idBlockSize; }
+    public void setIdBlockSize(int idBlockSize) { this.idBlockSize = idBlockSize; }
+
+    public int getArchiveAfterDays() { return archiveAfterDays; }
+    public void setArchiveAfterDays(int archiveAfterDays) { this.archiveAfterDays = archiveAfterDays; }
+
+    public int getArchiveCacheSegments() { return archiveCacheSegments; }
+    public void setArchiveCacheSegments(int archiveCacheSegments) { this.archiveCacheSegments = archiveCacheSegments; }
+
+    public int getRollupMinuteHours() { return rollupMinuteHours; }
+    public void setRollupMinuteHours(int rollupMinuteHours) { this.rollupMinuteHours = rollupMinuteHours; }
+
+    public int getBalanceCheckpointInterval() { return balanceCheckpointInterval; }
+    public void setBalanceCheckpointInterval(int balanceCheckpointInterval) { this.balanceCheckpointInterval = balanceCheckpointInterval; }
+
+    public int getIdempotencyKeyHours() { return idempotencyKeyHours; }
+    public void setIdempotencyKeyHours(int idempotencyKeyHours) { this.idempotencyKeyHours = idempotencyKeyHours; }
+
+    public int getIdempotencyKeyCapacity() { return idempotencyKeyCapacity; }
+    public void setIdempotencyKeyCapacity(int idempotencyKeyCapacity) { this.idempotencyKeyCapacity = idempotencyKeyCapacity; }
+
+    public String getSqlUrl() { return sqlUrl; }
+    public void setSqlUrl(String sqlUrl) { this.sqlUrl = sqlUrl; }
+
+    public int getSqlPoolSize() { return sqlPoolSize; }
+    public void setSqlPoolSize(int sqlPoolSize) { this.sqlPoolSize = sqlPoolSize; }
+
+    public long getSnapshotJournalBytes() { return snapshotJournalBytes; }
+    public void setSnapshotJournalBytes(long snapshotJournalBytes) { this.snapshotJournalBytes = snapshotJournalBytes; }
+}
@@ -1,11 +1,16 @@
 package com.spring_project.digital_banking_system.controller;
 
-import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.dto.BankTransferResponse;
+import com.spring_project.digital_banking_system.dto.BatchTransferEntry;
+import com.spring_project.digital_banking_system.dto.BatchTransferResponse;
+import com.spring_project.digital_banking_system.dto.TransferRequest;
 import com.spring_project.digital_banking_system.model.User;
 import com.spring_project.digital_banking_system.service.WalletService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -14,11 +19,16 @@ import java.util.Map;
  *
  * <p>All endpoints require the ADMIN role. Provides access to system-wide
  * data including all users, transactions, and bank-initiated transfers.</p>
+ *
+ * <p>Bank transfers accept an {@code Idempotency-Key} header, as the wallet endpoints do; the
+ * keys are shared by all admins.</p>
  */
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final WalletService walletService;
 
     public AdminController(WalletService walletService) {
@@ -26,16 +36,53 @@ public class AdminController {
     }
 
     /**
-     * Retrieves all transactions in the system.
+     * Retrieves one page of all transactions in the system.
      *
-     * @return a list of all transactions
+     * @param limit  the maximum number of transactions to return (default 50, at most 1000)
+     * @param cursor the {@code nextCursor} returned with the previous page
+     * @param from   the earliest timestamp to include (ISO-8601)
+     * @param to     the timestamp to stop before (ISO-8601, exclusive)
+     * @return a map with the page's transactions, newest first, and the cursor of the next page
      */
     @GetMapping("/transactions")
-    public ResponseEntity<List<Transaction>> getAllTransactions() {
-        List<Transaction> transactions = walletService.getAllTransactions();
+    public ResponseEntity<Map<String, Object>> getAllTransactions(@RequestParam(required = false) Integer limit,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) String from,
+                                                                  @RequestParam(required = false) String to) {
+        Map<String, Object> transactions = walletService.getAllTransactions(limit, cursor, from, to);
         return ResponseEntity.ok(transactions);
     }
 
+    /**
+     * Searches all transactions in the system by any combination of filters. The response
+     * carries the total number of matches, counted without reading every matching transaction.
+     *
+     * @param type      the transaction type, e.g. {@code TRANSFER}
+     * @param status    the transaction status, e.g. {@code SUCCESS}
+     * @param walletId  the wallet that sent or received the transaction
+     * @param minAmount the smallest amount to include
+     * @param maxAmount the largest amount to include
+     * @param from      the earliest timestamp to include (ISO-8601)
+     * @param to        the timestamp to stop before (ISO-8601, exclusive)
+     * @param limit     the maximum number of transactions to return (default 50, at most 1000)
+     * @param cursor    the {@code nextCursor} returned with the previous page
+     * @return a map with the page's transactions, highest ID first, the total number of
+     *         matches and the cursor of the next page
+     */
+    @GetMapping("/transactions/search")
+    public ResponseEntity<Map<String, Object>> searchTransactions(@RequestParam(required = false) String type,
+                                                                  @RequestParam(required = false) String status,
+                                                                  @RequestParam(required = false) Long walletId,
+                                                                  @RequestParam(required = false) String minAmount,
+                                                                  @RequestParam(required = false) String maxAmount,
+                                                                  @RequestParam(required = false) String from,
+                                                                  @RequestParam(required = false) String to,
+                                                                  @RequestParam(required = false) Integer limit,
+                                                                  @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(walletService.searchTransactions(type, status, walletId, minAmount, maxAmount,
+                from, to, limit, cursor));
+    }
+
     /**
      * Retrieves all registered users.
      *
@@ -47,16 +94,90 @@ public class AdminController {
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * Exports all transactions as NDJSON, written to the response as they are read so the
+     * export does not have to fit in memory.
+     *
+     * @param response the HTTP response to stream the export to
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping("/transactions/export")
+    public void exportTransactions(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        walletService.exportTransactions(response.getOutputStream());
+    }
+
+    /**
+     * Exports all registered users as NDJSON, written to the response as they are read.
+     *
+     * @param response the HTTP response to stream the export to
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping("/users/export")
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        walletService.exportUsers(response.getOutputStream());
+    }
+
+    /**
+     * Retrieves transaction counts and amount sums per type and status for each minute, hour
+     * or day of a time range, read from rollups maintained as transactions are saved.
+     *
+     * @param resolution {@code MINUTE}, {@code HOUR} (default) or {@code DAY}
+     * @param from       the earliest time to include (ISO-8601); defaults to the last hour, day
+     *                   or 30 days, depending on the resolution
+     * @param to         the time to stop before (ISO-8601, exclusive); defaults to now
+     * @return a map with the resolution, the bounds and the non-empty buckets, oldest first
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getTransactionStats(@RequestParam(required = false) String resolution,
+                                                                   @RequestParam(required = false) String from,
+                                                                   @RequestParam(required = false) String to) {
+        return ResponseEntity.ok(walletService.getTransactionStats(resolution, from, to));
+    }
+
+    /**
+     * Retrieves storage statistics, such as group commit batch sizes, commit latencies,
+     * snapshot state and startup time, for tuning the storage settings.
+     *
+     * @return a map of storage statistics
+     */
+    @GetMapping("/storage/stats")
+    public ResponseEntity<Map<String, Object>> getStorageStats() {
+        return ResponseEntity.ok(walletService.getStorageStats());
+    }
+
     /**
      * Performs a bank-initiated transfer to a target wallet.
      * This adds funds without deducting from any user's wallet.
      *
-     * @param request a map containing {@code targetWalletCode} and {@code amount}
-     * @return a map with transfer confirmation details
+     * @param request        the {@code targetWalletCode} and {@code amount}, validated when bound
+     * @param idempotencyKey the client's key for retrying the request safely, if any
+     * @return the transfer confirmation details
      */
     @PostMapping("/bank-transfer")
-    public ResponseEntity<Map<String, Object>> bankTransfer(@RequestBody Map<String, Object> request) {
-        Map<String, Object> response = walletService.bankTransfer(request);
+    public ResponseEntity<BankTransferResponse> bankTransfer(
+            @RequestBody TransferRequest request,
+            @RequestHeader(value = WalletController.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        BankTransferResponse response = walletService.bankTransfer(request, idempotencyKey);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Performs many bank-initiated transfers in one request, with a single journal commit for
+     * the whole batch.
+     *
+     * @param transfers      the transfers, each containing {@code targetWalletCode} and {@code amount}
+     * @param idempotencyKey the client's key for retrying the request safely, if any
+     * @return the numbers of succeeded and failed entries and one result per entry
+     */
+    @PostMapping("/bank-transfer/batch")
+    public ResponseEntity<BatchTransferResponse> bankTransferBatch(
+            @RequestBody List<BatchTransferEntry> transfers,
+            @RequestHeader(value = WalletController.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        BatchTransferResponse response = walletService.bankTransferBatch(transfers, idempotencyKey);
         return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
@@ -1,12 +1,30 @@
 package com.spring_project.digital_banking_system.controller;
 
-import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.dto.AmountRequest;
+import com.spring_project.digital_banking_system.dto.BalanceResponse;
+import com.spring_project.digital_banking_system.dto.BatchTransferEntry;
+import com.spring_project.digital_banking_system.dto.BatchTransferResponse;
+import com.spring_project.digital_banking_system.dto.TransactionResponse;
+import com.spring_project.digital_banking_system.dto.TransferRequest;
+import com.spring_project.digital_banking_system.dto.TransferResponse;
 import com.spring_project.digital_banking_system.service.AuthService;
+import com.spring_project.digital_banking_system.service.WalletEvents;
 import com.spring_project.digital_banking_system.service.WalletService;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 
@@ -15,11 +33,33 @@ import java.util.Map;
  *
  * <p>Provides endpoints for balance inquiries, deposits, withdrawals, transfers,
  * and transaction history. All endpoints require an authenticated user session.</p>
+ *
+ * <p>Request bodies bind to immutable records that validate themselves as they are bound, so an
+ * invalid amount or missing wallet code is rejected with 400 before the service is called.
+ * Batch entries bind to records of plain text fields and are checked one by one instead, so
+ * that a malformed entry is rejected in its place rather than failing the whole batch.</p>
+ *
+ * <p>The balance and history carry an {@code ETag} that changes whenever the wallet does, with
+ * a hash of the query parameters appended, so a tag is only matched by a request for the same
+ * point in time or page. A poll sending it back in {@code If-None-Match} gets {@code 304 Not Modified} while the wallet
+ * is unchanged, without the balance or history being read at all. Clients that would rather
+ * be told about changes subscribe to {@code /api/wallet/events} instead.</p>
+ *
+ * <p>Endpoints that move money accept an {@code Idempotency-Key} header: a request repeating
+ * the key of an earlier one gets that request's response instead of being carried out again.</p>
  */
 @RestController
 @RequestMapping("/api/wallet")
 public class WalletController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    /** Lets clients keep a tagged response but makes them revalidate it on every use. */
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    /** Event streams stay open until the client leaves or falls behind; heartbeats find dead ones. */
+    private static final long NO_TIMEOUT = 0L;
+
     private final WalletService walletService;
     private final AuthService authService;
 
@@ -29,73 +69,192 @@ public class WalletController {
     }
 
     /**
-     * Retrieves the current balance of the authenticated user's wallet.
+     * Retrieves the balance of the authenticated user's wallet, now or at a point in time.
      *
-     * @param request the HTTP request containing the user's session
-     * @return a map with wallet code and current balance
+     * @param asOf       the point in time (ISO-8601, inclusive); the current balance if omitted
+     * @param webRequest the request, checked for a matching {@code If-None-Match}
+     * @param request    the HTTP request containing the user's session
+     * @return the wallet code and balance, or 304 if the wallet is unchanged
      */
     @GetMapping("/balance")
-    public ResponseEntity<Map<String, Object>> getBalance(HttpServletRequest request) {
+    public ResponseEntity<BalanceResponse> getBalance(@RequestParam(required = false) String asOf,
+                                                      WebRequest webRequest,
+                                                      HttpServletRequest request) {
         Long userId = authService.getCurrentUserId(request);
-        Map<String, Object> response = walletService.getBalance(userId);
-        return ResponseEntity.ok(response);
+        String tag = tag(walletService.getWalletTag(userId), asOf);
+        if (webRequest.checkNotModified(tag)) {
+            return notModified(tag);
+        }
+        BalanceResponse response = walletService.getBalance(userId, asOf);
+        return ResponseEntity.ok().eTag(tag).cacheControl(REVALIDATE).body(response);
     }
 
     /**
      * Deposits funds into the authenticated user's wallet.
      *
-     * @param depositRequest a map containing the {@code amount} to deposit
+     * @param depositRequest the {@code amount} to deposit
+     * @param idempotencyKey the client's key for retrying the request safely, if any
      * @param request        the HTTP request containing the user's session
-     * @return a map with success message, new balance, and transaction ID
+     * @return the success message, new balance, and transaction ID
      */
     @PostMapping("/deposit")
-    public ResponseEntity<Map<String, Object>> deposit(@RequestBody Map<String, Object> depositRequest,
-                                                       HttpServletRequest request) {
+    public ResponseEntity<TransactionResponse> deposit(
+            @RequestBody AmountRequest depositRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            HttpServletRequest request) {
         Long userId = authService.getCurrentUserId(request);
-        Map<String, Object> response = walletService.deposit(userId, depositRequest);
+        TransactionResponse response = walletService.deposit(userId, depositRequest, idempotencyKey);
         return ResponseEntity.ok(response);
     }
 
     /**
      * Withdraws funds from the authenticated user's wallet.
      *
-     * @param withdrawRequest a map containing the {@code amount} to withdraw
+     * @param withdrawRequest the {@code amount} to withdraw
+     * @param idempotencyKey  the client's key for retrying the request safely, if any
      * @param request         the HTTP request containing the user's session
-     * @return a map with success message, new balance, and transaction ID
+     * @return the success message, new balance, and transaction ID
      */
     @PostMapping("/withdraw")
-    public ResponseEntity<Map<String, Object>> withdraw(@RequestBody Map<String, Object> withdrawRequest,
-                                                        HttpServletRequest request) {
+    public ResponseEntity<TransactionResponse> withdraw(
+            @RequestBody AmountRequest withdrawRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            HttpServletRequest request) {
         Long userId = authService.getCurrentUserId(request);
-        Map<String, Object> response = walletService.withdraw(userId, withdrawRequest);
+        TransactionResponse response = walletService.withdraw(userId, withdrawRequest, idempotencyKey);
         return ResponseEntity.ok(response);
     }
 
     /**
      * Transfers funds from the authenticated user's wallet to another wallet.
      *
-     * @param transferRequest a map containing {@code targetWalletCode} and {@code amount}
+     * @param transferRequest the {@code targetWalletCode} and {@code amount}
+     * @param idempotencyKey  the client's key for retrying the request safely, if any
      * @param request         the HTTP request containing the user's session
-     * @return a map with success message, new balance, transaction ID, and recipient wallet code
+     * @return the success message, new balance, transaction ID, and recipient wallet code
      */
     @PostMapping("/transfer")
-    public ResponseEntity<Map<String, Object>> transfer(@RequestBody Map<String, Object> transferRequest,
-                                                        HttpServletRequest request) {
+    public ResponseEntity<TransferResponse> transfer(
+            @RequestBody TransferRequest transferRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            HttpServletRequest request) {
         Long userId = authService.getCurrentUserId(request);
-        Map<String, Object> response = walletService.transfer(userId, transferRequest);
+        TransferResponse response = walletService.transfer(userId, transferRequest, idempotencyKey);
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Retrieves the transaction history of the authenticated user's wallet.
+     * Transfers funds from the authenticated user's wallet to many wallets in one request, with
+     * a single journal commit for the whole batch.
      *
-     * @param request the HTTP request containing the user's session
-     * @return a list of transactions involving the user's wallet, ordered by timestamp descending
+     * @param transfers      the transfers, each containing {@code targetWalletCode} and {@code amount}
+     * @param idempotencyKey the client's key for retrying the request safely, if any
+     * @param request        the HTTP request containing the user's session
+     * @return the numbers of succeeded and failed entries, the new balance and one result per entry
+     */
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(
+            @RequestBody List<BatchTransferEntry> transfers,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            HttpServletRequest request) {
+        Long userId = authService.getCurrentUserId(request);
+        BatchTransferResponse response = walletService.transferBatch(userId, transfers, idempotencyKey);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Retrieves one page of the transaction history of the authenticated user's wallet.
+     *
+     * @param limit      the maximum number of transactions to return (default 50, at most 1000)
+     * @param cursor     the {@code nextCursor} returned with the previous page
+     * @param from       the earliest timestamp to include (ISO-8601)
+     * @param to         the timestamp to stop before (ISO-8601, exclusive)
+     * @param webRequest the request, checked for a matching {@code If-None-Match}
+     * @param request    the HTTP request containing the user's session
+     * @return a map with the page's transactions, newest first, and the cursor of the next page,
+     *         or 304 if the wallet is unchanged
      */
     @GetMapping("/history")
-    public ResponseEntity<List<Transaction>> getHistory(HttpServletRequest request) {
+    public ResponseEntity<Map<String, Object>> getHistory(@RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) String from,
+                                                          @RequestParam(required = false) String to,
+                                                          WebRequest webRequest,
+                                                          HttpServletRequest request) {
         Long userId = authService.getCurrentUserId(request);
-        List<Transaction> history = walletService.getHistory(userId);
-        return ResponseEntity.ok(history);
+        String tag = tag(walletService.getWalletTag(userId), limit, cursor, from, to);
+        if (webRequest.checkNotModified(tag)) {
+            return notModified(tag);
+        }
+        Map<String, Object> history = walletService.getHistory(userId, limit, cursor, from, to);
+        return ResponseEntity.ok().eTag(tag).cacheControl(REVALIDATE).body(history);
+    }
+
+    /**
+     * Streams changes to the authenticated user's wallet as Server-Sent Events: a
+     * {@code balance} event on connecting and after every change, and a {@code transaction}
+     * event for every transaction recorded, sent once the change is durable. The stream holds no
+     * thread while idle. A client falling too far behind has its stream closed and should
+     * reconnect, starting again from the balance it is sent on connecting.
+     *
+     * @param request the HTTP request containing the user's session
+     * @return the event stream
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(HttpServletRequest request) {
+        Long userId = authService.getCurrentUserId(request);
+        SseEmitter emitter = new SseEmitter(NO_TIMEOUT);
+        WalletEvents.Subscription subscription = walletService.subscribe(userId, new EmitterSink(emitter));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        return emitter;
+    }
+
+    /**
+     * Appends a hash of the query parameters to a wallet tag, leaving it as it is when none was
+     * given. Each parameter is hashed with its length, so an absent one, an empty one and one
+     * running into the next all hash differently.
+     *
+     * @param walletTag the wallet's change tag
+     * @param params    the query parameters, {@code null} where absent
+     * @return the tag for the response
+     */
+    static String tag(String walletTag, Object... params) {
+        boolean present = false;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object param : params) {
+                byte[] bytes = param == null ? new byte[0] : param.toString().getBytes(StandardCharsets.UTF_8);
+                digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(param == null ? -1 : bytes.length).array());
+                digest.update(bytes);
+                present |= param != null;
+            }
+            return present ? walletTag + "-" + HexFormat.of().formatHex(digest.digest(), 0, 8) : walletTag;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to tag response: " + e.getMessage(), e);
+        }
+    }
+
+    private static <T> ResponseEntity<T> notModified(String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).cacheControl(REVALIDATE).build();
+    }
+
+    /**
+     * Writes wallet events to an SSE stream, heartbeats as comments.
+     */
+    private record EmitterSink(SseEmitter emitter) implements WalletEvents.Sink {
+
+        @Override
+        public void send(String name, Object data) throws IOException {
+            emitter.send(name == null
+                    ? SseEmitter.event().comment("heartbeat")
+                    : SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
     }
 }
\ No newline at end of file
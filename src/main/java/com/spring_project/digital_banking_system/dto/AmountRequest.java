@@ -0,0 +1,28 @@
+package com.spring_project.digital_banking_system.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The body of a deposit or withdrawal: the amount to move. The amount is validated when the
+ * request is bound, so a request that exists is a valid one.
+ *
+ * @param amount the amount, greater than zero
+ */
+public record AmountRequest(BigDecimal amount) {
+
+    /**
+     * @throws IllegalArgumentException if the amount is null, zero, or negative
+     */
+    public AmountRequest {
+        requirePositive(amount);
+    }
+
+    static void requirePositive(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be greater than zero");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.spring_project.digital_banking_system.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * A wallet's balance after a change, as streamed to the wallet's subscribers. Events may
+ * overtake the balance a subscriber starts from, so a subscriber keeps the highest version.
+ *
+ * @param walletCode the wallet's code
+ * @param balance    the balance
+ * @param version    the wallet version the balance belongs to
+ */
+public record BalanceEvent(String walletCode, BigDecimal balance, long version) {
+}
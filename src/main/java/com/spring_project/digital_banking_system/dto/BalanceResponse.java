@@ -0,0 +1,18 @@
+package com.spring_project.digital_banking_system.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The balance of a wallet, now or at a point in time.
+ *
+ * @param walletCode the wallet's code
+ * @param balance    the balance
+ * @param asOf       the point in time the balance was computed for, or {@code null} if current
+ */
+public record BalanceResponse(String walletCode,
+                              BigDecimal balance,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) LocalDateTime asOf) {
+}
@@ -0,0 +1,16 @@
+package com.spring_project.digital_banking_system.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The outcome of a bank-initiated transfer.
+ *
+ * @param message          a human-readable summary
+ * @param targetWalletCode the code of the credited wallet
+ * @param amount           the amount credited
+ * @param newBalance       the credited wallet's balance afterwards
+ * @param transactionId    the ID of the recorded transaction
+ */
+public record BankTransferResponse(String message, String targetWalletCode, BigDecimal amount, BigDecimal newBalance,
+                                   Long transactionId) {
+}
@@ -0,0 +1,13 @@
+package com.spring_project.digital_banking_system.dto;
+
+/**
+ * One entry of a batch transfer, as sent. Unlike {@link TransferRequest}, it is not validated
+ * when the request is bound: fields are bound as text, a number included, so a missing field or
+ * a malformed amount rejects only its own entry, in its place in the results, rather than the
+ * whole batch.
+ *
+ * @param targetWalletCode the code of the wallet to credit, or {@code null} if missing
+ * @param amount           the amount as sent, or {@code null} if missing
+ */
+public record BatchTransferEntry(String targetWalletCode, String amount) {
+}
@@ -0,0 +1,40 @@
+package com.spring_project.digital_banking_system.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The outcome of a batch of transfers or bank transfers.
+ *
+ * @param message    a human-readable summary
+ * @param succeeded  the number of entries applied
+ * @param failed     the number of entries rejected or not covered by the balance
+ * @param newBalance the sender's balance afterwards, or {@code null} for bank transfers
+ * @param results    one result per entry, in request order
+ */
+public record BatchTransferResponse(String message,
+                                    int succeeded,
+                                    int failed,
+                                    @JsonInclude(JsonInclude.Include.NON_NULL) BigDecimal newBalance,
+                                    List<Result> results) {
+
+    /**
+     * The outcome of one entry of a batch.
+     *
+     * @param index            the entry's position in the request
+     * @param targetWalletCode the code of the wallet the entry credits
+     * @param amount           the entry's amount, or {@code null} if it was invalid
+     * @param status           {@code SUCCESS}, {@code FAILED} or {@code REJECTED}
+     * @param transactionId    the ID of the recorded transaction, or {@code null} if rejected
+     * @param error            why the entry failed or was rejected, or {@code null}
+     */
+    public record Result(int index,
+                         String targetWalletCode,
+                         BigDecimal amount,
+                         String status,
+                         @JsonInclude(JsonInclude.Include.NON_NULL) Long transactionId,
+                         @JsonInclude(JsonInclude.Include.NON_NULL) String error) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.spring_project.digital_banking_system.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The outcome of a deposit or withdrawal.
+ *
+ * @param message       a human-readable summary
+ * @param newBalance    the wallet's balance afterwards
+ * @param transactionId the ID of the recorded transaction
+ */
+public record TransactionResponse(String message, BigDecimal newBalance, Long transactionId) {
+}
@@ -0,0 +1,24 @@
+package com.spring_project.digital_banking_system.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The body of a transfer or bank transfer, and one entry of a batch of them. Validated when
+ * the request is bound, like {@link AmountRequest}.
+ *
+ * @param targetWalletCode the code of the wallet to credit
+ * @param amount           the amount, greater than zero
+ */
+public record TransferRequest(String targetWalletCode, BigDecimal amount) {
+
+    /**
+     * @throws IllegalArgumentException if the wallet code is missing or the amount is null,
+     *                                  zero, or negative
+     */
+    public TransferRequest {
+        if (targetWalletCode == null || targetWalletCode.isBlank()) {
+            throw new IllegalArgumentException("Target wallet code is required");
+        }
+        AmountRequest.requirePositive(amount);
+    }
+}
@@ -0,0 +1,14 @@
+package com.spring_project.digital_banking_system.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The outcome of a transfer between two users' wallets.
+ *
+ * @param message             a human-readable summary
+ * @param newBalance          the sender's balance afterwards
+ * @param transactionId       the ID of the recorded transaction
+ * @param recipientWalletCode the code of the credited wallet
+ */
+public record TransferResponse(String message, BigDecimal newBalance, Long transactionId, String recipientWalletCode) {
+}
@@ -0,0 +1,12 @@
+package com.spring_project.digital_banking_system.exception;
+
+/**
+ * Thrown when a write is based on a version of a record that has since been changed by
+ * another request. Mapped to {@code 409 Conflict} by {@link GlobalExceptionHandler}.
+ */
+public class ConcurrentUpdateException extends RuntimeException {
+
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
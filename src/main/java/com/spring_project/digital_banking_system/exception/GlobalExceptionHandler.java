@@ -2,6 +2,7 @@ package com.spring_project.digital_banking_system.exception;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -14,6 +15,9 @@ import java.util.Map;
  * <p>Catches exceptions thrown during request processing and returns
  * consistent JSON error responses with appropriate HTTP status codes.
  * Uses smart detection to differentiate between "not found" and "bad request" errors.</p>
+ *
+ * <p>A request body that cannot be bound is a bad request; if binding failed because a request
+ * record rejected its values, the record's message is returned.</p>
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -26,7 +30,14 @@ public class GlobalExceptionHandler {
         // Simple logic to map exception types to status codes
         HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
         
-        if (ex instanceof IllegalArgumentException || ex instanceof IllegalStateException) {
+        if (ex instanceof HttpMessageNotReadableException) {
+            status = HttpStatus.BAD_REQUEST;
+            response.put("error", bindingError(ex));
+        } else if (ex instanceof ConcurrentUpdateException) {
+            status = HttpStatus.CONFLICT;
+        } else if (ex instanceof StorageUnavailableException) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+        } else if (ex instanceof IllegalArgumentException || ex instanceof IllegalStateException) {
             status = HttpStatus.BAD_REQUEST;
         } else if (ex.getMessage() != null && ex.getMessage().toLowerCase().contains("not found")) {
             status = HttpStatus.NOT_FOUND;
@@ -35,4 +46,13 @@ public class GlobalExceptionHandler {
         response.put("status", status.value());
         return new ResponseEntity<>(response, status);
     }
+
+    private static String bindingError(Throwable ex) {
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException) {
+                return cause.getMessage();
+            }
+        }
+        return "Malformed request body";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.spring_project.digital_banking_system.exception;
+
+/**
+ * Thrown when storage cannot take a change through no fault of the request: it is shutting
+ * down, or refuses writes after a failed journal write until restart. Mapped to
+ * {@code 503 Service Unavailable} by {@link GlobalExceptionHandler}.
+ */
+public class StorageUnavailableException extends RuntimeException {
+
+    public StorageUnavailableException(String message) {
+        super(message);
+    }
+
+    public StorageUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,37 @@
+package com.spring_project.digital_banking_system.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * IdempotencyRecord model - the response of a request made with an {@code Idempotency-Key},
+ * kept so that a retry of the request gets the same response instead of repeating it
+ */
+public class IdempotencyRecord implements Serializable {
+    private String key;
+    private String fingerprint;
+    private String response;
+    private LocalDateTime createdAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String key, String fingerprint, LocalDateTime createdAt) {
+        this.key = key;
+        this.fingerprint = fingerprint;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public String getFingerprint() { return fingerprint; }
+    public void setFingerprint(String fingerprint) { this.fingerprint = fingerprint; }
+
+    public String getResponse() { return response; }
+    public void setResponse(String response) { this.response = response; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -12,6 +12,7 @@ public class Wallet implements Serializable {
     private Long userId;
     private BigDecimal balance;
     private String walletCode;
+    private long version;
 
     public Wallet() {
         this.balance = BigDecimal.ZERO;
@@ -35,4 +36,7 @@ public class Wallet implements Serializable {
 
     public String getWalletCode() { return walletCode; }
     public void setWalletCode(String walletCode) { this.walletCode = walletCode; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
\ No newline at end of file
@@ -0,0 +1,337 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-wallet running balances over time, for answering what a wallet's balance was at a given
+ * moment without replaying its history.
+ *
+ * <p>Each wallet keeps the balance change of every successful transaction it sent or received,
+ * ordered by timestamp (ties broken by ID), in primitive and {@code BigDecimal} arrays. Every
+ * {@code interval} entries a checkpoint records the running balance before that entry. A query
+ * binary-searches the position of the requested time, starts from the checkpoint at or before
+ * it and adds at most {@code interval - 1} changes, however long the wallet's history is. Since
+ * transactions almost always arrive in timestamp order, an insert is an append that touches at
+ * most the last checkpoint.</p>
+ *
+ * <p>Only the changes added here are summed; callers add what the transactions they no longer
+ * hold contributed, such as archived months. An archived transaction replaced by a copy held
+ * here is cancelled with {@link #addReplaced}, which records its change negated under the
+ * negated ID so it never collides with the copy.</p>
+ *
+ * <p>Writers must be serialized by the caller; readers may run concurrently with them.</p>
+ */
+class BalanceCheckpoints {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final int interval;
+    private final Map<Long, Ledger> ledgers = new ConcurrentHashMap<>();
+
+    /**
+     * @param interval the number of entries between two checkpoints
+     */
+    BalanceCheckpoints(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Returns the balance changes a transaction makes, by wallet ID. Only successful
+     * transactions with an amount change a balance, and one a wallet sends to itself does not.
+     * Transactions without a timestamp are left out, as they fall outside every time range.
+     *
+     * @param transaction the transaction
+     * @return the change of each affected wallet; empty if none is affected
+     */
+    static Map<Long, BigDecimal> changesOf(Transaction transaction) {
+        Long sender = transaction.getSenderWalletId();
+        Long receiver = transaction.getReceiverWalletId();
+        BigDecimal amount = transaction.getAmount();
+        if (transaction.getStatus() != TransactionStatus.SUCCESS || amount == null
+                || transaction.getTimestamp() == null || sender != null && sender.equals(receiver)) {
+            return Map.of();
+        }
+        Map<Long, BigDecimal> changes = new HashMap<>(4);
+        if (sender != null) {
+            changes.put(sender, amount.negate());
+        }
+        if (receiver != null) {
+            changes.put(receiver, amount);
+        }
+        return changes;
+    }
+
+    /**
+     * Sums the balance changes of transactions, by wallet ID.
+     *
+     * @param transactions the transactions
+     * @return the net change of each affected wallet
+     */
+    static Map<Long, BigDecimal> netChanges(Collection<Transaction> transactions) {
+        Map<Long, BigDecimal> net = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            changesOf(transaction).forEach((walletId, change) -> net.merge(walletId, change, BigDecimal::add));
+        }
+        return net;
+    }
+
+    /**
+     * Adds the balance changes of a transaction.
+     *
+     * @param transaction the transaction to add
+     */
+    void add(Transaction transaction) {
+        long key = keyOf(transaction.getTimestamp());
+        changesOf(transaction).forEach((walletId, change) ->
+                ledgers.computeIfAbsent(walletId, id -> new Ledger()).insert(key, transaction.getId(), change));
+    }
+
+    /**
+     * Removes the balance changes of a transaction.
+     *
+     * @param transaction the transaction as it was when added
+     */
+    void remove(Transaction transaction) {
+        removeEntries(transaction, transaction.getId());
+    }
+
+    /**
+     * Cancels the balance changes of an archived transaction that a transaction held here
+     * replaces.
+     *
+     * @param archived the archived copy
+     */
+    void addReplaced(Transaction archived) {
+        long key = keyOf(archived.getTimestamp());
+        changesOf(archived).forEach((walletId, change) ->
+                ledgers.computeIfAbsent(walletId, id -> new Ledger()).insert(key, -archived.getId(), change.negate()));
+    }
+
+    /**
+     * Stops cancelling an archived transaction, once nothing held here replaces it.
+     *
+     * @param archived the archived copy, as passed to {@link #addReplaced}
+     */
+    void removeReplaced(Transaction archived) {
+        removeEntries(archived, -archived.getId());
+    }
+
+    /**
+     * Returns the sum of a wallet's balance changes up to and including a time.
+     *
+     * @param walletId the wallet ID
+     * @param asOf     the time; changes with a later timestamp are left out
+     * @return the sum, zero if the wallet has no changes
+     */
+    BigDecimal balanceAt(Long walletId, LocalDateTime asOf) {
+        Ledger ledger = ledgers.get(walletId);
+        return ledger == null ? BigDecimal.ZERO : ledger.balanceAt(keyOf(asOf));
+    }
+
+    /**
+     * Discards every entry and rebuilds the ledgers from the given transactions, sorting each
+     * wallet's entries once instead of inserting them one by one.
+     *
+     * @param transactions the transactions to add
+     */
+    void rebuild(Collection<Transaction> transactions) {
+        Map<Long, List<Entry>> entries = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            long key = keyOf(transaction.getTimestamp());
+            changesOf(transaction).forEach((walletId, change) -> entries
+                    .computeIfAbsent(walletId, id -> new ArrayList<>())
+                    .add(new Entry(key, transaction.getId(), change)));
+        }
+        ledgers.clear();
+        entries.forEach((walletId, walletEntries) -> {
+            walletEntries.sort(Comparator.comparingLong(Entry::key).thenComparingLong(Entry::id));
+            Ledger ledger = new Ledger();
+            ledger.load(walletEntries);
+            ledgers.put(walletId, ledger);
+        });
+    }
+
+    /**
+     * Returns the number of wallets, entries and checkpoints held.
+     *
+     * @return a map of statistic names to values
+     */
+    Map<String, Object> getStats() {
+        long entries = 0;
+        long checkpoints = 0;
+        for (Ledger ledger : ledgers.values()) {
+            int size = ledger.size();
+            entries += size;
+            checkpoints += size / interval;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("balanceLedgerWallets", ledgers.size());
+        stats.put("balanceLedgerEntries", entries);
+        stats.put("balanceCheckpoints", checkpoints);
+        stats.put("balanceCheckpointInterval", interval);
+        return stats;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void removeEntries(Transaction transaction, long id) {
+        long key = keyOf(transaction.getTimestamp());
+        for (Long walletId : changesOf(transaction).keySet()) {
+            Ledger ledger = ledgers.get(walletId);
+            if (ledger != null) {
+                ledger.remove(key, id);
+            }
+        }
+    }
+
+    /**
+     * Nanoseconds since the epoch, read as UTC and saturated at the bounds of a {@code long}. A
+     * missing timestamp gets the lowest key, though such transactions have no changes to key.
+     */
+    private static long keyOf(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return Long.MIN_VALUE;
+        }
+        long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+        if (seconds >= Long.MAX_VALUE / NANOS_PER_SECOND) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds <= Long.MIN_VALUE / NANOS_PER_SECOND) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * NANOS_PER_SECOND + timestamp.getNano();
+    }
+
+    private record Entry(long key, long id, BigDecimal change) {
+    }
+
+    /**
+     * One wallet's balance changes in {@code (key, id)} order, and the running balance before
+     * every {@code interval}-th of them.
+     */
+    private final class Ledger {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private BigDecimal[] changes = new BigDecimal[INITIAL_CAPACITY];
+        // checkpoints[k] is the sum of changes[0, k * interval)
+        private BigDecimal[] checkpoints = {BigDecimal.ZERO};
+        private int size;
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized BigDecimal balanceAt(long key) {
+            // Count the entries at or before the key; every ID sorts before Long.MAX_VALUE
+            int end = position(key, Long.MAX_VALUE);
+            int start = end / interval * interval;
+            BigDecimal balance = checkpoints[end / interval];
+            for (int i = start; i < end; i++) {
+                balance = balance.add(changes[i]);
+            }
+            return balance;
+        }
+
+        /** Inserts an entry at its position, searching backwards from the newest entry. */
+        synchronized void insert(long key, long id, BigDecimal change) {
+            if (size == keys.length) {
+                int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                changes = Arrays.copyOf(changes, capacity);
+            }
+            int position = size;
+            while (position > 0 && compare(key, id, position - 1) < 0) {
+                position--;
+            }
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            System.arraycopy(changes, position, changes, position + 1, size - position);
+            keys[position] = key;
+            ids[position] = id;
+            changes[position] = change;
+            size++;
+            refreshCheckpoints(position);
+        }
+
+        synchronized void remove(long key, long id) {
+            int position = position(key, id);
+            if (position == size || keys[position] != key || ids[position] != id) {
+                return;
+            }
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            System.arraycopy(changes, position + 1, changes, position, size - position - 1);
+            size--;
+            changes[size] = null;
+            refreshCheckpoints(position);
+        }
+
+        synchronized void load(List<Entry> entries) {
+            int capacity = Math.max(INITIAL_CAPACITY, entries.size());
+            keys = new long[capacity];
+            ids = new long[capacity];
+            changes = new BigDecimal[capacity];
+            for (Entry entry : entries) {
+                keys[size] = entry.key();
+                ids[size] = entry.id();
+                changes[size] = entry.change();
+                size++;
+            }
+            refreshCheckpoints(0);
+        }
+
+        /** Returns the position of the first entry at or after {@code (key, id)}. */
+        private int position(long key, long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(key, id, middle) > 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int compare(long key, long id, int position) {
+            int byKey = Long.compare(key, keys[position]);
+            return byKey != 0 ? byKey : Long.compare(id, ids[position]);
+        }
+
+        /** Recomputes the checkpoints after the one covering a changed position. */
+        private void refreshCheckpoints(int changed) {
+            int count = size / interval + 1;
+            if (checkpoints.length < count) {
+                checkpoints = Arrays.copyOf(checkpoints, count * 2);
+            }
+            for (int k = changed / interval + 1; k < count; k++) {
+                BigDecimal balance = checkpoints[k - 1];
+                for (int i = (k - 1) * interval; i < k * interval; i++) {
+                    balance = balance.add(changes[i]);
+                }
+                checkpoints[k] = balance;
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes records in a compact fixed-layout binary format, encoded field by field without
+ * reflection.
+ *
+ * <p>A file starts with a magic number, a format version and the record type, followed by
+ * one record per entry, each preceded by a marker byte, and ends with an end marker so that a
+ * truncated file is detected instead of silently loading fewer records. Within a record:</p>
+ * <ul>
+ *   <li>IDs are 8-byte longs, with {@link Long#MIN_VALUE} standing for {@code null}</li>
+ *   <li>amounts are a scale byte followed by the unscaled value as a long</li>
+ *   <li>timestamps are UTC epoch seconds as a long followed by the nanoseconds as an int</li>
+ *   <li>enums are their ordinal as a byte, with {@code -1} standing for {@code null}</li>
+ *   <li>wallet codes are {@value #WALLET_CODE_LENGTH} ASCII bytes, zero-padded</li>
+ *   <li>other strings are length-prefixed UTF-8</li>
+ * </ul>
+ *
+ * <p>The ordinals of the model enums are part of the format: new constants must be added at
+ * the end, and the {@link #FORMAT_VERSION} bumped if a field is added or changed.</p>
+ */
+public class BinaryStorageCodec implements StorageCodec {
+
+    private static final int MAGIC = 0x44425342; // "DBSB"
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte RECORD = 1;
+    private static final byte END = 0;
+
+    private static final int WALLET_CODE_LENGTH = 12;
+    private static final long NULL_ID = Long.MIN_VALUE;
+    private static final byte NULL_ORDINAL = -1;
+    private static final byte NULL_SCALE = Byte.MIN_VALUE;
+    private static final int NULL_LENGTH = -1;
+
+    private static final Map<Class<?>, RecordFormat<?>> FORMATS = Map.of(
+            User.class, new UserFormat(),
+            Wallet.class, new WalletFormat(),
+            Transaction.class, new TransactionFormat(),
+            IdempotencyRecord.class, new IdempotencyRecordFormat());
+
+    @Override
+    public String getFileExtension() {
+        return "bin";
+    }
+
+    @Override
+    public <T> long write(OutputStream out, Class<T> type, Iterator<? extends T> records, long limit) throws IOException {
+        RecordFormat<T> format = formatFor(type);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(FORMAT_VERSION);
+        data.writeByte(format.recordType());
+
+        long count = 0;
+        while (count < limit && records.hasNext()) {
+            data.writeByte(RECORD);
+            format.write(data, records.next());
+            count++;
+        }
+        data.writeByte(END);
+        data.flush();
+        return count;
+    }
+
+    @Override
+    public <T> void read(InputStream in, Class<T> type, Consumer<? super T> consumer) throws IOException {
+        RecordFormat<T> format = formatFor(type);
+        DataInputStream data = new DataInputStream(in);
+        try {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a binary storage file");
+            }
+            byte version = data.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported binary storage format version " + version);
+            }
+            byte recordType = data.readByte();
+            if (recordType != format.recordType()) {
+                throw new IOException("File holds record type " + recordType + ", expected " + type.getSimpleName());
+            }
+
+            byte marker;
+            while ((marker = data.readByte()) == RECORD) {
+                consumer.accept(format.read(data));
+            }
+            if (marker != END) {
+                throw new IOException("Corrupt binary storage file: unexpected marker " + marker);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated binary storage file", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RecordFormat<T> formatFor(Class<T> type) {
+        RecordFormat<T> format = (RecordFormat<T>) FORMATS.get(type);
+        if (format == null) {
+            throw new IllegalArgumentException("No binary format for " + type.getName());
+        }
+        return format;
+    }
+
+    // ==================== RECORD FORMATS ====================
+
+    private interface RecordFormat<T> {
+        byte recordType();
+
+        void write(DataOutputStream out, T record) throws IOException;
+
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private static final class UserFormat implements RecordFormat<User> {
+        @Override
+        public byte recordType() {
+            return 1;
+        }
+
+        @Override
+        public void write(DataOutputStream out, User user) throws IOException {
+            writeId(out, user.getId());
+            writeOrdinal(out, user.getRole());
+            writeString(out, user.getUsername());
+            writeString(out, user.getEmail());
+            writeString(out, user.getPassword());
+        }
+
+        @Override
+        public User read(DataInputStream in) throws IOException {
+            User user = new User();
+            user.setId(readId(in));
+            user.setRole(readEnum(in, Role.values()));
+            user.setUsername(readString(in));
+            user.setEmail(readString(in));
+            user.setPassword(readString(in));
+            return user;
+        }
+    }
+
+    private static final class WalletFormat implements RecordFormat<Wallet> {
+        @Override
+        public byte recordType() {
+            return 2;
+        }
+
+        @Override
+        public void write(DataOutputStream out, Wallet wallet) throws IOException {
+            writeId(out, wallet.getId());
+            writeId(out, wallet.getUserId());
+            writeAmount(out, wallet.getBalance());
+            writeWalletCode(out, wallet.getWalletCode());
+            out.writeLong(wallet.getVersion());
+        }
+
+        @Override
+        public Wallet read(DataInputStream in) throws IOException {
+            Wallet wallet = new Wallet();
+            wallet.setId(readId(in));
+            wallet.setUserId(readId(in));
+            wallet.setBalance(readAmount(in));
+            wallet.setWalletCode(readWalletCode(in));
+            wallet.setVersion(in.readLong());
+            return wallet;
+        }
+    }
+
+    private static final class TransactionFormat implements RecordFormat<Transaction> {
+        @Override
+        public byte recordType() {
+            return 3;
+        }
+
+        @Override
+        public void write(DataOutputStream out, Transaction transaction) throws IOException {
+            writeId(out, transaction.getId());
+            writeId(out, transaction.getSenderWalletId());
+            writeId(out, transaction.getReceiverWalletId());
+            writeAmount(out, transaction.getAmount());
+            writeOrdinal(out, transaction.getType());
+            writeOrdinal(out, transaction.getStatus());
+            writeTimestamp(out, transaction.getTimestamp());
+        }
+
+        @Override
+        public Transaction read(DataInputStream in) throws IOException {
+            Transaction transaction = new Transaction();
+            transaction.setId(readId(in));
+            transaction.setSenderWalletId(readId(in));
+            transaction.setReceiverWalletId(readId(in));
+            transaction.setAmount(readAmount(in));
+            transaction.setType(readEnum(in, TransactionType.values()));
+            transaction.setStatus(readEnum(in, TransactionStatus.values()));
+            transaction.setTimestamp(readTimestamp(in));
+            return transaction;
+        }
+    }
+
+    private static final class IdempotencyRecordFormat implements RecordFormat<IdempotencyRecord> {
+        @Override
+        public byte recordType() {
+            return 4;
+        }
+
+        @Override
+        public void write(DataOutputStream out, IdempotencyRecord record) throws IOException {
+            writeString(out, record.getKey());
+            writeString(out, record.getFingerprint());
+            writeString(out, record.getResponse());
+            writeTimestamp(out, record.getCreatedAt());
+        }
+
+        @Override
+        public IdempotencyRecord read(DataInputStream in) throws IOException {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setKey(readString(in));
+            record.setFingerprint(readString(in));
+            record.setResponse(readString(in));
+            record.setCreatedAt(readTimestamp(in));
+            return record;
+        }
+    }
+
+    // ==================== FIELD ENCODING ====================
+
+    private static void writeId(DataOutputStream out, Long id) throws IOException {
+        out.writeLong(id == null ? NULL_ID : id);
+    }
+
+    private static Long readId(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        return id == NULL_ID ? null : id;
+    }
+
+    private static void writeAmount(DataOutputStream out, BigDecimal amount) throws IOException {
+        if (amount == null) {
+            out.writeByte(NULL_SCALE);
+            return;
+        }
+        if (amount.scale() <= NULL_SCALE || amount.scale() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Amount scale out of range: " + amount);
+        }
+        long unscaled;
+        try {
+            unscaled = amount.unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount too large for binary storage: " + amount, e);
+        }
+        out.writeByte(amount.scale());
+        out.writeLong(unscaled);
+    }
+
+    private static BigDecimal readAmount(DataInputStream in) throws IOException {
+        byte scale = in.readByte();
+        if (scale == NULL_SCALE) {
+            return null;
+        }
+        return new BigDecimal(BigInteger.valueOf(in.readLong()), scale);
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        if (timestamp == null) {
+            out.writeLong(NULL_ID);
+            out.writeInt(0);
+            return;
+        }
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        int nanos = in.readInt();
+        if (seconds == NULL_ID) {
+            return null;
+        }
+        try {
+            return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+        } catch (DateTimeException e) {
+            throw new IOException("Corrupt binary storage file: invalid timestamp " + seconds + "." + nanos, e);
+        }
+    }
+
+    private static void writeOrdinal(DataOutputStream out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? NULL_ORDINAL : value.ordinal());
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInputStream in, E[] values) throws IOException {
+        byte ordinal = in.readByte();
+        if (ordinal == NULL_ORDINAL) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Unknown " + values.getClass().getComponentType().getSimpleName() + " ordinal " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private static void writeWalletCode(DataOutputStream out, String walletCode) throws IOException {
+        byte[] bytes = new byte[WALLET_CODE_LENGTH];
+        if (walletCode != null) {
+            byte[] code = walletCode.getBytes(StandardCharsets.US_ASCII);
+            if (code.length > WALLET_CODE_LENGTH) {
+                throw new IllegalArgumentException("Wallet code too long for binary storage: " + walletCode);
+            }
+            System.arraycopy(code, 0, bytes, 0, code.length);
+        }
+        out.write(bytes);
+    }
+
+    private static String readWalletCode(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[WALLET_CODE_LENGTH];
+        in.readFully(bytes);
+        int length = 0;
+        while (length < WALLET_CODE_LENGTH && bytes[length] != 0) {
+            length++;
+        }
+        return length == 0 ? null : new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Corrupt binary storage file: negative string length " + length);
+        }
+        // Read in chunks, so a corrupt length fails at the end of the stream rather than allocating it
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
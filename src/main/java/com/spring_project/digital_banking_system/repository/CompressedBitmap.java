@@ -0,0 +1,413 @@
+package com.spring_project.digital_banking_system.repository;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Compressed set of non-negative {@code long} IDs, laid out like a Roaring bitmap.
+ *
+ * <p>IDs are split by their upper bits into containers of 65,536 values. A container holding
+ * few IDs is a sorted {@code char[]} of their lower 16 bits; one holding more than
+ * {@value #ARRAY_MAX} is a plain 8 KB bitmap. Sparse sets therefore cost about two bytes per
+ * ID and dense ones one bit, and intersections work container by container, word by word.</p>
+ *
+ * <p>Not thread-safe; callers coordinate access.</p>
+ */
+class CompressedBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private final TreeMap<Long, Container> containers = new TreeMap<>();
+    private long cardinality;
+
+    /**
+     * Adds an ID.
+     *
+     * @param id the ID; must not be negative
+     */
+    void add(long id) {
+        Long key = id >>> 16;
+        Container container = containers.get(key);
+        if (container == null) {
+            container = new ArrayContainer();
+        }
+        int before = container.cardinality();
+        container = container.add((char) id);
+        containers.put(key, container);
+        cardinality += container.cardinality() - before;
+    }
+
+    /**
+     * Removes an ID if present.
+     *
+     * @param id the ID
+     */
+    void remove(long id) {
+        Long key = id >>> 16;
+        Container container = containers.get(key);
+        if (container == null) {
+            return;
+        }
+        int before = container.cardinality();
+        container = container.remove((char) id);
+        cardinality -= before - container.cardinality();
+        if (container.cardinality() == 0) {
+            containers.remove(key);
+        } else {
+            containers.put(key, container);
+        }
+    }
+
+    /**
+     * Removes every ID.
+     */
+    void clear() {
+        containers.clear();
+        cardinality = 0;
+    }
+
+    /**
+     * Tells whether an ID is present.
+     *
+     * @param id the ID
+     * @return {@code true} if the ID is in the set
+     */
+    boolean contains(long id) {
+        Container container = containers.get(id >>> 16);
+        return container != null && container.contains((char) id);
+    }
+
+    /**
+     * Returns the number of IDs in the set, without iterating.
+     *
+     * @return the cardinality
+     */
+    long cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Returns the approximate heap used by the containers.
+     *
+     * @return the size in bytes
+     */
+    long bytes() {
+        long bytes = 0;
+        for (Container container : containers.values()) {
+            bytes += container.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Intersects bitmaps, starting with the smallest so intermediate results stay small.
+     *
+     * @param bitmaps the bitmaps to intersect; at least one
+     * @return a new bitmap holding the IDs present in every bitmap
+     */
+    static CompressedBitmap and(List<CompressedBitmap> bitmaps) {
+        List<CompressedBitmap> smallestFirst = bitmaps.stream()
+                .sorted(Comparator.comparingLong(CompressedBitmap::cardinality))
+                .toList();
+        CompressedBitmap result = smallestFirst.get(0).copy();
+        for (int i = 1; i < smallestFirst.size() && result.cardinality > 0; i++) {
+            result = result.and(smallestFirst.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the highest IDs below a bound, highest first.
+     *
+     * @param beforeId the exclusive upper bound
+     * @param limit    the maximum number of IDs to return
+     * @return the IDs, in descending order
+     */
+    long[] descending(long beforeId, int limit) {
+        if (beforeId <= 0 || limit <= 0 || cardinality == 0) {
+            return new long[0];
+        }
+        long[] ids = new long[(int) Math.min(limit, cardinality)];
+        int count = 0;
+        long bound = beforeId - 1;
+        Iterator<Map.Entry<Long, Container>> entries =
+                containers.headMap(bound >>> 16, true).descendingMap().entrySet().iterator();
+        while (entries.hasNext() && count < ids.length) {
+            Map.Entry<Long, Container> entry = entries.next();
+            long high = entry.getKey() << 16;
+            int from = entry.getKey() == bound >>> 16 ? (char) bound : Character.MAX_VALUE;
+            int[] found = {count};
+            entry.getValue().forEachDescending(from, low -> {
+                ids[found[0]++] = high | low;
+                return found[0] < ids.length;
+            });
+            count = found[0];
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap();
+        containers.forEach((key, container) -> copy.containers.put(key, container.copy()));
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    private CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        for (Map.Entry<Long, Container> entry : containers.entrySet()) {
+            Container match = other.containers.get(entry.getKey());
+            if (match != null) {
+                Container intersection = entry.getValue().and(match);
+                if (intersection.cardinality() > 0) {
+                    result.containers.put(entry.getKey(), intersection);
+                    result.cardinality += intersection.cardinality();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The lower 16 bits of the IDs sharing one upper key.
+     */
+    private interface Container {
+        int cardinality();
+
+        boolean contains(char value);
+
+        /** Adds a value, returning this container or the one that replaces it. */
+        Container add(char value);
+
+        /** Removes a value, returning this container or the one that replaces it. */
+        Container remove(char value);
+
+        Container and(Container other);
+
+        /** Visits values at or below {@code from}, highest first, while the visitor returns {@code true}. */
+        void forEachDescending(int from, LongPredicate visitor);
+
+        Container copy();
+
+        long bytes();
+    }
+
+    private static final class ArrayContainer implements Container {
+        private char[] values;
+        private int size;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        public Container add(char value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if (position >= 0) {
+                return this;
+            }
+            if (size == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            position = -position - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, size * 2)));
+            }
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if (position >= 0) {
+                System.arraycopy(values, position + 1, values, position, size - position - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[size];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < size && j < array.size) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public void forEachDescending(int from, LongPredicate visitor) {
+            int position = Arrays.binarySearch(values, 0, size, (char) from);
+            int start = position >= 0 ? position : -position - 2;
+            for (int i = start; i >= 0; i--) {
+                if (!visitor.test(values[i])) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, size), size);
+        }
+
+        @Override
+        public long bytes() {
+            return (long) values.length * Character.BYTES;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public Container add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX / 2 ? toArray() : this;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer intersection = new BitmapContainer(result, count);
+            return count <= ARRAY_MAX ? intersection.toArray() : intersection;
+        }
+
+        @Override
+        public void forEachDescending(int from, LongPredicate visitor) {
+            for (int word = from >>> 6; word >= 0; word--) {
+                long bits = words[word];
+                if (word == from >>> 6) {
+                    bits &= -1L >>> (63 - (from & 63));
+                }
+                while (bits != 0) {
+                    int bit = 63 - Long.numberOfLeadingZeros(bits);
+                    if (!visitor.test((word << 6) | bit)) {
+                        return;
+                    }
+                    bits &= ~(1L << bit);
+                }
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        public long bytes() {
+            return (long) BITMAP_WORDS * Long.BYTES;
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    values[count++] = (char) ((word << 6) | bit);
+                    bits &= bits - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Per-wallet net balance changes by calendar day, for answering point-in-time balances from a
+ * database without summing a wallet's whole history.
+ *
+ * <p>A wallet's balance at a time is the sum of its whole days before that time, added up
+ * here, plus the changes of the day the time falls in, which the caller reads from its rows.
+ * Memory grows with the days each wallet was active rather than with its transactions. The
+ * changes counted are those of {@link BalanceCheckpoints#changesOf}.</p>
+ *
+ * <p>A day whose changes cancel out is kept with a zero change, so a sum keeps the largest
+ * scale of the amounts it covers. Thread-safe.</p>
+ */
+class DailyBalanceChanges {
+
+    private final Map<Long, NavigableMap<LocalDate, BigDecimal>> wallets = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the balance changes of a transaction.
+     *
+     * @param transaction the transaction to add
+     */
+    void add(Transaction transaction) {
+        BalanceCheckpoints.changesOf(transaction).forEach((walletId, change) ->
+                addDay(walletId, transaction.getTimestamp().toLocalDate(), change));
+    }
+
+    /**
+     * Removes the balance changes of a transaction.
+     *
+     * @param transaction the transaction as it was when added
+     */
+    void remove(Transaction transaction) {
+        BalanceCheckpoints.changesOf(transaction).forEach((walletId, change) ->
+                addDay(walletId, transaction.getTimestamp().toLocalDate(), change.negate()));
+    }
+
+    /**
+     * Adds a net change to one day of a wallet, as summed on startup.
+     *
+     * @param walletId the wallet ID
+     * @param day      the day
+     * @param change   the net change of the wallet's transactions on that day
+     */
+    void addDay(Long walletId, LocalDate day, BigDecimal change) {
+        wallets.computeIfAbsent(walletId, id -> new ConcurrentSkipListMap<>()).merge(day, change, BigDecimal::add);
+    }
+
+    /**
+     * Returns the sum of a wallet's changes on the days before a day.
+     *
+     * @param walletId the wallet ID
+     * @param day      the first day left out
+     * @return the sum, zero if the wallet has no changes before the day
+     */
+    BigDecimal sumBefore(Long walletId, LocalDate day) {
+        NavigableMap<LocalDate, BigDecimal> days = wallets.get(walletId);
+        if (days == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal sum = BigDecimal.ZERO;
+        for (BigDecimal change : days.headMap(day, false).values()) {
+            sum = sum.add(change);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the number of wallets and wallet days held.
+     *
+     * @return a map of statistic names to values
+     */
+    Map<String, Object> getStats() {
+        long days = 0;
+        for (NavigableMap<LocalDate, BigDecimal> walletDays : wallets.values()) {
+            days += walletDays.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("balanceDayWallets", wallets.size());
+        stats.put("balanceDays", days);
+        return stats;
+    }
+}
@@ -1,63 +1,236 @@
 package com.spring_project.digital_banking_system.repository;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.exception.ConcurrentUpdateException;
+import com.spring_project.digital_banking_system.exception.StorageUnavailableException;
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
 import com.spring_project.digital_banking_system.model.Transaction;
 import com.spring_project.digital_banking_system.model.User;
 import com.spring_project.digital_banking_system.model.Wallet;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
- * Centralized repository for all data operations using JSON file storage.
+ * Centralized repository for all data operations using file-based storage; the default
+ * {@link StorageBackend#FILE FILE} implementation of {@link Storage}.
  *
- * <p>This repository reads and writes data to JSON files in the {@code data/} directory,
- * providing CRUD operations for {@link User}, {@link Wallet}, and {@link Transaction} entities.
- * It serves as a lightweight alternative to a traditional database.</p>
+ * <p>All data is loaded from the {@code data/} directory once at startup and kept resident
+ * in memory, indexed by user ID, username, wallet ID, wallet owner and wallet code, with a
+ * {@link WalletTransactionIndex} from each wallet to its transactions and a
+ * {@link TransactionSearchIndex} for admin searches. Transactions are held in
+ * the primitive columns of a {@link TransactionColumns} store rather than as objects. Lookups
+ * are served from these indexes and never touch the disk; every {@code save*}/{@code delete*}
+ * call updates the indexes and writes through to disk by appending a record to the
+ * {@link LedgerJournal}. It serves as a lightweight alternative to a traditional database.</p>
+ *
+ * <p>Disk writes are performed by a {@link GroupCommitWriter} rather than the calling thread.
+ * A save applies its change in memory, queues the journal record and then waits until the
+ * batch containing it has been committed, so concurrent requests share one write and one fsync.
+ * If a journal write or fsync fails, the changes applied meanwhile stay visible in memory but
+ * can never become durable: every further write and snapshot is refused until a restart
+ * reloads the state the journal actually holds.</p>
+ *
+ * <p>Once the current journal segment grows past a configured size, a compact snapshot of all
+ * data is written by the {@link SnapshotStore} and the journal segments it covers are deleted.
+ * Startup loads the latest snapshot in parallel and replays only the journal written after it.
+ * Data in the original {@code users.json}/{@code wallets.json}/{@code transactions.json}
+ * format is migrated into a first snapshot automatically.</p>
+ *
+ * <p>Transactions older than a configured age are moved out of memory into the compressed
+ * monthly segments of a {@link TransactionArchive} when a snapshot is written. Lookups and
+ * history pages only read the archive when they reach back past the transactions still held
+ * in memory. Point-in-time balances come from {@link BalanceCheckpoints} over the transactions in
+ * memory, plus the net balance changes each archive segment stores.</p>
+ *
+ * <p>Entities are copied on the way in and on the way out, so callers may freely modify
+ * the objects they receive without affecting the stored state until they save them.</p>
+ *
+ * <p>Wallet saves are compare-and-set operations on {@link Wallet#getVersion()}: a save only
+ * succeeds if the stored wallet still has the version the caller read, and bumps it by one.
+ * A stale write is rejected with a {@link ConcurrentUpdateException} instead of silently
+ * overwriting a concurrent update.</p>
  */
 @Repository
-public class DataRepository {
+@ConditionalOnProperty(prefix = "app.storage", name = "backend", havingValue = "FILE", matchIfMissing = true)
+public class DataRepository implements Storage {
 
     private static final Logger log = LoggerFactory.getLogger(DataRepository.class);
 
     private final ObjectMapper objectMapper;
-    private static final String DATA_DIR = "data/";
-    private static final String USERS_FILE = "users.json";
-    private static final String WALLETS_FILE = "wallets.json";
-    private static final String TRANSACTIONS_FILE = "transactions.json";
+    private final LedgerJournal journal;
+    private final SnapshotStore snapshots;
+    private final TransactionArchive archive;
+    private final GroupCommitWriter writer;
+    private final ScheduledExecutorService snapshotScheduler;
+    private final String dataDir;
+    private final long snapshotJournalBytes;
+    private final int archiveAfterDays;
+
+    // Files written by earlier versions, migrated into the first snapshot on startup
+    private static final String LEGACY_USERS_FILE = "users.json";
+    private static final String LEGACY_WALLETS_FILE = "wallets.json";
+    private static final String LEGACY_TRANSACTIONS_FILE = "transactions.json";
+    private static final String LEGACY_TRANSACTIONS_JOURNAL = "transactions.journal";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+    private static final String USER_IDS_FILE = "users.seq";
+    private static final String WALLET_IDS_FILE = "wallets.seq";
+    private static final String TRANSACTION_IDS_FILE = "transactions.seq";
+    private static final int EXPORT_BUFFER_SIZE = 1 << 16;
+
+    private final Map<Long, User> usersById = new ConcurrentHashMap<>();
+    private final Map<String, User> usersByUsername = new ConcurrentHashMap<>();
+
+    private final Map<Long, Wallet> walletsById = new ConcurrentHashMap<>();
+    private final Map<Long, Wallet> walletsByUserId = new ConcurrentHashMap<>();
+    private final Map<String, Wallet> walletsByWalletCode = new ConcurrentHashMap<>();
+
+    private final TransactionColumns transactionsById = new TransactionColumns();
+    private final WalletTransactionIndex transactionsByWallet = new WalletTransactionIndex(transactionsById::timestamp);
+    private final TransactionSearchIndex searchIndex = new TransactionSearchIndex(transactionsByWallet,
+            id -> Optional.ofNullable(transactionsById.get(id)).map(Transaction::getAmount).orElse(null));
+    private final TransactionRollups rollups;
+    private final BalanceCheckpoints balances;
+    private final IdempotencyKeys idempotencyKeys;
+
+    private final IdSequence userIds;
+    private final IdSequence walletIds;
+    private final IdSequence transactionIds;
+
+    // Changes to the same wallet, or to transactions of the same wallet, are serialized so that
+    // index updates and queued journal records stay in step; users have a lock of their own.
+    // These are held only while a change is applied: keeping a balance check and the change it
+    // leads to together is up to the caller, like WalletService's stripes
+    private final WalletLockTable walletLocks;
+    private final Object userLock = new Object();
+    private final Object snapshotLock = new Object();
+    // Held for reading while a change is applied in memory and its record queued, and for
+    // writing to wait until every change applied so far has been queued, or to hold off changes
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    // Held for reading by exports, which must not miss transactions moving to the archive
+    private final ReentrantReadWriteLock archiveLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong versionConflicts = new AtomicLong();
 
-    public DataRepository() {
+    private volatile long startupMillis;
+    private volatile long startupReplayedRecords;
+    private volatile long lastSnapshotSegment;
+    private volatile long lastSnapshotMillis;
+    private volatile long snapshotCount;
+    private volatile LocalDateTime lastArchiveCutoff;
+
+    @Autowired
+    public DataRepository(StorageProperties properties) {
+        this(properties, LedgerJournal::new);
+    }
+
+    /**
+     * @param properties the storage settings
+     * @param journals   opens the journal in the data directory
+     */
+    DataRepository(StorageProperties properties, Function<File, LedgerJournal> journals) {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
-        this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
         this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        
-        File dataDir = new File(DATA_DIR);
-        if (!dataDir.exists()) {
-            dataDir.mkdirs();
+
+        this.dataDir = properties.getDataDir().endsWith("/") ? properties.getDataDir() : properties.getDataDir() + "/";
+        File directory = new File(dataDir);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        this.journal = journals.apply(directory);
+        this.snapshots = new SnapshotStore(directory, properties.getSnapshotFormat());
+        this.snapshotJournalBytes = properties.getSnapshotJournalBytes();
+        this.walletLocks = new WalletLockTable(properties.getWalletLockStripes());
+        this.archive = new TransactionArchive(directory, properties.getArchiveCacheSegments());
+        this.archiveAfterDays = properties.getArchiveAfterDays();
+        this.rollups = new TransactionRollups(Duration.ofHours(properties.getRollupMinuteHours()));
+        this.balances = new BalanceCheckpoints(properties.getBalanceCheckpointInterval());
+        this.idempotencyKeys = new IdempotencyKeys(Duration.ofHours(properties.getIdempotencyKeyHours()),
+                properties.getIdempotencyKeyCapacity());
+
+        loadAll();
+
+        try {
+            this.userIds = openSequence(USER_IDS_FILE, usersById.keySet(), properties.getIdBlockSize());
+            this.walletIds = openSequence(WALLET_IDS_FILE, walletsById.keySet(), properties.getIdBlockSize());
+            this.transactionIds = openSequence(TRANSACTION_IDS_FILE,
+                    List.of(transactionsById.maxId(), archive.maxId()), properties.getIdBlockSize());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open ID sequences in " + dataDir + ": " + e.getMessage(), e);
         }
+
+        this.writer = new GroupCommitWriter(properties.getDurability(),
+                properties.getFsyncIntervalMs(), properties.getMaxBatchSize());
+
+        this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getSnapshotIntervalMs();
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotIfDue, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     // ==================== USER OPERATIONS ====================
-    
+
     /**
-     * Retrieves all users from the data store.
+     * Retrieves all users from the data store, ordered by ID.
      *
      * @return a list of all users, or an empty list if none exist
      */
+    @Override
     public List<User> findAllUsers() {
-        return readFromFile(USERS_FILE, new TypeReference<List<User>>() {});
+        return usersById.values().stream()
+                .sorted(Comparator.comparing(User::getId))
+                .map(DataRepository::copyOf)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -66,10 +239,9 @@ public class DataRepository {
      * @param id the user ID to search for
      * @return an {@link Optional} containing the user if found, or empty otherwise
      */
+    @Override
     public Optional<User> findUserById(Long id) {
-        return findAllUsers().stream()
-                .filter(user -> user.getId().equals(id))
-                .findFirst();
+        return lookup(usersById, id).map(DataRepository::copyOf);
     }
 
     /**
@@ -78,10 +250,9 @@ public class DataRepository {
      * @param username the username to search for
      * @return an {@link Optional} containing the user if found, or empty otherwise
      */
+    @Override
     public Optional<User> findUserByUsername(String username) {
-        return findAllUsers().stream()
-                .filter(user -> user.getUsername().equals(username))
-                .findFirst();
+        return lookup(usersByUsername, username).map(DataRepository::copyOf);
     }
 
     /**
@@ -90,8 +261,9 @@ public class DataRepository {
      * @param username the username to check
      * @return {@code true} if a user with the username exists, {@code false} otherwise
      */
+    @Override
     public boolean existsByUsername(String username) {
-        return findUserByUsername(username).isPresent();
+        return username != null && usersByUsername.containsKey(username);
     }
 
     /**
@@ -101,18 +273,16 @@ public class DataRepository {
      * @param user the user to save
      * @return the saved user with an assigned ID
      */
+    @Override
     public User saveUser(User user) {
-        List<User> users = findAllUsers();
-        
-        if (user.getId() == null) {
-            user.setId(getNextId(users.stream().map(User::getId).collect(Collectors.toList())));
-            users.add(user);
-        } else {
-            users.removeIf(u -> u.getId().equals(user.getId()));
-            users.add(user);
-        }
-        
-        writeToFile(USERS_FILE, users);
+        User stored = prepareUser(user);
+        byte[] record = journal.encode(JournalRecord.put(stored));
+        await(change(() -> {
+            synchronized (userLock) {
+                indexUser(stored);
+                return journalLater(record);
+            }
+        }));
         return user;
     }
 
@@ -121,21 +291,30 @@ public class DataRepository {
      *
      * @param id the ID of the user to delete
      */
+    @Override
     public void deleteUser(Long id) {
-        List<User> users = findAllUsers();
-        users.removeIf(u -> u.getId().equals(id));
-        writeToFile(USERS_FILE, users);
+        byte[] record = journal.encode(JournalRecord.delete(JournalRecord.Entity.USER, id));
+        await(change(() -> {
+            synchronized (userLock) {
+                unindexUser(id);
+                return journalLater(record);
+            }
+        }));
     }
 
     // ==================== WALLET OPERATIONS ====================
-    
+
     /**
-     * Retrieves all wallets from the data store.
+     * Retrieves all wallets from the data store, ordered by ID.
      *
      * @return a list of all wallets, or an empty list if none exist
      */
+    @Override
     public List<Wallet> findAllWallets() {
-        return readFromFile(WALLETS_FILE, new TypeReference<List<Wallet>>() {});
+        return walletsById.values().stream()
+                .sorted(Comparator.comparing(Wallet::getId))
+                .map(DataRepository::copyOf)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -144,10 +323,9 @@ public class DataRepository {
      * @param id the wallet ID to search for
      * @return an {@link Optional} containing the wallet if found, or empty otherwise
      */
+    @Override
     public Optional<Wallet> findWalletById(Long id) {
-        return findAllWallets().stream()
-                .filter(wallet -> wallet.getId().equals(id))
-                .findFirst();
+        return lookup(walletsById, id).map(DataRepository::copyOf);
     }
 
     /**
@@ -156,10 +334,9 @@ public class DataRepository {
      * @param userId the owner's user ID
      * @return an {@link Optional} containing the wallet if found, or empty otherwise
      */
+    @Override
     public Optional<Wallet> findWalletByUserId(Long userId) {
-        return findAllWallets().stream()
-                .filter(wallet -> wallet.getUserId().equals(userId))
-                .findFirst();
+        return lookup(walletsByUserId, userId).map(DataRepository::copyOf);
     }
 
     /**
@@ -168,54 +345,90 @@ public class DataRepository {
      * @param walletCode the wallet code to search for
      * @return an {@link Optional} containing the wallet if found, or empty otherwise
      */
+    @Override
     public Optional<Wallet> findWalletByWalletCode(String walletCode) {
-        return findAllWallets().stream()
-                .filter(wallet -> wallet.getWalletCode().equals(walletCode))
-                .findFirst();
+        return lookup(walletsByWalletCode, walletCode).map(DataRepository::copyOf);
     }
 
     /**
      * Saves a wallet to the data store. If the wallet has no ID, a new one is generated.
-     * If the wallet already has an ID, the existing record is replaced.
+     * If the wallet already has an ID, the existing record is replaced, provided it has not
+     * been changed since the wallet was read. The wallet's version is incremented.
      *
      * @param wallet the wallet to save
-     * @return the saved wallet with an assigned ID
+     * @return the saved wallet with an assigned ID and its new version
+     * @throws ConcurrentUpdateException if the stored wallet has a different version
      */
+    @Override
     public Wallet saveWallet(Wallet wallet) {
-        List<Wallet> wallets = findAllWallets();
-        
-        if (wallet.getId() == null) {
-            wallet.setId(getNextId(wallets.stream().map(Wallet::getId).collect(Collectors.toList())));
-            wallets.add(wallet);
-        } else {
-            wallets.removeIf(w -> w.getId().equals(wallet.getId()));
-            wallets.add(wallet);
-        }
-        
-        writeToFile(WALLETS_FILE, wallets);
+        await(saveWalletAsync(wallet));
         return wallet;
     }
 
+    /**
+     * Saves a wallet without waiting for the journal. The ID and new version are assigned and
+     * the change is visible to readers when this method returns; the returned future completes
+     * once the change has been committed to the journal.
+     *
+     * @param wallet the wallet to save
+     * @return a future that completes when the change is committed
+     * @throws ConcurrentUpdateException if the stored wallet has a different version
+     */
+    @Override
+    public CompletableFuture<Void> saveWalletAsync(Wallet wallet) {
+        Wallet stored = prepareWallet(wallet);
+        byte[] record = journal.encode(JournalRecord.put(stored));
+        return change(() -> walletLocks.withLock(stored.getId(), () -> {
+            checkVersion(wallet);
+            indexWallet(wallet, stored);
+            return journalLater(record);
+        }));
+    }
+
+    /**
+     * Saves several wallets as one atomic compare-and-set without waiting for the journal:
+     * either every wallet still has the version the caller read and all of them are saved,
+     * or none is. The wallets are journaled as a single record, like a {@link UnitOfWork}.
+     *
+     * @param wallets the wallets to save
+     * @return a future that completes when all changes are committed
+     * @throws ConcurrentUpdateException if any stored wallet has a different version
+     */
+    @Override
+    public CompletableFuture<Void> saveWalletsAsync(Wallet... wallets) {
+        UnitOfWork work = newUnitOfWork();
+        for (Wallet wallet : wallets) {
+            work.saveWallet(wallet);
+        }
+        return commitAsync(work);
+    }
+
     /**
      * Deletes a wallet by its ID.
      *
      * @param id the ID of the wallet to delete
      */
+    @Override
     public void deleteWallet(Long id) {
-        List<Wallet> wallets = findAllWallets();
-        wallets.removeIf(w -> w.getId().equals(id));
-        writeToFile(WALLETS_FILE, wallets);
+        byte[] record = journal.encode(JournalRecord.delete(JournalRecord.Entity.WALLET, id));
+        await(change(() -> withWalletLocks(id == null ? List.of() : List.of(id), () -> {
+            unindexWallet(id);
+            return journalLater(record);
+        })));
     }
 
     // ==================== TRANSACTION OPERATIONS ====================
-    
+
     /**
-     * Retrieves all transactions from the data store.
+     * Retrieves all transactions from the data store, ordered by ID.
      *
      * @return a list of all transactions, or an empty list if none exist
      */
+    @Override
     public List<Transaction> findAllTransactions() {
-        return readFromFile(TRANSACTIONS_FILE, new TypeReference<List<Transaction>>() {});
+        return storedTransactions().stream()
+                .sorted(Comparator.comparing(Transaction::getId))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -224,10 +437,13 @@ public class DataRepository {
      * @param id the transaction ID to search for
      * @return an {@link Optional} containing the transaction if found, or empty otherwise
      */
+    @Override
     public Optional<Transaction> findTransactionById(Long id) {
-        return findAllTransactions().stream()
-                .filter(transaction -> transaction.getId().equals(id))
-                .findFirst();
+        if (id == null) {
+            return Optional.empty();
+        }
+        Transaction transaction = transactionsById.get(id);
+        return transaction != null ? Optional.of(transaction) : archive.findById(id).map(DataRepository::copyOf);
     }
 
     /**
@@ -237,12 +453,59 @@ public class DataRepository {
      * @param walletId the wallet ID to search for
      * @return a list of matching transactions, sorted by timestamp descending
      */
+    @Override
     public List<Transaction> findTransactionsByWalletId(Long walletId) {
-        return findAllTransactions().stream()
-                .filter(t -> (t.getSenderWalletId() != null && t.getSenderWalletId().equals(walletId)) ||
-                            (t.getReceiverWalletId() != null && t.getReceiverWalletId().equals(walletId)))
-                .sorted(Comparator.comparing(Transaction::getTimestamp).reversed())
-                .collect(Collectors.toList());
+        long[] ids = transactionsByWallet.transactionIds(walletId);
+        List<Transaction> transactions = new ArrayList<>(ids.length);
+        for (int i = ids.length - 1; i >= 0; i--) {
+            Transaction transaction = transactionsById.get(ids[i]);
+            if (transaction != null) {
+                transactions.add(transaction);
+            }
+        }
+        if (archive.newestTimestamp() == null) {
+            return transactions;
+        }
+        return merge(transactions, archive.page(walletId, null, 0, null, Integer.MAX_VALUE), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds one page of a wallet's transactions (as sender or receiver), newest first. The page
+     * holds the transactions strictly older than the {@code (beforeTimestamp, beforeId)} key and
+     * is located through the wallet's index, so its cost does not depend on the size of the
+     * wallet's history. The archive is only read once the page reaches past the transactions
+     * held in memory.
+     *
+     * @param walletId        the wallet ID to search for
+     * @param beforeTimestamp the timestamp of the exclusive upper bound, or {@code null} to start
+     *                        with the newest transaction
+     * @param beforeId        the transaction ID breaking ties at {@code beforeTimestamp}
+     * @param notBefore       the earliest timestamp to include, or {@code null} for no lower bound
+     * @param limit           the maximum number of transactions to return
+     * @return the transactions of the page, sorted by timestamp and ID descending
+     */
+    @Override
+    public List<Transaction> findTransactionsByWalletId(Long walletId, LocalDateTime beforeTimestamp, long beforeId,
+                                                        LocalDateTime notBefore, int limit) {
+        return page(walletId, beforeTimestamp, beforeId, notBefore, limit);
+    }
+
+    /**
+     * Finds one page of all transactions, newest first. Works like
+     * {@link #findTransactionsByWalletId(Long, LocalDateTime, long, LocalDateTime, int)} over
+     * every transaction in the system.
+     *
+     * @param beforeTimestamp the timestamp of the exclusive upper bound, or {@code null} to start
+     *                        with the newest transaction
+     * @param beforeId        the transaction ID breaking ties at {@code beforeTimestamp}
+     * @param notBefore       the earliest timestamp to include, or {@code null} for no lower bound
+     * @param limit           the maximum number of transactions to return
+     * @return the transactions of the page, sorted by timestamp and ID descending
+     */
+    @Override
+    public List<Transaction> findTransactions(LocalDateTime beforeTimestamp, long beforeId,
+                                              LocalDateTime notBefore, int limit) {
+        return page(null, beforeTimestamp, beforeId, notBefore, limit);
     }
 
     /**
@@ -250,12 +513,91 @@ public class DataRepository {
      *
      * @return all transactions sorted by timestamp descending
      */
+    @Override
     public List<Transaction> findAllTransactionsOrderedByTimestamp() {
-        return findAllTransactions().stream()
+        return storedTransactions().stream()
                 .sorted(Comparator.comparing(Transaction::getTimestamp).reversed())
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Finds one page of the transactions matching a query, highest ID first. The transactions
+     * held in memory are matched through the {@link TransactionSearchIndex} bitmaps, so the
+     * total is counted without reading them; archived months are only read when the query's
+     * time range reaches back into them.
+     *
+     * @param query    the filters to apply
+     * @param beforeId the exclusive upper bound on the IDs of the page
+     * @param limit    the maximum number of transactions to return
+     * @return the page and the total number of matches
+     */
+    @Override
+    public TransactionSearchResult searchTransactions(TransactionQuery query, long beforeId, int limit) {
+        CompressedBitmap matches = searchIndex.matches(query);
+        List<Transaction> page = findAllById(matches.descending(beforeId, limit));
+        // A transaction replaced since the bitmaps were read may no longer match
+        page.removeIf(transaction -> !query.matches(transaction));
+        long total = matches.cardinality();
+
+        LocalDateTime newestArchived = archive.newestTimestamp();
+        if (newestArchived == null || query.getFrom() != null && query.getFrom().isAfter(newestArchived)) {
+            return new TransactionSearchResult(page, total);
+        }
+        long[] archivedMatches = {0};
+        PriorityQueue<Transaction> archivedPage = new PriorityQueue<>(Comparator.comparing(Transaction::getId));
+        archive.forEachBetween(query.getFrom(), query.getTo(), transaction -> {
+            if (!query.matches(transaction) || transactionsById.containsKey(transaction.getId())) {
+                return;
+            }
+            archivedMatches[0]++;
+            if (transaction.getId() < beforeId) {
+                archivedPage.add(transaction);
+                if (archivedPage.size() > limit) {
+                    archivedPage.poll();
+                }
+            }
+        });
+        archivedPage.forEach(transaction -> page.add(copyOf(transaction)));
+        page.sort(Comparator.comparing(Transaction::getId).reversed());
+        List<Transaction> merged = page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+        return new TransactionSearchResult(merged, total + archivedMatches[0]);
+    }
+
+    /**
+     * Returns the rollups of a time range. They are kept in memory and rebuilt on startup from
+     * the hourly rollups stored with each archive segment and the transactions restored from the
+     * snapshot and journal.
+     *
+     * @param resolution the bucket length
+     * @param from       the start of the earliest bucket to include (inclusive)
+     * @param to         the time to stop before (exclusive)
+     * @return the non-empty buckets, oldest first
+     */
+    @Override
+    public List<TransactionRollups.Bucket> findRollups(TransactionRollups.Resolution resolution, LocalDateTime from,
+                                                       LocalDateTime to) {
+        return rollups.find(resolution, from, to);
+    }
+
+    /**
+     * Adds the balance changes of the wallet's transactions in memory up to {@code asOf}, found
+     * from the nearest running-balance checkpoint, to those of its archived transactions. The
+     * archive lock keeps an archiving pass from moving transactions between the two meanwhile.
+     *
+     * @param walletId the wallet ID
+     * @param asOf     the point in time
+     * @return the wallet's balance at {@code asOf}
+     */
+    @Override
+    public BigDecimal findBalanceAt(Long walletId, LocalDateTime asOf) {
+        archiveLock.readLock().lock();
+        try {
+            return balances.balanceAt(walletId, asOf).add(archive.balanceChange(walletId, asOf));
+        } finally {
+            archiveLock.readLock().unlock();
+        }
+    }
+
     /**
      * Saves a transaction to the data store. If the transaction has no ID, a new one is generated.
      * If the transaction already has an ID, the existing record is replaced.
@@ -263,68 +605,904 @@ public class DataRepository {
      * @param transaction the transaction to save
      * @return the saved transaction with an assigned ID
      */
+    @Override
     public Transaction saveTransaction(Transaction transaction) {
-        List<Transaction> transactions = findAllTransactions();
-        
-        if (transaction.getId() == null) {
-            transaction.setId(getNextId(transactions.stream().map(Transaction::getId).collect(Collectors.toList())));
-            transactions.add(transaction);
-        } else {
-            transactions.removeIf(t -> t.getId().equals(transaction.getId()));
-            transactions.add(transaction);
-        }
-        
-        writeToFile(TRANSACTIONS_FILE, transactions);
+        await(saveTransactionAsync(transaction));
         return transaction;
     }
 
     /**
-     * Deletes a transaction by its ID.
+     * Saves a transaction without waiting for the journal. The ID is assigned and the
+     * transaction is visible to readers when this method returns.
+     *
+     * @param transaction the transaction to save
+     * @return a future that completes when the transaction is committed
+     */
+    @Override
+    public CompletableFuture<Void> saveTransactionAsync(Transaction transaction) {
+        prepareTransaction(transaction);
+        byte[] record = journal.encode(JournalRecord.put(transaction));
+        return change(() -> withWalletLocks(walletIdsOf(List.of(transaction)), () -> {
+            indexTransaction(transaction);
+            return journalLater(record);
+        }));
+    }
+
+    /**
+     * Deletes a transaction by its ID. Archived transactions are immutable and cannot be deleted.
      *
      * @param id the ID of the transaction to delete
+     * @throws IllegalStateException if the transaction has been archived
      */
+    @Override
     public void deleteTransaction(Long id) {
-        List<Transaction> transactions = findAllTransactions();
-        transactions.removeIf(t -> t.getId().equals(id));
-        writeToFile(TRANSACTIONS_FILE, transactions);
+        Transaction current = id == null ? null : transactionsById.get(id);
+        if (current == null) {
+            if (id != null && archive.findById(id).isPresent()) {
+                throw new IllegalStateException("Transaction " + id + " is archived and cannot be deleted");
+            }
+            return;
+        }
+        byte[] record = journal.encode(JournalRecord.delete(JournalRecord.Entity.TRANSACTION, id));
+        await(change(() -> withWalletLocks(walletIdsOf(List.of(current)), () -> {
+            Transaction removed = transactionsById.remove(id);
+            if (removed == null) {
+                // Deleted concurrently
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            transactionsByWallet.remove(removed);
+            searchIndex.remove(removed);
+            rollups.remove(removed);
+            balances.remove(removed);
+            if (id <= archive.maxId()) {
+                // The archived copy the removed one replaced is visible again
+                archive.findById(id).ifPresent(archived -> {
+                    rollups.add(archived);
+                    balances.removeReplaced(archived);
+                });
+            }
+            return journalLater(record);
+        })));
     }
 
-    // ==================== HELPER METHODS ====================
-    
-    private <T> List<T> readFromFile(String fileName, TypeReference<List<T>> typeReference) {
+    // ==================== IDEMPOTENCY RECORDS ====================
+
+    /**
+     * Finds an idempotency record in memory, where the latest ones are kept; see
+     * {@link IdempotencyKeys}.
+     *
+     * @param key the scoped idempotency key
+     * @return an {@link Optional} containing the record if found, or empty otherwise
+     */
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        return key == null ? Optional.empty() : idempotencyKeys.get(key).map(DataRepository::copyOf);
+    }
+
+    // ==================== UNITS OF WORK ====================
+
+    @Override
+    public UnitOfWork newUnitOfWork() {
+        return new UnitOfWork(userIds::next, walletIds::next, transactionIds::next);
+    }
+
+    /**
+     * Applies every staged save in memory and queues them as a single {@code BATCH} journal
+     * record, so one write commits the whole unit and a crash can never leave part of it
+     * behind.
+     *
+     * <p>The stored copies are built and the record encoded before any lock is taken. Only the
+     * version checks, the index updates and queueing the record run under the stripe locks of
+     * the wallets the unit touches, taken together in ascending stripe order, and the user lock
+     * if it saves users; units on unrelated wallets commit in parallel. Each wallet's records
+     * are therefore queued in the order its changes were applied.</p>
+     *
+     * <p>Idempotency records are only kept once the batch is committed, so a retry is never
+     * answered from the record of a change that failed to commit. The writer completes its
+     * futures in queue order, so a snapshot that waits for the journal to be synced also sees
+     * every record committed before.</p>
+     *
+     * @param work the staged saves
+     * @return a future that completes when the batch record is committed
+     * @throws ConcurrentUpdateException if any staged wallet has a different stored version
+     */
+    @Override
+    public CompletableFuture<Void> commitAsync(UnitOfWork work) {
+        List<JournalRecord> records = new ArrayList<>(work.users().size() + work.wallets().size()
+                + work.transactions().size() + work.idempotencyRecords().size());
+        List<User> users = new ArrayList<>(work.users().size());
+        for (User user : work.users()) {
+            users.add(prepareUser(user));
+            records.add(JournalRecord.put(users.get(users.size() - 1)));
+        }
+        List<Wallet> wallets = new ArrayList<>(work.wallets().size());
+        for (Wallet wallet : work.wallets()) {
+            wallets.add(prepareWallet(wallet));
+            records.add(JournalRecord.put(wallets.get(wallets.size() - 1)));
+        }
+        for (Transaction transaction : work.transactions()) {
+            prepareTransaction(transaction);
+            records.add(JournalRecord.put(transaction));
+        }
+        List<IdempotencyRecord> stored = new ArrayList<>(work.idempotencyRecords().size());
+        for (IdempotencyRecord record : work.idempotencyRecords()) {
+            stored.add(copyOf(record));
+            records.add(JournalRecord.put(stored.get(stored.size() - 1)));
+        }
+        byte[] batch = journal.encode(records.size() == 1 ? records.get(0) : JournalRecord.batch(records));
+
+        Set<Long> walletIds = walletIdsOf(work.transactions());
+        wallets.forEach(wallet -> walletIds.add(wallet.getId()));
+        Supplier<CompletableFuture<Void>> apply = () -> withWalletLocks(walletIds, () -> {
+            for (Wallet wallet : work.wallets()) {
+                checkVersion(wallet);
+            }
+            users.forEach(this::indexUser);
+            for (int i = 0; i < wallets.size(); i++) {
+                indexWallet(work.wallets().get(i), wallets.get(i));
+            }
+            work.transactions().forEach(this::indexTransaction);
+
+            CompletableFuture<Void> commit = journalLater(batch);
+            return stored.isEmpty() ? commit : commit.thenRun(() -> stored.forEach(idempotencyKeys::put));
+        });
+        return change(() -> {
+            if (users.isEmpty()) {
+                return apply.get();
+            }
+            synchronized (userLock) {
+                return apply.get();
+            }
+        });
+    }
+
+    @Override
+    public void commit(UnitOfWork work) {
+        await(commitAsync(work));
+    }
+
+    // ==================== EXPORT ====================
+
+    /**
+     * Writes every user as one JSON object per line (NDJSON), in ID order. The users are taken
+     * from a copy of the index made while no user is being saved; stored users are replaced as
+     * a whole rather than modified in place, so the copy is a consistent cut.
+     *
+     * @param out the stream to write to; it is flushed but not closed
+     * @return the number of users written
+     * @throws IOException if writing to the stream fails
+     * @see #exportTransactions(OutputStream)
+     */
+    @Override
+    public long exportUsers(OutputStream out) throws IOException {
+        List<User> users;
+        synchronized (userLock) {
+            users = new ArrayList<>(usersById.values());
+        }
+        users.sort(Comparator.comparing(User::getId));
+        return exportRecords(users, DataRepository::copyOf, out, sequence -> 0);
+    }
+
+    /**
+     * Writes every transaction as one JSON object per line (NDJSON): first the archived ones,
+     * segment by segment, then the ones held in memory in the order they were stored.
+     *
+     * <p>The export is a consistent cut of the ledger: a {@link TransactionColumns#cut() cut}
+     * of the in-memory store is taken while no change is being applied, so every unit of work
+     * applied before the export started is in it whole, and nothing applied later. Transactions
+     * saved, replaced or deleted while it runs do not affect it, and no transaction is archived
+     * while an export runs, so none moves from memory to the archive behind its back. Records
+     * are read one at a time and streamed out, so memory use does not grow with the number of
+     * transactions.</p>
+     *
+     * @param out the stream to write to; it is flushed but not closed
+     * @return the number of transactions written
+     * @throws IOException if writing to the stream fails
+     */
+    @Override
+    public long exportTransactions(OutputStream out) throws IOException {
+        archiveLock.readLock().lock();
         try {
-            File file = new File(DATA_DIR + fileName);
-            if (!file.exists() || file.length() == 0) {
-                return new ArrayList<>();
+            TransactionColumns.Cut cut;
+            commitLock.writeLock().lock();
+            try {
+                cut = transactionsById.cut();
+            } finally {
+                commitLock.writeLock().unlock();
             }
-            return objectMapper.readValue(file, typeReference);
+            return exportTransactions(cut, out);
+        } finally {
+            archiveLock.readLock().unlock();
+        }
+    }
+
+    private long exportTransactions(TransactionColumns.Cut cut, OutputStream out) throws IOException {
+        // Archived transactions replaced by a copy in memory are written from memory only
+        long archivedMaxId = archive.maxId();
+        Set<Long> replaced = new HashSet<>();
+        cut.forEachId(id -> {
+            if (id <= archivedMaxId) {
+                replaced.add(id);
+            }
+        });
+        return exportRecords(cut, UnaryOperator.identity(), out, sequence -> {
+            long[] count = new long[1];
+            try {
+                archive.forEach(transaction -> {
+                    if (!replaced.contains(transaction.getId())) {
+                        try {
+                            sequence.write(transaction);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        count[0]++;
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return count[0];
+        });
+    }
+
+    // ==================== SNAPSHOTS ====================
+
+    /**
+     * Writes a snapshot of all data and deletes the journal segments and older snapshots it
+     * replaces. New writes continue in a fresh journal segment while the snapshot is written.
+     *
+     * <p>Transactions from before the archive cutoff are first moved into new archive
+     * segments; the snapshot lists the segments in place of those transactions.</p>
+     *
+     * <p>The snapshot is only published once every change it may have read is durable in the
+     * journal, so it never holds a change whose commit failed. After a failed journal write no
+     * snapshot is taken at all.</p>
+     */
+    public void takeSnapshot() {
+        synchronized (snapshotLock) {
+            writer.checkWritable();
+            long start = System.nanoTime();
+            try {
+                long segment = journal.rotate();
+                archiveColdTransactions();
+                SnapshotStore.Manifest manifest = snapshots.write(segment, usersById.values(),
+                        walletsById.values(), transactionsById.values(), idempotencyKeys::records,
+                        archive.segmentNames(), this::awaitJournaled);
+                journal.deleteSegmentsBefore(segment);
+                snapshots.deleteBefore(segment);
+
+                lastSnapshotSegment = segment;
+                lastSnapshotMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                snapshotCount++;
+                log.info("Wrote snapshot {} ({} users, {} wallets, {} transactions) in {} ms", segment,
+                        manifest.getUsers(), manifest.getWallets(), manifest.getTransactions(), lastSnapshotMillis);
+            } catch (IOException e) {
+                log.error("Error writing snapshot: {}", e.getMessage());
+                throw new RuntimeException("Failed to write snapshot", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the storage statistics: group commit batch and latency counters, journal,
+     * snapshot and archive state, and how long the last startup took.
+     *
+     * @return a map of statistic names to values
+     */
+    @Override
+    public Map<String, Object> getStorageStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(writer.getStats());
+        stats.put("journalSegment", journal.currentSegment());
+        stats.put("journalSegmentBytes", journal.currentSegmentBytes());
+        stats.put("snapshots", snapshotCount);
+        stats.put("snapshotFormat", snapshots.getFormat());
+        stats.put("lastSnapshotSegment", lastSnapshotSegment);
+        stats.put("lastSnapshotMillis", lastSnapshotMillis);
+        stats.put("startupMillis", startupMillis);
+        stats.put("startupReplayedRecords", startupReplayedRecords);
+        stats.put("reservedUserIds", userIds.reserved());
+        stats.put("reservedWalletIds", walletIds.reserved());
+        stats.put("reservedTransactionIds", transactionIds.reserved());
+        stats.put("versionConflicts", versionConflicts.get());
+        stats.putAll(transactionsById.getStats());
+        stats.putAll(searchIndex.getStats());
+        stats.putAll(rollups.getStats());
+        stats.putAll(balances.getStats());
+        stats.putAll(idempotencyKeys.getStats());
+        stats.putAll(archive.getStats());
+        return stats;
+    }
+
+    /**
+     * Commits any queued writes and closes the journal when the application shuts down.
+     */
+    @Override
+    @PreDestroy
+    public void close() {
+        snapshotScheduler.shutdown();
+        writer.close();
+        try {
+            journal.close();
         } catch (IOException e) {
-            log.error("Error reading from file: {} - {}", fileName, e.getMessage());
+            log.warn("Error closing journal: {}", e.getMessage());
+        }
+    }
+
+    private void snapshotIfDue() {
+        try {
+            if (journal.currentSegmentBytes() >= snapshotJournalBytes || isArchiveDue()) {
+                takeSnapshot();
+            }
+        } catch (RuntimeException e) {
+            log.error("Scheduled snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether an archiving pass is due: the cutoff has moved on since the last pass and some
+     * transaction held in memory is older than it.
+     */
+    private boolean isArchiveDue() {
+        LocalDateTime cutoff = archiveCutoff();
+        if (cutoff == null || cutoff.equals(lastArchiveCutoff)) {
+            return false;
+        }
+        LocalDateTime oldest = transactionsByWallet.oldestTimestamp();
+        return oldest != null && oldest.isBefore(cutoff);
+    }
+
+    /**
+     * Returns the start of the month that contains the moment {@code archiveAfterDays} ago, so
+     * that whole months are archived together.
+     *
+     * @return the cutoff, or {@code null} if archiving is disabled
+     */
+    private LocalDateTime archiveCutoff() {
+        if (archiveAfterDays <= 0) {
+            return null;
+        }
+        return LocalDate.now().minusDays(archiveAfterDays).withDayOfMonth(1).atStartOfDay();
+    }
+
+    /**
+     * Moves the transactions from before the archive cutoff into new archive segments. Called
+     * only while writing a snapshot: the segments become permanent once the snapshot lists
+     * them, and until then the transactions are still in the previous snapshot or journal.
+     * While an export is running the pass is skipped and retried on the next scheduled check.
+     */
+    private void archiveColdTransactions() throws IOException {
+        LocalDateTime cutoff = archiveCutoff();
+        if (cutoff == null || !archiveLock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            long archivedMaxId = archive.maxId();
+            List<Transaction> cold = transactionsById.values().stream()
+                    .filter(t -> t.getTimestamp() != null && t.getTimestamp().isBefore(cutoff))
+                    // A copy replacing an archived transaction stays in memory; archiving it would keep both
+                    .filter(t -> t.getId() > archivedMaxId || archive.findById(t.getId()).isEmpty())
+                    .toList();
+            lastArchiveCutoff = cutoff;
+            if (cold.isEmpty()) {
+                return;
+            }
+
+            archive.archive(cold);
+            List<Transaction> removed = new ArrayList<>(cold.size());
+            // Waits for the changes in flight and holds off new ones, whatever wallets they touch
+            commitLock.writeLock().lock();
+            try {
+                for (Transaction transaction : cold) {
+                    // Skip any transaction replaced since it was read; the in-memory copy wins over the archived one
+                    if (transactionsById.remove(transaction.getId(), transaction)) {
+                        removed.add(transaction);
+                        balances.remove(transaction);
+                    } else {
+                        balances.addReplaced(transaction);
+                    }
+                }
+                transactionsByWallet.removeAll(removed);
+                searchIndex.removeAll(removed);
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+        } finally {
+            archiveLock.writeLock().unlock();
+        }
+    }
+
+    // ==================== LOADING ====================
+
+    private void loadAll() {
+        long start = System.nanoTime();
+        try {
+            if (snapshots.latest().isEmpty() && journal.segments().isEmpty()) {
+                migrateLegacyFiles();
+            }
+
+            long fromSegment = 1;
+            List<String> archiveSegments = List.of();
+            OptionalLong latest = snapshots.latest();
+            if (latest.isPresent()) {
+                fromSegment = latest.getAsLong();
+                // Each partition is read into a batch of its own, added to the store once all are read
+                List<TransactionColumns.Batch> batches = Collections.synchronizedList(new ArrayList<>());
+                archiveSegments = snapshots.load(fromSegment, this::indexUser, this::indexWallet, () -> {
+                    TransactionColumns.Batch batch = transactionsById.newBatch();
+                    batches.add(batch);
+                    return batch;
+                }, idempotencyKeys::put).getArchiveSegments();
+                batches.forEach(transactionsById::putAll);
+                lastSnapshotSegment = fromSegment;
+            }
+            archive.open(archiveSegments);
+
+            startupReplayedRecords = journal.replay(fromSegment, this::apply);
+            // The indexes are independent of each other and only read the transactions
+            List<Runnable> rebuilds = List.of(
+                    () -> transactionsByWallet.rebuild(transactionsById.values()),
+                    () -> searchIndex.rebuild(transactionsById.values()),
+                    this::rebuildRollups,
+                    this::rebuildBalances);
+            rebuilds.parallelStream().forEach(Runnable::run);
+
+            List<Long> segments = journal.segments();
+            long lastSegment = segments.isEmpty() ? fromSegment : segments.get(segments.size() - 1);
+            journal.open(Math.max(fromSegment, lastSegment));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Failed to load data from " + dataDir + ": " + e.getMessage(), e);
+        }
+
+        startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Loaded {} users, {} wallets and {} transactions into memory in {} ms ({} journal records replayed)",
+                usersById.size(), walletsById.size(), transactionsById.size(), startupMillis, startupReplayedRecords);
+    }
+
+    /**
+     * Counts the transactions held in memory and the hourly rollups stored with the archive
+     * segments. An archived transaction replaced by a copy in memory is taken out again, after
+     * every transaction in memory has been added so that it cannot touch minute buckets.
+     */
+    private void rebuildRollups() {
+        rollups.clear();
+        archive.forEachHourlyRollup(rollups::addHourly);
+        transactionsById.values().forEach(rollups::add);
+        long archivedMaxId = archive.maxId();
+        for (Transaction transaction : transactionsById.values()) {
+            if (transaction.getId() <= archivedMaxId) {
+                archive.findById(transaction.getId()).ifPresent(rollups::remove);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the running balances of the transactions held in memory, cancelling the archived
+     * copies they replace.
+     */
+    private void rebuildBalances() {
+        balances.rebuild(transactionsById.values());
+        long archivedMaxId = archive.maxId();
+        for (Transaction transaction : transactionsById.values()) {
+            if (transaction.getId() <= archivedMaxId) {
+                archive.findById(transaction.getId()).ifPresent(balances::addReplaced);
+            }
+        }
+    }
+
+    private void apply(JournalRecord record) {
+        if (record.getOp() == JournalRecord.Op.BATCH) {
+            record.getRecords().forEach(this::apply);
+            return;
+        }
+        JournalRecord.Entity target = record.getTarget();
+        if (record.getOp() == JournalRecord.Op.PUT) {
+            switch (target) {
+                case USER -> indexUser(record.getUser());
+                case WALLET -> indexWallet(record.getWallet());
+                case TRANSACTION -> transactionsById.put(record.getTransaction());
+                case IDEMPOTENCY_RECORD -> idempotencyKeys.put(record.getIdempotencyRecord());
+            }
+        } else {
+            switch (target) {
+                case USER -> unindexUser(record.getId());
+                case WALLET -> unindexWallet(record.getId());
+                case TRANSACTION -> transactionsById.remove(record.getId());
+            }
+        }
+    }
+
+    /**
+     * Converts data written by earlier versions ({@code users.json}, {@code wallets.json} and
+     * either {@code transactions.json} or the transaction-only {@code transactions.journal})
+     * into the first snapshot, then renames the legacy files. If the migration is interrupted
+     * no snapshot exists yet, so it is simply redone on the next start.
+     */
+    private void migrateLegacyFiles() throws IOException {
+        List<File> legacyFiles = new ArrayList<>();
+        for (String name : List.of(LEGACY_USERS_FILE, LEGACY_WALLETS_FILE,
+                LEGACY_TRANSACTIONS_FILE, LEGACY_TRANSACTIONS_JOURNAL)) {
+            File file = new File(dataDir + name);
+            if (file.exists()) {
+                legacyFiles.add(file);
+            }
+        }
+        if (legacyFiles.isEmpty()) {
+            return;
+        }
+
+        List<User> users = readLegacyFile(LEGACY_USERS_FILE, new TypeReference<List<User>>() {});
+        List<Wallet> wallets = readLegacyFile(LEGACY_WALLETS_FILE, new TypeReference<List<Wallet>>() {});
+        Map<Long, Transaction> transactions = new LinkedHashMap<>();
+        readLegacyFile(LEGACY_TRANSACTIONS_FILE, new TypeReference<List<Transaction>>() {})
+                .forEach(t -> transactions.put(t.getId(), t));
+        journal.replayFile(new File(dataDir + LEGACY_TRANSACTIONS_JOURNAL), record -> {
+            if (record.getOp() == JournalRecord.Op.PUT) {
+                transactions.put(record.getTransaction().getId(), record.getTransaction());
+            } else {
+                transactions.remove(record.getId());
+            }
+        });
+
+        snapshots.write(1, users, wallets, transactions.values());
+        for (File file : legacyFiles) {
+            Files.move(file.toPath(), new File(file.getPath() + MIGRATED_SUFFIX).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.info("Migrated {} users, {} wallets and {} transactions from legacy files into a snapshot",
+                users.size(), wallets.size(), transactions.size());
+    }
+
+    // ==================== INDEX MAINTENANCE ====================
+
+    private void indexUser(User user) {
+        User previous = usersById.put(user.getId(), user);
+        usersByUsername.put(user.getUsername(), user);
+        if (previous != null && !previous.getUsername().equals(user.getUsername())) {
+            usersByUsername.remove(previous.getUsername(), previous);
+        }
+    }
+
+    private void unindexUser(Long id) {
+        User previous = id == null ? null : usersById.remove(id);
+        if (previous != null) {
+            usersByUsername.remove(previous.getUsername(), previous);
+        }
+    }
+
+    private void indexWallet(Wallet wallet) {
+        Wallet previous = walletsById.put(wallet.getId(), wallet);
+        walletsByUserId.put(wallet.getUserId(), wallet);
+        walletsByWalletCode.put(wallet.getWalletCode(), wallet);
+        if (previous != null) {
+            if (!previous.getUserId().equals(wallet.getUserId())) {
+                walletsByUserId.remove(previous.getUserId(), previous);
+            }
+            if (!previous.getWalletCode().equals(wallet.getWalletCode())) {
+                walletsByWalletCode.remove(previous.getWalletCode(), previous);
+            }
+        }
+    }
+
+    private void unindexWallet(Long id) {
+        Wallet previous = id == null ? null : walletsById.remove(id);
+        if (previous != null) {
+            walletsByUserId.remove(previous.getUserId(), previous);
+            walletsByWalletCode.remove(previous.getWalletCode(), previous);
+        }
+    }
+
+    private static <K, V> Optional<V> lookup(Map<K, V> index, K key) {
+        return key == null ? Optional.empty() : Optional.ofNullable(index.get(key));
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User(user.getUsername(), user.getEmail(), user.getPassword(), user.getRole());
+        copy.setId(user.getId());
+        return copy;
+    }
+
+    private static Wallet copyOf(Wallet wallet) {
+        Wallet copy = new Wallet();
+        copy.setId(wallet.getId());
+        copy.setUserId(wallet.getUserId());
+        copy.setBalance(wallet.getBalance());
+        copy.setWalletCode(wallet.getWalletCode());
+        copy.setVersion(wallet.getVersion());
+        return copy;
+    }
+
+    private static Transaction copyOf(Transaction transaction) {
+        Transaction copy = new Transaction();
+        copy.setId(transaction.getId());
+        copy.setSenderWalletId(transaction.getSenderWalletId());
+        copy.setReceiverWalletId(transaction.getReceiverWalletId());
+        copy.setAmount(transaction.getAmount());
+        copy.setType(transaction.getType());
+        copy.setTimestamp(transaction.getTimestamp());
+        copy.setStatus(transaction.getStatus());
+        return copy;
+    }
+
+    private static IdempotencyRecord copyOf(IdempotencyRecord record) {
+        IdempotencyRecord copy = new IdempotencyRecord(record.getKey(), record.getFingerprint(), record.getCreatedAt());
+        copy.setResponse(record.getResponse());
+        return copy;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private <T> List<T> readLegacyFile(String fileName, TypeReference<List<T>> typeReference) throws IOException {
+        File file = new File(dataDir + fileName);
+        if (!file.exists() || file.length() == 0) {
             return new ArrayList<>();
         }
+        return objectMapper.readValue(file, typeReference);
+    }
+
+    /**
+     * Rejects a wallet write based on a version other than the stored one. New wallets, and
+     * wallets saved with an ID that is not stored yet, are always accepted. Must be called
+     * while holding the wallet's stripe lock.
+     */
+    private void checkVersion(Wallet wallet) {
+        Wallet current = wallet.getId() == null ? null : walletsById.get(wallet.getId());
+        if (current != null && current.getVersion() != wallet.getVersion()) {
+            versionConflicts.incrementAndGet();
+            throw new ConcurrentUpdateException("Wallet " + wallet.getId() + " was modified concurrently (expected version "
+                    + wallet.getVersion() + ", found " + current.getVersion() + ")");
+        }
+    }
+
+    /**
+     * Assigns the ID if needed and returns a copy of the user to store.
+     */
+    private User prepareUser(User user) {
+        if (user.getId() == null) {
+            user.setId(userIds.next());
+        } else {
+            userIds.observe(user.getId());
+        }
+        return copyOf(user);
+    }
+
+    /**
+     * Assigns the ID if needed and returns a copy of the wallet to store, with the next
+     * version. The caller's wallet keeps the version it was read with until it is indexed.
+     */
+    private Wallet prepareWallet(Wallet wallet) {
+        if (wallet.getId() == null) {
+            wallet.setId(walletIds.next());
+        } else {
+            walletIds.observe(wallet.getId());
+        }
+        Wallet stored = copyOf(wallet);
+        stored.setVersion(wallet.getVersion() + 1);
+        return stored;
+    }
+
+    /**
+     * Assigns the ID of a transaction if needed.
+     */
+    private void prepareTransaction(Transaction transaction) {
+        if (transaction.getId() == null) {
+            transaction.setId(transactionIds.next());
+        } else {
+            transactionIds.observe(transaction.getId());
+        }
+    }
+
+    /**
+     * Indexes the stored copy of a wallet whose version has been checked and hands the new
+     * version to the caller's wallet. Must be called while holding the wallet's stripe lock.
+     */
+    private void indexWallet(Wallet wallet, Wallet stored) {
+        wallet.setVersion(stored.getVersion());
+        indexWallet(stored);
+    }
+
+    /**
+     * Stores and indexes a copy of the transaction, replacing any earlier copy with the same ID.
+     * Must be called while holding the stripe locks of the transaction's wallets, which never
+     * change when a transaction is replaced.
+     */
+    private void indexTransaction(Transaction transaction) {
+        Transaction previous = transactionsById.put(transaction);
+        if (previous != null) {
+            transactionsByWallet.remove(previous);
+            searchIndex.remove(previous);
+            rollups.remove(previous);
+            balances.remove(previous);
+        } else if (transaction.getId() <= archive.maxId()) {
+            // Replacing an archived transaction: the copy in memory is counted instead
+            archive.findById(transaction.getId()).ifPresent(archived -> {
+                rollups.remove(archived);
+                balances.addReplaced(archived);
+            });
+        }
+        transactionsByWallet.add(transaction);
+        searchIndex.add(transaction);
+        rollups.add(transaction);
+        balances.add(transaction);
+    }
+
+    /**
+     * Collects the IDs of the wallets the given transactions move money between.
+     */
+    private static Set<Long> walletIdsOf(List<Transaction> transactions) {
+        Set<Long> walletIds = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getSenderWalletId() != null) {
+                walletIds.add(transaction.getSenderWalletId());
+            }
+            if (transaction.getReceiverWalletId() != null) {
+                walletIds.add(transaction.getReceiverWalletId());
+            }
+        }
+        return walletIds;
+    }
+
+    /**
+     * Runs a change while holding the stripe locks of the given wallets, if there are any.
+     */
+    private <T> T withWalletLocks(Collection<Long> walletIds, Supplier<T> change) {
+        return walletIds.isEmpty() ? change.get() : walletLocks.withLocks(walletIds, change);
+    }
+
+    /**
+     * Writes records as NDJSON: first those written by {@code head}, then those in
+     * {@code records}, in iteration order.
+     */
+    private <T> long exportRecords(Iterable<T> records, UnaryOperator<T> copy, OutputStream out,
+                                   ExportHead head) throws IOException {
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+        BufferedOutputStream buffered = new BufferedOutputStream(out, EXPORT_BUFFER_SIZE);
+        long count = 0;
+        try (SequenceWriter sequence = writer.writeValues(buffered)) {
+            count += head.writeTo(sequence);
+            for (T record : records) {
+                sequence.write(copy.apply(record));
+                count++;
+            }
+        }
+        if (count > 0) {
+            buffered.write('\n');
+        }
+        buffered.flush();
+        return count;
+    }
+
+    /**
+     * Finds a page of transactions in memory, and in the archive unless the in-memory page is
+     * full and entirely newer than every archived transaction.
+     */
+    private List<Transaction> page(Long walletId, LocalDateTime beforeTimestamp, long beforeId,
+                                   LocalDateTime notBefore, int limit) {
+        List<Transaction> hot = findAllById(transactionsByWallet.page(walletId, beforeTimestamp, beforeId, notBefore, limit));
+        LocalDateTime newestArchived = archive.newestTimestamp();
+        if (newestArchived == null) {
+            return hot;
+        }
+        if (hot.size() >= limit) {
+            LocalDateTime oldestHot = hot.get(hot.size() - 1).getTimestamp();
+            if (oldestHot != null && oldestHot.isAfter(newestArchived)) {
+                return hot;
+            }
+        }
+        return merge(hot, archive.page(walletId, beforeTimestamp, beforeId, notBefore, limit), limit);
     }
 
-    private <T> void writeToFile(String fileName, List<T> data) {
+    /**
+     * Merges in-memory and archived transactions newest first, keeping the in-memory copy of
+     * any transaction found in both.
+     */
+    private static List<Transaction> merge(List<Transaction> hot, List<Transaction> archived, int limit) {
+        Map<Long, Transaction> byId = new LinkedHashMap<>();
+        hot.forEach(transaction -> byId.put(transaction.getId(), transaction));
+        archived.forEach(transaction -> byId.putIfAbsent(transaction.getId(), copyOf(transaction)));
+        return byId.values().stream()
+                .sorted(Comparator.comparing(Transaction::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(Transaction::getId)
+                        .reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the stored transactions, archived and in memory, as new objects.
+     */
+    private List<Transaction> storedTransactions() {
+        List<Transaction> transactions = new ArrayList<>(transactionsById.values());
+        archive.forEach(transaction -> {
+            if (!transactionsById.containsKey(transaction.getId())) {
+                transactions.add(transaction);
+            }
+        });
+        return transactions;
+    }
+
+    private List<Transaction> findAllById(long[] ids) {
+        List<Transaction> transactions = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Transaction transaction = transactionsById.get(id);
+            if (transaction != null) {
+                transactions.add(transaction);
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Applies a change in memory and queues its journal record, unless the writer has failed.
+     * The commit lock keeps a snapshot from waiting for durability before every change it may
+     * have read has been queued.
+     */
+    private <T> T change(Supplier<T> change) {
+        writer.checkWritable();
+        commitLock.readLock().lock();
         try {
-            File file = new File(DATA_DIR + fileName);
-            objectMapper.writeValue(file, data);
-        } catch (IOException e) {
-            log.error("Error writing to file: {} - {}", fileName, e.getMessage());
-            throw new RuntimeException("Failed to write to file: " + fileName, e);
+            return change.get();
+        } finally {
+            commitLock.readLock().unlock();
         }
     }
 
     /**
-     * Generates the next unique ID by finding the maximum existing ID and adding 1.
-     * This prevents duplicate IDs that would occur after deletions if using list size.
+     * Waits until every change applied in memory so far is durable in the journal, whatever the
+     * durability mode.
      *
-     * @param existingIds the list of existing IDs
-     * @return the next available ID
+     * @throws IOException if the journal has failed, so some of those changes never will be
+     */
+    private void awaitJournaled() throws IOException {
+        CompletableFuture<Void> synced;
+        commitLock.writeLock().lock();
+        try {
+            synced = writer.sync(journal);
+        } catch (RuntimeException e) {
+            throw new IOException("Journal is not writable: " + e.getMessage(), e);
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        try {
+            synced.join();
+        } catch (CompletionException e) {
+            throw new IOException("Journal write failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private CompletableFuture<Void> journalLater(byte[] record) {
+        return writer.append(journal, record);
+    }
+
+    private void await(CompletableFuture<Void> commit) {
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            log.error("Error writing to journal: {}", e.getCause().getMessage());
+            throw new StorageUnavailableException("Failed to write to journal", e.getCause());
+        }
+    }
+
+    /**
+     * Opens the ID sequence of an entity, continuing above its stored high-water mark and
+     * every ID loaded at startup.
+     */
+    private IdSequence openSequence(String fileName, Iterable<Long> loadedIds, int blockSize) throws IOException {
+        long max = 0L;
+        for (Long id : loadedIds) {
+            if (id != null && id > max) {
+                max = id;
+            }
+        }
+        return IdSequence.inFile(new File(dataDir + fileName).toPath(), max, blockSize);
+    }
+
+    /**
+     * Writes the records exported ahead of an in-memory map.
      */
-    private Long getNextId(List<Long> existingIds) {
-        return existingIds.stream()
-                .filter(id -> id != null)
-                .max(Long::compareTo)
-                .orElse(0L) + 1L;
+    @FunctionalInterface
+    private interface ExportHead {
+        long writeTo(SequenceWriter sequence) throws IOException;
     }
 }
@@ -0,0 +1,13 @@
+package com.spring_project.digital_banking_system.repository;
+
+/**
+ * Controls when the {@link GroupCommitWriter} forces written data to stable storage.
+ */
+public enum DurabilityMode {
+    /** Every batch is fsynced before the requests in it complete. */
+    FSYNC_PER_BATCH,
+    /** Batches complete once written; dirty files are fsynced at a fixed interval. */
+    PERIODIC_FSYNC,
+    /** Batches complete once written; flushing is left entirely to the operating system. */
+    OS_BUFFERED
+}
@@ -0,0 +1,280 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.exception.StorageUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dedicated persistence thread that commits pending writes from many request threads together.
+ *
+ * <p>Request threads hand their encoded journal records to {@link #append} and wait on the
+ * returned future. The writer thread drains everything queued so far into one batch, writes
+ * all records for a journal in a single sequential write, and then forces the data to disk
+ * according to the configured {@link DurabilityMode}. Every future in the batch completes
+ * when the batch is durable (or written, for the weaker modes).</p>
+ *
+ * <p>The first failed write or fsync fails the writer for good. The callers' changes are
+ * already visible in memory, so a later record or snapshot could otherwise make a change
+ * durable whose own commit failed, or build on it. Every write still queued or appended
+ * afterwards is refused, and so is every snapshot, until a restart rebuilds the state from
+ * what the journal actually holds. In {@code PERIODIC_FSYNC} mode a failed periodic fsync
+ * means that writes already acknowledged may be lost; the writer fails the same way.</p>
+ */
+public class GroupCommitWriter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final long IDLE_POLL_MS = 10;
+    private static final byte[] NO_RECORDS = new byte[0];
+
+    private final DurabilityMode durability;
+    private final long fsyncIntervalNanos;
+    private final int maxBatchSize;
+
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Set<LedgerJournal> unsyncedJournals = new LinkedHashSet<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Exception failure;
+    private long lastSyncNanos = System.nanoTime();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong commitNanosTotal = new AtomicLong();
+    private final AtomicLong commitNanosMax = new AtomicLong();
+    private final AtomicLong waitNanosTotal = new AtomicLong();
+
+    public GroupCommitWriter(DurabilityMode durability, long fsyncIntervalMs, int maxBatchSize) {
+        this.durability = durability;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.thread = new Thread(this::run, "group-commit-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a record to be appended to the given journal.
+     *
+     * @param journal the journal to append to
+     * @param record  the encoded record, including its trailing newline
+     * @return a future that completes when the batch containing the record is committed
+     */
+    public CompletableFuture<Void> append(LedgerJournal journal, byte[] record) {
+        return enqueue(new PendingWrite(journal, record, false));
+    }
+
+    /**
+     * Queues a barrier that forces the given journal to disk, whatever the durability mode,
+     * once every write queued before it has been written.
+     *
+     * @param journal the journal to force
+     * @return a future that completes when every write queued before it is durable
+     */
+    public CompletableFuture<Void> sync(LedgerJournal journal) {
+        return enqueue(new PendingWrite(journal, NO_RECORDS, true));
+    }
+
+    /**
+     * Fails fast if writes would be refused, before the caller applies a change in memory.
+     *
+     * @throws StorageUnavailableException if the writer has been shut down, or an earlier write or
+     *                                     fsync failed
+     */
+    public void checkWritable() {
+        if (!running) {
+            throw new StorageUnavailableException("Storage writer has been shut down");
+        }
+        Exception cause = failure;
+        if (cause != null) {
+            throw new StorageUnavailableException("Storage is read-only after a failed journal write; restart to recover", cause);
+        }
+    }
+
+    /**
+     * Returns the writer's counters for tuning batch size and durability settings.
+     *
+     * @return a map of statistic names to values
+     */
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        long writeCount = writes.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("durability", durability);
+        stats.put("writerFailed", failure != null);
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("pendingWrites", queue.size());
+        stats.put("batches", batchCount);
+        stats.put("writes", writeCount);
+        stats.put("fsyncs", fsyncs.get());
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) writeCount / batchCount);
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("averageCommitMicros", batchCount == 0 ? 0 : commitNanosTotal.get() / batchCount / 1_000);
+        stats.put("maxCommitMicros", commitNanosMax.get() / 1_000);
+        stats.put("averageWaitMicros", writeCount == 0 ? 0 : waitNanosTotal.get() / writeCount / 1_000);
+        return stats;
+    }
+
+    /**
+     * Commits everything still queued, forces dirty journals to disk and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== WRITER THREAD ====================
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            PendingWrite first;
+            try {
+                first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                syncIfDue(false);
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            commit(batch);
+            batch.clear();
+        }
+        syncIfDue(true);
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        long start = System.nanoTime();
+        if (failure != null) {
+            // A record following one that never reached the disk could depend on it
+            complete(batch, failure, start);
+            return;
+        }
+        try {
+            Map<LedgerJournal, ByteArrayOutputStream> appends = new LinkedHashMap<>();
+            boolean forceSync = false;
+            for (PendingWrite write : batch) {
+                appends.computeIfAbsent(write.journal, j -> new ByteArrayOutputStream()).writeBytes(write.record);
+                forceSync |= write.sync;
+            }
+
+            for (Map.Entry<LedgerJournal, ByteArrayOutputStream> entry : appends.entrySet()) {
+                if (entry.getValue().size() > 0) {
+                    entry.getKey().write(entry.getValue().toByteArray());
+                    unsyncedJournals.add(entry.getKey());
+                }
+            }
+            if (durability == DurabilityMode.FSYNC_PER_BATCH || forceSync) {
+                syncJournals();
+            } else {
+                syncIfDue(false);
+            }
+
+            complete(batch, failure, start);
+        } catch (IOException | RuntimeException e) {
+            fail("Group commit of " + batch.size() + " writes", e);
+            complete(batch, e, start);
+        }
+    }
+
+    private void complete(List<PendingWrite> batch, Exception failure, long start) {
+        long now = System.nanoTime();
+        long commitNanos = now - start;
+
+        batches.incrementAndGet();
+        writes.addAndGet(batch.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        commitNanosTotal.addAndGet(commitNanos);
+        commitNanosMax.accumulateAndGet(commitNanos, Math::max);
+
+        for (PendingWrite write : batch) {
+            waitNanosTotal.addAndGet(now - write.enqueuedAt);
+            if (failure == null) {
+                write.future.complete(null);
+            } else {
+                write.future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void syncIfDue(boolean force) {
+        if (unsyncedJournals.isEmpty() || durability == DurabilityMode.OS_BUFFERED && !force) {
+            return;
+        }
+        if (force || System.nanoTime() - lastSyncNanos >= fsyncIntervalNanos) {
+            try {
+                syncJournals();
+            } catch (IOException | RuntimeException e) {
+                fail("Periodic fsync", e);
+            }
+        }
+    }
+
+    private void fail(String what, Exception e) {
+        if (failure == null) {
+            failure = e;
+            log.error("{} failed, refusing all further writes until restart: {}", what, e.getMessage());
+        }
+    }
+
+    private void syncJournals() throws IOException {
+        for (LedgerJournal journal : unsyncedJournals) {
+            journal.force();
+            fsyncs.incrementAndGet();
+        }
+        unsyncedJournals.clear();
+        lastSyncNanos = System.nanoTime();
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite write) {
+        checkWritable();
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageUnavailableException("Interrupted while queueing a write", e);
+        }
+        return write.future;
+    }
+
+    private static final class PendingWrite {
+        final LedgerJournal journal;
+        final byte[] record;
+        final boolean sync;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+
+        PendingWrite(LedgerJournal journal, byte[] record, boolean sync) {
+            this.journal = journal;
+            this.record = record;
+            this.sync = sync;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.spring_project.digital_banking_system.repository;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates increasing IDs for one entity from blocks reserved in advance.
+ *
+ * <p>IDs are handed out by an {@link AtomicLong}, so allocation is safe from any thread and
+ * costs a single increment. Before an ID beyond the reserved block is handed out, the end of the
+ * next block is stored durably as the high-water mark; this happens once per block, not once per
+ * ID. After a restart, allocation continues above the stored mark, so no ID that may have been
+ * used before is handed out again, even if the entity holding it has since been deleted. The
+ * unused rest of the last block is skipped.</p>
+ */
+class IdSequence {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Durable storage of the highest reserved ID.
+     */
+    @FunctionalInterface
+    interface HighWaterMark {
+        /**
+         * Stores the highest reserved ID; it must be durable when this method returns.
+         *
+         * @param reserved the highest ID that may be handed out
+         * @throws IOException if the mark cannot be stored
+         */
+        void store(long reserved) throws IOException;
+    }
+
+    private final int blockSize;
+    private final HighWaterMark highWaterMark;
+    private final AtomicLong last;
+    private volatile long reserved;
+
+    /**
+     * Creates a sequence continuing after both the stored high-water mark and the largest ID
+     * in use.
+     *
+     * @param reserved      the stored high-water mark, or {@code 0} if none was stored
+     * @param lastUsed      the largest ID currently in use, or {@code 0} if none
+     * @param blockSize     the number of IDs reserved at a time
+     * @param highWaterMark where to store the end of each newly reserved block
+     */
+    IdSequence(long reserved, long lastUsed, int blockSize, HighWaterMark highWaterMark) {
+        long start = Math.max(reserved, lastUsed);
+        this.blockSize = Math.max(1, blockSize);
+        this.highWaterMark = highWaterMark;
+        this.last = new AtomicLong(start);
+        this.reserved = start;
+    }
+
+    /**
+     * Opens a sequence whose high-water mark is kept in a small text file, replaced
+     * atomically whenever a block is reserved.
+     *
+     * @param file      the file holding the high-water mark; it is created on the first reservation
+     * @param lastUsed  the largest ID currently in use, or {@code 0} if none
+     * @param blockSize the number of IDs reserved at a time
+     * @return the sequence
+     * @throws IOException if an existing file cannot be read
+     */
+    static IdSequence inFile(Path file, long lastUsed, int blockSize) throws IOException {
+        long reserved = 0;
+        if (Files.exists(file)) {
+            String content = Files.readString(file, StandardCharsets.US_ASCII).trim();
+            try {
+                reserved = Long.parseLong(content);
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt ID sequence file " + file + ": " + content, e);
+            }
+        }
+        return new IdSequence(reserved, lastUsed, blockSize, mark -> writeMark(file, mark));
+    }
+
+    /**
+     * Allocates the next ID.
+     *
+     * @return an ID never handed out before
+     * @throws RuntimeException if a new block has to be reserved and its mark cannot be stored
+     */
+    long next() {
+        long id = last.incrementAndGet();
+        if (id > reserved) {
+            reserveThrough(id);
+        }
+        return id;
+    }
+
+    /**
+     * Records an ID assigned by the caller, so that it is never allocated.
+     *
+     * @param id the ID in use
+     */
+    void observe(long id) {
+        last.accumulateAndGet(id, Math::max);
+        if (id > reserved) {
+            reserveThrough(id);
+        }
+    }
+
+    /**
+     * Returns the most recently allocated or observed ID.
+     *
+     * @return the largest ID handed out, or {@code 0} if none
+     */
+    long last() {
+        return last.get();
+    }
+
+    /**
+     * Returns the stored high-water mark.
+     *
+     * @return the highest ID that may be handed out without reserving another block
+     */
+    long reserved() {
+        return reserved;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private synchronized void reserveThrough(long id) {
+        if (id <= reserved) {
+            return;
+        }
+        long mark = id + blockSize - 1;
+        try {
+            highWaterMark.store(mark);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reserve IDs up to " + mark, e);
+        }
+        reserved = mark;
+    }
+
+    private static void writeMark(Path file, long mark) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(StandardCharsets.US_ASCII.encode(mark + "\n"));
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not every platform allows syncing a directory; the rename is still atomic
+        }
+    }
+}
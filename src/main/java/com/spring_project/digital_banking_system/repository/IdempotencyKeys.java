@@ -0,0 +1,115 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The idempotency records held in memory, looked up by key in constant time.
+ *
+ * <p>Records are kept in insertion order, which is also the order they expire in, so expired
+ * records are dropped from the head as new ones arrive, and once more than {@code capacity}
+ * remain the oldest is evicted. Since a record expires or is evicted based only on the records
+ * added after it, replaying the records of a journal rebuilds the same set; the storage never
+ * has to record a removal.</p>
+ */
+class IdempotencyKeys {
+
+    private final Duration retention;
+    private final int capacity;
+    private final LinkedHashMap<String, IdempotencyRecord> records = new LinkedHashMap<>();
+
+    private long expired;
+    private long evicted;
+
+    /**
+     * @param retention how long a record is kept after it was created
+     * @param capacity  the maximum number of records kept
+     */
+    IdempotencyKeys(Duration retention, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Idempotency key capacity must be positive: " + capacity);
+        }
+        this.retention = retention;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the record saved under a key, unless it has expired.
+     *
+     * @param key the key
+     * @return the record, or empty if none is held
+     */
+    synchronized Optional<IdempotencyRecord> get(String key) {
+        IdempotencyRecord record = records.get(key);
+        if (record == null || isExpired(record, LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(record);
+    }
+
+    /**
+     * Adds a record, replacing any saved under the same key, then drops the expired records and
+     * evicts the oldest ones beyond the capacity.
+     *
+     * @param record the record to add; it must not be changed afterwards
+     * @return the keys of the records dropped or evicted, which may include the added one if it
+     *         has already expired
+     */
+    synchronized List<String> put(IdempotencyRecord record) {
+        // Re-inserted rather than replaced in place, so that it moves to the newest end
+        records.remove(record.getKey());
+        records.put(record.getKey(), record);
+
+        List<String> removed = new ArrayList<>(1);
+        LocalDateTime now = LocalDateTime.now();
+        Iterator<IdempotencyRecord> oldest = records.values().iterator();
+        while (oldest.hasNext()) {
+            IdempotencyRecord candidate = oldest.next();
+            if (isExpired(candidate, now)) {
+                expired++;
+            } else if (records.size() > capacity) {
+                evicted++;
+            } else {
+                break;
+            }
+            removed.add(candidate.getKey());
+            oldest.remove();
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the records held, oldest first, for writing a snapshot.
+     *
+     * @return a copy of the records
+     */
+    synchronized List<IdempotencyRecord> records() {
+        return new ArrayList<>(records.values());
+    }
+
+    /**
+     * Returns the number of records held and how many have expired or been evicted since startup.
+     *
+     * @return a map of statistic names to values
+     */
+    synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("idempotencyKeys", records.size());
+        stats.put("idempotencyKeyCapacity", capacity);
+        stats.put("idempotencyKeysExpired", expired);
+        stats.put("idempotencyKeysEvicted", evicted);
+        return stats;
+    }
+
+    private boolean isExpired(IdempotencyRecord record, LocalDateTime now) {
+        return record.getCreatedAt() == null || record.getCreatedAt().plus(retention).isBefore(now);
+    }
+}
@@ -0,0 +1,22 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+
+import java.util.Optional;
+
+/**
+ * Stores the responses of requests made with an idempotency key. Records are saved with the
+ * unit of work whose changes they describe, through {@link UnitOfWork#saveIdempotencyRecord},
+ * so a response is remembered exactly when its changes are committed. Only a bounded number of
+ * records is kept, each for a limited time.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Finds the record saved under a key, unless it has expired or been evicted.
+     *
+     * @param key the scoped idempotency key
+     * @return an {@link Optional} containing the record if found, or empty otherwise
+     */
+    Optional<IdempotencyRecord> findIdempotencyRecord(String key);
+}
@@ -0,0 +1,129 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+
+import java.util.List;
+
+/**
+ * A single line of the {@link LedgerJournal}: either a full image of a user, wallet,
+ * transaction or idempotency record, or a tombstone for one of the first three.
+ *
+ * <p>{@code PUT} records carry exactly one entity and are recognised by which field is set.
+ * {@code DELETE} records name the entity type; a tombstone without one refers to a
+ * transaction, as written by the original transaction-only journal. {@code BATCH} records hold
+ * the records of one {@link UnitOfWork}; being a single line, they are replayed either whole or,
+ * if cut off by a crash, not at all.</p>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalRecord {
+
+    public enum Op { PUT, DELETE, BATCH }
+
+    public enum Entity { USER, WALLET, TRANSACTION, IDEMPOTENCY_RECORD }
+
+    private Op op;
+    private Entity entity;
+    private Long id;
+    private User user;
+    private Wallet wallet;
+    private Transaction transaction;
+    private IdempotencyRecord idempotencyRecord;
+    private List<JournalRecord> records;
+
+    public JournalRecord() {
+    }
+
+    public static JournalRecord put(User user) {
+        JournalRecord record = new JournalRecord();
+        record.op = Op.PUT;
+        record.user = user;
+        return record;
+    }
+
+    public static JournalRecord put(Wallet wallet) {
+        JournalRecord record = new JournalRecord();
+        record.op = Op.PUT;
+        record.wallet = wallet;
+        return record;
+    }
+
+    public static JournalRecord put(Transaction transaction) {
+        JournalRecord record = new JournalRecord();
+        record.op = Op.PUT;
+        record.transaction = transaction;
+        return record;
+    }
+
+    public static JournalRecord put(IdempotencyRecord idempotencyRecord) {
+        JournalRecord record = new JournalRecord();
+        record.op = Op.PUT;
+        record.idempotencyRecord = idempotencyRecord;
+        return record;
+    }
+
+    public static JournalRecord delete(Entity entity, Long id) {
+        JournalRecord record = new JournalRecord();
+        record.op = Op.DELETE;
+        record.entity = entity;
+        record.id = id;
+        return record;
+    }
+
+    public static JournalRecord batch(List<JournalRecord> records) {
+        JournalRecord record = new JournalRecord();
+        record.op = Op.BATCH;
+        record.records = records;
+        return record;
+    }
+
+    /**
+     * Returns the type of entity this record refers to.
+     *
+     * @return the entity type
+     */
+    @JsonIgnore
+    public Entity getTarget() {
+        if (entity != null) {
+            return entity;
+        }
+        if (user != null) {
+            return Entity.USER;
+        }
+        if (wallet != null) {
+            return Entity.WALLET;
+        }
+        if (idempotencyRecord != null) {
+            return Entity.IDEMPOTENCY_RECORD;
+        }
+        return Entity.TRANSACTION;
+    }
+
+    public Op getOp() { return op; }
+    public void setOp(Op op) { this.op = op; }
+
+    public Entity getEntity() { return entity; }
+    public void setEntity(Entity entity) { this.entity = entity; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Wallet getWallet() { return wallet; }
+    public void setWallet(Wallet wallet) { this.wallet = wallet; }
+
+    public Transaction getTransaction() { return transaction; }
+    public void setTransaction(Transaction transaction) { this.transaction = transaction; }
+
+    public IdempotencyRecord getIdempotencyRecord() { return idempotencyRecord; }
+    public void setIdempotencyRecord(IdempotencyRecord idempotencyRecord) { this.idempotencyRecord = idempotencyRecord; }
+
+    public List<JournalRecord> getRecords() { return records; }
+    public void setRecords(List<JournalRecord> records) { this.records = records; }
+}
@@ -0,0 +1,60 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Writes records as compact JSON, one object per line (NDJSON), using Jackson data binding.
+ */
+public class JsonStorageCodec implements StorageCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JsonStorageCodec() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.objectMapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        this.objectMapper.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+    }
+
+    @Override
+    public String getFileExtension() {
+        return "ndjson";
+    }
+
+    @Override
+    public <T> long write(OutputStream out, Class<T> type, Iterator<? extends T> records, long limit) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(type).withRootValueSeparator("\n");
+        long count = 0;
+        try (SequenceWriter sequence = writer.writeValues(out)) {
+            while (count < limit && records.hasNext()) {
+                sequence.write(records.next());
+                count++;
+            }
+        }
+        out.flush();
+        return count;
+    }
+
+    @Override
+    public <T> void read(InputStream in, Class<T> type, Consumer<? super T> consumer) throws IOException {
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(in)) {
+            while (iterator.hasNextValue()) {
+                consumer.accept(iterator.nextValue());
+            }
+        }
+    }
+}
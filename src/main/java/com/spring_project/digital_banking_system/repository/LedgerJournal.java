@@ -0,0 +1,297 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only journal of user, wallet and transaction changes, stored as one compact JSON
+ * {@link JournalRecord} per line.
+ *
+ * <p>Saving an entity appends a single {@code PUT} record holding its full image and deleting
+ * one appends a {@code DELETE} tombstone, so the cost of a write no longer depends on the size
+ * of the data. The journal is split into numbered segments ({@code ledger-00000001.journal},
+ * ...). Taking a snapshot {@link #rotate() rotates} to a new segment, after which the older
+ * segments are covered by the snapshot and can be deleted; on startup only the segments from
+ * the snapshot onwards are {@link #replay replayed}.</p>
+ *
+ * <p>Records are normally encoded on the calling thread with {@link #encode} and written by the
+ * {@link GroupCommitWriter}, which batches many of them into one {@link #write} followed by a
+ * single {@link #force}. A record that was only partially written before a crash is detected
+ * on replay and cut off, so that subsequent appends start on a clean line.</p>
+ */
+public class LedgerJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerJournal.class);
+
+    private static final byte NEWLINE = '\n';
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("ledger-(\\d+)\\.journal");
+
+    private final File directory;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader recordReader;
+    private long segment;
+    private long segmentBytes;
+    private FileChannel channel;
+
+    public LedgerJournal(File directory) {
+        this.directory = directory;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.recordReader = objectMapper.readerFor(JournalRecord.class);
+    }
+
+    /**
+     * Lists the numbers of the journal segments present on disk, in ascending order.
+     *
+     * @return the existing segment numbers
+     */
+    public List<Long> segments() {
+        List<Long> segments = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    segments.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Replays every segment numbered {@code fromSegment} or higher, in order.
+     *
+     * @param fromSegment the first segment to replay
+     * @param consumer    receives each record
+     * @return the number of records replayed
+     * @throws IOException if a segment cannot be read
+     */
+    public long replay(long fromSegment, Consumer<JournalRecord> consumer) throws IOException {
+        long records = 0;
+        for (long number : segments()) {
+            if (number >= fromSegment) {
+                records += replayFile(segmentFile(number), consumer);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Replays a single journal file. A torn record at the end of the file is discarded and the
+     * file is truncated to the last complete record.
+     *
+     * @param file     the journal file to read
+     * @param consumer receives each record
+     * @return the number of records replayed
+     * @throws IOException if the file cannot be read or contains a corrupt record
+     */
+    public long replayFile(File file, Consumer<JournalRecord> consumer) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        long validLength = 0;
+        long records = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            ByteArrayOutputStream partial = new ByteArrayOutputStream(256);
+            long offset = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                int lineStart = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != NEWLINE) {
+                        continue;
+                    }
+                    JournalRecord record;
+                    if (partial.size() == 0) {
+                        record = i > lineStart ? recordReader.readValue(buffer, lineStart, i - lineStart) : null;
+                    } else {
+                        partial.write(buffer, lineStart, i - lineStart);
+                        record = recordReader.readValue(partial.toByteArray());
+                        partial.reset();
+                    }
+                    if (record != null) {
+                        consumer.accept(record);
+                        records++;
+                    }
+                    lineStart = i + 1;
+                    validLength = offset + lineStart;
+                }
+                partial.write(buffer, lineStart, read - lineStart);
+                offset += read;
+            }
+            if (partial.size() > 0) {
+                log.warn("Discarding incomplete trailing record ({} bytes) in {}", partial.size(), file.getName());
+            }
+        }
+
+        if (validLength < file.length()) {
+            try (FileChannel truncating = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                truncating.truncate(validLength);
+            }
+        }
+
+        log.info("Replayed {} journal records from {}", records, file.getName());
+        return records;
+    }
+
+    /**
+     * Selects the segment that subsequent writes are appended to.
+     *
+     * @param segment the segment number
+     */
+    public synchronized void open(long segment) {
+        this.segment = segment;
+        File file = segmentFile(segment);
+        this.segmentBytes = file.exists() ? file.length() : 0;
+    }
+
+    /**
+     * Forces and closes the current segment and starts appending to the next one.
+     *
+     * @return the number of the new segment
+     * @throws IOException if the current segment cannot be synced or closed
+     */
+    public synchronized long rotate() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+        segment++;
+        segmentBytes = 0;
+        return segment;
+    }
+
+    /**
+     * Returns the number of the segment currently being appended to.
+     *
+     * @return the current segment number
+     */
+    public synchronized long currentSegment() {
+        return segment;
+    }
+
+    /**
+     * Returns how many bytes have been written to the current segment.
+     *
+     * @return the size of the current segment in bytes
+     */
+    public synchronized long currentSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Deletes all segments numbered below {@code segment}, once a snapshot covers them.
+     *
+     * @param segment the first segment to keep
+     */
+    public void deleteSegmentsBefore(long segment) {
+        for (long number : segments()) {
+            if (number < segment) {
+                try {
+                    Files.deleteIfExists(segmentFile(number).toPath());
+                } catch (IOException e) {
+                    log.warn("Could not delete journal segment {}: {}", number, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes a record as a single journal line.
+     *
+     * @param record the record to encode
+     * @return the record bytes, including the trailing newline
+     */
+    public byte[] encode(JournalRecord record) {
+        try {
+            String json = objectMapper.writeValueAsString(record);
+            return (json + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to encode journal record: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends already encoded records to the current segment without forcing them to disk.
+     *
+     * @param records one or more complete encoded records
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void write(byte[] records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        FileChannel out = openChannel();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        segmentBytes += records.length;
+    }
+
+    /**
+     * Forces all records written to the current segment to stable storage.
+     *
+     * @throws IOException if the journal cannot be synced
+     */
+    public synchronized void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private File segmentFile(long number) {
+        return new File(directory, String.format("ledger-%08d.journal", number));
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            channel = open(segmentFile(segment).toPath());
+        }
+        return channel;
+    }
+
+    /**
+     * Opens a segment file for appending. Tests override it to inject I/O failures.
+     */
+    FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
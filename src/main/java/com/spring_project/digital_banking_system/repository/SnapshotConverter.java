@@ -0,0 +1,36 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+
+/**
+ * Command-line tool converting a data directory's snapshot to another {@link StorageFormat}.
+ *
+ * <p>Loads the latest snapshot and journal, whatever their format, and writes a fresh snapshot
+ * in the requested format through the usual atomic snapshot path, which then replaces the old
+ * snapshot and journal segments. Run it while the application is stopped, with
+ * {@code <data-dir> <JSON|BINARY>} as arguments.</p>
+ */
+public final class SnapshotConverter {
+
+    private SnapshotConverter() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: SnapshotConverter <data-dir> <JSON|BINARY>");
+            System.exit(2);
+        }
+
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(args[0]);
+        properties.setSnapshotFormat(StorageFormat.valueOf(args[1].toUpperCase()));
+
+        DataRepository repository = new DataRepository(properties);
+        try {
+            repository.takeSnapshot();
+        } finally {
+            repository.close();
+        }
+        System.out.println("Converted " + args[0] + " to a " + properties.getSnapshotFormat() + " snapshot");
+    }
+}
@@ -0,0 +1,365 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Writes and loads compact point-in-time snapshots of all users, wallets, transactions and
+ * idempotency records.
+ *
+ * <p>A snapshot is a directory named after the first journal segment it does <em>not</em>
+ * cover ({@code snapshot-00000007} covers segments 1 to 6). It contains {@code users},
+ * {@code wallets}, several {@code transactions-N} partition files and {@code idempotency-records},
+ * plus a {@code manifest.json} written last. The record files are written in the configured
+ * {@link StorageFormat}, which is recorded in the manifest, so snapshots written in either
+ * format can be loaded. The directory is assembled under a temporary name, fsynced and then
+ * renamed into place, so a crash while snapshotting leaves the previous snapshot untouched.</p>
+ *
+ * <p>Loading reads all partitions in parallel, handing records to the supplied consumers
+ * from several threads at once so that index building scales with the number of cores.</p>
+ */
+public class SnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)");
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String USERS_FILE = "users.";
+    private static final String WALLETS_FILE = "wallets.";
+    private static final String TRANSACTIONS_FILE_PATTERN = "transactions-%d.";
+    private static final String IDEMPOTENCY_RECORDS_FILE = "idempotency-records.";
+    private static final int MAX_PARTITIONS = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File directory;
+    private final StorageFormat format;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param directory the data directory holding the snapshots
+     * @param format    the format new snapshots are written in
+     */
+    public SnapshotStore(File directory, StorageFormat format) {
+        this.directory = directory;
+        this.format = format;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    }
+
+    /**
+     * Returns the format new snapshots are written in.
+     *
+     * @return the snapshot format
+     */
+    public StorageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Finds the most recent complete snapshot, removing any left half-written by a crash.
+     *
+     * @return the segment number of the latest snapshot, or empty if there is none
+     */
+    public OptionalLong latest() {
+        long latest = -1;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith("snapshot-") && file.getName().endsWith(TEMP_SUFFIX)) {
+                    deleteRecursively(file.toPath());
+                    continue;
+                }
+                Matcher matcher = SNAPSHOT_NAME.matcher(file.getName());
+                if (matcher.matches() && new File(file, MANIFEST_FILE).exists()) {
+                    latest = Math.max(latest, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        return latest < 0 ? OptionalLong.empty() : OptionalLong.of(latest);
+    }
+
+    /**
+     * Writes a snapshot atomically.
+     *
+     * @param segment      the first journal segment not covered by the snapshot
+     * @param users        the users to include
+     * @param wallets      the wallets to include
+     * @param transactions the transactions to include
+     * @return the manifest of the written snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public Manifest write(long segment, Collection<User> users, Collection<Wallet> wallets,
+                          Collection<Transaction> transactions) throws IOException {
+        return write(segment, users, wallets, transactions, List::of, List.of(), () -> { });
+    }
+
+    /**
+     * Writes a snapshot atomically, recording the archive segments that hold the transactions
+     * not included in it.
+     *
+     * <p>The collections may be live views that change while they are written. Their changes
+     * must reach the journal segments from {@code segment} on, so that replaying those segments
+     * completes any change the snapshot caught half applied. {@code beforePublish} is called
+     * once everything has been read and before the snapshot is published, to wait until those
+     * changes are durable; if it fails, the snapshot is discarded. The idempotency records are
+     * only read after that, since a record is only kept once the change it describes is
+     * durable.</p>
+     *
+     * @param segment            the first journal segment not covered by the snapshot
+     * @param users              the users to include
+     * @param wallets            the wallets to include
+     * @param transactions       the transactions to include
+     * @param idempotencyRecords supplies the idempotency records to include
+     * @param archiveSegments    the names of the {@link TransactionArchive} segments in use
+     * @param beforePublish      waits until every change the snapshot may have read is durable
+     * @return the manifest of the written snapshot
+     * @throws IOException if the snapshot cannot be written or {@code beforePublish} fails
+     */
+    public Manifest write(long segment, Collection<User> users, Collection<Wallet> wallets,
+                          Collection<Transaction> transactions,
+                          Supplier<? extends Collection<IdempotencyRecord>> idempotencyRecords,
+                          List<String> archiveSegments, Barrier beforePublish) throws IOException {
+        File target = snapshotDir(segment);
+        File temp = new File(directory, target.getName() + TEMP_SUFFIX);
+        deleteRecursively(temp.toPath());
+        Files.createDirectories(temp.toPath());
+
+        int partitions = partitionsFor(transactions.size());
+        long perPartition = (transactions.size() + partitions - 1L) / Math.max(1, partitions);
+        StorageCodec codec = format.newCodec();
+        String extension = codec.getFileExtension();
+
+        Manifest manifest = new Manifest();
+        manifest.setSegment(segment);
+        manifest.setCreatedAt(System.currentTimeMillis());
+        manifest.setFormat(format);
+        manifest.setUsers(writeRecords(codec, new File(temp, USERS_FILE + extension), User.class,
+                users.iterator(), Long.MAX_VALUE));
+        manifest.setWallets(writeRecords(codec, new File(temp, WALLETS_FILE + extension), Wallet.class,
+                wallets.iterator(), Long.MAX_VALUE));
+
+        Iterator<Transaction> iterator = transactions.iterator();
+        long written = 0;
+        for (int i = 0; i < partitions; i++) {
+            // The last partition takes whatever is left, in case the collection grew while being written
+            long limit = i == partitions - 1 ? Long.MAX_VALUE : perPartition;
+            File partition = new File(temp, String.format(TRANSACTIONS_FILE_PATTERN, i) + extension);
+            written += writeRecords(codec, partition, Transaction.class, iterator, limit);
+        }
+        manifest.setTransactions(written);
+        manifest.setTransactionPartitions(partitions);
+        manifest.setArchiveSegments(List.copyOf(archiveSegments));
+        beforePublish.await();
+        manifest.setIdempotencyRecords(writeRecords(codec, new File(temp, IDEMPOTENCY_RECORDS_FILE + extension),
+                IdempotencyRecord.class, idempotencyRecords.get().iterator(), Long.MAX_VALUE));
+
+        File manifestFile = new File(temp, MANIFEST_FILE);
+        try (FileOutputStream out = new FileOutputStream(manifestFile)) {
+            objectMapper.writeValue(out, manifest);
+            out.getFD().sync();
+        }
+        syncDirectory(temp.toPath());
+
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(directory.toPath());
+        return manifest;
+    }
+
+    /**
+     * Loads a snapshot, reading its files in parallel. The consumers are called concurrently
+     * and must be thread-safe, except for the transaction consumers: each transaction partition
+     * is read by one task into a consumer of its own, which may buffer them without locking.
+     *
+     * <p>Idempotency records are read by a single task, in the order they were written.</p>
+     *
+     * @param segment            the segment number of the snapshot
+     * @param users              receives each user
+     * @param wallets            receives each wallet
+     * @param transactions       supplies the consumer receiving each partition's transactions
+     * @param idempotencyRecords receives each idempotency record
+     * @return the manifest of the loaded snapshot
+     * @throws IOException if the snapshot is missing or unreadable
+     */
+    public Manifest load(long segment, Consumer<User> users, Consumer<Wallet> wallets,
+                         Supplier<? extends Consumer<Transaction>> transactions,
+                         Consumer<IdempotencyRecord> idempotencyRecords) throws IOException {
+        File dir = snapshotDir(segment);
+        Manifest manifest = objectMapper.readValue(new File(dir, MANIFEST_FILE), Manifest.class);
+        StorageCodec codec = manifest.getFormat().newCodec();
+        String extension = codec.getFileExtension();
+
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> readRecords(codec, new File(dir, USERS_FILE + extension), User.class, users));
+        tasks.add(() -> readRecords(codec, new File(dir, WALLETS_FILE + extension), Wallet.class, wallets));
+        for (int i = 0; i < manifest.getTransactionPartitions(); i++) {
+            File partition = new File(dir, String.format(TRANSACTIONS_FILE_PATTERN, i) + extension);
+            tasks.add(() -> readRecords(codec, partition, Transaction.class, transactions.get()));
+        }
+        File idempotencyFile = new File(dir, IDEMPOTENCY_RECORDS_FILE + extension);
+        // Snapshots written before idempotency keys were introduced have no such file
+        if (idempotencyFile.exists()) {
+            tasks.add(() -> readRecords(codec, idempotencyFile, IdempotencyRecord.class, idempotencyRecords));
+        }
+
+        try {
+            tasks.parallelStream().forEach(Runnable::run);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return manifest;
+    }
+
+    /**
+     * Deletes all snapshots older than the given one.
+     *
+     * @param segment the segment number of the oldest snapshot to keep
+     */
+    public void deleteBefore(long segment) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            Matcher matcher = SNAPSHOT_NAME.matcher(file.getName());
+            if (matcher.matches() && Long.parseLong(matcher.group(1)) < segment) {
+                deleteRecursively(file.toPath());
+            }
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static <T> long writeRecords(StorageCodec codec, File file, Class<T> type, Iterator<? extends T> records,
+                                         long limit) throws IOException {
+        long count;
+        try (FileOutputStream fileOut = new FileOutputStream(file);
+             BufferedOutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE)) {
+            count = codec.write(out, type, records, limit);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        return count;
+    }
+
+    private static <T> void readRecords(StorageCodec codec, File file, Class<T> type, Consumer<T> consumer) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            codec.read(in, type, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read snapshot file " + file, e);
+        }
+    }
+
+    private static int partitionsFor(int transactions) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int bySize = Math.max(1, transactions / 100_000);
+        return Math.max(1, Math.min(MAX_PARTITIONS, Math.min(cores, bySize)));
+    }
+
+    private File snapshotDir(long segment) {
+        return new File(directory, String.format("snapshot-%08d", segment));
+    }
+
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform allows syncing a directory; the rename is still atomic
+            log.debug("Could not sync directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Waits, before a snapshot is published, until the changes it read are durable elsewhere.
+     */
+    @FunctionalInterface
+    public interface Barrier {
+        void await() throws IOException;
+    }
+
+    /**
+     * Describes the contents of a snapshot. Written last, so its presence marks a complete snapshot.
+     */
+    public static class Manifest {
+        private long segment;
+        private long createdAt;
+        private StorageFormat format = StorageFormat.JSON;
+        private long users;
+        private long wallets;
+        private long transactions;
+        private int transactionPartitions;
+        private long idempotencyRecords;
+        private List<String> archiveSegments = List.of();
+
+        public long getSegment() { return segment; }
+        public void setSegment(long segment) { this.segment = segment; }
+
+        public long getCreatedAt() { return createdAt; }
+        public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+        /** The format of the record files; snapshots written before it was recorded are JSON. */
+        public StorageFormat getFormat() { return format; }
+        public void setFormat(StorageFormat format) { this.format = format; }
+
+        public long getUsers() { return users; }
+        public void setUsers(long users) { this.users = users; }
+
+        public long getWallets() { return wallets; }
+        public void setWallets(long wallets) { this.wallets = wallets; }
+
+        public long getTransactions() { return transactions; }
+        public void setTransactions(long transactions) { this.transactions = transactions; }
+
+        public int getTransactionPartitions() { return transactionPartitions; }
+        public void setTransactionPartitions(int transactionPartitions) { this.transactionPartitions = transactionPartitions; }
+
+        public long getIdempotencyRecords() { return idempotencyRecords; }
+        public void setIdempotencyRecords(long idempotencyRecords) { this.idempotencyRecords = idempotencyRecords; }
+
+        /** The {@link TransactionArchive} segments holding the transactions older than the snapshot's. */
+        public List<String> getArchiveSegments() { return archiveSegments; }
+        public void setArchiveSegments(List<String> archiveSegments) { this.archiveSegments = archiveSegments; }
+    }
+}
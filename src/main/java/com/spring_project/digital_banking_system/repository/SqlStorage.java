@@ -0,0 +1,1186 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.exception.ConcurrentUpdateException;
+import com.spring_project.digital_banking_system.exception.StorageUnavailableException;
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Storage backend on an embedded, file-based H2 database, for data sets that no longer fit
+ * in memory.
+ *
+ * <p>Users, wallets and transactions live in indexed tables, and every call runs in its own
+ * database transaction, so a multi-wallet save either commits as a whole or not at all.
+ * Lookups by username, wallet owner and wallet code, and history pages by wallet and time,
+ * are served by indexes rather than by keeping everything resident. Idempotency records are
+ * written to their own table in the transaction of the unit of work they belong to, and the
+ * latest ones are also kept in memory, like the transaction rollups, so a retried request is
+ * recognised without a query.</p>
+ *
+ * <p>Wallet saves are compare-and-set operations: the {@code UPDATE} only matches the row if
+ * it still has the version the caller read, and a save that matches nothing fails with a
+ * {@link ConcurrentUpdateException}, exactly as in {@link DataRepository}. The wallets of one
+ * transaction are written in ascending ID order, so transactions sharing wallets do not
+ * deadlock; one the database still rolls back as a deadlock victim fails the same way. H2
+ * alone does not make the check safe: an {@code UPDATE} that waited for a row lock may still
+ * match a version that a concurrent transaction has replaced meanwhile. A transaction writing
+ * wallets therefore holds their stripe locks while it runs, as {@link DataRepository} does, so
+ * no two transactions of this process write a wallet at once.</p>
+ *
+ * <p>The database runs inside this process and is opened exclusively by it, so new IDs are
+ * allocated in memory by an {@link IdSequence} per table, with the reserved blocks recorded in
+ * the {@code id_blocks} table. Amounts are kept
+ * as {@code DECIMAL} with up to {@value #DECIMAL_SCALE} decimal places, alongside their
+ * original scale so they read back exactly as written.</p>
+ */
+@Repository
+@ConditionalOnProperty(prefix = "app.storage", name = "backend", havingValue = "SQL")
+public class SqlStorage implements Storage {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStorage.class);
+
+    static final int DECIMAL_SCALE = 10;
+    private static final String DATABASE_NAME = "bank";
+    private static final int EXPORT_BUFFER_SIZE = 1 << 16;
+    private static final int EXPORT_FETCH_SIZE = 1_000;
+    private static final int CONNECTION_CHECK_SECONDS = 1;
+    /** SQLSTATE of a transaction rolled back as a deadlock victim or serialization failure. */
+    private static final String TRANSACTION_CONFLICT = "40001";
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS users ("
+                    + "id BIGINT PRIMARY KEY, "
+                    + "username VARCHAR(255) NOT NULL, "
+                    + "email VARCHAR(255), "
+                    + "password VARCHAR(255), "
+                    + "role VARCHAR(16))",
+            "CREATE UNIQUE INDEX IF NOT EXISTS users_username ON users (username)",
+            "CREATE TABLE IF NOT EXISTS wallets ("
+                    + "id BIGINT PRIMARY KEY, "
+                    + "user_id BIGINT, "
+                    + "balance DECIMAL(38, " + DECIMAL_SCALE + ") NOT NULL, "
+                    + "balance_scale SMALLINT NOT NULL, "
+                    + "wallet_code VARCHAR(32), "
+                    + "version BIGINT NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS wallets_user_id ON wallets (user_id)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS wallets_wallet_code ON wallets (wallet_code)",
+            "CREATE TABLE IF NOT EXISTS transactions ("
+                    + "id BIGINT PRIMARY KEY, "
+                    + "sender_wallet_id BIGINT, "
+                    + "receiver_wallet_id BIGINT, "
+                    + "amount DECIMAL(38, " + DECIMAL_SCALE + "), "
+                    + "amount_scale SMALLINT, "
+                    + "type VARCHAR(16), "
+                    + "status VARCHAR(16), "
+                    + "created_at TIMESTAMP(9))",
+            "CREATE INDEX IF NOT EXISTS transactions_sender ON transactions (sender_wallet_id, created_at, id)",
+            "CREATE INDEX IF NOT EXISTS transactions_receiver ON transactions (receiver_wallet_id, created_at, id)",
+            "CREATE INDEX IF NOT EXISTS transactions_created_at ON transactions (created_at, id)",
+            "CREATE INDEX IF NOT EXISTS transactions_type_status ON transactions (type, status, id)",
+            "CREATE INDEX IF NOT EXISTS transactions_amount ON transactions (amount, id)",
+            "CREATE TABLE IF NOT EXISTS idempotency_records ("
+                    + "idempotency_key VARCHAR(512) PRIMARY KEY, "
+                    + "fingerprint VARCHAR(64), "
+                    + "response CLOB, "
+                    + "created_at TIMESTAMP(9))",
+            "CREATE INDEX IF NOT EXISTS idempotency_records_created_at ON idempotency_records (created_at)",
+            "CREATE TABLE IF NOT EXISTS id_blocks ("
+                    + "name VARCHAR(32) PRIMARY KEY, "
+                    + "reserved BIGINT NOT NULL)"
+    };
+
+    private static final List<String> TABLES = List.of("users", "wallets", "transactions");
+
+    private static final String USER_COLUMNS = "id, username, email, password, role";
+    private static final String WALLET_COLUMNS = "id, user_id, balance, balance_scale, wallet_code, version";
+    private static final String TRANSACTION_COLUMNS =
+            "id, sender_wallet_id, receiver_wallet_id, amount, amount_scale, type, status, created_at";
+    private static final String NEWEST_FIRST = " ORDER BY created_at DESC, id DESC";
+
+    private final String url;
+    private final int poolSize;
+    private final WalletLockTable walletLocks;
+    private final BlockingQueue<Connection> pool;
+    private final ObjectMapper objectMapper;
+
+    private final IdSequence userIds;
+    private final IdSequence walletIds;
+    private final IdSequence transactionIds;
+    private final TransactionRollups rollups;
+    private final DailyBalanceChanges dailyBalances = new DailyBalanceChanges();
+    private final IdempotencyKeys idempotencyKeys;
+    private final AtomicLong versionConflicts = new AtomicLong();
+
+    public SqlStorage(StorageProperties properties) {
+        this.url = properties.getSqlUrl() != null && !properties.getSqlUrl().isBlank()
+                ? properties.getSqlUrl()
+                : "jdbc:h2:file:" + new File(properties.getDataDir(), DATABASE_NAME).getAbsolutePath()
+                        + ";LAZY_QUERY_EXECUTION=TRUE";
+        this.poolSize = Math.max(1, properties.getSqlPoolSize());
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        this.walletLocks = new WalletLockTable(properties.getWalletLockStripes());
+
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        Duration minuteRetention = Duration.ofHours(properties.getRollupMinuteHours());
+        this.rollups = new TransactionRollups(minuteRetention);
+        this.idempotencyKeys = new IdempotencyKeys(Duration.ofHours(properties.getIdempotencyKeyHours()),
+                properties.getIdempotencyKeyCapacity());
+
+        long[][] marks;
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                Connection connection = DriverManager.getConnection(url, "sa", "");
+                connection.setAutoCommit(false);
+                pool.add(connection);
+            }
+            marks = inTransaction(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (String ddl : SCHEMA) {
+                        statement.execute(ddl);
+                    }
+                    // H2 otherwise writes commits to the file up to half a second later, and a crash
+                    // in between would lose transactions and ID reservations already committed
+                    statement.execute("SET WRITE_DELAY 0");
+                }
+                long[][] reservedAndMax = new long[TABLES.size()][];
+                for (int i = 0; i < TABLES.size(); i++) {
+                    String table = TABLES.get(i);
+                    long reserved = first(query(connection, "SELECT reserved FROM id_blocks WHERE name = ?",
+                            List.of(table), row -> row.getLong(1))).orElse(0L);
+                    reservedAndMax[i] = new long[]{reserved, maxId(connection, table)};
+                }
+                loadRollups(connection, minuteRetention);
+                loadDailyBalances(connection);
+                loadIdempotencyRecords(connection);
+                return reservedAndMax;
+            });
+        } catch (SQLException | RuntimeException e) {
+            close();
+            throw new IllegalStateException("Failed to open database " + url + ": " + e.getMessage(), e);
+        }
+        int blockSize = properties.getIdBlockSize();
+        this.userIds = new IdSequence(marks[0][0], marks[0][1], blockSize, mark -> storeMark("users", mark));
+        this.walletIds = new IdSequence(marks[1][0], marks[1][1], blockSize, mark -> storeMark("wallets", mark));
+        this.transactionIds = new IdSequence(marks[2][0], marks[2][1], blockSize, mark -> storeMark("transactions", mark));
+        log.info("Opened SQL storage at {} with {} connections", url, poolSize);
+    }
+
+    // ==================== USER OPERATIONS ====================
+
+    @Override
+    public List<User> findAllUsers() {
+        return inTransaction(connection -> query(connection,
+                "SELECT " + USER_COLUMNS + " FROM users ORDER BY id", List.of(), SqlStorage::readUser));
+    }
+
+    @Override
+    public Optional<User> findUserById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return inTransaction(connection -> first(query(connection,
+                "SELECT " + USER_COLUMNS + " FROM users WHERE id = ?", List.of(id), SqlStorage::readUser)));
+    }
+
+    @Override
+    public Optional<User> findUserByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        return inTransaction(connection -> first(query(connection,
+                "SELECT " + USER_COLUMNS + " FROM users WHERE username = ?", List.of(username), SqlStorage::readUser)));
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return findUserByUsername(username).isPresent();
+    }
+
+    @Override
+    public User saveUser(User user) {
+        long id = allocate(userIds, user.getId());
+        inTransaction(connection -> {
+            putUser(connection, user, id);
+            return null;
+        });
+        user.setId(id);
+        return user;
+    }
+
+    @Override
+    public void deleteUser(Long id) {
+        delete("users", id);
+    }
+
+    // ==================== WALLET OPERATIONS ====================
+
+    @Override
+    public List<Wallet> findAllWallets() {
+        return inTransaction(connection -> query(connection,
+                "SELECT " + WALLET_COLUMNS + " FROM wallets ORDER BY id", List.of(), SqlStorage::readWallet));
+    }
+
+    @Override
+    public Optional<Wallet> findWalletById(Long id) {
+        return findWallet("id", id);
+    }
+
+    @Override
+    public Optional<Wallet> findWalletByUserId(Long userId) {
+        return findWallet("user_id", userId);
+    }
+
+    @Override
+    public Optional<Wallet> findWalletByWalletCode(String walletCode) {
+        return findWallet("wallet_code", walletCode);
+    }
+
+    @Override
+    public Wallet saveWallet(Wallet wallet) {
+        saveWalletsAsync(wallet);
+        return wallet;
+    }
+
+    /**
+     * Saves a wallet in its own database transaction. The returned future is already complete,
+     * since the change is durable once the transaction commits.
+     */
+    @Override
+    public CompletableFuture<Void> saveWalletAsync(Wallet wallet) {
+        return saveWalletsAsync(wallet);
+    }
+
+    /**
+     * Saves the wallets in one database transaction, rolled back as a whole if any of them has
+     * been changed concurrently. The returned future is already complete.
+     */
+    @Override
+    public CompletableFuture<Void> saveWalletsAsync(Wallet... wallets) {
+        long[] ids = new long[wallets.length];
+        for (int i = 0; i < wallets.length; i++) {
+            ids[i] = allocate(walletIds, wallets[i].getId());
+        }
+        inWalletTransaction(ids, connection -> {
+            for (int i : ascending(ids)) {
+                putWallet(connection, wallets[i], ids[i]);
+            }
+            return null;
+        });
+        // Only touch the callers' objects once the transaction has committed
+        for (int i = 0; i < wallets.length; i++) {
+            wallets[i].setId(ids[i]);
+            wallets[i].setVersion(wallets[i].getVersion() + 1);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void deleteWallet(Long id) {
+        delete("wallets", id);
+    }
+
+    // ==================== TRANSACTION OPERATIONS ====================
+
+    @Override
+    public List<Transaction> findAllTransactions() {
+        return inTransaction(connection -> query(connection,
+                "SELECT " + TRANSACTION_COLUMNS + " FROM transactions ORDER BY id", List.of(),
+                SqlStorage::readTransaction));
+    }
+
+    @Override
+    public Optional<Transaction> findTransactionById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return inTransaction(connection -> findTransaction(connection, id));
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByWalletId(Long walletId) {
+        return findTransactionsByWalletId(walletId, null, 0, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the page from the sender and receiver indexes separately, each limited to the page
+     * size, and merges the two; a transaction a wallet sent to itself is only taken from the
+     * sender side.
+     */
+    @Override
+    public List<Transaction> findTransactionsByWalletId(Long walletId, LocalDateTime beforeTimestamp, long beforeId,
+                                                        LocalDateTime notBefore, int limit) {
+        if (walletId == null) {
+            return new ArrayList<>();
+        }
+        List<Object> params = new ArrayList<>();
+        params.add(walletId);
+        String sent = pageBounds(beforeTimestamp, beforeId, notBefore, params);
+        params.add(limit);
+        params.add(walletId);
+        params.add(walletId);
+        String received = pageBounds(beforeTimestamp, beforeId, notBefore, params);
+        params.add(limit);
+        params.add(limit);
+
+        String sql = "SELECT " + TRANSACTION_COLUMNS + " FROM ("
+                + "(SELECT " + TRANSACTION_COLUMNS + " FROM transactions WHERE sender_wallet_id = ?" + sent
+                + NEWEST_FIRST + " LIMIT ?)"
+                + " UNION ALL "
+                + "(SELECT " + TRANSACTION_COLUMNS + " FROM transactions WHERE receiver_wallet_id = ?"
+                + " AND (sender_wallet_id IS NULL OR sender_wallet_id <> ?)" + received
+                + NEWEST_FIRST + " LIMIT ?)"
+                + ") AS page" + NEWEST_FIRST + " LIMIT ?";
+        return inTransaction(connection -> query(connection, sql, params, SqlStorage::readTransaction));
+    }
+
+    @Override
+    public List<Transaction> findTransactions(LocalDateTime beforeTimestamp, long beforeId, LocalDateTime notBefore,
+                                              int limit) {
+        List<Object> params = new ArrayList<>();
+        String bounds = pageBounds(beforeTimestamp, beforeId, notBefore, params);
+        params.add(limit);
+        String sql = "SELECT " + TRANSACTION_COLUMNS + " FROM transactions WHERE 1 = 1" + bounds
+                + NEWEST_FIRST + " LIMIT ?";
+        return inTransaction(connection -> query(connection, sql, params, SqlStorage::readTransaction));
+    }
+
+    @Override
+    public List<Transaction> findAllTransactionsOrderedByTimestamp() {
+        return inTransaction(connection -> query(connection,
+                "SELECT " + TRANSACTION_COLUMNS + " FROM transactions" + NEWEST_FIRST, List.of(),
+                SqlStorage::readTransaction));
+    }
+
+    /**
+     * Counts the matches and reads the page in one database transaction, so the total agrees
+     * with the page; the planner picks among the wallet, time, type and amount indexes.
+     */
+    @Override
+    public TransactionSearchResult searchTransactions(TransactionQuery query, long beforeId, int limit) {
+        List<Object> params = new ArrayList<>();
+        String filters = searchFilters(query, params);
+        List<Object> pageParams = new ArrayList<>(params);
+        pageParams.add(beforeId);
+        pageParams.add(limit);
+        return inTransaction(connection -> {
+            long total = first(query(connection, "SELECT COUNT(*) FROM transactions WHERE 1 = 1" + filters,
+                    params, row -> row.getLong(1))).orElse(0L);
+            List<Transaction> page = query(connection, "SELECT " + TRANSACTION_COLUMNS
+                    + " FROM transactions WHERE 1 = 1" + filters + " AND id < ? ORDER BY id DESC LIMIT ?",
+                    pageParams, SqlStorage::readTransaction);
+            return new TransactionSearchResult(page, total);
+        });
+    }
+
+    /**
+     * Returns the rollups of a time range. They are kept in memory, updated once each write has
+     * committed, and rebuilt on startup with {@code GROUP BY} queries over the table.
+     */
+    @Override
+    public List<TransactionRollups.Bucket> findRollups(TransactionRollups.Resolution resolution, LocalDateTime from,
+                                                       LocalDateTime to) {
+        return rollups.find(resolution, from, to);
+    }
+
+    /**
+     * Adds the wallet's net changes on the days before {@code asOf}, kept in memory, to its
+     * received and sent amounts from the start of that day up to {@code asOf}. Those are summed
+     * in one database transaction, each as a range scan of the receiver or sender index, so only
+     * one day of the wallet's rows is read however long its history is. The result keeps the
+     * largest scale of the amounts summed, as adding them in memory would.
+     */
+    @Override
+    public BigDecimal findBalanceAt(Long walletId, LocalDateTime asOf) {
+        if (walletId == null) {
+            return BigDecimal.ZERO;
+        }
+        LocalDate day = asOf.toLocalDate();
+        LocalDateTime from = day.atStartOfDay();
+        BigDecimal sameDay = inTransaction(connection ->
+                sumAmounts(connection, "receiver_wallet_id", "sender_wallet_id", walletId, from, asOf)
+                        .subtract(sumAmounts(connection, "sender_wallet_id", "receiver_wallet_id", walletId, from, asOf)));
+        return dailyBalances.sumBefore(walletId, day).add(sameDay);
+    }
+
+    @Override
+    public Transaction saveTransaction(Transaction transaction) {
+        saveTransactionAsync(transaction);
+        return transaction;
+    }
+
+    /**
+     * Saves a transaction in its own database transaction. The returned future is already
+     * complete, since the change is durable once the transaction commits.
+     */
+    @Override
+    public CompletableFuture<Void> saveTransactionAsync(Transaction transaction) {
+        boolean replacing = transaction.getId() != null;
+        long id = allocate(transactionIds, transaction.getId());
+        Optional<Transaction> previous = inTransaction(connection -> {
+            Optional<Transaction> replaced = replacing ? findTransaction(connection, id) : Optional.empty();
+            putTransaction(connection, transaction, id);
+            return replaced;
+        });
+        transaction.setId(id);
+        previous.ifPresent(this::forget);
+        remember(transaction);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void deleteTransaction(Long id) {
+        if (id == null) {
+            return;
+        }
+        inTransaction(connection -> {
+            Optional<Transaction> removed = findTransaction(connection, id);
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM transactions WHERE id = ?")) {
+                statement.setLong(1, id);
+                statement.executeUpdate();
+            }
+            return removed;
+        }).ifPresent(this::forget);
+    }
+
+    // ==================== IDEMPOTENCY RECORDS ====================
+
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        return key == null ? Optional.empty() : idempotencyKeys.get(key);
+    }
+
+    // ==================== UNITS OF WORK ====================
+
+    @Override
+    public UnitOfWork newUnitOfWork() {
+        return new UnitOfWork(userIds::next, walletIds::next, transactionIds::next);
+    }
+
+    /**
+     * Writes every staged save in one database transaction, rolled back as a whole if any
+     * staged wallet has been changed concurrently. The returned future is already complete.
+     */
+    @Override
+    public CompletableFuture<Void> commitAsync(UnitOfWork work) {
+        long[] userIdsToWrite = allocate(userIds, work.users(), User::getId);
+        long[] walletIdsToWrite = allocate(walletIds, work.wallets(), Wallet::getId);
+        long[] transactionIdsToWrite = allocate(transactionIds, work.transactions(), Transaction::getId);
+        List<Transaction> replaced = inWalletTransaction(walletIdsToWrite, connection -> {
+            List<Transaction> previous = new ArrayList<>();
+            for (int i = 0; i < work.users().size(); i++) {
+                putUser(connection, work.users().get(i), userIdsToWrite[i]);
+            }
+            for (int i : ascending(walletIdsToWrite)) {
+                putWallet(connection, work.wallets().get(i), walletIdsToWrite[i]);
+            }
+            for (int i = 0; i < work.transactions().size(); i++) {
+                Transaction transaction = work.transactions().get(i);
+                if (transaction.getId() != null) {
+                    findTransaction(connection, transaction.getId()).ifPresent(previous::add);
+                }
+                putTransaction(connection, transaction, transactionIdsToWrite[i]);
+            }
+            for (IdempotencyRecord record : work.idempotencyRecords()) {
+                putIdempotencyRecord(connection, record);
+            }
+            return previous;
+        });
+        replaced.forEach(this::forget);
+        work.transactions().forEach(this::remember);
+        List<String> dropped = new ArrayList<>();
+        for (IdempotencyRecord record : work.idempotencyRecords()) {
+            IdempotencyRecord stored = new IdempotencyRecord(record.getKey(), record.getFingerprint(), record.getCreatedAt());
+            stored.setResponse(record.getResponse());
+            dropped.addAll(idempotencyKeys.put(stored));
+        }
+        if (!dropped.isEmpty()) {
+            inTransaction(connection -> {
+                deleteIdempotencyRecords(connection, dropped);
+                return null;
+            });
+        }
+        // Only touch the callers' objects once the transaction has committed
+        for (Wallet wallet : work.wallets()) {
+            wallet.setVersion(wallet.getVersion() + 1);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void commit(UnitOfWork work) {
+        commitAsync(work);
+    }
+
+    // ==================== EXPORT ====================
+
+    /**
+     * Streams the users from a single query, which sees the table as it was when the query
+     * started.
+     */
+    @Override
+    public long exportUsers(OutputStream out) throws IOException {
+        return export("SELECT " + USER_COLUMNS + " FROM users ORDER BY id", SqlStorage::readUser, out);
+    }
+
+    /**
+     * Streams the transactions from a single query, which sees the table as it was when the
+     * query started.
+     */
+    @Override
+    public long exportTransactions(OutputStream out) throws IOException {
+        return export("SELECT " + TRANSACTION_COLUMNS + " FROM transactions ORDER BY id",
+                SqlStorage::readTransaction, out);
+    }
+
+    // ==================== STATISTICS ====================
+
+    @Override
+    public Map<String, Object> getStorageStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backend", StorageBackend.SQL);
+        stats.put("url", url);
+        stats.put("poolSize", poolSize);
+        stats.put("idleConnections", pool.size());
+        inTransaction(connection -> {
+            for (String table : TABLES) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                    rows.next();
+                    stats.put(table, rows.getLong(1));
+                }
+            }
+            return null;
+        });
+        stats.put("versionConflicts", versionConflicts.get());
+        stats.putAll(rollups.getStats());
+        stats.putAll(dailyBalances.getStats());
+        stats.putAll(idempotencyKeys.getStats());
+        return stats;
+    }
+
+    /**
+     * Closes all pooled connections, which closes the database once the last one is gone.
+     */
+    @Override
+    @PreDestroy
+    public void close() {
+        Connection connection;
+        while ((connection = pool.poll()) != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("Error closing database connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface RowReader<T> {
+        T read(ResultSet row) throws SQLException;
+    }
+
+    /** One wallet's net change on one day, as summed on startup. */
+    private record DayChange(long walletId, LocalDate day, BigDecimal change) {
+    }
+
+    /**
+     * Runs work on a pooled connection and commits it, or rolls it back if it throws.
+     */
+    private <T> T inTransaction(SqlWork<T> work) {
+        Connection connection;
+        try {
+            connection = take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageUnavailableException("Interrupted while waiting for a database connection", e);
+        } catch (SQLException e) {
+            throw new StorageUnavailableException("Database error: " + e.getMessage(), e);
+        }
+        try {
+            T result = work.run(connection);
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            rollback(connection);
+            if (TRANSACTION_CONFLICT.equals(e.getSQLState())) {
+                versionConflicts.incrementAndGet();
+                throw new ConcurrentUpdateException("Database transaction conflicted with a concurrent one: "
+                        + e.getMessage());
+            }
+            log.error("Database error: {}", e.getMessage());
+            throw new RuntimeException("Database error: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            rollback(connection);
+            throw e;
+        } finally {
+            pool.add(connection);
+        }
+    }
+
+    /**
+     * Runs work writing the given wallets in one database transaction, holding their stripe
+     * locks until it has committed or rolled back. The locks are taken before the connection,
+     * and no one holding a connection waits for them, so the two cannot deadlock.
+     */
+    private <T> T inWalletTransaction(long[] walletIds, SqlWork<T> work) {
+        if (walletIds.length == 0) {
+            return inTransaction(work);
+        }
+        return walletLocks.withLocks(Arrays.stream(walletIds).boxed().toList(), () -> inTransaction(work));
+    }
+
+    /**
+     * Takes a connection from the pool, replacing it with a new one if it has been closed or
+     * no longer answers. The pool keeps its size even if the replacement cannot be opened.
+     */
+    private Connection take() throws InterruptedException, SQLException {
+        Connection connection = pool.take();
+        try {
+            if (connection.isValid(CONNECTION_CHECK_SECONDS)) {
+                return connection;
+            }
+        } catch (SQLException e) {
+            // Treated like a connection that failed the check
+        }
+        log.warn("Replacing a broken database connection");
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // It is being discarded anyway
+        }
+        try {
+            Connection replacement = DriverManager.getConnection(url, "sa", "");
+            replacement.setAutoCommit(false);
+            return replacement;
+        } catch (SQLException | RuntimeException e) {
+            pool.add(connection);
+            throw e;
+        }
+    }
+
+    private static void rollback(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.warn("Error rolling back database transaction: {}", e.getMessage());
+        }
+    }
+
+    private static <T> List<T> query(Connection connection, String sql, List<?> params, RowReader<T> reader)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            List<T> results = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    results.add(reader.read(rows));
+                }
+            }
+            return results;
+        }
+    }
+
+    /** Counts a committed transaction in the rollups and daily balance changes. */
+    private void remember(Transaction transaction) {
+        rollups.add(transaction);
+        dailyBalances.add(transaction);
+    }
+
+    /** Stops counting a transaction that a committed write replaced or deleted. */
+    private void forget(Transaction transaction) {
+        rollups.remove(transaction);
+        dailyBalances.remove(transaction);
+    }
+
+    private static Optional<Transaction> findTransaction(Connection connection, long id) throws SQLException {
+        return first(query(connection, "SELECT " + TRANSACTION_COLUMNS + " FROM transactions WHERE id = ?",
+                List.of(id), SqlStorage::readTransaction));
+    }
+
+    /**
+     * Sums the table into hour buckets, and the {@code minuteRetention} before the newest
+     * transaction into minute buckets.
+     */
+    private void loadRollups(Connection connection, Duration minuteRetention) throws SQLException {
+        String counted = " FROM transactions WHERE created_at IS NOT NULL AND type IS NOT NULL AND status IS NOT NULL";
+        query(connection, "SELECT DATE_TRUNC('HOUR', created_at), type, status, COUNT(*), SUM(amount),"
+                        + " MAX(amount_scale)" + counted
+                        + " GROUP BY DATE_TRUNC('HOUR', created_at), type, status", List.of(),
+                SqlStorage::readBucket).forEach(rollups::addHourly);
+
+        List<LocalDateTime> newest = query(connection, "SELECT MAX(created_at) FROM transactions", List.of(),
+                row -> row.getObject(1, LocalDateTime.class));
+        if (newest.isEmpty() || newest.get(0) == null) {
+            return;
+        }
+        LocalDateTime since = TransactionRollups.Resolution.MINUTE.bucketOf(newest.get(0))
+                .minus(minuteRetention);
+        query(connection, "SELECT DATE_TRUNC('MINUTE', created_at), type, status, COUNT(*), SUM(amount),"
+                        + " MAX(amount_scale)" + counted
+                        + " AND created_at >= ? GROUP BY DATE_TRUNC('MINUTE', created_at), type, status",
+                List.of(since), SqlStorage::readBucket).forEach(rollups::addMinutely);
+    }
+
+    /**
+     * Sums each wallet's received and sent amounts by day into the daily balance changes, with
+     * the same conditions as {@link #sumAmounts}.
+     */
+    private void loadDailyBalances(Connection connection) throws SQLException {
+        loadDailyChanges(connection, "receiver_wallet_id", "sender_wallet_id", false);
+        loadDailyChanges(connection, "sender_wallet_id", "receiver_wallet_id", true);
+    }
+
+    private void loadDailyChanges(Connection connection, String column, String otherColumn, boolean sent)
+            throws SQLException {
+        query(connection, "SELECT " + column + ", CAST(created_at AS DATE), SUM(amount), MAX(amount_scale)"
+                        + " FROM transactions WHERE " + column + " IS NOT NULL AND created_at IS NOT NULL"
+                        + " AND status = ? AND amount IS NOT NULL"
+                        + " AND (" + otherColumn + " IS NULL OR " + otherColumn + " <> " + column + ")"
+                        + " GROUP BY " + column + ", CAST(created_at AS DATE)",
+                List.of(TransactionStatus.SUCCESS.name()),
+                row -> new DayChange(row.getLong(1), row.getObject(2, LocalDate.class),
+                        row.getBigDecimal(3).setScale(row.getInt(4))))
+                .forEach(day -> dailyBalances.addDay(day.walletId(), day.day(),
+                        sent ? day.change().negate() : day.change()));
+    }
+
+    /**
+     * Loads the idempotency records into memory, oldest first, and deletes the rows that have
+     * expired or no longer fit.
+     */
+    private void loadIdempotencyRecords(Connection connection) throws SQLException {
+        List<String> dropped = new ArrayList<>();
+        query(connection, "SELECT idempotency_key, fingerprint, response, created_at FROM idempotency_records"
+                        + " ORDER BY created_at, idempotency_key", List.of(),
+                SqlStorage::readIdempotencyRecord).forEach(record -> dropped.addAll(idempotencyKeys.put(record)));
+        deleteIdempotencyRecords(connection, dropped);
+    }
+
+    private static void deleteIdempotencyRecords(Connection connection, List<String> keys) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM idempotency_records WHERE idempotency_key = ?")) {
+            for (String key : keys) {
+                statement.setString(1, key);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Sums the amounts of the successful transactions whose {@code column} is the wallet, up to
+     * and including {@code asOf}, leaving out those the wallet sent to itself.
+     */
+    private static BigDecimal sumAmounts(Connection connection, String column, String otherColumn, long walletId,
+                                         LocalDateTime from, LocalDateTime asOf) throws SQLException {
+        return first(query(connection, "SELECT SUM(amount), MAX(amount_scale) FROM transactions WHERE " + column
+                        + " = ? AND created_at >= ? AND created_at <= ? AND status = ? AND amount IS NOT NULL"
+                        + " AND (" + otherColumn + " IS NULL OR " + otherColumn + " <> ?)",
+                List.of(walletId, from, asOf, TransactionStatus.SUCCESS.name(), walletId),
+                row -> {
+                    BigDecimal sum = row.getBigDecimal(1);
+                    return sum == null ? BigDecimal.ZERO : sum.setScale(row.getInt(2));
+                })).orElse(BigDecimal.ZERO);
+    }
+
+    private static <T> Optional<T> first(List<T> results) {
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    }
+
+    private Optional<Wallet> findWallet(String column, Object value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        return inTransaction(connection -> first(query(connection,
+                "SELECT " + WALLET_COLUMNS + " FROM wallets WHERE " + column + " = ?", List.of(value),
+                SqlStorage::readWallet)));
+    }
+
+    private static void putUser(Connection connection, User user, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO users (" + USER_COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?)")) {
+            statement.setLong(1, id);
+            statement.setString(2, user.getUsername());
+            statement.setString(3, user.getEmail());
+            statement.setString(4, user.getPassword());
+            statement.setString(5, user.getRole() == null ? null : user.getRole().name());
+            statement.executeUpdate();
+        }
+    }
+
+    private static void putTransaction(Connection connection, Transaction transaction, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO transactions (" + TRANSACTION_COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setLong(1, id);
+            setLong(statement, 2, transaction.getSenderWalletId());
+            setLong(statement, 3, transaction.getReceiverWalletId());
+            setAmount(statement, 4, transaction.getAmount());
+            statement.setString(6, transaction.getType() == null ? null : transaction.getType().name());
+            statement.setString(7, transaction.getStatus() == null ? null : transaction.getStatus().name());
+            if (transaction.getTimestamp() == null) {
+                statement.setNull(8, Types.TIMESTAMP);
+            } else {
+                statement.setObject(8, transaction.getTimestamp());
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private static void putIdempotencyRecord(Connection connection, IdempotencyRecord record) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("MERGE INTO idempotency_records"
+                + " (idempotency_key, fingerprint, response, created_at) KEY (idempotency_key) VALUES (?, ?, ?, ?)")) {
+            statement.setString(1, record.getKey());
+            statement.setString(2, record.getFingerprint());
+            statement.setString(3, record.getResponse());
+            statement.setObject(4, record.getCreatedAt());
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Updates a wallet if the stored row still has the caller's version, or inserts it under
+     * the given ID if it is not stored yet.
+     */
+    private void putWallet(Connection connection, Wallet wallet, long id) throws SQLException {
+        long newVersion = wallet.getVersion() + 1;
+        if (wallet.getId() != null) {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE wallets SET user_id = ?, balance = ?, balance_scale = ?, wallet_code = ?, version = ?"
+                            + " WHERE id = ? AND version = ?")) {
+                setLong(update, 1, wallet.getUserId());
+                setAmount(update, 2, wallet.getBalance());
+                update.setString(4, wallet.getWalletCode());
+                update.setLong(5, newVersion);
+                update.setLong(6, wallet.getId());
+                update.setLong(7, wallet.getVersion());
+                if (update.executeUpdate() == 1) {
+                    return;
+                }
+            }
+
+            Optional<Long> current = first(query(connection, "SELECT version FROM wallets WHERE id = ?",
+                    List.of(wallet.getId()), row -> row.getLong(1)));
+            if (current.isPresent()) {
+                versionConflicts.incrementAndGet();
+                throw new ConcurrentUpdateException("Wallet " + wallet.getId() + " was modified concurrently (expected version "
+                        + wallet.getVersion() + ", found " + current.get() + ")");
+            }
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO wallets (" + WALLET_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)")) {
+            insert.setLong(1, id);
+            setLong(insert, 2, wallet.getUserId());
+            setAmount(insert, 3, wallet.getBalance());
+            insert.setString(5, wallet.getWalletCode());
+            insert.setLong(6, newVersion);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the caller's ID, recording it in the sequence, or allocates a new one. Called
+     * outside any database transaction, since reserving a block commits one of its own.
+     */
+    private static long allocate(IdSequence sequence, Long id) {
+        if (id == null) {
+            return sequence.next();
+        }
+        sequence.observe(id);
+        return id;
+    }
+
+    /**
+     * Returns the positions of the IDs in ascending order of ID. Wallets are written in this
+     * order, so concurrent transactions lock shared rows in the same order and cannot deadlock.
+     */
+    private static int[] ascending(long[] ids) {
+        return IntStream.range(0, ids.length)
+                .boxed()
+                .sorted(Comparator.comparingLong(i -> ids[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Allocates the IDs of a unit's records, in order, before its database transaction opens:
+     * holding a connection while a block is reserved on another one could exhaust the pool.
+     */
+    private static <T> long[] allocate(IdSequence sequence, List<T> records, Function<T, Long> id) {
+        long[] ids = new long[records.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = allocate(sequence, id.apply(records.get(i)));
+        }
+        return ids;
+    }
+
+    private void storeMark(String table, long mark) {
+        inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "MERGE INTO id_blocks (name, reserved) KEY (name) VALUES (?, ?)")) {
+                statement.setString(1, table);
+                statement.setLong(2, mark);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private void delete(String table, Long id) {
+        if (id == null) {
+            return;
+        }
+        inTransaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+                statement.setLong(1, id);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Builds the conditions selecting transactions strictly older than the
+     * {@code (beforeTimestamp, beforeId)} key and not before {@code notBefore}, adding their
+     * parameters.
+     */
+    private static String pageBounds(LocalDateTime beforeTimestamp, long beforeId, LocalDateTime notBefore,
+                                     List<Object> params) {
+        StringBuilder bounds = new StringBuilder();
+        if (beforeTimestamp != null) {
+            bounds.append(" AND (created_at < ? OR created_at = ? AND id < ?)");
+            params.add(beforeTimestamp);
+            params.add(beforeTimestamp);
+            params.add(beforeId);
+        }
+        if (notBefore != null) {
+            bounds.append(" AND created_at >= ?");
+            params.add(notBefore);
+        }
+        return bounds.toString();
+    }
+
+    private static String searchFilters(TransactionQuery query, List<Object> params) {
+        StringBuilder filters = new StringBuilder();
+        if (query.getType() != null) {
+            filters.append(" AND type = ?");
+            params.add(query.getType().name());
+        }
+        if (query.getStatus() != null) {
+            filters.append(" AND status = ?");
+            params.add(query.getStatus().name());
+        }
+        if (query.getWalletId() != null) {
+            filters.append(" AND (sender_wallet_id = ? OR receiver_wallet_id = ?)");
+            params.add(query.getWalletId());
+            params.add(query.getWalletId());
+        }
+        if (query.getMinAmount() != null) {
+            filters.append(" AND amount >= ?");
+            params.add(query.getMinAmount());
+        }
+        if (query.getMaxAmount() != null) {
+            filters.append(" AND amount <= ?");
+            params.add(query.getMaxAmount());
+        }
+        if (query.getFrom() != null) {
+            filters.append(" AND created_at >= ?");
+            params.add(query.getFrom());
+        }
+        if (query.getTo() != null) {
+            filters.append(" AND created_at < ?");
+            params.add(query.getTo());
+        }
+        return filters.toString();
+    }
+
+    private <T> long export(String sql, RowReader<T> reader, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+        BufferedOutputStream buffered = new BufferedOutputStream(out, EXPORT_BUFFER_SIZE);
+        long count = 0;
+        Connection connection;
+        try {
+            connection = take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a database connection", e);
+        } catch (SQLException e) {
+            throw new IOException("Database error during export: " + e.getMessage(), e);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             SequenceWriter sequence = writer.writeValues(buffered)) {
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    sequence.write(reader.read(rows));
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Database error during export: " + e.getMessage(), e);
+        } finally {
+            rollback(connection);
+            pool.add(connection);
+        }
+        if (count > 0) {
+            buffered.write('\n');
+        }
+        buffered.flush();
+        return count;
+    }
+
+    private static long maxId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    private static void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+
+    /**
+     * Sets an amount and, in the following parameter, its scale.
+     */
+    private static void setAmount(PreparedStatement statement, int index, BigDecimal amount) throws SQLException {
+        if (amount == null) {
+            statement.setNull(index, Types.DECIMAL);
+            statement.setNull(index + 1, Types.SMALLINT);
+            return;
+        }
+        if (amount.scale() > DECIMAL_SCALE) {
+            throw new IllegalArgumentException("Amount has more than " + DECIMAL_SCALE + " decimal places: " + amount);
+        }
+        statement.setBigDecimal(index, amount);
+        statement.setInt(index + 1, amount.scale());
+    }
+
+    private static BigDecimal readAmount(ResultSet row, String column) throws SQLException {
+        BigDecimal amount = row.getBigDecimal(column);
+        return amount == null ? null : amount.setScale(row.getInt(column + "_scale"));
+    }
+
+    private static Long readLong(ResultSet row, String column) throws SQLException {
+        long value = row.getLong(column);
+        return row.wasNull() ? null : value;
+    }
+
+    private static User readUser(ResultSet row) throws SQLException {
+        User user = new User();
+        user.setId(row.getLong("id"));
+        user.setUsername(row.getString("username"));
+        user.setEmail(row.getString("email"));
+        user.setPassword(row.getString("password"));
+        String role = row.getString("role");
+        user.setRole(role == null ? null : Role.valueOf(role));
+        return user;
+    }
+
+    private static Wallet readWallet(ResultSet row) throws SQLException {
+        Wallet wallet = new Wallet();
+        wallet.setId(row.getLong("id"));
+        wallet.setUserId(readLong(row, "user_id"));
+        wallet.setBalance(readAmount(row, "balance"));
+        wallet.setWalletCode(row.getString("wallet_code"));
+        wallet.setVersion(row.getLong("version"));
+        return wallet;
+    }
+
+    /**
+     * Reads a rollup bucket, giving its sum the largest scale of the amounts summed, as adding
+     * them in memory would.
+     */
+    private static TransactionRollups.Bucket readBucket(ResultSet row) throws SQLException {
+        BigDecimal sum = row.getBigDecimal(5);
+        return new TransactionRollups.Bucket(row.getObject(1, LocalDateTime.class),
+                TransactionType.valueOf(row.getString(2)), TransactionStatus.valueOf(row.getString(3)),
+                row.getLong(4), sum == null ? BigDecimal.ZERO : sum.setScale(row.getInt(6)));
+    }
+
+    private static IdempotencyRecord readIdempotencyRecord(ResultSet row) throws SQLException {
+        IdempotencyRecord record = new IdempotencyRecord(row.getString("idempotency_key"), row.getString("fingerprint"),
+                row.getObject("created_at", LocalDateTime.class));
+        record.setResponse(row.getString("response"));
+        return record;
+    }
+
+    private static Transaction readTransaction(ResultSet row) throws SQLException {
+        Transaction transaction = new Transaction();
+        transaction.setId(row.getLong("id"));
+        transaction.setSenderWalletId(readLong(row, "sender_wallet_id"));
+        transaction.setReceiverWalletId(readLong(row, "receiver_wallet_id"));
+        transaction.setAmount(readAmount(row, "amount"));
+        String type = row.getString("type");
+        transaction.setType(type == null ? null : TransactionType.valueOf(type));
+        String status = row.getString("status");
+        transaction.setStatus(status == null ? null : TransactionStatus.valueOf(status));
+        transaction.setTimestamp(row.getObject("created_at", LocalDateTime.class));
+        return transaction;
+    }
+}
@@ -0,0 +1,61 @@
+package com.spring_project.digital_banking_system.repository;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The storage backend holding all users, wallets and transactions, and the idempotency records
+ * of the requests that changed them, selected with {@code app.storage.backend}.
+ *
+ * @see StorageBackend
+ */
+public interface Storage extends UserStore, WalletStore, TransactionStore, IdempotencyStore {
+
+    /**
+     * Starts a unit of work whose staged saves are committed together.
+     *
+     * @return an empty unit of work
+     */
+    UnitOfWork newUnitOfWork();
+
+    /**
+     * Commits every save staged in a unit of work as one atomic write, without waiting for it
+     * to become durable. Either every staged wallet still has the version the caller read and
+     * all saves are applied, or none is; after a crash the unit is recovered whole or not at all.
+     * New wallet versions are assigned and the changes are visible to readers when this method
+     * returns; staged idempotency records only become visible once the unit is durable.
+     *
+     * <p>If the returned future fails, none of the unit is ever persisted. A backend that has
+     * already made the changes visible in memory then refuses every further write until it is
+     * restarted, rather than let later changes build on ones that were lost.</p>
+     *
+     * @param work the staged saves
+     * @return a future that completes when the whole unit is durable
+     * @throws com.spring_project.digital_banking_system.exception.ConcurrentUpdateException
+     *         if any staged wallet has been changed since it was read
+     */
+    CompletableFuture<Void> commitAsync(UnitOfWork work);
+
+    /**
+     * Commits every save staged in a unit of work as one atomic write and waits until it is
+     * durable.
+     *
+     * @param work the staged saves
+     * @throws com.spring_project.digital_banking_system.exception.ConcurrentUpdateException
+     *         if any staged wallet has been changed since it was read
+     * @see #commitAsync(UnitOfWork)
+     */
+    void commit(UnitOfWork work);
+
+    /**
+     * Returns backend-specific statistics for monitoring and tuning.
+     *
+     * @return a map of statistic names to values
+     */
+    Map<String, Object> getStorageStats();
+
+    /**
+     * Flushes pending writes and releases the files or connections held by the backend.
+     */
+    void close();
+}
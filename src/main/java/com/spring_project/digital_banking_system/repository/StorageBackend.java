@@ -0,0 +1,11 @@
+package com.spring_project.digital_banking_system.repository;
+
+/**
+ * The implementations of {@link Storage}.
+ */
+public enum StorageBackend {
+    /** {@link DataRepository}: everything in memory, persisted to a journal and snapshots. */
+    FILE,
+    /** {@link SqlStorage}: an embedded, file-based H2 database with indexed tables. */
+    SQL
+}
@@ -0,0 +1,46 @@
+package com.spring_project.digital_banking_system.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Encodes and decodes streams of {@code User}, {@code Wallet}, {@code Transaction} and
+ * {@code IdempotencyRecord} records for the files of a snapshot. Codecs read and write field by field, so callers should pass
+ * buffered streams.
+ *
+ * @see StorageFormat
+ */
+public interface StorageCodec {
+
+    /**
+     * Returns the extension of the files written by this codec.
+     *
+     * @return the file extension, without the dot
+     */
+    String getFileExtension();
+
+    /**
+     * Writes records from an iterator until it is exhausted or {@code limit} records are written.
+     *
+     * @param out     the stream to write to; it is flushed but not closed
+     * @param type    the record type
+     * @param records the records to write
+     * @param limit   the maximum number of records to write
+     * @return the number of records written
+     * @throws IOException if the stream cannot be written
+     */
+    <T> long write(OutputStream out, Class<T> type, Iterator<? extends T> records, long limit) throws IOException;
+
+    /**
+     * Reads every record in a stream written by {@link #write}.
+     *
+     * @param in       the stream to read
+     * @param type     the record type
+     * @param consumer receives each record
+     * @throws IOException if the stream cannot be read or is not in this codec's format
+     */
+    <T> void read(InputStream in, Class<T> type, Consumer<? super T> consumer) throws IOException;
+}
@@ -0,0 +1,21 @@
+package com.spring_project.digital_banking_system.repository;
+
+/**
+ * The file format snapshots are written in. Snapshots record their format in their manifest,
+ * so a snapshot in either format can always be loaded whatever format is configured.
+ */
+public enum StorageFormat {
+    /** One JSON object per line; larger and slower to parse, but human-readable. */
+    JSON,
+    /** Fixed-layout binary records encoded without reflection; the compact default. */
+    BINARY;
+
+    /**
+     * Creates a codec for this format.
+     *
+     * @return a new codec
+     */
+    public StorageCodec newCodec() {
+        return this == JSON ? new JsonStorageCodec() : new BinaryStorageCodec();
+    }
+}
@@ -0,0 +1,704 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spring_project.digital_banking_system.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cold tier of the transaction history: immutable, compressed segment files, each holding
+ * transactions from one calendar month, read only when a query reaches back that far.
+ *
+ * <p>A segment ({@code archive/transactions-2024-03-0001.seg}) stores its transactions
+ * sorted by timestamp and ID, in independently deflated blocks of 1,024
+ * {@link BinaryStorageCodec binary} records. A footer holds a sparse index with the key range,
+ * ID range and file position of every block, the segment's {@link TransactionRollups hourly
+ * rollups} and the net balance change of every wallet it touches. Opening the archive only reads
+ * these footers, so
+ * heap use and startup time do not grow with the archived history. Transactions archived later
+ * for a month that already has a segment go into a new part of the same month.</p>
+ *
+ * <p>Paging through all transactions decompresses only the blocks the page overlaps, and a
+ * lookup by ID only the blocks whose ID range contains it. Paging through one wallet's history
+ * loads the whole segment once and indexes it by wallet; the most recently used segments stay
+ * loaded.</p>
+ *
+ * <p>Segments only count once a snapshot lists them: {@link #open} deletes any segment file
+ * it is not given, which removes segments left behind by an archiving pass that crashed before
+ * its snapshot was written. Their transactions are still in the previous snapshot.</p>
+ */
+public class TransactionArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchive.class);
+
+    /** Name of the archive directory inside the data directory. */
+    public static final String DIRECTORY = "archive";
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("transactions-(\\d{4}-\\d{2})-(\\d{4})\\.seg");
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x44425341; // "DBSA"
+    private static final int FOOTER_TAIL = Integer.BYTES * 2;
+    private static final int BLOCK_RECORDS = 1024;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final Comparator<Transaction> OLDEST_FIRST =
+            Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId);
+
+    private final File directory;
+    private final int cachedSegments;
+    private final StorageCodec codec = StorageFormat.BINARY.newCodec();
+    private final ObjectMapper objectMapper;
+    private final Map<String, LoadedSegment> loaded;
+
+    private volatile List<Segment> segments = List.of();
+    private final AtomicLong segmentLoads = new AtomicLong();
+    private final AtomicLong blockReads = new AtomicLong();
+
+    /**
+     * @param dataDirectory  the data directory; segments live in its {@value #DIRECTORY} subdirectory
+     * @param cachedSegments the number of fully loaded segments kept for wallet history queries
+     */
+    public TransactionArchive(File dataDirectory, int cachedSegments) {
+        this.directory = new File(dataDirectory, DIRECTORY);
+        this.cachedSegments = Math.max(1, cachedSegments);
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.loaded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LoadedSegment> eldest) {
+                return size() > TransactionArchive.this.cachedSegments;
+            }
+        };
+    }
+
+    /**
+     * Opens the given segments by reading their indexes, and deletes every other segment file.
+     *
+     * @param names the segments listed by the latest snapshot
+     * @throws IOException if a listed segment is missing or unreadable
+     */
+    public synchronized void open(Collection<String> names) throws IOException {
+        Set<String> listed = new HashSet<>(names);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!listed.contains(file.getName())) {
+                    log.info("Deleting archive file {} not listed by the snapshot", file.getName());
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+        }
+
+        List<Segment> opened = new ArrayList<>(names.size());
+        for (String name : names) {
+            opened.add(readIndex(name));
+        }
+        opened.sort(Comparator.comparing(Segment::getName));
+        segments = List.copyOf(opened);
+        loaded.clear();
+    }
+
+    /**
+     * Writes transactions into new segments, one per calendar month. The transactions are
+     * readable through the archive as soon as this method returns, but the segments only
+     * survive a restart once a snapshot lists them.
+     *
+     * @param transactions the transactions to archive; all must have a timestamp
+     * @return the names of the segments written
+     * @throws IOException if a segment cannot be written
+     */
+    public synchronized List<String> archive(Collection<Transaction> transactions) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Map<YearMonth, List<Transaction>> byMonth = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            byMonth.computeIfAbsent(YearMonth.from(transaction.getTimestamp()), month -> new ArrayList<>())
+                    .add(transaction);
+        }
+
+        List<Segment> updated = new ArrayList<>(segments);
+        List<String> written = new ArrayList<>();
+        for (Map.Entry<YearMonth, List<Transaction>> month : byMonth.entrySet()) {
+            List<Transaction> records = month.getValue();
+            records.sort(OLDEST_FIRST);
+            Segment segment = writeSegment(nextName(updated, month.getKey()), month.getKey(), records);
+            updated.add(segment);
+            written.add(segment.getName());
+        }
+        updated.sort(Comparator.comparing(Segment::getName));
+        segments = List.copyOf(updated);
+        return written;
+    }
+
+    /**
+     * Returns the names of all segments, in month order.
+     *
+     * @return the segment names
+     */
+    public List<String> segmentNames() {
+        return segments.stream().map(Segment::getName).toList();
+    }
+
+    /**
+     * Returns the largest archived transaction ID.
+     *
+     * @return the largest archived ID, or {@code 0} if the archive is empty
+     */
+    public long maxId() {
+        return segments.stream().mapToLong(Segment::getMaxId).max().orElse(0);
+    }
+
+    /**
+     * Returns the timestamp of the newest archived transaction.
+     *
+     * @return the newest archived timestamp, or {@code null} if the archive is empty
+     */
+    public LocalDateTime newestTimestamp() {
+        LocalDateTime newest = null;
+        for (Segment segment : segments) {
+            if (newest == null || segment.getLastTimestamp().isAfter(newest)) {
+                newest = segment.getLastTimestamp();
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Finds an archived transaction by ID, reading only the blocks whose ID range contains it.
+     *
+     * @param id the transaction ID
+     * @return the transaction, or empty if it is not archived
+     */
+    public Optional<Transaction> findById(long id) {
+        for (Segment segment : segments) {
+            if (id < segment.getMinId() || id > segment.getMaxId()) {
+                continue;
+            }
+            for (Block block : segment.getBlocks()) {
+                if (id >= block.getMinId() && id <= block.getMaxId()) {
+                    for (Transaction transaction : readBlock(segment, block)) {
+                        if (transaction.getId() == id) {
+                            return Optional.of(transaction);
+                        }
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds one page of archived transactions, newest first, strictly older than the
+     * {@code (beforeTimestamp, beforeId)} key. Segments entirely outside the requested range
+     * are never read.
+     *
+     * @param walletId        the wallet whose transactions to page through, or {@code null} for all
+     * @param beforeTimestamp the timestamp of the exclusive upper bound, or {@code null} to start
+     *                        at the newest archived transaction
+     * @param beforeId        the ID breaking ties at {@code beforeTimestamp}
+     * @param notBefore       the earliest timestamp to include, or {@code null} for no lower bound
+     * @param limit           the maximum number of transactions to return
+     * @return the transactions of the page, sorted by timestamp and ID descending
+     */
+    public List<Transaction> page(Long walletId, LocalDateTime beforeTimestamp, long beforeId,
+                                  LocalDateTime notBefore, int limit) {
+        List<Segment> newestFirst = new ArrayList<>(segments);
+        newestFirst.sort(Comparator.comparing(Segment::getLastTimestamp).thenComparing(Segment::getLastId).reversed());
+
+        List<Transaction> page = new ArrayList<>();
+        for (Segment segment : newestFirst) {
+            if (notBefore != null && segment.getLastTimestamp().isBefore(notBefore)) {
+                break;
+            }
+            if (beforeTimestamp != null
+                    && !isBefore(segment.getFirstTimestamp(), segment.getFirstId(), beforeTimestamp, beforeId)) {
+                continue;
+            }
+            if (page.size() >= limit) {
+                // Segments of the same month can overlap; stop once none can beat the page's oldest entry
+                Transaction oldest = page.get(page.size() - 1);
+                if (isBefore(segment.getLastTimestamp(), segment.getLastId(), oldest.getTimestamp(), oldest.getId())) {
+                    break;
+                }
+            }
+
+            if (walletId == null) {
+                pageBlocks(segment, beforeTimestamp, beforeId, notBefore, limit, page);
+            } else {
+                LoadedSegment segmentData = load(segment);
+                for (long id : segmentData.index.page(walletId, beforeTimestamp, beforeId, notBefore, limit)) {
+                    page.add(segmentData.byId.get(id));
+                }
+            }
+            page.sort(OLDEST_FIRST.reversed());
+            if (page.size() > limit) {
+                page.subList(limit, page.size()).clear();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Reads every archived transaction, segment by segment and oldest first within a segment,
+     * without keeping the segments loaded.
+     *
+     * @param consumer receives each transaction
+     * @return the number of transactions read
+     */
+    public long forEach(Consumer<Transaction> consumer) {
+        long count = 0;
+        for (Segment segment : segments) {
+            for (Block block : segment.getBlocks()) {
+                List<Transaction> records = readBlock(segment, block);
+                records.forEach(consumer);
+                count += records.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the archived transactions in a time range, skipping the segments and blocks that
+     * lie entirely outside it. Transactions of the blocks read that fall outside the range are
+     * passed on as well; the consumer filters them.
+     *
+     * @param from     the earliest timestamp to read (inclusive), or {@code null} for no lower bound
+     * @param to       the timestamp to stop before (exclusive), or {@code null} for no upper bound
+     * @param consumer receives each transaction of the blocks read
+     */
+    public void forEachBetween(LocalDateTime from, LocalDateTime to, Consumer<Transaction> consumer) {
+        for (Segment segment : segments) {
+            if (from != null && segment.getLastTimestamp().isBefore(from)
+                    || to != null && !segment.getFirstTimestamp().isBefore(to)) {
+                continue;
+            }
+            for (Block block : segment.getBlocks()) {
+                if (from != null && block.getLastTimestamp().isBefore(from)
+                        || to != null && !block.getFirstTimestamp().isBefore(to)) {
+                    continue;
+                }
+                readBlock(segment, block).forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * Reads the hourly rollups stored in each segment's index. Segments written before
+     * rollups were stored have theirs computed from their transactions instead.
+     *
+     * @param consumer receives each hour bucket
+     */
+    public void forEachHourlyRollup(Consumer<TransactionRollups.Bucket> consumer) {
+        for (Segment segment : segments) {
+            List<TransactionRollups.Bucket> rollups = segment.getRollups();
+            if (rollups == null) {
+                List<Transaction> records = new ArrayList<>();
+                segment.getBlocks().forEach(block -> records.addAll(readBlock(segment, block)));
+                rollups = TransactionRollups.hourly(records);
+            }
+            rollups.forEach(consumer);
+        }
+    }
+
+    /**
+     * Returns how much the archived transactions up to and including a time changed a wallet's
+     * balance. A segment entirely before that time contributes the net change stored in its
+     * index, so only a segment the time falls inside is read, loaded as for a wallet history
+     * query. Segments the wallet does not appear in are skipped.
+     *
+     * @param walletId the wallet ID
+     * @param asOf     the time; later transactions are left out
+     * @return the sum of the wallet's archived balance changes up to {@code asOf}
+     */
+    public BigDecimal balanceChange(Long walletId, LocalDateTime asOf) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Segment segment : segments) {
+            BigDecimal net = balanceChangesOf(segment).get(walletId);
+            if (net == null || segment.getFirstTimestamp().isAfter(asOf)) {
+                continue;
+            }
+            if (!segment.getLastTimestamp().isAfter(asOf)) {
+                total = total.add(net);
+                continue;
+            }
+            LoadedSegment segmentData = load(segment);
+            BigDecimal[] partial = {total};
+            segmentData.index.forEachInRange(walletId, null, asOf.plusNanos(1), id -> {
+                BigDecimal change = BalanceCheckpoints.changesOf(segmentData.byId.get(id)).get(walletId);
+                if (change != null) {
+                    partial[0] = partial[0].add(change);
+                }
+            });
+            total = partial[0];
+        }
+        return total;
+    }
+
+    /**
+     * Returns archive statistics for monitoring.
+     *
+     * @return a map of statistic names to values
+     */
+    public Map<String, Object> getStats() {
+        long transactions = 0;
+        long bytes = 0;
+        for (Segment segment : segments) {
+            transactions += segment.getCount();
+            bytes += segment.getBytes();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("archiveSegments", segments.size());
+        stats.put("archivedTransactions", transactions);
+        stats.put("archiveBytes", bytes);
+        synchronized (this) {
+            stats.put("archiveLoadedSegments", loaded.size());
+        }
+        stats.put("archiveSegmentLoads", segmentLoads.get());
+        stats.put("archiveBlockReads", blockReads.get());
+        return stats;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void pageBlocks(Segment segment, LocalDateTime beforeTimestamp, long beforeId, LocalDateTime notBefore,
+                            int limit, List<Transaction> page) {
+        int found = 0;
+        List<Block> blocks = segment.getBlocks();
+        for (int b = blocks.size() - 1; b >= 0 && found < limit; b--) {
+            Block block = blocks.get(b);
+            if (notBefore != null && block.getLastTimestamp().isBefore(notBefore)) {
+                return;
+            }
+            if (beforeTimestamp != null
+                    && !isBefore(block.getFirstTimestamp(), block.getFirstId(), beforeTimestamp, beforeId)) {
+                continue;
+            }
+            List<Transaction> records = readBlock(segment, block);
+            for (int i = records.size() - 1; i >= 0 && found < limit; i--) {
+                Transaction transaction = records.get(i);
+                if (beforeTimestamp != null
+                        && !isBefore(transaction.getTimestamp(), transaction.getId(), beforeTimestamp, beforeId)) {
+                    continue;
+                }
+                if (notBefore != null && transaction.getTimestamp().isBefore(notBefore)) {
+                    return;
+                }
+                page.add(transaction);
+                found++;
+            }
+        }
+    }
+
+    /**
+     * Returns the net balance changes stored in a segment's index, computing and keeping them
+     * for segments written before they were stored.
+     */
+    private synchronized Map<Long, BigDecimal> balanceChangesOf(Segment segment) {
+        if (segment.getBalanceChanges() == null) {
+            List<Transaction> records = new ArrayList<>();
+            segment.getBlocks().forEach(block -> records.addAll(readBlock(segment, block)));
+            segment.setBalanceChanges(BalanceCheckpoints.netChanges(records));
+        }
+        return segment.getBalanceChanges();
+    }
+
+    private synchronized LoadedSegment load(Segment segment) {
+        LoadedSegment segmentData = loaded.get(segment.getName());
+        if (segmentData == null) {
+            segmentData = new LoadedSegment();
+            for (Block block : segment.getBlocks()) {
+                for (Transaction transaction : readBlock(segment, block)) {
+                    segmentData.byId.put(transaction.getId(), transaction);
+                }
+            }
+            segmentData.index.rebuild(segmentData.byId.values());
+            loaded.put(segment.getName(), segmentData);
+            segmentLoads.incrementAndGet();
+        }
+        return segmentData;
+    }
+
+    private List<Transaction> readBlock(Segment segment, Block block) {
+        File file = new File(directory, segment.getName());
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer compressed = ByteBuffer.allocate(block.getLength());
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, block.getOffset() + compressed.position()) < 0) {
+                    throw new IOException("Truncated archive segment " + file);
+                }
+            }
+            List<Transaction> records = new ArrayList<>(block.getCount());
+            try (BufferedInputStream in = new BufferedInputStream(new InflaterInputStream(
+                    new ByteArrayInputStream(compressed.array())), BUFFER_SIZE)) {
+                codec.read(in, Transaction.class, records::add);
+            }
+            blockReads.incrementAndGet();
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + file, e);
+        }
+    }
+
+    private Segment writeSegment(String name, YearMonth month, List<Transaction> records) throws IOException {
+        File target = new File(directory, name);
+        File temp = new File(directory, name + TEMP_SUFFIX);
+
+        Segment segment = new Segment();
+        segment.setMonth(month.toString());
+        segment.setCount(records.size());
+        segment.setFirstTimestamp(records.get(0).getTimestamp());
+        segment.setFirstId(records.get(0).getId());
+        segment.setLastTimestamp(records.get(records.size() - 1).getTimestamp());
+        segment.setLastId(records.get(records.size() - 1).getId());
+        segment.setMinId(Long.MAX_VALUE);
+        segment.setMaxId(Long.MIN_VALUE);
+        segment.setRollups(TransactionRollups.hourly(records));
+        segment.setBalanceChanges(BalanceCheckpoints.netChanges(records));
+
+        long offset = 0;
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             BufferedOutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE)) {
+            for (int start = 0; start < records.size(); start += BLOCK_RECORDS) {
+                List<Transaction> blockRecords = records.subList(start, Math.min(records.size(), start + BLOCK_RECORDS));
+                byte[] compressed = compress(blockRecords);
+                out.write(compressed);
+
+                Block block = new Block();
+                block.setOffset(offset);
+                block.setLength(compressed.length);
+                block.setCount(blockRecords.size());
+                block.setFirstTimestamp(blockRecords.get(0).getTimestamp());
+                block.setFirstId(blockRecords.get(0).getId());
+                block.setLastTimestamp(blockRecords.get(blockRecords.size() - 1).getTimestamp());
+                block.setMinId(blockRecords.stream().mapToLong(Transaction::getId).min().orElseThrow());
+                block.setMaxId(blockRecords.stream().mapToLong(Transaction::getId).max().orElseThrow());
+                segment.getBlocks().add(block);
+                segment.setMinId(Math.min(segment.getMinId(), block.getMinId()));
+                segment.setMaxId(Math.max(segment.getMaxId(), block.getMaxId()));
+                offset += compressed.length;
+            }
+
+            byte[] index = objectMapper.writeValueAsBytes(segment);
+            out.write(index);
+            out.write(ByteBuffer.allocate(FOOTER_TAIL).putInt(index.length).putInt(MAGIC).array());
+            out.flush();
+            fileOut.getFD().sync();
+            segment.setBytes(offset + index.length + FOOTER_TAIL);
+        }
+
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not every platform allows syncing a directory; the rename is still atomic
+        }
+        segment.setName(name);
+        log.info("Archived {} transactions from {} into {} ({} bytes)", records.size(), month, name, segment.getBytes());
+        return segment;
+    }
+
+    private byte[] compress(List<Transaction> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflated = new DeflaterOutputStream(bytes, deflater);
+             BufferedOutputStream out = new BufferedOutputStream(deflated, BUFFER_SIZE)) {
+            codec.write(out, Transaction.class, records.iterator(), Long.MAX_VALUE);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private Segment readIndex(String name) throws IOException {
+        File file = new File(directory, name);
+        if (!file.exists()) {
+            throw new IOException("Archive segment " + name + " listed by the snapshot is missing");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate(FOOTER_TAIL);
+            channel.read(tail, size - FOOTER_TAIL);
+            tail.flip();
+            int indexLength = tail.getInt();
+            if (size < FOOTER_TAIL || tail.getInt() != MAGIC || indexLength <= 0 || indexLength > size - FOOTER_TAIL) {
+                throw new IOException(file + " is not an archive segment");
+            }
+            ByteBuffer index = ByteBuffer.allocate(indexLength);
+            channel.read(index, size - FOOTER_TAIL - indexLength);
+            Segment segment = objectMapper.readValue(index.array(), Segment.class);
+            segment.setName(name);
+            segment.setBytes(size);
+            return segment;
+        }
+    }
+
+    private static String nextName(List<Segment> existing, YearMonth month) {
+        int part = 0;
+        for (Segment segment : existing) {
+            Matcher matcher = SEGMENT_NAME.matcher(segment.getName());
+            if (matcher.matches() && matcher.group(1).equals(month.toString())) {
+                part = Math.max(part, Integer.parseInt(matcher.group(2)));
+            }
+        }
+        return String.format("transactions-%s-%04d.seg", month, part + 1);
+    }
+
+    /** Whether {@code (timestamp, id)} sorts strictly before {@code (boundTimestamp, boundId)}. */
+    private static boolean isBefore(LocalDateTime timestamp, long id, LocalDateTime boundTimestamp, long boundId) {
+        int byTime = timestamp.compareTo(boundTimestamp);
+        return byTime < 0 || byTime == 0 && id < boundId;
+    }
+
+    /**
+     * A segment read in full for wallet history queries.
+     */
+    private static final class LoadedSegment {
+        private final Map<Long, Transaction> byId = new ConcurrentHashMap<>();
+        private final WalletTransactionIndex index = new WalletTransactionIndex(id -> {
+            Transaction transaction = byId.get(id);
+            return transaction == null ? null : transaction.getTimestamp();
+        });
+    }
+
+    /**
+     * The sparse index stored in a segment's footer.
+     */
+    public static class Segment {
+        private String name;
+        private long bytes;
+        private String month;
+        private long count;
+        private LocalDateTime firstTimestamp;
+        private long firstId;
+        private LocalDateTime lastTimestamp;
+        private long lastId;
+        private long minId;
+        private long maxId;
+        private List<Block> blocks = new ArrayList<>();
+        private List<TransactionRollups.Bucket> rollups;
+        private Map<Long, BigDecimal> balanceChanges;
+
+        /** The file name; not stored in the footer. */
+        @JsonIgnore
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        /** The file size; not stored in the footer. */
+        @JsonIgnore
+        public long getBytes() { return bytes; }
+        public void setBytes(long bytes) { this.bytes = bytes; }
+
+        public String getMonth() { return month; }
+        public void setMonth(String month) { this.month = month; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+
+        public LocalDateTime getFirstTimestamp() { return firstTimestamp; }
+        public void setFirstTimestamp(LocalDateTime firstTimestamp) { this.firstTimestamp = firstTimestamp; }
+
+        public long getFirstId() { return firstId; }
+        public void setFirstId(long firstId) { this.firstId = firstId; }
+
+        public LocalDateTime getLastTimestamp() { return lastTimestamp; }
+        public void setLastTimestamp(LocalDateTime lastTimestamp) { this.lastTimestamp = lastTimestamp; }
+
+        public long getLastId() { return lastId; }
+        public void setLastId(long lastId) { this.lastId = lastId; }
+
+        public long getMinId() { return minId; }
+        public void setMinId(long minId) { this.minId = minId; }
+
+        public long getMaxId() { return maxId; }
+        public void setMaxId(long maxId) { this.maxId = maxId; }
+
+        public List<Block> getBlocks() { return blocks; }
+        public void setBlocks(List<Block> blocks) { this.blocks = blocks; }
+
+        /** The hourly rollups of the segment's transactions; {@code null} in segments written before they were stored. */
+        public List<TransactionRollups.Bucket> getRollups() { return rollups; }
+        public void setRollups(List<TransactionRollups.Bucket> rollups) { this.rollups = rollups; }
+
+        /** The net balance change of each wallet; {@code null} in segments written before they were stored. */
+        public Map<Long, BigDecimal> getBalanceChanges() { return balanceChanges; }
+        public void setBalanceChanges(Map<Long, BigDecimal> balanceChanges) { this.balanceChanges = balanceChanges; }
+    }
+
+    /**
+     * One compressed block of a segment: where it is, and the keys and IDs it covers.
+     */
+    public static class Block {
+        private long offset;
+        private int length;
+        private int count;
+        private LocalDateTime firstTimestamp;
+        private long firstId;
+        private LocalDateTime lastTimestamp;
+        private long minId;
+        private long maxId;
+
+        public long getOffset() { return offset; }
+        public void setOffset(long offset) { this.offset = offset; }
+
+        public int getLength() { return length; }
+        public void setLength(int length) { this.length = length; }
+
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+
+        public LocalDateTime getFirstTimestamp() { return firstTimestamp; }
+        public void setFirstTimestamp(LocalDateTime firstTimestamp) { this.firstTimestamp = firstTimestamp; }
+
+        public long getFirstId() { return firstId; }
+        public void setFirstId(long firstId) { this.firstId = firstId; }
+
+        public LocalDateTime getLastTimestamp() { return lastTimestamp; }
+        public void setLastTimestamp(LocalDateTime lastTimestamp) { this.lastTimestamp = lastTimestamp; }
+
+        public long getMinId() { return minId; }
+        public void setMinId(long minId) { this.minId = minId; }
+
+        public long getMaxId() { return maxId; }
+        public void setMaxId(long maxId) { this.maxId = maxId; }
+    }
+}
@@ -0,0 +1,796 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Append-only, columnar in-memory store of transactions.
+ *
+ * <p>Instead of one object graph per transaction (boxed IDs, a {@code BigDecimal}, a
+ * {@code LocalDateTime} and a map entry), each field is kept in a primitive array column:
+ * {@code long}s for the ID, wallet IDs, amount and timestamp, and {@code byte}s for the amount's
+ * scale, the type and the status. Columns grow in chunks of {@value #CHUNK_ROWS} rows, so
+ * growing never copies existing rows. An open-addressing table of primitive keys maps each ID
+ * to its row. {@link Transaction} objects are only created when a transaction is read, and
+ * every read returns a fresh object the caller may modify.</p>
+ *
+ * <p>Amounts are stored as their unscaled value and scale, which for the usual two-decimal
+ * amounts is the amount in minor units; timestamps are stored as nanoseconds since the epoch,
+ * read as UTC. The rare transaction whose amount or timestamp does not fit is kept as an
+ * object next to the columns.</p>
+ *
+ * <p>Saving a transaction appends a row. The row it replaces, like a deleted one, is only
+ * marked dead; once dead rows outnumber live ones, the live rows are copied into new chunks.
+ * Writers and readers are coordinated by a read-write lock. {@link #values()} is weakly
+ * consistent: it reads the rows present when iteration started, without holding the lock.
+ * {@link #cut()} gives an exact view of the store at one moment instead.</p>
+ *
+ * <p>For bulk loading, several threads can each fill a {@link Batch} of their own without
+ * locking. {@link #putAll} then takes over the batch's chunks as they are, so only the ID
+ * table is updated under the lock.</p>
+ */
+public class TransactionColumns {
+
+    private static final int CHUNK_ROWS = 4096;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NONE = Long.MIN_VALUE;
+    private static final byte NO_ENUM = -1;
+
+    private static final byte LIVE = 1;
+    private static final byte NULL_AMOUNT = 2;
+    private static final byte OVERFLOW = 4;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Replaced as a whole when chunks are added or rows compacted, so iterators keep a stable view
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile Map<Integer, Transaction> overflow = new ConcurrentHashMap<>();
+    private volatile int rows;
+    private IdTable index = new IdTable(CHUNK_ROWS);
+    private int live;
+    private long maxId;
+    private long compactions;
+    // Incremented by every cut; a row killed afterwards records it, so the cut still includes it
+    private int generation;
+
+    /**
+     * Returns the number of stored transactions.
+     *
+     * @return the number of live rows
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a transaction.
+     *
+     * @param id the transaction ID
+     * @return a new object holding the transaction, or {@code null} if none has that ID
+     */
+    public Transaction get(long id) {
+        lock.readLock().lock();
+        try {
+            int row = index.get(id);
+            return row < 0 ? null : read(chunks, overflow, row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tells whether a transaction is stored.
+     *
+     * @param id the transaction ID
+     * @return {@code true} if a transaction has that ID
+     */
+    public boolean containsKey(long id) {
+        lock.readLock().lock();
+        try {
+            return index.get(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads only the timestamp of a transaction, without creating the transaction.
+     *
+     * @param id the transaction ID
+     * @return the timestamp, or {@code null} if the transaction has none or does not exist
+     */
+    public LocalDateTime timestamp(long id) {
+        lock.readLock().lock();
+        try {
+            int row = index.get(id);
+            if (row < 0) {
+                return null;
+            }
+            Chunk chunk = chunks[row / CHUNK_ROWS];
+            int slot = row % CHUNK_ROWS;
+            if ((chunk.flags[slot] & OVERFLOW) != 0) {
+                return overflow.get(row).getTimestamp();
+            }
+            return decodeTimestamp(chunk.timestamps[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a transaction, replacing any stored transaction with the same ID. The transaction
+     * is copied; later changes to it are not stored.
+     *
+     * @param transaction the transaction; it must have an ID
+     * @return the replaced transaction, or {@code null} if there was none
+     */
+    public Transaction put(Transaction transaction) {
+        long id = transaction.getId();
+        lock.writeLock().lock();
+        try {
+            int row = append(transaction);
+            int previousRow = index.put(id, row);
+            maxId = Math.max(maxId, id);
+            if (previousRow < 0) {
+                live++;
+                return null;
+            }
+            Transaction previous = read(chunks, overflow, previousRow);
+            kill(previousRow);
+            compactIfSparse();
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a batch of transactions to add with {@link #putAll}.
+     *
+     * @return an empty batch
+     */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Adds every transaction of a batch, replacing any stored transaction with the same ID as
+     * {@link #put} does. The batch's columns are taken over rather than copied, so the batch
+     * must not be used afterwards.
+     *
+     * @param batch the filled batch
+     */
+    public void putAll(Batch batch) {
+        lock.writeLock().lock();
+        try {
+            // The batch's rows start on a chunk boundary; the unused rest of the last chunk stays dead
+            int firstChunk = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+            int base = firstChunk * CHUNK_ROWS;
+            Chunk[] grown = Arrays.copyOf(chunks, firstChunk + batch.chunks.size());
+            for (int i = 0; i < batch.chunks.size(); i++) {
+                grown[firstChunk + i] = batch.chunks.get(i);
+            }
+            batch.overflow.forEach((row, transaction) -> overflow.put(base + row, transaction));
+            // Iterators only see the new rows once rows is raised below
+            chunks = grown;
+
+            index.ensureCapacity(live + batch.rows);
+            for (int row = base; row < base + batch.rows; row++) {
+                long id = grown[row / CHUNK_ROWS].ids[row % CHUNK_ROWS];
+                maxId = Math.max(maxId, id);
+                int previousRow = index.put(id, row);
+                if (previousRow < 0) {
+                    live++;
+                } else {
+                    kill(previousRow);
+                }
+            }
+            rows = base + batch.rows;
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a transaction.
+     *
+     * @param id the transaction ID
+     * @return the removed transaction, or {@code null} if there was none
+     */
+    public Transaction remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int row = index.remove(id);
+            if (row < 0) {
+                return null;
+            }
+            Transaction removed = read(chunks, overflow, row);
+            kill(row);
+            live--;
+            compactIfSparse();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a transaction only if it is still stored with the given field values.
+     *
+     * @param id       the transaction ID
+     * @param expected the transaction as it was read
+     * @return {@code true} if the transaction was removed
+     */
+    public boolean remove(long id, Transaction expected) {
+        lock.writeLock().lock();
+        try {
+            int row = index.get(id);
+            if (row < 0 || !sameFields(read(chunks, overflow, row), expected)) {
+                return false;
+            }
+            index.remove(id);
+            kill(row);
+            live--;
+            compactIfSparse();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the largest ID ever stored, including removed ones.
+     *
+     * @return the largest ID, or {@code 0} if none was stored
+     */
+    public long maxId() {
+        lock.readLock().lock();
+        try {
+            return maxId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a read-only view of the stored transactions, in the order they were stored. Each
+     * element is created as it is iterated.
+     *
+     * @return the transactions
+     */
+    public Collection<Transaction> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Transaction> iterator() {
+                return new RowIterator();
+            }
+
+            @Override
+            public int size() {
+                return TransactionColumns.this.size();
+            }
+        };
+    }
+
+    /**
+     * Takes a consistent cut: a view of exactly the transactions stored at this moment, which
+     * later saves and removals do not change. A dead row keeps its values and records the cut
+     * generation it died in, so a cut still reads the rows replaced or removed after it was
+     * taken, and skips the rows added after it.
+     *
+     * @return the transactions stored now, in the order they were stored
+     */
+    public Cut cut() {
+        lock.writeLock().lock();
+        try {
+            return new Cut(chunks, overflow, rows, live, ++generation);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns memory statistics for monitoring.
+     *
+     * @return a map of statistic names to values
+     */
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long columnBytes = (long) chunks.length * Chunk.BYTES;
+            long indexBytes = index.bytes();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("transactionRows", rows);
+            stats.put("transactionLiveRows", live);
+            stats.put("transactionOverflowRows", overflow.size());
+            stats.put("transactionColumnBytes", columnBytes + indexBytes);
+            stats.put("transactionBytesPerRow", live == 0 ? 0 : (columnBytes + indexBytes) / live);
+            stats.put("transactionCompactions", compactions);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private int append(Transaction transaction) {
+        int row = rows;
+        if (row / CHUNK_ROWS == chunks.length) {
+            Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = new Chunk();
+            chunks = grown;
+        }
+        write(chunks[row / CHUNK_ROWS], row % CHUNK_ROWS, row, transaction, overflow);
+        rows = row + 1;
+        return row;
+    }
+
+    private static void write(Chunk chunk, int slot, int row, Transaction transaction,
+                              Map<Integer, Transaction> overflow) {
+        chunk.ids[slot] = transaction.getId();
+        BigDecimal amount = transaction.getAmount();
+        LocalDateTime timestamp = transaction.getTimestamp();
+        if (!fitsColumns(transaction)) {
+            overflow.put(row, copyOf(transaction));
+            chunk.flags[slot] = LIVE | OVERFLOW;
+            return;
+        }
+
+        chunk.senders[slot] = transaction.getSenderWalletId() == null ? NONE : transaction.getSenderWalletId();
+        chunk.receivers[slot] = transaction.getReceiverWalletId() == null ? NONE : transaction.getReceiverWalletId();
+        chunk.timestamps[slot] = timestamp == null ? NONE
+                : timestamp.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + timestamp.getNano();
+        chunk.types[slot] = transaction.getType() == null ? NO_ENUM : (byte) transaction.getType().ordinal();
+        chunk.statuses[slot] = transaction.getStatus() == null ? NO_ENUM : (byte) transaction.getStatus().ordinal();
+        if (amount == null) {
+            chunk.flags[slot] = LIVE | NULL_AMOUNT;
+        } else {
+            chunk.amounts[slot] = amount.unscaledValue().longValue();
+            chunk.scales[slot] = (byte) amount.scale();
+            chunk.flags[slot] = LIVE;
+        }
+    }
+
+    private static Transaction read(Chunk[] chunks, Map<Integer, Transaction> overflow, int row) {
+        Chunk chunk = chunks[row / CHUNK_ROWS];
+        int slot = row % CHUNK_ROWS;
+        byte flags = chunk.flags[slot];
+        if ((flags & OVERFLOW) != 0) {
+            return copyOf(overflow.get(row));
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setId(chunk.ids[slot]);
+        transaction.setSenderWalletId(chunk.senders[slot] == NONE ? null : chunk.senders[slot]);
+        transaction.setReceiverWalletId(chunk.receivers[slot] == NONE ? null : chunk.receivers[slot]);
+        if ((flags & NULL_AMOUNT) == 0) {
+            transaction.setAmount(BigDecimal.valueOf(chunk.amounts[slot], chunk.scales[slot]));
+        }
+        transaction.setTimestamp(decodeTimestamp(chunk.timestamps[slot]));
+        transaction.setType(chunk.types[slot] == NO_ENUM ? null : TYPES[chunk.types[slot]]);
+        transaction.setStatus(chunk.statuses[slot] == NO_ENUM ? null : STATUSES[chunk.statuses[slot]]);
+        return transaction;
+    }
+
+    private void kill(int row) {
+        Chunk chunk = chunks[row / CHUNK_ROWS];
+        int slot = row % CHUNK_ROWS;
+        // Overflow objects stay until the next compaction, for iterators still reading this row
+        chunk.deaths[slot] = generation;
+        chunk.flags[slot] &= ~LIVE;
+    }
+
+    /**
+     * Copies the live rows into new chunks once dead rows outnumber them. Iterators that
+     * started before keep reading the old chunks, which are no longer written.
+     */
+    private void compactIfSparse() {
+        int dead = rows - live;
+        if (dead < CHUNK_ROWS || dead < live) {
+            return;
+        }
+        Chunk[] compacted = new Chunk[(live + CHUNK_ROWS - 1) / CHUNK_ROWS];
+        Map<Integer, Transaction> compactedOverflow = new ConcurrentHashMap<>();
+        IdTable compactedIndex = new IdTable(Math.max(CHUNK_ROWS, live));
+        int next = 0;
+        for (int row = 0; row < rows; row++) {
+            Chunk chunk = chunks[row / CHUNK_ROWS];
+            int slot = row % CHUNK_ROWS;
+            if ((chunk.flags[slot] & LIVE) == 0) {
+                continue;
+            }
+            if (next % CHUNK_ROWS == 0) {
+                compacted[next / CHUNK_ROWS] = new Chunk();
+            }
+            write(compacted[next / CHUNK_ROWS], next % CHUNK_ROWS, next, read(chunks, overflow, row),
+                    compactedOverflow);
+            compactedIndex.put(chunk.ids[slot], next);
+            next++;
+        }
+        chunks = compacted;
+        overflow = compactedOverflow;
+        index = compactedIndex;
+        rows = next;
+        compactions++;
+    }
+
+    private static boolean fitsColumns(Transaction transaction) {
+        BigDecimal amount = transaction.getAmount();
+        if (amount != null && (amount.scale() < Byte.MIN_VALUE || amount.scale() > Byte.MAX_VALUE
+                || amount.unscaledValue().bitLength() > Long.SIZE - 1)) {
+            return false;
+        }
+        LocalDateTime timestamp = transaction.getTimestamp();
+        if (timestamp != null) {
+            long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+            if (seconds > Long.MAX_VALUE / NANOS_PER_SECOND - 1 || seconds < Long.MIN_VALUE / NANOS_PER_SECOND + 1) {
+                return false;
+            }
+        }
+        return !Objects.equals(transaction.getSenderWalletId(), NONE)
+                && !Objects.equals(transaction.getReceiverWalletId(), NONE);
+    }
+
+    private static LocalDateTime decodeTimestamp(long nanos) {
+        if (nanos == NONE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    private static boolean sameFields(Transaction left, Transaction right) {
+        return Objects.equals(left.getId(), right.getId())
+                && Objects.equals(left.getSenderWalletId(), right.getSenderWalletId())
+                && Objects.equals(left.getReceiverWalletId(), right.getReceiverWalletId())
+                && Objects.equals(left.getAmount(), right.getAmount())
+                && Objects.equals(left.getTimestamp(), right.getTimestamp())
+                && left.getType() == right.getType()
+                && left.getStatus() == right.getStatus();
+    }
+
+    private static Transaction copyOf(Transaction transaction) {
+        Transaction copy = new Transaction(transaction.getSenderWalletId(), transaction.getReceiverWalletId(),
+                transaction.getAmount(), transaction.getType(), transaction.getStatus());
+        copy.setId(transaction.getId());
+        copy.setTimestamp(transaction.getTimestamp());
+        return copy;
+    }
+
+    /**
+     * Iterates over the live rows present when it was created.
+     */
+    private final class RowIterator implements Iterator<Transaction> {
+        private final Chunk[] chunks;
+        private final Map<Integer, Transaction> overflow;
+        private final int rows;
+        private int row = -1;
+
+        RowIterator() {
+            lock.readLock().lock();
+            try {
+                this.chunks = TransactionColumns.this.chunks;
+                this.overflow = TransactionColumns.this.overflow;
+                this.rows = TransactionColumns.this.rows;
+            } finally {
+                lock.readLock().unlock();
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < rows;
+        }
+
+        @Override
+        public Transaction next() {
+            if (row >= rows) {
+                throw new NoSuchElementException();
+            }
+            Transaction transaction = read(chunks, overflow, row);
+            advance();
+            return transaction;
+        }
+
+        private void advance() {
+            do {
+                row++;
+            } while (row < rows && (chunks[row / CHUNK_ROWS].flags[row % CHUNK_ROWS] & LIVE) == 0);
+        }
+    }
+
+    /**
+     * The transactions stored when {@link #cut()} was called. Iterating takes the read lock
+     * once per chunk, to see which of its rows were live at the cut.
+     */
+    public final class Cut extends AbstractCollection<Transaction> {
+        private final Chunk[] chunks;
+        private final Map<Integer, Transaction> overflow;
+        private final int rows;
+        private final int size;
+        private final int generation;
+
+        private Cut(Chunk[] chunks, Map<Integer, Transaction> overflow, int rows, int size, int generation) {
+            this.chunks = chunks;
+            this.overflow = overflow;
+            this.rows = rows;
+            this.size = size;
+            this.generation = generation;
+        }
+
+        @Override
+        public Iterator<Transaction> iterator() {
+            return new CutIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Calls the consumer with the ID of every transaction in the cut, without reading the
+         * transactions themselves.
+         *
+         * @param consumer receives each ID
+         */
+        public void forEachId(LongConsumer consumer) {
+            for (int first = 0; first < rows; first += CHUNK_ROWS) {
+                Chunk chunk = chunks[first / CHUNK_ROWS];
+                boolean[] included = included(chunk, Math.min(CHUNK_ROWS, rows - first));
+                for (int slot = 0; slot < included.length; slot++) {
+                    if (included[slot]) {
+                        consumer.accept(chunk.ids[slot]);
+                    }
+                }
+            }
+        }
+
+        private boolean[] included(Chunk chunk, int slots) {
+            boolean[] included = new boolean[slots];
+            lock.readLock().lock();
+            try {
+                for (int slot = 0; slot < slots; slot++) {
+                    included[slot] = (chunk.flags[slot] & LIVE) != 0 || chunk.deaths[slot] >= generation;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return included;
+        }
+
+        private final class CutIterator implements Iterator<Transaction> {
+            private boolean[] included;
+            private int row = -1;
+
+            CutIterator() {
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return row < rows;
+            }
+
+            @Override
+            public Transaction next() {
+                if (row >= rows) {
+                    throw new NoSuchElementException();
+                }
+                Transaction transaction = read(chunks, overflow, row);
+                advance();
+                return transaction;
+            }
+
+            private void advance() {
+                do {
+                    row++;
+                    if (row < rows && row % CHUNK_ROWS == 0) {
+                        included = included(chunks[row / CHUNK_ROWS], Math.min(CHUNK_ROWS, rows - row));
+                    }
+                } while (row < rows && !included[row % CHUNK_ROWS]);
+            }
+        }
+    }
+
+    /**
+     * Transactions written into columns of their own by a single thread, without locking,
+     * until {@link #putAll} adds them to the store.
+     */
+    public static final class Batch implements Consumer<Transaction> {
+        private final List<Chunk> chunks = new ArrayList<>();
+        private final Map<Integer, Transaction> overflow = new HashMap<>();
+        private int rows;
+
+        private Batch() {
+        }
+
+        /**
+         * Appends a transaction to the batch. The transaction is copied.
+         *
+         * @param transaction the transaction; it must have an ID
+         */
+        @Override
+        public void accept(Transaction transaction) {
+            if (rows % CHUNK_ROWS == 0) {
+                chunks.add(new Chunk());
+            }
+            write(chunks.get(chunks.size() - 1), rows % CHUNK_ROWS, rows, transaction, overflow);
+            rows++;
+        }
+
+        /**
+         * Returns the number of transactions in the batch.
+         *
+         * @return the number of rows written
+         */
+        public int size() {
+            return rows;
+        }
+    }
+
+    /**
+     * One chunk of every column.
+     */
+    private static final class Chunk {
+        static final long BYTES = CHUNK_ROWS * (5L * Long.BYTES + Integer.BYTES + 4L * Byte.BYTES);
+
+        final long[] ids = new long[CHUNK_ROWS];
+        final long[] senders = new long[CHUNK_ROWS];
+        final long[] receivers = new long[CHUNK_ROWS];
+        final long[] amounts = new long[CHUNK_ROWS];
+        final long[] timestamps = new long[CHUNK_ROWS];
+        final byte[] scales = new byte[CHUNK_ROWS];
+        final byte[] types = new byte[CHUNK_ROWS];
+        final byte[] statuses = new byte[CHUNK_ROWS];
+        final byte[] flags = new byte[CHUNK_ROWS];
+        final int[] deaths = new int[CHUNK_ROWS];
+    }
+
+    /**
+     * Open-addressing hash table from {@code long} ID to {@code int} row, with linear probing
+     * and backward-shift deletion so no tombstones accumulate.
+     */
+    private static final class IdTable {
+        private static final int EMPTY = -1;
+        private static final float MAX_LOAD = 0.6f;
+
+        private long[] keys;
+        private int[] values;
+        private int mask;
+        private int size;
+
+        IdTable(int expected) {
+            allocate(capacityFor(expected));
+        }
+
+        int get(long key) {
+            for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+                if (values[slot] == EMPTY) {
+                    return EMPTY;
+                }
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+        }
+
+        /** Maps a key to a row, returning the row it was mapped to before or {@code -1}. */
+        int put(long key, int value) {
+            if (size + 1 > values.length * MAX_LOAD) {
+                resize();
+            }
+            int slot = slotOf(key);
+            while (values[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    int previous = values[slot];
+                    values[slot] = value;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            return EMPTY;
+        }
+
+        /** Removes a key, returning the row it was mapped to or {@code -1}. */
+        int remove(long key) {
+            int hole = slotOf(key);
+            while (values[hole] != EMPTY && keys[hole] != key) {
+                hole = (hole + 1) & mask;
+            }
+            if (values[hole] == EMPTY) {
+                return EMPTY;
+            }
+            int removed = values[hole];
+            // Shift back every following entry of the probe run that may move into the hole
+            for (int slot = (hole + 1) & mask; values[slot] != EMPTY; slot = (slot + 1) & mask) {
+                int home = slotOf(keys[slot]);
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    keys[hole] = keys[slot];
+                    values[hole] = values[slot];
+                    hole = slot;
+                }
+            }
+            values[hole] = EMPTY;
+            size--;
+            return removed;
+        }
+
+        /** Grows the table in one step so that it can hold the given number of keys. */
+        void ensureCapacity(int expected) {
+            if (expected > values.length * MAX_LOAD) {
+                rehash(capacityFor(expected));
+            }
+        }
+
+        long bytes() {
+            return (long) keys.length * Long.BYTES + (long) values.length * Integer.BYTES;
+        }
+
+        private void resize() {
+            rehash(values.length * 2);
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(capacity);
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, EMPTY);
+            mask = capacity - 1;
+            size = 0;
+        }
+
+        private static int capacityFor(int expected) {
+            return Math.max(16, Integer.highestOneBit((int) Math.ceil(expected / MAX_LOAD) - 1) << 1);
+        }
+
+        private int slotOf(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
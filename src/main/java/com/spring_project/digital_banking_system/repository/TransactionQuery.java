@@ -0,0 +1,98 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The filters of a transaction search. Every filter is optional; a {@code null} filter
+ * matches every transaction.
+ *
+ * @see TransactionStore#searchTransactions(TransactionQuery, long, int)
+ */
+public class TransactionQuery {
+    private TransactionType type;
+    private TransactionStatus status;
+    private Long walletId;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    public TransactionType getType() { return type; }
+    public void setType(TransactionType type) { this.type = type; }
+
+    public TransactionStatus getStatus() { return status; }
+    public void setStatus(TransactionStatus status) { this.status = status; }
+
+    /** The wallet that sent or received the transaction. */
+    public Long getWalletId() { return walletId; }
+    public void setWalletId(Long walletId) { this.walletId = walletId; }
+
+    /** The smallest amount to include (inclusive). */
+    public BigDecimal getMinAmount() { return minAmount; }
+    public void setMinAmount(BigDecimal minAmount) { this.minAmount = minAmount; }
+
+    /** The largest amount to include (inclusive). */
+    public BigDecimal getMaxAmount() { return maxAmount; }
+    public void setMaxAmount(BigDecimal maxAmount) { this.maxAmount = maxAmount; }
+
+    /** The earliest timestamp to include (inclusive). */
+    public LocalDateTime getFrom() { return from; }
+    public void setFrom(LocalDateTime from) { this.from = from; }
+
+    /** The timestamp to stop before (exclusive). */
+    public LocalDateTime getTo() { return to; }
+    public void setTo(LocalDateTime to) { this.to = to; }
+
+    /**
+     * Tells whether a transaction passes every filter.
+     *
+     * @param transaction the transaction to test
+     * @return {@code true} if the transaction matches
+     */
+    public boolean matches(Transaction transaction) {
+        if (type != null && transaction.getType() != type
+                || status != null && transaction.getStatus() != status) {
+            return false;
+        }
+        if (walletId != null && !walletId.equals(transaction.getSenderWalletId())
+                && !walletId.equals(transaction.getReceiverWalletId())) {
+            return false;
+        }
+        BigDecimal amount = transaction.getAmount();
+        if ((minAmount != null || maxAmount != null) && amount == null
+                || minAmount != null && amount.compareTo(minAmount) < 0
+                || maxAmount != null && amount.compareTo(maxAmount) > 0) {
+            return false;
+        }
+        LocalDateTime timestamp = transaction.getTimestamp();
+        if ((from != null || to != null) && timestamp == null
+                || from != null && timestamp.isBefore(from)
+                || to != null && !timestamp.isBefore(to)) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tells whether the query has a wallet or time filter.
+     *
+     * @return {@code true} if the wallet ID or either time bound is set
+     */
+    boolean hasWalletOrTimeFilter() {
+        return walletId != null || from != null || to != null;
+    }
+
+    /**
+     * Tells whether the query has an amount filter.
+     *
+     * @return {@code true} if either amount bound is set
+     */
+    boolean hasAmountFilter() {
+        return minAmount != null || maxAmount != null;
+    }
+}
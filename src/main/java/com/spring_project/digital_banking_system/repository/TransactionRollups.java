@@ -0,0 +1,298 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Per-minute, per-hour and per-day transaction counts and amount sums for each
+ * {@link TransactionType} and {@link TransactionStatus}, updated as transactions are saved.
+ *
+ * <p>Every resolution is a sorted map from the start of a bucket to the totals of the
+ * transactions whose timestamp falls in it, so reading a time range costs the number of
+ * buckets in the range, however many transactions they summarize. Hour and day buckets are
+ * kept for the whole ledger; minute buckets only for the {@code minuteRetention} before the
+ * newest one seen, since older ones are better read at a coarser resolution.</p>
+ *
+ * <p>Transactions without a timestamp, type or status are not counted. Thread-safe.</p>
+ */
+public class TransactionRollups {
+
+    /** The length of the buckets of a rollup. */
+    public enum Resolution {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        /**
+         * Returns the length of the buckets.
+         *
+         * @return the unit the buckets are truncated to
+         */
+        public ChronoUnit unit() {
+            return unit;
+        }
+
+        /**
+         * Returns the start of the bucket containing a timestamp.
+         *
+         * @param timestamp the timestamp
+         * @return the timestamp truncated to this resolution
+         */
+        public LocalDateTime bucketOf(LocalDateTime timestamp) {
+            return timestamp.truncatedTo(unit);
+        }
+    }
+
+    private static final int STATUSES = TransactionStatus.values().length;
+    private static final int CELLS = TransactionType.values().length * STATUSES;
+
+    private final Duration minuteRetention;
+    private final Map<Resolution, NavigableMap<LocalDateTime, Totals[]>> buckets = new EnumMap<>(Resolution.class);
+    private LocalDateTime minuteCutoff = LocalDateTime.MIN;
+
+    /**
+     * @param minuteRetention how far back from the newest minute bucket minute buckets are kept
+     */
+    public TransactionRollups(Duration minuteRetention) {
+        this.minuteRetention = minuteRetention;
+        for (Resolution resolution : Resolution.values()) {
+            buckets.put(resolution, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Counts a transaction.
+     *
+     * @param transaction the transaction to add
+     */
+    public synchronized void add(Transaction transaction) {
+        apply(transaction, 1);
+    }
+
+    /**
+     * Stops counting a transaction.
+     *
+     * @param transaction the transaction as it was when added
+     */
+    public synchronized void remove(Transaction transaction) {
+        apply(transaction, -1);
+    }
+
+    /**
+     * Adds the totals of an hour bucket, as computed by {@link #hourly(Collection)}, to the hour
+     * and day buckets.
+     *
+     * @param bucket the hour bucket to add
+     */
+    public synchronized void addHourly(Bucket bucket) {
+        int cell = cellOf(bucket.getType(), bucket.getStatus());
+        LocalDateTime start = Resolution.HOUR.bucketOf(bucket.getStart());
+        add(Resolution.HOUR, start, cell, bucket.getCount(), bucket.getSum());
+        add(Resolution.DAY, Resolution.DAY.bucketOf(start), cell, bucket.getCount(), bucket.getSum());
+    }
+
+    /**
+     * Adds the totals of a minute bucket to the minute buckets only, for callers that have
+     * already added the same transactions with {@link #addHourly(Bucket)}.
+     *
+     * @param bucket the minute bucket to add
+     */
+    public synchronized void addMinutely(Bucket bucket) {
+        addMinute(Resolution.MINUTE.bucketOf(bucket.getStart()), cellOf(bucket.getType(), bucket.getStatus()),
+                bucket.getCount(), bucket.getSum());
+    }
+
+    /**
+     * Drops every bucket.
+     */
+    public synchronized void clear() {
+        buckets.values().forEach(Map::clear);
+        minuteCutoff = LocalDateTime.MIN;
+    }
+
+    /**
+     * Returns the non-empty buckets of a time range, oldest first.
+     *
+     * @param resolution the bucket length
+     * @param from       the start of the earliest bucket to include (inclusive)
+     * @param to         the time to stop before (exclusive)
+     * @return one entry per bucket, type and status with at least one transaction
+     */
+    public synchronized List<Bucket> find(Resolution resolution, LocalDateTime from, LocalDateTime to) {
+        List<Bucket> found = new ArrayList<>();
+        buckets.get(resolution).subMap(resolution.bucketOf(from), true, to, false)
+                .forEach((start, totals) -> addBuckets(start, totals, found));
+        return found;
+    }
+
+    /**
+     * Returns rollup statistics for monitoring.
+     *
+     * @return a map of statistic names to values
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rollupMinuteBuckets", buckets.get(Resolution.MINUTE).size());
+        stats.put("rollupHourBuckets", buckets.get(Resolution.HOUR).size());
+        stats.put("rollupDayBuckets", buckets.get(Resolution.DAY).size());
+        return stats;
+    }
+
+    /**
+     * Computes the hour buckets of a set of transactions, to be stored with them and added back
+     * with {@link #addHourly(Bucket)} without reading the transactions again.
+     *
+     * @param transactions the transactions to summarize
+     * @return the non-empty hour buckets, oldest first
+     */
+    public static List<Bucket> hourly(Collection<Transaction> transactions) {
+        TransactionRollups rollups = new TransactionRollups(Duration.ZERO);
+        for (Transaction transaction : transactions) {
+            if (isCounted(transaction)) {
+                rollups.add(Resolution.HOUR, Resolution.HOUR.bucketOf(transaction.getTimestamp()),
+                        cellOf(transaction.getType(), transaction.getStatus()), 1, amountOf(transaction));
+            }
+        }
+        List<Bucket> hourly = new ArrayList<>();
+        rollups.buckets.get(Resolution.HOUR).forEach((start, totals) -> addBuckets(start, totals, hourly));
+        return hourly;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void apply(Transaction transaction, int sign) {
+        if (!isCounted(transaction)) {
+            return;
+        }
+        int cell = cellOf(transaction.getType(), transaction.getStatus());
+        BigDecimal amount = sign > 0 ? amountOf(transaction) : amountOf(transaction).negate();
+        LocalDateTime timestamp = transaction.getTimestamp();
+        add(Resolution.HOUR, Resolution.HOUR.bucketOf(timestamp), cell, sign, amount);
+        add(Resolution.DAY, Resolution.DAY.bucketOf(timestamp), cell, sign, amount);
+
+        addMinute(Resolution.MINUTE.bucketOf(timestamp), cell, sign, amount);
+    }
+
+    private void addMinute(LocalDateTime minute, int cell, long count, BigDecimal sum) {
+        if (minute.isBefore(minuteCutoff)) {
+            return;
+        }
+        add(Resolution.MINUTE, minute, cell, count, sum);
+        LocalDateTime cutoff = minute.minus(minuteRetention);
+        if (count > 0 && cutoff.isAfter(minuteCutoff)) {
+            minuteCutoff = cutoff;
+            buckets.get(Resolution.MINUTE).headMap(cutoff, false).clear();
+        }
+    }
+
+    private void add(Resolution resolution, LocalDateTime start, int cell, long count, BigDecimal sum) {
+        NavigableMap<LocalDateTime, Totals[]> rollup = buckets.get(resolution);
+        Totals[] totals = rollup.computeIfAbsent(start, key -> new Totals[CELLS]);
+        if (totals[cell] == null) {
+            totals[cell] = new Totals();
+        }
+        totals[cell].count += count;
+        totals[cell].sum = totals[cell].sum.add(sum);
+        if (totals[cell].count <= 0) {
+            totals[cell] = null;
+            if (isEmpty(totals)) {
+                rollup.remove(start);
+            }
+        }
+    }
+
+    private static void addBuckets(LocalDateTime start, Totals[] totals, List<Bucket> target) {
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (totals[cell] != null) {
+                target.add(new Bucket(start, TransactionType.values()[cell / STATUSES],
+                        TransactionStatus.values()[cell % STATUSES], totals[cell].count, totals[cell].sum));
+            }
+        }
+    }
+
+    private static boolean isEmpty(Totals[] totals) {
+        for (Totals cell : totals) {
+            if (cell != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCounted(Transaction transaction) {
+        return transaction.getTimestamp() != null && transaction.getType() != null && transaction.getStatus() != null;
+    }
+
+    private static int cellOf(TransactionType type, TransactionStatus status) {
+        return type.ordinal() * STATUSES + status.ordinal();
+    }
+
+    private static BigDecimal amountOf(Transaction transaction) {
+        return transaction.getAmount() != null ? transaction.getAmount() : BigDecimal.ZERO;
+    }
+
+    private static final class Totals {
+        private long count;
+        private BigDecimal sum = BigDecimal.ZERO;
+    }
+
+    /**
+     * The totals of one type and status in one bucket.
+     */
+    public static class Bucket {
+        private LocalDateTime start;
+        private TransactionType type;
+        private TransactionStatus status;
+        private long count;
+        private BigDecimal sum;
+
+        public Bucket() {
+        }
+
+        public Bucket(LocalDateTime start, TransactionType type, TransactionStatus status, long count, BigDecimal sum) {
+            this.start = start;
+            this.type = type;
+            this.status = status;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        /** The start of the bucket. */
+        public LocalDateTime getStart() { return start; }
+        public void setStart(LocalDateTime start) { this.start = start; }
+
+        public TransactionType getType() { return type; }
+        public void setType(TransactionType type) { this.type = type; }
+
+        public TransactionStatus getStatus() { return status; }
+        public void setStatus(TransactionStatus status) { this.status = status; }
+
+        /** The number of transactions in the bucket. */
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+
+        /** The sum of their amounts. */
+        public BigDecimal getSum() { return sum; }
+        public void setSum(BigDecimal sum) { this.sum = sum; }
+    }
+}
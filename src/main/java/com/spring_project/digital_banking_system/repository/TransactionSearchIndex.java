@@ -0,0 +1,442 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+
+/**
+ * Indexes the transactions held in memory for admin searches by type, status, wallet, amount
+ * and time.
+ *
+ * <p>Type and status have only a few values each, so each value has a {@link CompressedBitmap}
+ * of the IDs carrying it. Amounts are kept in a sorted index of {@code (amount, id)} entries,
+ * split into blocks of at most {@value AmountIndex#BLOCK_MAX} so an insert only shifts entries
+ * within one block. Wallet and time ranges are read from the {@link WalletTransactionIndex},
+ * which is already sorted by time.</p>
+ *
+ * <p>A search turns every filter into a bitmap and intersects them, smallest first, so its
+ * cost depends on the size of the filters' results rather than on the number of transactions,
+ * and the number of matches is the cardinality of the intersection.</p>
+ *
+ * <p>Writers must be serialized by the caller; readers may run concurrently with them.</p>
+ */
+class TransactionSearchIndex {
+
+    // Amounts are indexed in hundredths, rounded down; entries on the boundary are checked exactly
+    private static final int AMOUNT_KEY_SCALE = 2;
+    private static final BigInteger MAX_KEY = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final BigInteger MIN_KEY = BigInteger.valueOf(Long.MIN_VALUE);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final WalletTransactionIndex timeline;
+    private final LongFunction<BigDecimal> amounts;
+
+    private final CompressedBitmap all = new CompressedBitmap();
+    private final CompressedBitmap[] byType = newBitmaps(TransactionType.values().length);
+    private final CompressedBitmap[] byStatus = newBitmaps(TransactionStatus.values().length);
+    private AmountIndex byAmount = new AmountIndex();
+
+    /**
+     * @param timeline the time-ordered index of the same transactions
+     * @param amounts  looks up the amount of a stored transaction by ID
+     */
+    TransactionSearchIndex(WalletTransactionIndex timeline, LongFunction<BigDecimal> amounts) {
+        this.timeline = timeline;
+        this.amounts = amounts;
+    }
+
+    /**
+     * Finds the IDs of the transactions matching a query.
+     *
+     * @param query the filters
+     * @return a new bitmap of the matching IDs
+     */
+    CompressedBitmap matches(TransactionQuery query) {
+        List<CompressedBitmap> filters = new ArrayList<>();
+        if (query.hasWalletOrTimeFilter()) {
+            CompressedBitmap range = new CompressedBitmap();
+            timeline.forEachInRange(query.getWalletId(), query.getFrom(), query.getTo(), range::add);
+            filters.add(range);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (query.getType() != null) {
+                filters.add(byType[query.getType().ordinal()]);
+            }
+            if (query.getStatus() != null) {
+                filters.add(byStatus[query.getStatus().ordinal()]);
+            }
+            if (query.hasAmountFilter()) {
+                filters.add(amountRange(query.getMinAmount(), query.getMaxAmount()));
+            }
+            if (filters.isEmpty()) {
+                filters.add(all);
+            }
+            return CompressedBitmap.and(filters);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a transaction.
+     *
+     * @param transaction the transaction to add
+     */
+    void add(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            insert(transaction);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a transaction.
+     *
+     * @param transaction the transaction as it was when added
+     */
+    void remove(Transaction transaction) {
+        lock.writeLock().lock();
+        try {
+            delete(transaction);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes many transactions at once.
+     *
+     * @param transactions the transactions as they were when added
+     */
+    void removeAll(Collection<Transaction> transactions) {
+        lock.writeLock().lock();
+        try {
+            transactions.forEach(this::delete);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discards the index and rebuilds it from the given transactions, sorting the amount index
+     * once instead of inserting entry by entry.
+     *
+     * @param transactions every stored transaction
+     */
+    void rebuild(Collection<Transaction> transactions) {
+        lock.writeLock().lock();
+        try {
+            for (CompressedBitmap bitmap : bitmaps()) {
+                bitmap.clear();
+            }
+            long[] keys = new long[transactions.size()];
+            long[] ids = new long[transactions.size()];
+            int count = 0;
+            for (Transaction transaction : transactions) {
+                addToBitmaps(transaction);
+                if (transaction.getAmount() != null) {
+                    if (count == keys.length) {
+                        keys = Arrays.copyOf(keys, count * 2 + 1);
+                        ids = Arrays.copyOf(ids, count * 2 + 1);
+                    }
+                    keys[count] = keyOf(transaction.getAmount());
+                    ids[count] = transaction.getId();
+                    count++;
+                }
+            }
+            byAmount = AmountIndex.load(keys, ids, count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns index statistics for monitoring.
+     *
+     * @return a map of statistic names to values
+     */
+    Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long bitmapBytes = 0;
+            for (CompressedBitmap bitmap : bitmaps()) {
+                bitmapBytes += bitmap.bytes();
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("searchBitmapBytes", bitmapBytes);
+            stats.put("searchAmountEntries", byAmount.size);
+            stats.put("searchAmountBlocks", byAmount.blocks.size());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void insert(Transaction transaction) {
+        addToBitmaps(transaction);
+        if (transaction.getAmount() != null) {
+            byAmount.add(keyOf(transaction.getAmount()), transaction.getId());
+        }
+    }
+
+    private void addToBitmaps(Transaction transaction) {
+        long id = transaction.getId();
+        all.add(id);
+        if (transaction.getType() != null) {
+            byType[transaction.getType().ordinal()].add(id);
+        }
+        if (transaction.getStatus() != null) {
+            byStatus[transaction.getStatus().ordinal()].add(id);
+        }
+    }
+
+    private void delete(Transaction transaction) {
+        long id = transaction.getId();
+        all.remove(id);
+        if (transaction.getType() != null) {
+            byType[transaction.getType().ordinal()].remove(id);
+        }
+        if (transaction.getStatus() != null) {
+            byStatus[transaction.getStatus().ordinal()].remove(id);
+        }
+        if (transaction.getAmount() != null) {
+            byAmount.remove(keyOf(transaction.getAmount()), id);
+        }
+    }
+
+    private CompressedBitmap amountRange(BigDecimal min, BigDecimal max) {
+        long minKey = min == null ? Long.MIN_VALUE : keyOf(min);
+        long maxKey = max == null ? Long.MAX_VALUE : keyOf(max);
+        CompressedBitmap range = new CompressedBitmap();
+        byAmount.forEachInRange(minKey, maxKey, (key, id) -> {
+            // Keys are rounded down, so only entries sharing a bound's key can fall outside it
+            if (min != null && key == minKey || max != null && key == maxKey) {
+                BigDecimal amount = amounts.apply(id);
+                if (amount == null || min != null && amount.compareTo(min) < 0
+                        || max != null && amount.compareTo(max) > 0) {
+                    return;
+                }
+            }
+            range.add(id);
+        });
+        return range;
+    }
+
+    private List<CompressedBitmap> bitmaps() {
+        List<CompressedBitmap> bitmaps = new ArrayList<>();
+        bitmaps.add(all);
+        bitmaps.addAll(Arrays.asList(byType));
+        bitmaps.addAll(Arrays.asList(byStatus));
+        return bitmaps;
+    }
+
+    private static long keyOf(BigDecimal amount) {
+        BigInteger key = amount.setScale(AMOUNT_KEY_SCALE, RoundingMode.FLOOR).unscaledValue();
+        return key.max(MIN_KEY).min(MAX_KEY).longValue();
+    }
+
+    private static CompressedBitmap[] newBitmaps(int count) {
+        CompressedBitmap[] bitmaps = new CompressedBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new CompressedBitmap();
+        }
+        return bitmaps;
+    }
+
+    @FunctionalInterface
+    private interface EntryVisitor {
+        void visit(long key, long id);
+    }
+
+    /**
+     * Sorted {@code (key, id)} entries, kept in blocks that are split in half when full.
+     */
+    private static final class AmountIndex {
+        static final int BLOCK_MAX = 2048;
+
+        private final List<Block> blocks = new ArrayList<>();
+        private long size;
+
+        static AmountIndex load(long[] keys, long[] ids, int count) {
+            sort(keys, ids, count);
+            AmountIndex index = new AmountIndex();
+            // Fill blocks three quarters full, leaving room for inserts before the first split
+            int perBlock = BLOCK_MAX * 3 / 4;
+            for (int start = 0; start < count; start += perBlock) {
+                Block block = new Block();
+                block.size = Math.min(perBlock, count - start);
+                System.arraycopy(keys, start, block.keys, 0, block.size);
+                System.arraycopy(ids, start, block.ids, 0, block.size);
+                index.blocks.add(block);
+            }
+            index.size = count;
+            return index;
+        }
+
+        void add(long key, long id) {
+            if (blocks.isEmpty()) {
+                blocks.add(new Block());
+            }
+            int position = blockFor(key, id);
+            Block block = blocks.get(position);
+            block.insert(key, id);
+            if (block.size == BLOCK_MAX) {
+                blocks.add(position + 1, block.splitUpperHalf());
+            }
+            size++;
+        }
+
+        void remove(long key, long id) {
+            if (blocks.isEmpty()) {
+                return;
+            }
+            int position = blockFor(key, id);
+            Block block = blocks.get(position);
+            if (block.delete(key, id)) {
+                size--;
+                if (block.size == 0 && blocks.size() > 1) {
+                    blocks.remove(position);
+                }
+            }
+        }
+
+        void forEachInRange(long minKey, long maxKey, EntryVisitor visitor) {
+            if (blocks.isEmpty()) {
+                return;
+            }
+            for (int b = blockFor(minKey, Long.MIN_VALUE); b < blocks.size(); b++) {
+                Block block = blocks.get(b);
+                for (int i = block.lowerBound(minKey, Long.MIN_VALUE); i < block.size; i++) {
+                    if (block.keys[i] > maxKey) {
+                        return;
+                    }
+                    visitor.visit(block.keys[i], block.ids[i]);
+                }
+            }
+        }
+
+        /** Returns the first block whose last entry is at or after {@code (key, id)}, or the last block. */
+        private int blockFor(long key, long id) {
+            int low = 0;
+            int high = blocks.size() - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                Block block = blocks.get(middle);
+                if (block.size > 0 && compare(block.keys[block.size - 1], block.ids[block.size - 1], key, id) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static int compare(long leftKey, long leftId, long rightKey, long rightId) {
+            int byKey = Long.compare(leftKey, rightKey);
+            return byKey != 0 ? byKey : Long.compare(leftId, rightId);
+        }
+
+        /** Sorts parallel key and ID arrays by key, then ID, with a bottom-up merge sort. */
+        private static void sort(long[] keys, long[] ids, int count) {
+            long[] keyBuffer = new long[count];
+            long[] idBuffer = new long[count];
+            long[] fromKeys = keys;
+            long[] fromIds = ids;
+            for (int width = 1; width < count; width *= 2) {
+                for (int left = 0; left < count; left += 2 * width) {
+                    int middle = Math.min(left + width, count);
+                    int right = Math.min(left + 2 * width, count);
+                    int i = left;
+                    int j = middle;
+                    for (int k = left; k < right; k++) {
+                        if (i < middle && (j >= right || compare(fromKeys[i], fromIds[i], fromKeys[j], fromIds[j]) <= 0)) {
+                            keyBuffer[k] = fromKeys[i];
+                            idBuffer[k] = fromIds[i++];
+                        } else {
+                            keyBuffer[k] = fromKeys[j];
+                            idBuffer[k] = fromIds[j++];
+                        }
+                    }
+                }
+                long[] swapKeys = fromKeys;
+                long[] swapIds = fromIds;
+                fromKeys = keyBuffer;
+                fromIds = idBuffer;
+                keyBuffer = swapKeys;
+                idBuffer = swapIds;
+            }
+            if (fromKeys != keys) {
+                System.arraycopy(fromKeys, 0, keys, 0, count);
+                System.arraycopy(fromIds, 0, ids, 0, count);
+            }
+        }
+
+        private static final class Block {
+            final long[] keys = new long[BLOCK_MAX];
+            final long[] ids = new long[BLOCK_MAX];
+            int size;
+
+            int lowerBound(long key, long id) {
+                int low = 0;
+                int high = size;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (compare(keys[middle], ids[middle], key, id) < 0) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                return low;
+            }
+
+            void insert(long key, long id) {
+                int position = lowerBound(key, id);
+                System.arraycopy(keys, position, keys, position + 1, size - position);
+                System.arraycopy(ids, position, ids, position + 1, size - position);
+                keys[position] = key;
+                ids[position] = id;
+                size++;
+            }
+
+            boolean delete(long key, long id) {
+                int position = lowerBound(key, id);
+                if (position == size || keys[position] != key || ids[position] != id) {
+                    return false;
+                }
+                System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+                return true;
+            }
+
+            Block splitUpperHalf() {
+                Block upper = new Block();
+                int half = size / 2;
+                upper.size = size - half;
+                System.arraycopy(keys, half, upper.keys, 0, upper.size);
+                System.arraycopy(ids, half, upper.ids, 0, upper.size);
+                size = half;
+                return upper;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+
+import java.util.List;
+
+/**
+ * One page of transaction search results, plus the number of transactions matching the
+ * search in total.
+ */
+public class TransactionSearchResult {
+    private final List<Transaction> transactions;
+    private final long totalMatches;
+
+    public TransactionSearchResult(List<Transaction> transactions, long totalMatches) {
+        this.transactions = transactions;
+        this.totalMatches = totalMatches;
+    }
+
+    /** The transactions of the page, highest ID first. */
+    public List<Transaction> getTransactions() { return transactions; }
+
+    /** The number of transactions matching the filters, across all pages. */
+    public long getTotalMatches() { return totalMatches; }
+}
@@ -0,0 +1,148 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores transactions. Returned transactions are copies: changing them has no effect until
+ * they are saved.
+ */
+public interface TransactionStore {
+
+    /**
+     * Retrieves all transactions, ordered by ID.
+     *
+     * @return a list of all transactions, or an empty list if none exist
+     */
+    List<Transaction> findAllTransactions();
+
+    /**
+     * Finds a transaction by its unique ID.
+     *
+     * @param id the transaction ID to search for
+     * @return an {@link Optional} containing the transaction if found, or empty otherwise
+     */
+    Optional<Transaction> findTransactionById(Long id);
+
+    /**
+     * Finds all transactions involving a wallet (as sender or receiver), newest first.
+     *
+     * @param walletId the wallet ID to search for
+     * @return the wallet's transactions, sorted by timestamp descending
+     */
+    List<Transaction> findTransactionsByWalletId(Long walletId);
+
+    /**
+     * Finds one page of a wallet's transactions (as sender or receiver), newest first, ordered
+     * by timestamp and then ID.
+     *
+     * @param walletId        the wallet ID to search for
+     * @param beforeTimestamp the timestamp of the exclusive upper bound, or {@code null} to start
+     *                        at the newest transaction
+     * @param beforeId        the ID breaking ties at {@code beforeTimestamp}
+     * @param notBefore       the earliest timestamp to include, or {@code null} for no lower bound
+     * @param limit           the maximum number of transactions to return
+     * @return the transactions of the page, newest first
+     */
+    List<Transaction> findTransactionsByWalletId(Long walletId, LocalDateTime beforeTimestamp, long beforeId,
+                                                 LocalDateTime notBefore, int limit);
+
+    /**
+     * Finds one page of all transactions, newest first, with the same bounds as
+     * {@link #findTransactionsByWalletId(Long, LocalDateTime, long, LocalDateTime, int)}.
+     *
+     * @param beforeTimestamp the timestamp of the exclusive upper bound, or {@code null} to start
+     *                        at the newest transaction
+     * @param beforeId        the ID breaking ties at {@code beforeTimestamp}
+     * @param notBefore       the earliest timestamp to include, or {@code null} for no lower bound
+     * @param limit           the maximum number of transactions to return
+     * @return the transactions of the page, newest first
+     */
+    List<Transaction> findTransactions(LocalDateTime beforeTimestamp, long beforeId, LocalDateTime notBefore, int limit);
+
+    /**
+     * Retrieves all transactions, newest first.
+     *
+     * @return all transactions, sorted by timestamp descending
+     */
+    List<Transaction> findAllTransactionsOrderedByTimestamp();
+
+    /**
+     * Finds one page of the transactions matching a query, highest ID first, together with the
+     * number of matches across all pages.
+     *
+     * @param query    the filters to apply
+     * @param beforeId the exclusive upper bound on the IDs of the page
+     * @param limit    the maximum number of transactions to return
+     * @return the page and the total number of matches, which ignores {@code beforeId} and
+     *         {@code limit}
+     */
+    TransactionSearchResult searchTransactions(TransactionQuery query, long beforeId, int limit);
+
+    /**
+     * Returns the transaction counts and amount sums per type and status in each bucket of a
+     * time range. The rollups are maintained as transactions are saved, so the cost depends on
+     * the number of buckets in the range rather than the number of transactions.
+     *
+     * @param resolution the bucket length
+     * @param from       the start of the earliest bucket to include (inclusive)
+     * @param to         the time to stop before (exclusive)
+     * @return the non-empty buckets, oldest first
+     */
+    List<TransactionRollups.Bucket> findRollups(TransactionRollups.Resolution resolution, LocalDateTime from,
+                                                LocalDateTime to);
+
+    /**
+     * Returns the balance a wallet had at a point in time: the sum of the amounts of the
+     * successful transactions it received, less those it sent, with a timestamp up to and
+     * including that time.
+     *
+     * @param walletId the wallet ID
+     * @param asOf     the point in time
+     * @return the wallet's balance at {@code asOf}; zero before its first transaction
+     */
+    BigDecimal findBalanceAt(Long walletId, LocalDateTime asOf);
+
+    /**
+     * Saves a transaction and waits until it is durable. If the transaction has no ID, a new
+     * one is generated; otherwise the existing record is replaced.
+     *
+     * @param transaction the transaction to save
+     * @return the saved transaction with an assigned ID
+     */
+    Transaction saveTransaction(Transaction transaction);
+
+    /**
+     * Saves a transaction without waiting for it to become durable. The ID is assigned and the
+     * transaction is visible to readers when this method returns.
+     *
+     * @param transaction the transaction to save
+     * @return a future that completes when the transaction is durable
+     */
+    CompletableFuture<Void> saveTransactionAsync(Transaction transaction);
+
+    /**
+     * Deletes a transaction by its ID.
+     *
+     * @param id the ID of the transaction to delete
+     */
+    void deleteTransaction(Long id);
+
+    /**
+     * Writes every transaction as newline-delimited JSON, without buffering them all in memory,
+     * in an order defined by the backend. The export is a consistent cut: transactions saved,
+     * replaced or deleted after it starts do not affect it.
+     *
+     * @param out the stream to write to; it is flushed but not closed
+     * @return the number of transactions written
+     * @throws IOException if writing to the stream fails
+     */
+    long exportTransactions(OutputStream out) throws IOException;
+}
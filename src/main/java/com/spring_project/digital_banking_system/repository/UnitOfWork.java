@@ -0,0 +1,123 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * A set of user, wallet, transaction and idempotency record saves committed together by
+ * {@link Storage#commitAsync}. The unit is persisted whole or not at all: a crash never leaves
+ * part of it behind, and if its commit fails, none of it is ever persisted.
+ *
+ * <p>Entities without an ID are given one as soon as they are staged, so a staged user's ID can
+ * be referenced by a wallet staged after it, and a transaction's ID can be reported before the
+ * commit. IDs of a unit that is never committed are simply skipped. Staged objects are not
+ * copied until the commit; they must not be changed in between.</p>
+ *
+ * <p>Obtain a unit of work from {@link Storage#newUnitOfWork()}.</p>
+ */
+public class UnitOfWork {
+
+    private final LongSupplier userIds;
+    private final LongSupplier walletIds;
+    private final LongSupplier transactionIds;
+
+    private final List<User> users = new ArrayList<>(1);
+    private final List<Wallet> wallets = new ArrayList<>(2);
+    private final List<Transaction> transactions = new ArrayList<>(1);
+    private final List<IdempotencyRecord> idempotencyRecords = new ArrayList<>(0);
+
+    UnitOfWork(LongSupplier userIds, LongSupplier walletIds, LongSupplier transactionIds) {
+        this.userIds = userIds;
+        this.walletIds = walletIds;
+        this.transactionIds = transactionIds;
+    }
+
+    /**
+     * Stages a user save, assigning an ID if the user has none.
+     *
+     * @param user the user to save
+     * @return this unit of work
+     */
+    public UnitOfWork saveUser(User user) {
+        if (user.getId() == null) {
+            user.setId(userIds.getAsLong());
+        }
+        users.add(user);
+        return this;
+    }
+
+    /**
+     * Stages a wallet save, assigning an ID if the wallet has none. Like
+     * {@link WalletStore#saveWallet}, the save only succeeds if the stored wallet still has the
+     * version the caller read.
+     *
+     * @param wallet the wallet to save
+     * @return this unit of work
+     */
+    public UnitOfWork saveWallet(Wallet wallet) {
+        if (wallet.getId() == null) {
+            wallet.setId(walletIds.getAsLong());
+        }
+        wallets.add(wallet);
+        return this;
+    }
+
+    /**
+     * Stages a transaction save, assigning an ID if the transaction has none.
+     *
+     * @param transaction the transaction to save
+     * @return this unit of work
+     */
+    public UnitOfWork saveTransaction(Transaction transaction) {
+        if (transaction.getId() == null) {
+            transaction.setId(transactionIds.getAsLong());
+        }
+        transactions.add(transaction);
+        return this;
+    }
+
+    /**
+     * Stages the record of the request this unit of work carries out, so that a retry of the
+     * request finds it once, and only once, the unit is committed.
+     *
+     * @param record the record to save
+     * @return this unit of work
+     */
+    public UnitOfWork saveIdempotencyRecord(IdempotencyRecord record) {
+        idempotencyRecords.add(record);
+        return this;
+    }
+
+    List<User> users() {
+        return Collections.unmodifiableList(users);
+    }
+
+    /**
+     * Returns the staged wallets, which once committed carry their new version.
+     *
+     * @return the wallets, in the order they were staged
+     */
+    public List<Wallet> wallets() {
+        return Collections.unmodifiableList(wallets);
+    }
+
+    /**
+     * Returns the staged transactions.
+     *
+     * @return the transactions, in the order they were staged
+     */
+    public List<Transaction> transactions() {
+        return Collections.unmodifiableList(transactions);
+    }
+
+    List<IdempotencyRecord> idempotencyRecords() {
+        return Collections.unmodifiableList(idempotencyRecords);
+    }
+}
@@ -0,0 +1,71 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stores users. Returned users are copies: changing them has no effect until they are saved.
+ */
+public interface UserStore {
+
+    /**
+     * Retrieves all users, ordered by ID.
+     *
+     * @return a list of all users, or an empty list if none exist
+     */
+    List<User> findAllUsers();
+
+    /**
+     * Finds a user by their unique ID.
+     *
+     * @param id the user ID to search for
+     * @return an {@link Optional} containing the user if found, or empty otherwise
+     */
+    Optional<User> findUserById(Long id);
+
+    /**
+     * Finds a user by their username.
+     *
+     * @param username the username to search for
+     * @return an {@link Optional} containing the user if found, or empty otherwise
+     */
+    Optional<User> findUserByUsername(String username);
+
+    /**
+     * Checks whether a user with the given username already exists.
+     *
+     * @param username the username to check
+     * @return {@code true} if a user with the username exists, {@code false} otherwise
+     */
+    boolean existsByUsername(String username);
+
+    /**
+     * Saves a user. If the user has no ID, a new one is generated; otherwise the existing
+     * record is replaced.
+     *
+     * @param user the user to save
+     * @return the saved user with an assigned ID
+     */
+    User saveUser(User user);
+
+    /**
+     * Deletes a user by their ID.
+     *
+     * @param id the ID of the user to delete
+     */
+    void deleteUser(Long id);
+
+    /**
+     * Writes every user as newline-delimited JSON, in ID order, without buffering them all in
+     * memory. Users created after the export starts are not included.
+     *
+     * @param out the stream to write to; it is flushed but not closed
+     * @return the number of users written
+     * @throws IOException if writing to the stream fails
+     */
+    long exportUsers(OutputStream out) throws IOException;
+}
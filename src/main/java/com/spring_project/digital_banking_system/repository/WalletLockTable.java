@@ -0,0 +1,122 @@
+package com.spring_project.digital_banking_system.repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped lock table guarding wallet balances, keyed by wallet ID.
+ *
+ * <p>Each wallet maps to one of a fixed number of locks, so operations on unrelated wallets
+ * almost always run in parallel while two operations on the same wallet are serialized.
+ * Operations touching two wallets acquire both stripes in ascending stripe order, which
+ * rules out deadlocks between concurrent transfers in opposite directions. Batches touching
+ * many wallets acquire all their stripes the same way.</p>
+ */
+public class WalletLockTable {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * @param stripes the requested number of stripes, rounded up to a power of two
+     */
+    public WalletLockTable(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Runs an action while holding the lock of a single wallet.
+     *
+     * @param walletId the wallet to lock
+     * @param action   the action to run
+     * @return the action's result
+     */
+    public <T> T withLock(Long walletId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(walletId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs an action while holding the locks of two wallets, acquired in a consistent order.
+     *
+     * @param firstWalletId  one wallet to lock
+     * @param secondWalletId the other wallet to lock
+     * @param action         the action to run
+     * @return the action's result
+     */
+    public <T> T withLocks(Long firstWalletId, Long secondWalletId, Supplier<T> action) {
+        int first = stripeOf(firstWalletId);
+        int second = stripeOf(secondWalletId);
+        if (first == second) {
+            return withLock(firstWalletId, action);
+        }
+
+        ReentrantLock lower = stripes[Math.min(first, second)];
+        ReentrantLock upper = stripes[Math.max(first, second)];
+        lower.lock();
+        try {
+            upper.lock();
+            try {
+                return action.get();
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    /**
+     * Runs an action while holding the locks of any number of wallets, acquired in ascending
+     * stripe order. Each stripe is locked once, however many of the wallets share it.
+     *
+     * @param walletIds the wallets to lock; at least one
+     * @param action    the action to run
+     * @return the action's result
+     */
+    public <T> T withLocks(Collection<Long> walletIds, Supplier<T> action) {
+        if (walletIds.size() <= 2) {
+            Iterator<Long> ids = walletIds.iterator();
+            Long first = ids.next();
+            return ids.hasNext() ? withLocks(first, ids.next(), action) : withLock(first, action);
+        }
+
+        boolean[] needed = new boolean[stripes.length];
+        for (Long walletId : walletIds) {
+            needed[stripeOf(walletId)] = true;
+        }
+        int locked = 0;
+        try {
+            for (; locked < stripes.length; locked++) {
+                if (needed[locked]) {
+                    stripes[locked].lock();
+                }
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                if (needed[i]) {
+                    stripes[i].unlock();
+                }
+            }
+        }
+    }
+
+    private int stripeOf(Long walletId) {
+        long id = walletId;
+        int hash = (int) (id ^ (id >>> 32));
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,88 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.exception.ConcurrentUpdateException;
+import com.spring_project.digital_banking_system.model.Wallet;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores wallets. Returned wallets are copies: changing them has no effect until they are saved.
+ *
+ * <p>Wallet saves are compare-and-set operations on {@link Wallet#getVersion()}: a save only
+ * succeeds if the stored wallet still has the version the caller read, and bumps it by one.
+ * A stale write is rejected with a {@link ConcurrentUpdateException} instead of silently
+ * overwriting a concurrent update.</p>
+ */
+public interface WalletStore {
+
+    /**
+     * Retrieves all wallets, ordered by ID.
+     *
+     * @return a list of all wallets, or an empty list if none exist
+     */
+    List<Wallet> findAllWallets();
+
+    /**
+     * Finds a wallet by its unique ID.
+     *
+     * @param id the wallet ID to search for
+     * @return an {@link Optional} containing the wallet if found, or empty otherwise
+     */
+    Optional<Wallet> findWalletById(Long id);
+
+    /**
+     * Finds a wallet by the ID of the user who owns it.
+     *
+     * @param userId the owner's user ID
+     * @return an {@link Optional} containing the wallet if found, or empty otherwise
+     */
+    Optional<Wallet> findWalletByUserId(Long userId);
+
+    /**
+     * Finds a wallet by its unique wallet code (e.g., "WAL-A1B2C3D4").
+     *
+     * @param walletCode the wallet code to search for
+     * @return an {@link Optional} containing the wallet if found, or empty otherwise
+     */
+    Optional<Wallet> findWalletByWalletCode(String walletCode);
+
+    /**
+     * Saves a wallet and waits until it is durable. If the wallet has no ID, a new one is
+     * generated. The wallet's version is incremented.
+     *
+     * @param wallet the wallet to save
+     * @return the saved wallet with an assigned ID and its new version
+     * @throws ConcurrentUpdateException if the stored wallet has a different version
+     */
+    Wallet saveWallet(Wallet wallet);
+
+    /**
+     * Saves a wallet without waiting for it to become durable. The ID and new version are
+     * assigned and the change is visible to readers when this method returns.
+     *
+     * @param wallet the wallet to save
+     * @return a future that completes when the change is durable
+     * @throws ConcurrentUpdateException if the stored wallet has a different version
+     */
+    CompletableFuture<Void> saveWalletAsync(Wallet wallet);
+
+    /**
+     * Saves several wallets as one atomic compare-and-set without waiting for them to become
+     * durable: either every wallet still has the version the caller read and all of them are
+     * saved, or none is.
+     *
+     * @param wallets the wallets to save
+     * @return a future that completes when all changes are durable
+     * @throws ConcurrentUpdateException if any stored wallet has a different version
+     */
+    CompletableFuture<Void> saveWalletsAsync(Wallet... wallets);
+
+    /**
+     * Deletes a wallet by its ID.
+     *
+     * @param id the ID of the wallet to delete
+     */
+    void deleteWallet(Long id);
+}
@@ -0,0 +1,361 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Secondary index from wallet ID to the IDs of the transactions it sent or received, plus
+ * the same ordering over all transactions.
+ *
+ * <p>Each wallet's transaction IDs are kept in a primitive {@code long[]} ordered by
+ * transaction timestamp (ties broken by ID), so a wallet's history can be read in time
+ * proportional to its own number of transactions instead of scanning every transaction in
+ * the system. New transactions almost always belong at the end of the array, making an
+ * insert an amortized append.</p>
+ *
+ * <p>Because the arrays are ordered, a page of transactions older than a given
+ * {@code (timestamp, id)} key is found by binary search and read by walking backwards, without
+ * touching the rest of the history.</p>
+ *
+ * <p>Timestamps are not stored in the index; they are looked up by transaction ID in the
+ * store the index is built over. Writers must be serialized by the caller for each wallet;
+ * readers may run concurrently with them.</p>
+ *
+ * <p>The ordering over all transactions has one monitor that every writer takes. That adds no
+ * serialization point of its own: each of those writers has just stored the transaction in
+ * {@link TransactionColumns}, under its write lock, and holds this monitor for about as long,
+ * since new transactions are appended at the end. A removal finds its entry by binary search;
+ * only the entries after it are moved.</p>
+ */
+class WalletTransactionIndex {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final LongFunction<LocalDateTime> timestamps;
+    private final Map<Long, WalletEntries> entries = new ConcurrentHashMap<>();
+    private final WalletEntries all = new WalletEntries();
+
+    /**
+     * @param timestamps looks up the timestamp of a stored transaction by ID
+     */
+    WalletTransactionIndex(LongFunction<LocalDateTime> timestamps) {
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * Returns the IDs of a wallet's transactions, oldest first.
+     *
+     * @param walletId the wallet ID
+     * @return a copy of the wallet's transaction IDs in timestamp order
+     */
+    long[] transactionIds(Long walletId) {
+        WalletEntries wallet = entries.get(walletId);
+        return wallet == null ? new long[0] : wallet.copy();
+    }
+
+    /**
+     * Returns a page of transaction IDs, newest first, strictly older than the given key.
+     *
+     * @param walletId        the wallet whose transactions to page through, or {@code null} for all
+     * @param beforeTimestamp the timestamp of the exclusive upper bound, or {@code null} to start
+     *                        at the newest transaction
+     * @param beforeId        the ID breaking ties at {@code beforeTimestamp}
+     * @param notBefore       the earliest timestamp to include, or {@code null} for no lower bound
+     * @param limit           the maximum number of IDs to return
+     * @return the transaction IDs of the page, newest first
+     */
+    long[] page(Long walletId, LocalDateTime beforeTimestamp, long beforeId, LocalDateTime notBefore, int limit) {
+        WalletEntries wallet = walletId == null ? all : entries.get(walletId);
+        return wallet == null ? new long[0] : wallet.page(beforeTimestamp, beforeId, notBefore, limit);
+    }
+
+    /**
+     * Visits the IDs of the transactions in a time range, oldest first.
+     *
+     * @param walletId the wallet whose transactions to visit, or {@code null} for all
+     * @param from     the earliest timestamp to include, or {@code null} for no lower bound
+     * @param to       the timestamp to stop before, or {@code null} for no upper bound
+     * @param consumer receives each transaction ID
+     */
+    void forEachInRange(Long walletId, LocalDateTime from, LocalDateTime to, LongConsumer consumer) {
+        WalletEntries wallet = walletId == null ? all : entries.get(walletId);
+        if (wallet != null) {
+            wallet.forEachInRange(from, to, consumer);
+        }
+    }
+
+    /**
+     * Adds a transaction already stored to the entries of its wallets.
+     *
+     * @param transaction the transaction to add
+     */
+    void add(Transaction transaction) {
+        all.insert(transaction);
+        for (Long walletId : walletsOf(transaction)) {
+            entries.computeIfAbsent(walletId, id -> new WalletEntries()).insert(transaction);
+        }
+    }
+
+    /**
+     * Removes a transaction from the entries of its wallets.
+     *
+     * @param transaction the transaction as it was when added
+     */
+    void remove(Transaction transaction) {
+        all.remove(transaction);
+        for (Long walletId : walletsOf(transaction)) {
+            WalletEntries wallet = entries.get(walletId);
+            if (wallet != null) {
+                wallet.remove(transaction);
+            }
+        }
+    }
+
+    /**
+     * Removes many transactions at once, compacting each affected wallet's entries in a single
+     * pass instead of searching them once per transaction.
+     *
+     * @param transactions the transactions as they were when added
+     */
+    void removeAll(Collection<Transaction> transactions) {
+        Set<Long> ids = new HashSet<>(transactions.size() * 2);
+        Set<Long> wallets = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getId());
+            wallets.addAll(Arrays.asList(walletsOf(transaction)));
+        }
+        all.removeAll(ids);
+        for (Long walletId : wallets) {
+            WalletEntries wallet = entries.get(walletId);
+            if (wallet != null) {
+                wallet.removeAll(ids);
+            }
+        }
+    }
+
+    /**
+     * Returns the timestamp of the oldest indexed transaction.
+     *
+     * @return the oldest timestamp, or {@code null} if the index is empty
+     */
+    LocalDateTime oldestTimestamp() {
+        OptionalLong oldest = all.first();
+        return oldest.isEmpty() ? null : timestampOf(oldest.getAsLong());
+    }
+
+    /**
+     * Discards the index and rebuilds it from the given transactions, which must all be present
+     * in the store.
+     *
+     * @param transactions every stored transaction
+     */
+    void rebuild(Collection<Transaction> transactions) {
+        entries.clear();
+        all.clear();
+        for (Transaction transaction : transactions) {
+            all.append(transaction.getId());
+            for (Long walletId : walletsOf(transaction)) {
+                entries.computeIfAbsent(walletId, id -> new WalletEntries()).append(transaction.getId());
+            }
+        }
+        all.sort();
+        entries.values().parallelStream().forEach(WalletEntries::sort);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static Long[] walletsOf(Transaction transaction) {
+        Long sender = transaction.getSenderWalletId();
+        Long receiver = transaction.getReceiverWalletId();
+        if (sender == null) {
+            return receiver == null ? new Long[0] : new Long[]{receiver};
+        }
+        return receiver == null || receiver.equals(sender) ? new Long[]{sender} : new Long[]{sender, receiver};
+    }
+
+    private LocalDateTime timestampOf(long transactionId) {
+        return Objects.requireNonNullElse(timestamps.apply(transactionId), LocalDateTime.MIN);
+    }
+
+    private int compare(long leftId, LocalDateTime leftTimestamp, long rightId) {
+        int byTime = leftTimestamp.compareTo(timestampOf(rightId));
+        return byTime != 0 ? byTime : Long.compare(leftId, rightId);
+    }
+
+    /**
+     * The transaction IDs of one wallet, or of all transactions, in timestamp order.
+     */
+    private final class WalletEntries {
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int size;
+
+        synchronized long[] copy() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        synchronized long[] page(LocalDateTime beforeTimestamp, long beforeId, LocalDateTime notBefore, int limit) {
+            // Find the first entry at or after the bound; the page starts just before it
+            int low = beforeTimestamp == null ? size : 0;
+            int high = size;
+            if (beforeTimestamp != null) {
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (compare(beforeId, beforeTimestamp, ids[middle]) > 0) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            }
+
+            long[] page = new long[Math.min(limit, low)];
+            int count = 0;
+            for (int i = low - 1; i >= 0 && count < page.length; i--) {
+                if (notBefore != null && timestampOf(ids[i]).isBefore(notBefore)) {
+                    break;
+                }
+                page[count++] = ids[i];
+            }
+            return count == page.length ? page : Arrays.copyOf(page, count);
+        }
+
+        synchronized void forEachInRange(LocalDateTime from, LocalDateTime to, LongConsumer consumer) {
+            // Find the first entry at or after from; every ID sorts after Long.MIN_VALUE
+            int low = 0;
+            int high = size;
+            if (from != null) {
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (compare(Long.MIN_VALUE, from, ids[middle]) > 0) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            }
+            for (int i = low; i < size; i++) {
+                if (to != null) {
+                    LocalDateTime timestamp = timestampOf(ids[i]);
+                    if (!timestamp.isBefore(to)) {
+                        return;
+                    }
+                    if (timestamp.equals(LocalDateTime.MIN)) {
+                        // Transactions without a timestamp are outside every time range
+                        continue;
+                    }
+                }
+                consumer.accept(ids[i]);
+            }
+        }
+
+        synchronized void clear() {
+            ids = new long[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        synchronized void append(long id) {
+            ensureCapacity();
+            ids[size++] = id;
+        }
+
+        /** Inserts a transaction at its position, searching backwards from the newest entry. */
+        synchronized void insert(Transaction transaction) {
+            long id = transaction.getId();
+            LocalDateTime timestamp = Objects.requireNonNullElse(transaction.getTimestamp(), LocalDateTime.MIN);
+            ensureCapacity();
+            int position = size;
+            while (position > 0 && compare(id, timestamp, ids[position - 1]) < 0) {
+                position--;
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        /**
+         * Removes a transaction, found by binary search on the key it was inserted with. The
+         * store may already hold a replacement with another timestamp, for this entry or for
+         * one whose replacement is still being indexed, so a search that misses falls back to
+         * scanning backwards from the newest entry.
+         */
+        synchronized void remove(Transaction transaction) {
+            long id = transaction.getId();
+            LocalDateTime timestamp = Objects.requireNonNullElse(transaction.getTimestamp(), LocalDateTime.MIN);
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ids[middle] == id) {
+                    removeAt(middle);
+                    return;
+                }
+                if (compare(id, timestamp, ids[middle]) > 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (int i = size - 1; i >= 0; i--) {
+                if (ids[i] == id) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        }
+
+        private void removeAt(int position) {
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+
+        synchronized void removeAll(Set<Long> removed) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.contains(ids[i])) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+        }
+
+        synchronized OptionalLong first() {
+            return size == 0 ? OptionalLong.empty() : OptionalLong.of(ids[0]);
+        }
+
+        /**
+         * Sorts entries appended in arbitrary order. IDs are assigned in creation order, so after
+         * sorting by ID the entries are nearly in timestamp order and an insertion sort finishes
+         * the job in close to linear time.
+         */
+        synchronized void sort() {
+            Arrays.sort(ids, 0, size);
+            for (int i = 1; i < size; i++) {
+                long id = ids[i];
+                LocalDateTime timestamp = timestampOf(id);
+                int position = i;
+                while (position > 0 && compare(id, timestamp, ids[position - 1]) < 0) {
+                    ids[position] = ids[position - 1];
+                    position--;
+                }
+                ids[position] = id;
+            }
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+        }
+    }
+}
@@ -3,7 +3,8 @@ package com.spring_project.digital_banking_system.service;
 import com.spring_project.digital_banking_system.model.Role;
 import com.spring_project.digital_banking_system.model.User;
 import com.spring_project.digital_banking_system.model.Wallet;
-import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.Storage;
+import com.spring_project.digital_banking_system.repository.UnitOfWork;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Value;
@@ -28,15 +29,15 @@ import java.util.Optional;
 @Service
 public class AuthService {
 
-    private final DataRepository dataRepository;
+    private final Storage storage;
     private final PasswordEncoder passwordEncoder;
 
     @Value("${app.admin.master-key:CHANGE_ME_IN_PRODUCTION}")
     private String masterSecretKey;
 
-    public AuthService(DataRepository dataRepository,
+    public AuthService(Storage storage,
                        PasswordEncoder passwordEncoder) {
-        this.dataRepository = dataRepository;
+        this.storage = storage;
         this.passwordEncoder = passwordEncoder;
     }
 
@@ -69,7 +70,7 @@ public class AuthService {
             throw new IllegalArgumentException("Password is required");
         }
 
-        if (dataRepository.findUserByUsername(username).isPresent()) {
+        if (storage.findUserByUsername(username).isPresent()) {
             throw new IllegalArgumentException("Username already exists");
         }
 
@@ -88,10 +89,10 @@ public class AuthService {
                 role
         );
 
-        dataRepository.saveUser(user);
-
+        // The user and their wallet are saved together, so no user is ever left without a wallet
+        UnitOfWork work = storage.newUnitOfWork().saveUser(user);
         Wallet wallet = new Wallet(user.getId());
-        dataRepository.saveWallet(wallet);
+        storage.commit(work.saveWallet(wallet));
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "User registered successfully");
@@ -113,7 +114,7 @@ public class AuthService {
         String username = request.get("username");
         String password = request.get("password");
 
-        Optional<User> userOpt = dataRepository.findUserByUsername(username);
+        Optional<User> userOpt = storage.findUserByUsername(username);
         if (userOpt.isEmpty()) {
             throw new IllegalArgumentException("Invalid username or password");
         }
@@ -138,7 +139,7 @@ public class AuthService {
                 );
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        Optional<Wallet> walletOpt = dataRepository.findWalletByUserId(user.getId());
+        Optional<Wallet> walletOpt = storage.findWalletByUserId(user.getId());
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Login successful");
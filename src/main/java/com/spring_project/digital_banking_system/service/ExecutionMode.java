@@ -0,0 +1,13 @@
+package com.spring_project.digital_banking_system.service;
+
+/**
+ * Selects how {@link WalletService} serializes balance mutations.
+ */
+public enum ExecutionMode {
+    /** Request threads apply mutations themselves under striped per-wallet locks. */
+    LOCKING,
+    /** Mutations are published to a ring buffer and applied by a single {@link LedgerEngine} thread. */
+    SINGLE_WRITER,
+    /** Request threads apply mutations without locks; stale wallet writes are detected by version and retried. */
+    OPTIMISTIC
+}
@@ -0,0 +1,207 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+import com.spring_project.digital_banking_system.repository.IdempotencyStore;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs mutations at most once per {@code Idempotency-Key}, so a client can safely retry a
+ * request whose response it never received.
+ *
+ * <p>Keys are scoped, by user or to the bank, and each is bound to a fingerprint of the
+ * operation and request body it was first used with. The first request with a key runs its
+ * mutation, which stages an {@link IdempotencyRecord} holding its response in the unit of work
+ * that commits its changes; the record thus becomes durable exactly when the changes do. A
+ * later request with the same key and body gets the stored response without running anything,
+ * and one with a different body is rejected. A request arriving while the first is still
+ * running waits for it and shares its outcome, so the mutation never runs twice even when the
+ * retry overtakes the original. A request that fails stores nothing and may be retried with
+ * the same key.</p>
+ */
+public class IdempotentRequests {
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter fingerprintWriter;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong mismatches = new AtomicLong();
+
+    /**
+     * @param store the store holding the records of committed requests
+     */
+    public IdempotentRequests(IdempotencyStore store) {
+        this.store = store;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.fingerprintWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    /**
+     * Runs a mutation unless a request with the same key has already run it, in which case its
+     * response is returned instead.
+     *
+     * @param scope        whose keys the key belongs to, such as a user ID
+     * @param key          the client's idempotency key, or {@code null} to simply run the mutation
+     * @param operation    the operation name, part of the request fingerprint
+     * @param request      the request body, part of the request fingerprint
+     * @param responseType the type a stored response is read back as
+     * @param mutation     the mutation; receives the record to stage with its changes through
+     *                     {@link #stage}, or {@code null} if the request has no key
+     * @param <T>          the type of the response
+     * @return the mutation's response, or the stored response of the earlier request
+     * @throws IllegalArgumentException if the key is blank or too long, or was used with a
+     *                                  different request
+     */
+    public <T> T run(String scope, String key, String operation, Object request, Class<T> responseType,
+                     Function<IdempotencyRecord, T> mutation) {
+        if (key == null) {
+            return mutation.apply(null);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        requests.incrementAndGet();
+        String scopedKey = scope + ":" + key;
+        String fingerprint = fingerprint(operation, request);
+
+        // Claim the key before looking it up: a record found afterwards was committed by a
+        // request that has since finished waiting for its journal commit, so it is durable
+        InFlight claim = new InFlight(fingerprint);
+        InFlight running = inFlight.putIfAbsent(scopedKey, claim);
+        if (running != null) {
+            checkFingerprint(running.fingerprint, fingerprint);
+            waits.incrementAndGet();
+            return responseType.cast(await(running.response));
+        }
+
+        try {
+            Optional<IdempotencyRecord> stored = store.findIdempotencyRecord(scopedKey);
+            T response;
+            if (stored.isPresent()) {
+                checkFingerprint(stored.get().getFingerprint(), fingerprint);
+                replays.incrementAndGet();
+                response = parse(stored.get().getResponse(), responseType);
+            } else {
+                response = mutation.apply(new IdempotencyRecord(scopedKey, fingerprint, LocalDateTime.now()));
+            }
+            claim.response.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            claim.response.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, claim);
+        }
+    }
+
+    /**
+     * Completes a request's record with its response, ready to be saved in the unit of work
+     * committing the request's changes.
+     *
+     * @param record   the record passed to the mutation
+     * @param response the response the mutation is about to return
+     * @return the record
+     */
+    public IdempotencyRecord stage(IdempotencyRecord record, Object response) {
+        try {
+            record.setResponse(objectMapper.writeValueAsString(response));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response: " + e.getMessage(), e);
+        }
+        return record;
+    }
+
+    /**
+     * Returns the number of keyed requests, how many were answered from a stored response or
+     * by waiting for the original, and how many reused a key for a different request.
+     *
+     * @return a map of statistic names to values
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("replays", replays.get());
+        stats.put("waits", waits.get());
+        stats.put("mismatches", mismatches.get());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            mismatches.incrementAndGet();
+            throw new IllegalArgumentException("Idempotency key was already used for a different request");
+        }
+    }
+
+    /** Hashes the operation and the request body, serialized with map keys in sorted order. */
+    private String fingerprint(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fingerprintWriter.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to fingerprint request: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T parse(String response, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(response, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read stored response: " + e.getMessage(), e);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A request holding its key while it runs, completed with its outcome.
+     */
+    private static final class InFlight {
+        final String fingerprint;
+        final CompletableFuture<Object> response = new CompletableFuture<>();
+
+        InFlight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
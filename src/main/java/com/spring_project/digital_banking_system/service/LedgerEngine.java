@@ -0,0 +1,264 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.spring_project.digital_banking_system.exception.StorageUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-writer pipeline that applies every balance mutation on one business-logic thread.
+ *
+ * <p>Request threads publish commands to a bounded ring buffer and block until their reply
+ * arrives. The pipeline has three stages:</p>
+ * <ol>
+ *   <li><b>Business logic</b> - the {@code ledger-engine} thread drains commands in batches
+ *       and applies them to the in-memory wallets one after another. Because it is the only
+ *       thread changing balances, no command ever waits for another. The storage still takes
+ *       its short per-wallet locks while indexing a change; they are uncontended unless a
+ *       write outside the engine touches the same wallet.</li>
+ *   <li><b>Journal</b> - each command hands its changes to the repository's group commit
+ *       writer without waiting, so the business thread moves straight on to the next command
+ *       while earlier ones are being written to disk.</li>
+ *   <li><b>Reply</b> - once a command's journal records are committed, the
+ *       {@code ledger-replies} thread completes the waiting request with its result or error.</li>
+ * </ol>
+ *
+ * <p>Replies are only sent after the journal commit, so a request is never acknowledged before
+ * its change is as durable as the configured durability mode promises.</p>
+ *
+ * <p>The engine fails closed: once a journal commit fails, the commands applied after it may
+ * have built on a change that was never persisted, so it stops applying commands. Every
+ * command still queued or published later fails without being applied, until a restart.</p>
+ */
+public class LedgerEngine implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerEngine.class);
+
+    private static final long IDLE_POLL_MS = 10;
+    private static final int MAX_DRAIN = 1024;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    /**
+     * A balance mutation run on the business-logic thread.
+     *
+     * @param <T> the type of the reply
+     */
+    @FunctionalInterface
+    public interface Command<T> {
+        /**
+         * Applies the mutation to the in-memory state.
+         *
+         * @param commits receives the journal commits the mutation started
+         * @return the reply for the caller
+         */
+        T apply(List<CompletableFuture<Void>> commits);
+    }
+
+    private final BlockingQueue<PendingCommand<?>> ring;
+    private final int ringSize;
+    private final Thread businessThread;
+    private final ExecutorService replyStage;
+    private volatile boolean running = true;
+    private volatile Throwable journalFailure;
+
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong failedCommands = new AtomicLong();
+    private final AtomicLong latencyNanosTotal = new AtomicLong();
+    private final AtomicLong latencyNanosMax = new AtomicLong();
+
+    public LedgerEngine(int ringSize) {
+        this.ringSize = Math.max(2, ringSize);
+        this.ring = new ArrayBlockingQueue<>(this.ringSize);
+        this.replyStage = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-replies");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.businessThread = new Thread(this::run, "ledger-engine");
+        this.businessThread.setDaemon(true);
+        this.businessThread.start();
+    }
+
+    /**
+     * Publishes a command and waits until it has been applied and journaled.
+     *
+     * @param command the mutation to apply
+     * @return the command's reply
+     * @throws RuntimeException the exception thrown by the command, or a journal failure
+     */
+    public <T> T execute(Command<T> command) {
+        if (!running) {
+            throw new StorageUnavailableException("Ledger engine has been shut down");
+        }
+        checkNotFailed();
+        PendingCommand<T> pending = new PendingCommand<>(command);
+        inFlight.incrementAndGet();
+        try {
+            ring.put(pending);
+        } catch (InterruptedException e) {
+            inFlight.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new StorageUnavailableException("Interrupted while publishing a command", e);
+        }
+
+        try {
+            return pending.reply.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the engine's counters for comparing it with the locking execution mode.
+     *
+     * @return a map of statistic names to values
+     */
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        long commandCount = commands.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ringSize", ringSize);
+        stats.put("pendingCommands", ring.size());
+        stats.put("inFlightCommands", inFlight.get());
+        stats.put("commands", commandCount);
+        stats.put("failedCommands", failedCommands.get());
+        stats.put("engineFailed", journalFailure != null);
+        stats.put("batches", batchCount);
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) commandCount / batchCount);
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("averageLatencyMicros", commandCount == 0 ? 0 : latencyNanosTotal.get() / commandCount / 1_000);
+        stats.put("maxLatencyMicros", latencyNanosMax.get() / 1_000);
+        return stats;
+    }
+
+    /**
+     * Applies every command still in the ring, waits for their replies and stops the engine.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            businessThread.join();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MS);
+            while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (inFlight.get() > 0) {
+            log.warn("Ledger engine stopped with {} commands awaiting a reply", inFlight.get());
+        }
+        replyStage.shutdown();
+    }
+
+    // ==================== BUSINESS LOGIC THREAD ====================
+
+    private void run() {
+        List<PendingCommand<?>> batch = new ArrayList<>(MAX_DRAIN);
+        while (running || !ring.isEmpty()) {
+            PendingCommand<?> first;
+            try {
+                first = ring.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            ring.drainTo(batch, MAX_DRAIN - 1);
+            batches.incrementAndGet();
+            largestBatch.accumulateAndGet(batch.size(), Math::max);
+            for (PendingCommand<?> pending : batch) {
+                apply(pending);
+            }
+            batch.clear();
+        }
+    }
+
+    private <T> void apply(PendingCommand<T> pending) {
+        List<CompletableFuture<Void>> commits = new ArrayList<>(4);
+        T result = null;
+        RuntimeException failure = null;
+        try {
+            checkNotFailed();
+            result = pending.command.apply(commits);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        T reply = result;
+        RuntimeException error = failure;
+        CompletableFuture<Void> committed = CompletableFuture.allOf(commits.toArray(new CompletableFuture[0]));
+        // Runs on the thread completing the commit, so no later command is applied once it is seen
+        committed.whenComplete((ignored, commitFailure) -> {
+            if (commitFailure != null && journalFailure == null) {
+                journalFailure = commitFailure instanceof CompletionException ? commitFailure.getCause() : commitFailure;
+                log.error("Journal commit failed, ledger engine refuses all further commands until restart: {}",
+                        journalFailure.getMessage());
+            }
+        });
+        committed.whenCompleteAsync((ignored, commitFailure) -> reply(pending, reply, error, commitFailure), replyStage);
+    }
+
+    private void checkNotFailed() {
+        Throwable cause = journalFailure;
+        if (cause != null) {
+            throw new StorageUnavailableException("Ledger engine stopped after a failed journal write; restart to recover", cause);
+        }
+    }
+
+    // ==================== REPLY STAGE ====================
+
+    private <T> void reply(PendingCommand<T> pending, T result, RuntimeException failure,
+                       Throwable commitFailure) {
+        long latency = System.nanoTime() - pending.publishedAt;
+        commands.incrementAndGet();
+        latencyNanosTotal.addAndGet(latency);
+        latencyNanosMax.accumulateAndGet(latency, Math::max);
+        inFlight.decrementAndGet();
+
+        if (commitFailure != null) {
+            failedCommands.incrementAndGet();
+            Throwable cause = commitFailure instanceof CompletionException ? commitFailure.getCause() : commitFailure;
+            log.error("Error writing to journal: {}", cause.getMessage());
+            pending.reply.completeExceptionally(new StorageUnavailableException("Failed to write to journal", cause));
+        } else if (failure != null) {
+            failedCommands.incrementAndGet();
+            pending.reply.completeExceptionally(failure);
+        } else {
+            pending.reply.complete(result);
+        }
+    }
+
+    private static final class PendingCommand<T> {
+        final Command<T> command;
+        final CompletableFuture<T> reply = new CompletableFuture<>();
+        final long publishedAt = System.nanoTime();
+
+        PendingCommand(Command<T> command) {
+            this.command = command;
+        }
+    }
+}
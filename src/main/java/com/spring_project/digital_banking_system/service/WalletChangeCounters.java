@@ -0,0 +1,55 @@
+package com.spring_project.digital_banking_system.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-wallet change counters, from which the entity tags of a wallet's balance and history
+ * are derived.
+ *
+ * <p>A wallet's counter is bumped after every mutation touching it has been applied, whether
+ * it succeeded or only recorded a failed transaction, so a tag read before the wallet's data
+ * never labels data older than the tag. A spurious bump only costs a client one full response;
+ * a missed one would let it keep stale data, so every mutation bumps. Counters start at zero
+ * for wallets not changed since startup, and each tag carries the time this table was created,
+ * so a tag issued before a restart never matches one issued after it.</p>
+ */
+public class WalletChangeCounters {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Records that a mutation has changed, or may have changed, the given wallets.
+     *
+     * @param walletIds the wallets the mutation touched
+     */
+    public void changed(Collection<Long> walletIds) {
+        for (Long walletId : walletIds) {
+            counters.computeIfAbsent(walletId, id -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the entity tag of a wallet's current state. It must be read before the data it
+     * labels.
+     *
+     * @param walletId the wallet
+     * @return the tag, unquoted
+     */
+    public String tag(Long walletId) {
+        AtomicLong counter = counters.get(walletId);
+        return epoch + "-" + walletId + "-" + (counter == null ? 0 : counter.get());
+    }
+
+    /**
+     * Returns the number of wallets changed since startup, each of which holds a counter.
+     *
+     * @return the number of counters
+     */
+    public int size() {
+        return counters.size();
+    }
+}
@@ -0,0 +1,277 @@
+package com.spring_project.digital_banking_system.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans wallet change events out to the clients subscribed to each wallet, such as
+ * Server-Sent Events streams.
+ *
+ * <p>Publishing never blocks: an event is offered to the bounded buffer of each subscriber of
+ * its wallet, and a subscriber with pending events is drained by a task on a virtual thread,
+ * one task per subscriber at a time, so events reach each subscriber in order. An idle
+ * subscriber holds no thread at all. A subscriber whose buffer overflows is too slow to keep
+ * up and is evicted: its sink is closed and it receives nothing more, so a slow client can
+ * neither stall the publishers nor make the server buffer without bound. Clients reconnect and
+ * resynchronize from the current state.</p>
+ *
+ * <p>A heartbeat is offered to every subscriber at a fixed interval. It keeps idle
+ * connections open through proxies and reveals, through a failed write, clients that have gone
+ * away without closing their connection.</p>
+ */
+public class WalletEvents implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletEvents.class);
+
+    private static final Event HEARTBEAT = new Event(null, null);
+
+    /**
+     * Where a subscriber's events are written, such as an SSE connection.
+     */
+    public interface Sink {
+        /**
+         * Writes an event; may block while the client is slow to read.
+         *
+         * @param name the event name, or {@code null} for a heartbeat carrying no data
+         * @param data the event data
+         * @throws IOException if the client can no longer be written to
+         */
+        void send(String name, Object data) throws IOException;
+
+        /**
+         * Ends the stream once the subscriber has been removed.
+         */
+        void close();
+    }
+
+    private final int bufferSize;
+    private final Map<Long, Set<Subscription>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService deliveries = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats;
+
+    private final AtomicLong subscriptions = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @param bufferSize        the number of undelivered events a subscriber may have before
+     *                          it is evicted
+     * @param heartbeatInterval the seconds between heartbeats, or 0 for none
+     */
+    public WalletEvents(int bufferSize, long heartbeatInterval) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-events-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (heartbeatInterval > 0) {
+            heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeatInterval, heartbeatInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Subscribes a sink to a wallet's events until the returned subscription is closed, the
+     * sink fails or the subscriber is evicted.
+     *
+     * @param walletId the wallet
+     * @param sink     where the events are written
+     * @return the subscription
+     */
+    public Subscription subscribe(Long walletId, Sink sink) {
+        Subscription subscription = new Subscription(walletId, sink);
+        // Added inside compute, so that it cannot join a set that the last subscriber leaving is removing
+        subscribers.compute(walletId, (id, wallet) -> {
+            Set<Subscription> joined = wallet == null ? ConcurrentHashMap.newKeySet() : wallet;
+            joined.add(subscription);
+            return joined;
+        });
+        subscriptions.incrementAndGet();
+        return subscription;
+    }
+
+    /**
+     * Tells whether anyone is subscribed to a wallet, so that events nobody would receive need
+     * not be built.
+     *
+     * @param walletId the wallet
+     * @return whether the wallet has subscribers
+     */
+    public boolean hasSubscribers(Long walletId) {
+        return subscribers.containsKey(walletId);
+    }
+
+    /**
+     * Offers an event to every subscriber of a wallet without waiting for it to be delivered.
+     *
+     * @param walletId the wallet the event concerns
+     * @param name     the event name
+     * @param data     the event data; it must not be changed afterwards
+     */
+    public void publish(Long walletId, String name, Object data) {
+        Set<Subscription> wallet = subscribers.get(walletId);
+        if (wallet == null) {
+            return;
+        }
+        published.incrementAndGet();
+        Event event = new Event(name, data);
+        for (Subscription subscription : wallet) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Returns the number of open subscriptions and how many events were published, delivered,
+     * and how many subscribers were evicted as too slow or dropped after a failed write.
+     *
+     * @return a map of statistic names to values
+     */
+    public Map<String, Object> getStats() {
+        long open = 0;
+        for (Set<Subscription> wallet : subscribers.values()) {
+            open += wallet.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", open);
+        stats.put("subscriptions", subscriptions.get());
+        stats.put("published", published.get());
+        stats.put("delivered", delivered.get());
+        stats.put("evicted", evicted.get());
+        stats.put("failed", failed.get());
+        stats.put("bufferSize", bufferSize);
+        return stats;
+    }
+
+    /**
+     * Closes every subscription and stops the heartbeat and delivery threads.
+     */
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        subscribers.values().forEach(wallet -> wallet.forEach(Subscription::close));
+        deliveries.shutdown();
+    }
+
+    private void heartbeat() {
+        subscribers.values().forEach(wallet -> wallet.forEach(subscription -> subscription.offer(HEARTBEAT)));
+    }
+
+    private void remove(Subscription subscription) {
+        subscribers.computeIfPresent(subscription.walletId, (id, wallet) -> {
+            wallet.remove(subscription);
+            return wallet.isEmpty() ? null : wallet;
+        });
+    }
+
+    private record Event(String name, Object data) {
+    }
+
+    /**
+     * One subscriber's buffer and delivery state.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Long walletId;
+        private final Sink sink;
+        // Linked, so that an idle subscriber holds no preallocated buffer
+        private final BlockingQueue<Event> buffer = new LinkedBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(Long walletId, Sink sink) {
+            this.walletId = walletId;
+            this.sink = sink;
+        }
+
+        /**
+         * Offers an event to this subscriber only, such as the state it starts from.
+         *
+         * @param name the event name
+         * @param data the event data; it must not be changed afterwards
+         */
+        public void push(String name, Object data) {
+            offer(new Event(name, data));
+        }
+
+        /**
+         * Unsubscribes and closes the sink. Closing twice has no effect.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                remove(this);
+                buffer.clear();
+                // A sink may wait for a write in progress before closing, and a publisher
+                // evicting a slow subscriber must not wait for it
+                try {
+                    deliveries.execute(this::closeSink);
+                } catch (RejectedExecutionException e) {
+                    closeSink();
+                }
+            }
+        }
+
+        private void closeSink() {
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                log.debug("Error closing event sink: {}", e.getMessage());
+            }
+        }
+
+        private void offer(Event event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                evicted.incrementAndGet();
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    deliveries.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                Event event;
+                while (!closed.get() && (event = buffer.poll()) != null) {
+                    try {
+                        sink.send(event.name(), event.data());
+                        if (event != HEARTBEAT) {
+                            delivered.incrementAndGet();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        close();
+                        return;
+                    }
+                }
+                draining.set(false);
+                // An event offered after the last poll but before the flag was cleared found the
+                // flag set and left the draining to this task
+            } while (!closed.get() && !buffer.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+}
@@ -1,13 +1,44 @@
 package com.spring_project.digital_banking_system.service;
 
+import com.spring_project.digital_banking_system.dto.AmountRequest;
+import com.spring_project.digital_banking_system.dto.BalanceEvent;
+import com.spring_project.digital_banking_system.dto.BalanceResponse;
+import com.spring_project.digital_banking_system.dto.BankTransferResponse;
+import com.spring_project.digital_banking_system.dto.BatchTransferEntry;
+import com.spring_project.digital_banking_system.dto.BatchTransferResponse;
+import com.spring_project.digital_banking_system.dto.TransactionResponse;
+import com.spring_project.digital_banking_system.dto.TransferRequest;
+import com.spring_project.digital_banking_system.dto.TransferResponse;
+import com.spring_project.digital_banking_system.exception.ConcurrentUpdateException;
+import com.spring_project.digital_banking_system.exception.StorageUnavailableException;
 import com.spring_project.digital_banking_system.model.*;
-import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.Storage;
+import com.spring_project.digital_banking_system.repository.TransactionQuery;
+import com.spring_project.digital_banking_system.repository.TransactionRollups;
+import com.spring_project.digital_banking_system.repository.TransactionSearchResult;
+import com.spring_project.digital_banking_system.repository.UnitOfWork;
+import com.spring_project.digital_banking_system.repository.WalletLockTable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service layer for wallet operations including deposits, withdrawals, transfers,
@@ -15,51 +46,176 @@ import java.util.Map;
  *
  * <p>Also handles admin-specific operations such as viewing all users/transactions
  * and performing bank-initiated transfers.</p>
+ *
+ * <p>Every balance change is a read-modify-write that must not interleave with another change
+ * to the same wallet. How that is guaranteed depends on the {@link ExecutionMode}:</p>
+ * <ul>
+ *   <li>{@code LOCKING} - the request thread applies the change under the wallet's stripe in a
+ *       {@link WalletLockTable}, re-reading the wallet after the lock is taken, so operations
+ *       on unrelated wallets proceed in parallel.</li>
+ *   <li>{@code SINGLE_WRITER} - the change is published to the {@link LedgerEngine} and
+ *       applied on its single business-logic thread, which never waits for another change.</li>
+ *   <li>{@code OPTIMISTIC} - the request thread applies the change without locks. Wallet saves
+ *       are compare-and-set on the wallet version, so a change based on a stale read is
+ *       rejected and transparently retried, up to {@code app.wallet.max-retries} times.</li>
+ * </ul>
+ * <p>A batch transfer is one such change covering every wallet it touches, saved as a single
+ * unit of work. In every mode the journal commit is awaited only after the change has been
+ * applied, so no lock or engine thread is held up by disk writes. Conflicts and retries are
+ * counted per operation and reported with the storage statistics.</p>
+ *
+ * <p>Every mutation accepts an optional idempotency key. A request repeating a key gets the
+ * response of the first request with it instead of running again; see
+ * {@link IdempotentRequests}. Users' keys are scoped to the user, bank transfers' keys to the
+ * bank.</p>
+ *
+ * <p>Every mutation bumps the {@link WalletChangeCounters change counters} of the wallets it
+ * touched once it has been applied, so a wallet's balance and history can be tagged and an
+ * unchanged one need not be read again.</p>
+ *
+ * <p>Once a mutation's changes are durable, each wallet it touched gets a {@code balance} event
+ * with its new balance and a {@code transaction} event per transaction recorded, delivered by
+ * {@link WalletEvents} to the wallet's subscribers. Nothing is built for wallets nobody is
+ * subscribed to.</p>
  */
 @Service
 public class WalletService {
 
-    private final DataRepository dataRepository;
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_ROLLUP_BUCKETS = 10_000;
+    static final int MAX_BATCH_SIZE = 10_000;
+    static final String BANK_SCOPE = "bank";
 
-    public WalletService(DataRepository dataRepository) {
-        this.dataRepository = dataRepository;
+    private final Storage storage;
+    private final ExecutionMode executionMode;
+    private final WalletLockTable walletLocks;
+    private final LedgerEngine ledgerEngine;
+    private final IdempotentRequests idempotentRequests;
+    private final WalletChangeCounters walletChanges = new WalletChangeCounters();
+    private final WalletEvents walletEvents;
+    private final int maxRetries;
+    private final Map<String, OperationStats> operationStats = new LinkedHashMap<>();
+
+    public WalletService(Storage storage,
+                         @Value("${app.wallet.execution-mode:LOCKING}") ExecutionMode executionMode,
+                         @Value("${app.wallet.lock-stripes:1024}") int lockStripes,
+                         @Value("${app.wallet.ring-size:8192}") int ringSize,
+                         @Value("${app.wallet.max-retries:16}") int maxRetries,
+                         @Value("${app.wallet.events.buffer-size:256}") int eventBufferSize,
+                         @Value("${app.wallet.events.heartbeat-seconds:15}") int eventHeartbeatSeconds) {
+        this.storage = storage;
+        this.executionMode = executionMode;
+        this.walletLocks = new WalletLockTable(lockStripes);
+        this.ledgerEngine = executionMode == ExecutionMode.SINGLE_WRITER ? new LedgerEngine(ringSize) : null;
+        this.idempotentRequests = new IdempotentRequests(storage);
+        this.walletEvents = new WalletEvents(eventBufferSize, eventHeartbeatSeconds);
+        this.maxRetries = Math.max(0, maxRetries);
+        for (String operation : List.of("deposit", "withdraw", "transfer", "transferBatch",
+                "bankTransfer", "bankTransferBatch")) {
+            operationStats.put(operation, new OperationStats());
+        }
     }
 
     /**
-     * Retrieves the current balance and wallet code for a user's wallet.
+     * Stops the ledger engine, if running, after the commands already published have completed,
+     * then ends every event stream.
+     */
+    @PreDestroy
+    public void close() {
+        if (ledgerEngine != null) {
+            ledgerEngine.close();
+        }
+        walletEvents.close();
+    }
+
+    /**
+     * Retrieves the balance and wallet code for a user's wallet, either now or at a point in
+     * time. A past balance is computed from the wallet's transaction history, starting at the
+     * nearest running-balance checkpoint kept by the storage, so its cost does not grow with the
+     * length of the history.
      *
      * @param userId the ID of the wallet owner
-     * @return a map containing {@code walletCode} and {@code balance}
+     * @param asOf   the point in time (ISO-8601, inclusive), or {@code null} for the current balance
+     * @return the wallet code and balance, and {@code asOf} if given
+     * @throws IllegalArgumentException if {@code asOf} is not a valid timestamp
      * @throws RuntimeException if no wallet is found for the user
      */
-    public Map<String, Object> getBalance(Long userId) {
-        Wallet wallet = dataRepository.findWalletByUserId(userId)
+    public BalanceResponse getBalance(Long userId, String asOf) {
+        LocalDateTime time = parseTimestamp(asOf, "asOf");
+        Wallet wallet = storage.findWalletByUserId(userId)
                 .orElseThrow(() -> new RuntimeException("Wallet not found for user"));
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("walletCode", wallet.getWalletCode());
-        response.put("balance", wallet.getBalance());
-        return response;
+        if (time == null) {
+            return new BalanceResponse(wallet.getWalletCode(), wallet.getBalance(), null);
+        }
+        return new BalanceResponse(wallet.getWalletCode(), storage.findBalanceAt(wallet.getId(), time), time);
+    }
+
+    /**
+     * Returns the entity tag of a user's wallet, which changes whenever a mutation touches the
+     * wallet. Callers must read it before the balance or history it labels, so that a mutation
+     * landing in between changes the tag rather than going unnoticed.
+     *
+     * @param userId the ID of the wallet owner
+     * @return the tag, unquoted
+     * @throws RuntimeException if no wallet is found for the user
+     */
+    public String getWalletTag(Long userId) {
+        Long walletId = storage.findWalletByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found for user"))
+                .getId();
+        return walletChanges.tag(walletId);
+    }
+
+    /**
+     * Subscribes to the events of a user's wallet. The first event is the wallet's current
+     * balance, read after subscribing so that no later change is missed; a change committed
+     * meanwhile may be delivered before it, but with a higher version.
+     *
+     * @param userId the ID of the wallet owner
+     * @param sink   where the events are written
+     * @return the subscription, to be closed when the client goes away
+     * @throws RuntimeException if no wallet is found for the user
+     */
+    public WalletEvents.Subscription subscribe(Long userId, WalletEvents.Sink sink) {
+        Long walletId = storage.findWalletByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found for user"))
+                .getId();
+        WalletEvents.Subscription subscription = walletEvents.subscribe(walletId, sink);
+        Wallet wallet = currentWallet(walletId);
+        subscription.push("balance", new BalanceEvent(wallet.getWalletCode(), wallet.getBalance(), wallet.getVersion()));
+        return subscription;
     }
 
     /**
      * Deposits funds into the authenticated user's wallet.
      *
      * @param userId the ID of the wallet owner
-     * @param request a map containing the {@code amount} to deposit (must be greater than zero)
-     * @return a map containing success message, new balance, and transaction ID
-     * @throws IllegalArgumentException if the amount is null, zero, or negative
+     * @param request the validated amount to deposit
+     * @param idempotencyKey the client's key for retrying the request safely, or {@code null}
+     * @return the success message, new balance, and transaction ID
+     * @throws IllegalArgumentException if the idempotency key was used for a different request
      * @throws RuntimeException if no wallet is found for the user
      */
-    public Map<String, Object> deposit(Long userId, Map<String, Object> request) {
-        Wallet wallet = dataRepository.findWalletByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Wallet not found for user"));
+    public TransactionResponse deposit(Long userId, AmountRequest request, String idempotencyKey) {
+        Long walletId = storage.findWalletByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found for user"))
+                .getId();
 
-        BigDecimal amount = parseAndValidateAmount(request.get("amount"));
+        BigDecimal amount = request.amount();
+
+        return idempotentRequests.run(userId.toString(), idempotencyKey, "deposit", request, TransactionResponse.class,
+                idempotency -> execute("deposit", walletId, null,
+                        commits -> applyDeposit(walletId, amount, idempotency, commits)));
+    }
+
+    private TransactionResponse applyDeposit(Long walletId, BigDecimal amount, IdempotencyRecord idempotency,
+                                             List<CompletableFuture<Void>> commits) {
+        Wallet wallet = currentWallet(walletId);
 
         BigDecimal newBalance = wallet.getBalance().add(amount);
         wallet.setBalance(newBalance);
-        dataRepository.saveWallet(wallet);
 
         Transaction transaction = new Transaction(
                 null,
@@ -68,12 +224,12 @@ public class WalletService {
                 TransactionType.DEPOSIT,
                 TransactionStatus.SUCCESS
         );
-        dataRepository.saveTransaction(transaction);
+        UnitOfWork work = storage.newUnitOfWork()
+                .saveWallet(wallet)
+                .saveTransaction(transaction);
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("message", "Deposit successful");
-        response.put("newBalance", newBalance);
-        response.put("transactionId", transaction.getId());
+        TransactionResponse response = new TransactionResponse("Deposit successful", newBalance, transaction.getId());
+        commits.add(commit(work, idempotency, response));
         return response;
     }
 
@@ -81,16 +237,27 @@ public class WalletService {
      * Withdraws funds from the authenticated user's wallet.
      *
      * @param userId the ID of the wallet owner
-     * @param request a map containing the {@code amount} to withdraw (must be greater than zero)
-     * @return a map containing success message, new balance, and transaction ID
-     * @throws IllegalArgumentException if the amount is null, zero, or negative
+     * @param request the validated amount to withdraw
+     * @param idempotencyKey the client's key for retrying the request safely, or {@code null}
+     * @return the success message, new balance, and transaction ID
+     * @throws IllegalArgumentException if the idempotency key was used for a different request
      * @throws RuntimeException if no wallet is found or if the balance is insufficient
      */
-    public Map<String, Object> withdraw(Long userId, Map<String, Object> request) {
-        Wallet wallet = dataRepository.findWalletByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Wallet not found for user"));
+    public TransactionResponse withdraw(Long userId, AmountRequest request, String idempotencyKey) {
+        Long walletId = storage.findWalletByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found for user"))
+                .getId();
+
+        BigDecimal amount = request.amount();
+
+        return idempotentRequests.run(userId.toString(), idempotencyKey, "withdraw", request, TransactionResponse.class,
+                idempotency -> execute("withdraw", walletId, null,
+                        commits -> applyWithdrawal(walletId, amount, idempotency, commits)));
+    }
 
-        BigDecimal amount = parseAndValidateAmount(request.get("amount"));
+    private TransactionResponse applyWithdrawal(Long walletId, BigDecimal amount, IdempotencyRecord idempotency,
+                                                List<CompletableFuture<Void>> commits) {
+        Wallet wallet = currentWallet(walletId);
 
         if (wallet.getBalance().compareTo(amount) < 0) {
             Transaction failedTransaction = new Transaction(
@@ -100,13 +267,13 @@ public class WalletService {
                     TransactionType.WITHDRAWAL,
                     TransactionStatus.FAILED
             );
-            dataRepository.saveTransaction(failedTransaction);
+            commits.add(publishWhenDurable(storage.saveTransactionAsync(failedTransaction), List.of(),
+                    List.of(failedTransaction)));
             throw new RuntimeException("Insufficient balance");
         }
 
         BigDecimal newBalance = wallet.getBalance().subtract(amount);
         wallet.setBalance(newBalance);
-        dataRepository.saveWallet(wallet);
 
         Transaction transaction = new Transaction(
                 wallet.getId(),
@@ -115,12 +282,12 @@ public class WalletService {
                 TransactionType.WITHDRAWAL,
                 TransactionStatus.SUCCESS
         );
-        dataRepository.saveTransaction(transaction);
+        UnitOfWork work = storage.newUnitOfWork()
+                .saveWallet(wallet)
+                .saveTransaction(transaction);
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("message", "Withdrawal successful");
-        response.put("newBalance", newBalance);
-        response.put("transactionId", transaction.getId());
+        TransactionResponse response = new TransactionResponse("Withdrawal successful", newBalance, transaction.getId());
+        commits.add(commit(work, idempotency, response));
         return response;
     }
 
@@ -128,24 +295,37 @@ public class WalletService {
      * Transfers funds from the authenticated user's wallet to another wallet.
      *
      * @param userId the ID of the sender
-     * @param request a map containing {@code targetWalletCode} and {@code amount}
-     * @return a map containing success message, new balance, transaction ID, and recipient wallet code
-     * @throws IllegalArgumentException if the amount is invalid or the user tries to transfer to their own wallet
+     * @param request the validated target wallet code and amount
+     * @param idempotencyKey the client's key for retrying the request safely, or {@code null}
+     * @return the success message, new balance, transaction ID, and recipient wallet code
+     * @throws IllegalArgumentException if the user tries to transfer to their own wallet or the
+     *                                  idempotency key was used for a different request
      * @throws RuntimeException if either wallet is not found or if the balance is insufficient
      */
-    public Map<String, Object> transfer(Long userId, Map<String, Object> request) {
-        Wallet senderWallet = dataRepository.findWalletByUserId(userId)
-                .orElseThrow(() -> new RuntimeException("Sender wallet not found"));
+    public TransferResponse transfer(Long userId, TransferRequest request, String idempotencyKey) {
+        Long senderWalletId = storage.findWalletByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Sender wallet not found"))
+                .getId();
 
-        String targetWalletCode = request.get("targetWalletCode").toString();
-        Wallet receiverWallet = dataRepository.findWalletByWalletCode(targetWalletCode)
-                .orElseThrow(() -> new RuntimeException("Target wallet not found"));
+        Long receiverWalletId = storage.findWalletByWalletCode(request.targetWalletCode())
+                .orElseThrow(() -> new RuntimeException("Target wallet not found"))
+                .getId();
 
-        if (senderWallet.getId().equals(receiverWallet.getId())) {
+        if (senderWalletId.equals(receiverWalletId)) {
             throw new IllegalArgumentException("Cannot transfer to your own wallet");
         }
 
-        BigDecimal amount = parseAndValidateAmount(request.get("amount"));
+        BigDecimal amount = request.amount();
+
+        return idempotentRequests.run(userId.toString(), idempotencyKey, "transfer", request, TransferResponse.class,
+                idempotency -> execute("transfer", senderWalletId, receiverWalletId,
+                        commits -> applyTransfer(senderWalletId, receiverWalletId, amount, idempotency, commits)));
+    }
+
+    private TransferResponse applyTransfer(Long senderWalletId, Long receiverWalletId, BigDecimal amount,
+                                              IdempotencyRecord idempotency, List<CompletableFuture<Void>> commits) {
+        Wallet senderWallet = currentWallet(senderWalletId);
+        Wallet receiverWallet = currentWallet(receiverWalletId);
 
         if (senderWallet.getBalance().compareTo(amount) < 0) {
             Transaction failedTransaction = new Transaction(
@@ -155,7 +335,8 @@ public class WalletService {
                     TransactionType.TRANSFER,
                     TransactionStatus.FAILED
             );
-            dataRepository.saveTransaction(failedTransaction);
+            commits.add(publishWhenDurable(storage.saveTransactionAsync(failedTransaction), List.of(),
+                    List.of(failedTransaction)));
             throw new RuntimeException("Insufficient balance");
         }
 
@@ -165,9 +346,6 @@ public class WalletService {
         senderWallet.setBalance(senderNewBalance);
         receiverWallet.setBalance(receiverNewBalance);
 
-        dataRepository.saveWallet(senderWallet);
-        dataRepository.saveWallet(receiverWallet);
-
         Transaction transaction = new Transaction(
                 senderWallet.getId(),
                 receiverWallet.getId(),
@@ -175,39 +353,210 @@ public class WalletService {
                 TransactionType.TRANSFER,
                 TransactionStatus.SUCCESS
         );
-        dataRepository.saveTransaction(transaction);
+        UnitOfWork work = storage.newUnitOfWork()
+                .saveWallet(senderWallet)
+                .saveWallet(receiverWallet)
+                .saveTransaction(transaction);
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("message", "Transfer successful");
-        response.put("newBalance", senderNewBalance);
-        response.put("transactionId", transaction.getId());
-        response.put("recipientWalletCode", receiverWallet.getWalletCode());
+        TransferResponse response = new TransferResponse("Transfer successful", senderNewBalance, transaction.getId(),
+                receiverWallet.getWalletCode());
+        commits.add(commit(work, idempotency, response));
         return response;
     }
 
     /**
-     * Retrieves the transaction history for a user's wallet, ordered by timestamp descending.
+     * Transfers funds from the authenticated user's wallet to many wallets at once, such as a
+     * payroll run. Every entry is validated before anything is locked; the valid ones are then
+     * applied in order under a single lock cycle and saved as one unit of work, so the whole
+     * batch costs one journal commit. An entry the balance no longer covers when its turn comes
+     * is recorded as a failed transfer, as a single transfer would be, and later entries still run.
+     *
+     * @param userId         the ID of the sender
+     * @param entries        the transfers, as sent
+     * @param idempotencyKey the client's key for retrying the request safely, or {@code null}
+     * @return the numbers of {@code succeeded} and {@code failed} entries, the {@code newBalance}
+     *         and one result per entry, in request order, with its {@code status}
+     *         ({@code SUCCESS}, {@code FAILED} or {@code REJECTED}) and {@code transactionId} or
+     *         {@code error}
+     * @throws IllegalArgumentException if the batch is empty or has more than {@value #MAX_BATCH_SIZE} entries,
+     *                                  or the idempotency key was used for a different request
+     * @throws RuntimeException if no wallet is found for the user
+     */
+    public BatchTransferResponse transferBatch(Long userId, List<BatchTransferEntry> entries, String idempotencyKey) {
+        Long senderWalletId = storage.findWalletByUserId(userId)
+                .orElseThrow(() -> new RuntimeException("Sender wallet not found"))
+                .getId();
+
+        List<BatchEntry> batch = validateBatch(entries, senderWalletId);
+        Collection<Long> walletIds = walletsOf(batch);
+        walletIds.add(senderWalletId);
+
+        return idempotentRequests.run(userId.toString(), idempotencyKey, "transferBatch", entries,
+                BatchTransferResponse.class, idempotency -> execute("transferBatch", walletIds,
+                        commits -> applyTransferBatch(senderWalletId, batch, idempotency, commits)));
+    }
+
+    private BatchTransferResponse applyTransferBatch(Long senderWalletId, List<BatchEntry> batch,
+                                                   IdempotencyRecord idempotency, List<CompletableFuture<Void>> commits) {
+        Wallet senderWallet = currentWallet(senderWalletId);
+        Map<Long, Wallet> receiverWallets = new HashMap<>();
+        // Only wallets whose balance changed are saved, so receivers of failed entries keep their version
+        Map<Long, Wallet> changed = new LinkedHashMap<>();
+        UnitOfWork work = storage.newUnitOfWork();
+        List<BatchTransferResponse.Result> results = new ArrayList<>(batch.size());
+        int succeeded = 0;
+        int staged = 0;
+
+        for (BatchEntry entry : batch) {
+            if (entry.error() != null) {
+                results.add(entry.result("REJECTED", null, entry.error()));
+                continue;
+            }
+            Wallet receiverWallet = receiverWallets.computeIfAbsent(entry.walletId(), this::currentWallet);
+            boolean covered = senderWallet.getBalance().compareTo(entry.amount()) >= 0;
+            if (covered) {
+                senderWallet.setBalance(senderWallet.getBalance().subtract(entry.amount()));
+                receiverWallet.setBalance(receiverWallet.getBalance().add(entry.amount()));
+                changed.put(senderWallet.getId(), senderWallet);
+                changed.put(receiverWallet.getId(), receiverWallet);
+                succeeded++;
+            }
+
+            Transaction transaction = new Transaction(
+                    senderWallet.getId(),
+                    receiverWallet.getId(),
+                    entry.amount(),
+                    TransactionType.TRANSFER,
+                    covered ? TransactionStatus.SUCCESS : TransactionStatus.FAILED
+            );
+            work.saveTransaction(transaction);
+            staged++;
+            results.add(covered
+                    ? entry.result("SUCCESS", transaction.getId(), null)
+                    : entry.result("FAILED", transaction.getId(), "Insufficient balance"));
+        }
+
+        changed.values().forEach(work::saveWallet);
+        BatchTransferResponse response = new BatchTransferResponse("Batch transfer processed", succeeded,
+                results.size() - succeeded, senderWallet.getBalance(), results);
+        if (staged > 0 || idempotency != null) {
+            commits.add(commit(work, idempotency, response));
+        }
+        return response;
+    }
+
+    /**
+     * Retrieves one page of the transaction history for a user's wallet, ordered by timestamp
+     * descending.
      *
      * @param userId the ID of the wallet owner
-     * @return a list of transactions involving the user's wallet
+     * @param limit  the page size, {@value #DEFAULT_PAGE_SIZE} if {@code null}, at most {@value #MAX_PAGE_SIZE}
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param from   the earliest timestamp to include (ISO-8601), or {@code null}
+     * @param to     the timestamp to stop before (ISO-8601, exclusive), or {@code null}
+     * @return a map containing the page's {@code transactions} and the {@code nextCursor}
+     *         ({@code null} on the last page)
+     * @throws IllegalArgumentException if the limit, cursor or time bounds are invalid
      * @throws RuntimeException if no wallet is found for the user
      */
-    public List<Transaction> getHistory(Long userId) {
-        Wallet wallet = dataRepository.findWalletByUserId(userId)
+    public Map<String, Object> getHistory(Long userId, Integer limit, String cursor, String from, String to) {
+        Wallet wallet = storage.findWalletByUserId(userId)
                 .orElseThrow(() -> new RuntimeException("Wallet not found for user"));
 
-        return dataRepository.findTransactionsByWalletId(wallet.getId());
+        return findPage(wallet.getId(), limit, cursor, from, to);
     }
 
     // ==================== ADMIN OPERATIONS ====================
 
     /**
-     * Retrieves all transactions in the system. Requires ADMIN role.
+     * Retrieves one page of all transactions in the system, ordered by timestamp descending.
+     * Requires ADMIN role.
      *
-     * @return a list of all transactions
+     * @param limit  the page size, {@value #DEFAULT_PAGE_SIZE} if {@code null}, at most {@value #MAX_PAGE_SIZE}
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param from   the earliest timestamp to include (ISO-8601), or {@code null}
+     * @param to     the timestamp to stop before (ISO-8601, exclusive), or {@code null}
+     * @return a map containing the page's {@code transactions} and the {@code nextCursor}
+     *         ({@code null} on the last page)
+     * @throws IllegalArgumentException if the limit, cursor or time bounds are invalid
      */
-    public List<Transaction> getAllTransactions() {
-        return dataRepository.findAllTransactions();
+    public Map<String, Object> getAllTransactions(Integer limit, String cursor, String from, String to) {
+        return findPage(null, limit, cursor, from, to);
+    }
+
+    /**
+     * Searches all transactions in the system, highest ID first. Every filter is optional and
+     * the filters are combined. Requires ADMIN role.
+     *
+     * @param type      the transaction type, or {@code null}
+     * @param status    the transaction status, or {@code null}
+     * @param walletId  the wallet that sent or received the transaction, or {@code null}
+     * @param minAmount the smallest amount to include, or {@code null}
+     * @param maxAmount the largest amount to include, or {@code null}
+     * @param from      the earliest timestamp to include (ISO-8601), or {@code null}
+     * @param to        the timestamp to stop before (ISO-8601, exclusive), or {@code null}
+     * @param limit     the page size, {@value #DEFAULT_PAGE_SIZE} if {@code null}, at most {@value #MAX_PAGE_SIZE}
+     * @param cursor    the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @return a map containing the page's {@code transactions}, the {@code total} number of
+     *         matches across all pages and the {@code nextCursor} ({@code null} on the last page)
+     * @throws IllegalArgumentException if a filter, the limit or the cursor is invalid
+     */
+    public Map<String, Object> searchTransactions(String type, String status, Long walletId, String minAmount,
+                                                  String maxAmount, String from, String to, Integer limit,
+                                                  String cursor) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        TransactionQuery query = new TransactionQuery();
+        query.setType(parseEnum(TransactionType.class, type, "type"));
+        query.setStatus(parseEnum(TransactionStatus.class, status, "status"));
+        query.setWalletId(walletId);
+        query.setMinAmount(parseDecimal(minAmount, "minAmount"));
+        query.setMaxAmount(parseDecimal(maxAmount, "maxAmount"));
+        if (query.getMinAmount() != null && query.getMaxAmount() != null
+                && query.getMinAmount().compareTo(query.getMaxAmount()) > 0) {
+            throw new IllegalArgumentException("'minAmount' must not be greater than 'maxAmount'");
+        }
+        query.setFrom(parseTimestamp(from, "from"));
+        query.setTo(parseTimestamp(to, "to"));
+
+        long beforeId = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : decodeIdCursor(cursor);
+        TransactionSearchResult result = storage.searchTransactions(query, beforeId, pageSize + 1);
+        List<Transaction> transactions = result.getTransactions();
+
+        String nextCursor = null;
+        if (transactions.size() > pageSize) {
+            transactions = transactions.subList(0, pageSize);
+            nextCursor = encodeIdCursor(transactions.get(pageSize - 1).getId());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("transactions", transactions);
+        response.put("total", result.getTotalMatches());
+        response.put("nextCursor", nextCursor);
+        return response;
+    }
+
+    /**
+     * Streams all transactions as NDJSON, one JSON object per line, from a consistent cut of
+     * the ledger. Requires ADMIN role.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing to the stream fails
+     */
+    public void exportTransactions(OutputStream out) throws IOException {
+        storage.exportTransactions(out);
+    }
+
+    /**
+     * Streams all registered users as NDJSON, one JSON object per line. Requires ADMIN role.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing to the stream fails
+     */
+    public void exportUsers(OutputStream out) throws IOException {
+        storage.exportUsers(out);
     }
 
     /**
@@ -216,28 +565,37 @@ public class WalletService {
      * @return a list of all users
      */
     public List<User> getAllUsers() {
-        return dataRepository.findAllUsers();
+        return storage.findAllUsers();
     }
 
     /**
      * Performs a bank-initiated transfer to a target wallet. Requires ADMIN role.
      * This operation adds funds without deducting from any user's wallet.
      *
-     * @param request a map containing {@code targetWalletCode} and {@code amount}
-     * @return a map containing success message, target wallet code, amount, new balance, and transaction ID
-     * @throws IllegalArgumentException if the amount is invalid
+     * @param request the validated target wallet code and amount
+     * @param idempotencyKey the client's key for retrying the request safely, or {@code null}
+     * @return the success message, target wallet code, amount, new balance, and transaction ID
+     * @throws IllegalArgumentException if the idempotency key was used for a different request
      * @throws RuntimeException if the target wallet is not found
      */
-    public Map<String, Object> bankTransfer(Map<String, Object> request) {
-        String targetWalletCode = request.get("targetWalletCode").toString();
-        BigDecimal amount = parseAndValidateAmount(request.get("amount"));
+    public BankTransferResponse bankTransfer(TransferRequest request, String idempotencyKey) {
+        BigDecimal amount = request.amount();
 
-        Wallet targetWallet = dataRepository.findWalletByWalletCode(targetWalletCode)
-                .orElseThrow(() -> new RuntimeException("Target wallet not found"));
+        Long targetWalletId = storage.findWalletByWalletCode(request.targetWalletCode())
+                .orElseThrow(() -> new RuntimeException("Target wallet not found"))
+                .getId();
+
+        return idempotentRequests.run(BANK_SCOPE, idempotencyKey, "bankTransfer", request, BankTransferResponse.class,
+                idempotency -> execute("bankTransfer", targetWalletId, null,
+                        commits -> applyBankTransfer(targetWalletId, amount, idempotency, commits)));
+    }
+
+    private BankTransferResponse applyBankTransfer(Long targetWalletId, BigDecimal amount, IdempotencyRecord idempotency,
+                                                  List<CompletableFuture<Void>> commits) {
+        Wallet targetWallet = currentWallet(targetWalletId);
 
         BigDecimal newBalance = targetWallet.getBalance().add(amount);
         targetWallet.setBalance(newBalance);
-        dataRepository.saveWallet(targetWallet);
 
         Transaction transaction = new Transaction(
                 null,
@@ -246,42 +604,493 @@ public class WalletService {
                 TransactionType.BANK_TRANSFER,
                 TransactionStatus.SUCCESS
         );
-        dataRepository.saveTransaction(transaction);
+        UnitOfWork work = storage.newUnitOfWork()
+                .saveWallet(targetWallet)
+                .saveTransaction(transaction);
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("message", "Bank transfer successful");
-        response.put("targetWalletCode", targetWalletCode);
-        response.put("amount", amount);
-        response.put("newBalance", newBalance);
-        response.put("transactionId", transaction.getId());
+        BankTransferResponse response = new BankTransferResponse("Bank transfer successful", targetWallet.getWalletCode(),
+                amount, newBalance, transaction.getId());
+        commits.add(commit(work, idempotency, response));
+        return response;
+    }
+
+    /**
+     * Performs many bank-initiated transfers at once, such as a merchant settlement. Requires
+     * ADMIN role. Every entry is validated first; the valid ones are applied under a single lock
+     * cycle and saved as one unit of work, so the whole batch costs one journal commit.
+     *
+     * @param entries        the transfers, as sent
+     * @param idempotencyKey the client's key for retrying the request safely, or {@code null}
+     * @return the numbers of {@code succeeded} and {@code failed} entries and one result per entry,
+     *         in request order, with its {@code status} ({@code SUCCESS} or {@code REJECTED}) and
+     *         {@code transactionId} or {@code error}
+     * @throws IllegalArgumentException if the batch is empty or has more than {@value #MAX_BATCH_SIZE} entries,
+     *                                  or the idempotency key was used for a different request
+     */
+    public BatchTransferResponse bankTransferBatch(List<BatchTransferEntry> entries, String idempotencyKey) {
+        List<BatchEntry> batch = validateBatch(entries, null);
+        Collection<Long> walletIds = walletsOf(batch);
+
+        return idempotentRequests.run(BANK_SCOPE, idempotencyKey, "bankTransferBatch", entries,
+                BatchTransferResponse.class, idempotency -> execute("bankTransferBatch", walletIds,
+                        commits -> applyBankTransferBatch(batch, idempotency, commits)));
+    }
+
+    private BatchTransferResponse applyBankTransferBatch(List<BatchEntry> batch, IdempotencyRecord idempotency,
+                                                       List<CompletableFuture<Void>> commits) {
+        Map<Long, Wallet> targetWallets = new LinkedHashMap<>();
+        UnitOfWork work = storage.newUnitOfWork();
+        List<BatchTransferResponse.Result> results = new ArrayList<>(batch.size());
+        int succeeded = 0;
+
+        for (BatchEntry entry : batch) {
+            if (entry.error() != null) {
+                results.add(entry.result("REJECTED", null, entry.error()));
+                continue;
+            }
+            Wallet targetWallet = targetWallets.computeIfAbsent(entry.walletId(), this::currentWallet);
+            targetWallet.setBalance(targetWallet.getBalance().add(entry.amount()));
+
+            Transaction transaction = new Transaction(
+                    null,
+                    targetWallet.getId(),
+                    entry.amount(),
+                    TransactionType.BANK_TRANSFER,
+                    TransactionStatus.SUCCESS
+            );
+            work.saveTransaction(transaction);
+            results.add(entry.result("SUCCESS", transaction.getId(), null));
+            succeeded++;
+        }
+
+        BatchTransferResponse response = new BatchTransferResponse("Bank transfer batch processed", succeeded,
+                results.size() - succeeded, null, results);
+        targetWallets.values().forEach(work::saveWallet);
+        // A batch whose every entry was rejected commits only its idempotency record, if any
+        if (succeeded > 0 || idempotency != null) {
+            commits.add(commit(work, idempotency, response));
+        }
         return response;
     }
 
+    /**
+     * Retrieves transaction counts and amount sums per type and status for each minute, hour or
+     * day of a time range. The rollups are maintained as transactions are saved, so the cost
+     * depends on the length of the range, not on the size of the ledger. Requires ADMIN role.
+     *
+     * @param resolution {@code MINUTE}, {@code HOUR} or {@code DAY}; {@code HOUR} if {@code null}
+     * @param from       the earliest time to include (ISO-8601), or {@code null} for the last
+     *                   hour, day or 30 days before {@code to}, depending on the resolution
+     * @param to         the time to stop before (ISO-8601, exclusive), or {@code null} for now
+     * @return a map containing the {@code resolution}, the {@code from} and {@code to} bounds and
+     *         the non-empty {@code buckets}, oldest first
+     * @throws IllegalArgumentException if a parameter is invalid or the range spans more than
+     *                                  {@value #MAX_ROLLUP_BUCKETS} buckets
+     */
+    public Map<String, Object> getTransactionStats(String resolution, String from, String to) {
+        TransactionRollups.Resolution bucketSize = parseEnum(TransactionRollups.Resolution.class, resolution, "resolution");
+        if (bucketSize == null) {
+            bucketSize = TransactionRollups.Resolution.HOUR;
+        }
+        LocalDateTime end = parseTimestamp(to, "to");
+        if (end == null) {
+            end = LocalDateTime.now();
+        }
+        LocalDateTime start = parseTimestamp(from, "from");
+        if (start == null) {
+            start = switch (bucketSize) {
+                case MINUTE -> end.minusHours(1);
+                case HOUR -> end.minusDays(1);
+                case DAY -> end.minusDays(30);
+            };
+        }
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        long buckets = bucketSize.unit().between(bucketSize.bucketOf(start), end);
+        if (buckets > MAX_ROLLUP_BUCKETS) {
+            throw new IllegalArgumentException("The range spans more than " + MAX_ROLLUP_BUCKETS + " "
+                    + bucketSize.name().toLowerCase() + " buckets; use a coarser resolution");
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("resolution", bucketSize);
+        response.put("from", start);
+        response.put("to", end);
+        response.put("buckets", storage.findRollups(bucketSize, start, end));
+        return response;
+    }
+
+    /**
+     * Retrieves storage statistics such as group commit batch sizes, commit latencies,
+     * snapshot state and startup time, together with the wallet execution mode, the
+     * idempotency key counters, the number of wallets changed since startup, the event stream
+     * counters and, in single-writer mode, the ledger engine's counters.
+     * Requires ADMIN role.
+     *
+     * @return a map of storage statistics
+     */
+    public Map<String, Object> getStorageStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(storage.getStorageStats());
+        stats.put("executionMode", executionMode);
+        if (ledgerEngine != null) {
+            stats.put("ledgerEngine", ledgerEngine.getStats());
+        }
+
+        Map<String, Object> contention = new LinkedHashMap<>();
+        operationStats.forEach((operation, counters) -> contention.put(operation, counters.toMap()));
+        stats.put("contention", contention);
+        stats.put("idempotency", idempotentRequests.getStats());
+        stats.put("changedWallets", walletChanges.size());
+        stats.put("events", walletEvents.getStats());
+        return stats;
+    }
+
     // ==================== HELPER METHODS ====================
 
     /**
-     * Parses and validates a monetary amount from the request payload.
+     * Runs a balance mutation according to the execution mode, retrying it if its wallet
+     * write was based on a stale read, and waits for its journal commits.
+     *
+     * @param operation     the operation name the contention counters are kept under
+     * @param walletId      the wallet the mutation changes
+     * @param otherWalletId the second wallet changed by a transfer, or {@code null}
+     * @param command       the mutation
+     * @return the mutation's response
+     * @throws ConcurrentUpdateException if the mutation still conflicts after the retry budget
+     */
+    private <T> T execute(String operation, Long walletId, Long otherWalletId, LedgerEngine.Command<T> command) {
+        return execute(operation, otherWalletId == null ? List.of(walletId) : List.of(walletId, otherWalletId), command);
+    }
+
+    private <T> T execute(String operation, Collection<Long> walletIds, LedgerEngine.Command<T> command) {
+        OperationStats counters = operationStats.get(operation);
+        counters.operations.incrementAndGet();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return executeOnce(walletIds, command);
+                } catch (ConcurrentUpdateException e) {
+                    counters.conflicts.incrementAndGet();
+                    if (attempt >= maxRetries) {
+                        counters.retriesExhausted.incrementAndGet();
+                        throw e;
+                    }
+                    counters.retries.incrementAndGet();
+                    Thread.yield();
+                }
+            }
+        } finally {
+            // Failed mutations may still have recorded a failed transaction in the history
+            walletChanges.changed(walletIds);
+        }
+    }
+
+    private <T> T executeOnce(Collection<Long> walletIds, LedgerEngine.Command<T> command) {
+        if (ledgerEngine != null) {
+            return ledgerEngine.execute(command);
+        }
+
+        List<CompletableFuture<Void>> commits = new ArrayList<>(4);
+        try {
+            if (executionMode == ExecutionMode.OPTIMISTIC) {
+                return command.apply(commits);
+            }
+            // A batch whose every entry was rejected touches no wallet
+            return walletIds.isEmpty()
+                    ? command.apply(commits)
+                    : walletLocks.withLocks(walletIds, () -> command.apply(commits));
+        } finally {
+            awaitCommits(commits);
+        }
+    }
+
+    /**
+     * Reads one page of transactions, newest first, using a keyset cursor: the cursor encodes
+     * the {@code (timestamp, id)} of the last transaction of the previous page, and the next
+     * page starts strictly after it. One extra transaction is fetched to tell whether another
+     * page follows.
+     *
+     * @param walletId the wallet whose history to page through, or {@code null} for all transactions
+     */
+    private Map<String, Object> findPage(Long walletId, Integer limit, String cursor, String from, String to) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        LocalDateTime notBefore = parseTimestamp(from, "from");
+        LocalDateTime beforeTimestamp = parseTimestamp(to, "to");
+        long beforeId = Long.MIN_VALUE;
+
+        if (cursor != null && !cursor.isBlank()) {
+            Transaction last = decodeCursor(cursor);
+            if (beforeTimestamp == null || last.getTimestamp().isBefore(beforeTimestamp)) {
+                beforeTimestamp = last.getTimestamp();
+                beforeId = last.getId();
+            }
+        }
+
+        List<Transaction> transactions = walletId == null
+                ? storage.findTransactions(beforeTimestamp, beforeId, notBefore, pageSize + 1)
+                : storage.findTransactionsByWalletId(walletId, beforeTimestamp, beforeId, notBefore, pageSize + 1);
+
+        String nextCursor = null;
+        if (transactions.size() > pageSize) {
+            transactions = transactions.subList(0, pageSize);
+            nextCursor = encodeCursor(transactions.get(pageSize - 1));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("transactions", transactions);
+        response.put("nextCursor", nextCursor);
+        return response;
+    }
+
+    private static String encodeCursor(Transaction transaction) {
+        String key = transaction.getTimestamp() + "," + transaction.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor into a transaction carrying only the timestamp and ID of the key.
+     */
+    private static Transaction decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.lastIndexOf(',');
+            Transaction last = new Transaction();
+            last.setTimestamp(LocalDateTime.parse(key.substring(0, separator)));
+            last.setId(Long.parseLong(key.substring(separator + 1)));
+            return last;
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String encodeIdCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeIdCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String name) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid '" + name + "': " + value);
+        }
+    }
+
+    private static BigDecimal parseDecimal(String value, String name) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid '" + name + "': " + value);
+        }
+    }
+
+    private static LocalDateTime parseTimestamp(String value, String name) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid '" + name + "' timestamp: " + value);
+        }
+    }
+
+    /**
+     * Commits a mutation's unit of work, together with the record of its response if the
+     * request carried an idempotency key.
      *
-     * @param amountObj the raw amount value from the request
-     * @return the validated {@link BigDecimal} amount
-     * @throws IllegalArgumentException if the amount is null, zero, or negative
+     * @param work        the mutation's staged saves
+     * @param idempotency the record passed to the mutation, or {@code null}
+     * @param response    the response the mutation returns
+     * @return a future that completes when the unit is durable
      */
-    private BigDecimal parseAndValidateAmount(Object amountObj) {
-        if (amountObj == null) {
-            throw new IllegalArgumentException("Amount is required");
+    private CompletableFuture<Void> commit(UnitOfWork work, IdempotencyRecord idempotency, Object response) {
+        if (idempotency != null) {
+            work.saveIdempotencyRecord(idempotentRequests.stage(idempotency, response));
         }
+        return publishWhenDurable(storage.commitAsync(work), work.wallets(), work.transactions());
+    }
 
-        BigDecimal amount;
+    /**
+     * Publishes the events of a commit once it is durable. The events are built right away,
+     * while the saved objects hold the committed state, but only for wallets with subscribers.
+     *
+     * @param commit       the commit
+     * @param wallets      the wallets it saved
+     * @param transactions the transactions it saved
+     * @return the commit
+     */
+    private CompletableFuture<Void> publishWhenDurable(CompletableFuture<Void> commit, List<Wallet> wallets,
+                                                       List<Transaction> transactions) {
+        List<Runnable> events = new ArrayList<>(0);
+        for (Wallet wallet : wallets) {
+            Long walletId = wallet.getId();
+            if (walletEvents.hasSubscribers(walletId)) {
+                BalanceEvent event = new BalanceEvent(wallet.getWalletCode(), wallet.getBalance(), wallet.getVersion());
+                events.add(() -> walletEvents.publish(walletId, "balance", event));
+            }
+        }
+        for (Transaction transaction : transactions) {
+            for (Long walletId : new Long[]{transaction.getSenderWalletId(), transaction.getReceiverWalletId()}) {
+                if (walletId != null && walletEvents.hasSubscribers(walletId)) {
+                    events.add(() -> walletEvents.publish(walletId, "transaction", transaction));
+                }
+            }
+        }
+        if (!events.isEmpty()) {
+            // A failed commit publishes nothing; its caller reports the failure
+            commit.thenRun(() -> events.forEach(Runnable::run));
+        }
+        return commit;
+    }
+
+    private void awaitCommits(List<CompletableFuture<Void>> commits) {
         try {
-            amount = new BigDecimal(amountObj.toString());
+            CompletableFuture.allOf(commits.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw new StorageUnavailableException("Failed to write to journal", e.getCause());
+        }
+    }
+
+    /**
+     * Reads a wallet at the start of a mutation: after its lock has been acquired, on the
+     * ledger engine thread, or afresh on every optimistic attempt. The returned version is
+     * the one the subsequent save is checked against.
+     *
+     * @param walletId the ID of the wallet
+     * @return the current state of the wallet
+     * @throws RuntimeException if the wallet no longer exists
+     */
+    private Wallet currentWallet(Long walletId) {
+        return storage.findWalletById(walletId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found"));
+    }
+
+    /**
+     * Checks every entry of a batch before anything is locked. An entry that is malformed, names
+     * an unknown wallet or the sender's own wallet is kept with its error, so it is reported in
+     * its place but never applied.
+     *
+     * @param entries        the entries of the request
+     * @param senderWalletId the wallet paying for the batch, or {@code null} for bank transfers
+     * @return the validated entries, in request order
+     * @throws IllegalArgumentException if the batch is empty or has more than {@value #MAX_BATCH_SIZE} entries
+     */
+    private List<BatchEntry> validateBatch(List<BatchTransferEntry> entries, Long senderWalletId) {
+        if (entries == null || entries.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one entry");
+        }
+        if (entries.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch must not contain more than " + MAX_BATCH_SIZE + " entries");
+        }
+
+        Map<String, Long> walletIdsByCode = new HashMap<>();
+        List<BatchEntry> batch = new ArrayList<>(entries.size());
+        for (int index = 0; index < entries.size(); index++) {
+            BatchTransferEntry entry = entries.get(index);
+            String targetWalletCode = entry == null ? null : entry.targetWalletCode();
+            BigDecimal amount = null;
+            String error = null;
+            try {
+                // Validated as a single transfer request would be when it is bound
+                amount = new TransferRequest(targetWalletCode, parseAmount(entry == null ? null : entry.amount()))
+                        .amount();
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+
+            Long walletId = null;
+            if (error == null) {
+                walletId = walletIdsByCode.computeIfAbsent(targetWalletCode, walletCode ->
+                        storage.findWalletByWalletCode(walletCode).map(Wallet::getId).orElse(null));
+                if (walletId == null) {
+                    error = "Target wallet not found";
+                } else if (walletId.equals(senderWalletId)) {
+                    error = "Cannot transfer to your own wallet";
+                }
+            }
+            batch.add(new BatchEntry(index, targetWalletCode, amount, error == null ? walletId : null, error));
+        }
+        return batch;
+    }
+
+    /** Returns the distinct wallets the valid entries of a batch credit, in first-use order. */
+    private static Collection<Long> walletsOf(List<BatchEntry> batch) {
+        Collection<Long> walletIds = new LinkedHashSet<>();
+        for (BatchEntry entry : batch) {
+            if (entry.error() == null) {
+                walletIds.add(entry.walletId());
+            }
+        }
+        return walletIds;
+    }
+
+    /**
+     * Parses the amount of a batch entry; its range is checked by {@link TransferRequest}.
+     *
+     * @param amount the amount as sent
+     * @return the amount, or {@code null} if missing
+     * @throws IllegalArgumentException if the amount is not a number
+     */
+    private static BigDecimal parseAmount(String amount) {
+        if (amount == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(amount);
         } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid amount format: " + amountObj);
+            throw new IllegalArgumentException("Invalid amount format: " + amount);
         }
+    }
+
+    /**
+     * One entry of a batch transfer after validation: either a wallet and amount to apply, or
+     * the error that rejected it.
+     */
+    private record BatchEntry(int index, String targetWalletCode, BigDecimal amount, Long walletId, String error) {
 
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Amount must be greater than zero");
+        BatchTransferResponse.Result result(String status, Long transactionId, String message) {
+            return new BatchTransferResponse.Result(index, targetWalletCode, amount, status, transactionId, message);
         }
+    }
 
-        return amount;
+    /**
+     * Contention counters for one balance operation.
+     */
+    private static final class OperationStats {
+        final AtomicLong operations = new AtomicLong();
+        final AtomicLong conflicts = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong retriesExhausted = new AtomicLong();
+
+        Map<String, Object> toMap() {
+            long operationCount = operations.get();
+            long conflictCount = conflicts.get();
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("operations", operationCount);
+            stats.put("conflicts", conflictCount);
+            stats.put("retries", retries.get());
+            stats.put("retriesExhausted", retriesExhausted.get());
+            stats.put("conflictRate", operationCount == 0 ? 0.0 : (double) conflictCount / operationCount);
+            return stats;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package com.spring_project.digital_banking_system.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring_project.digital_banking_system.dto.BalanceResponse;
+import com.spring_project.digital_banking_system.dto.BatchTransferEntry;
+import com.spring_project.digital_banking_system.dto.TransferRequest;
+import com.spring_project.digital_banking_system.dto.TransferResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request cost of the wallet endpoints' previous request and response handling,
+ * bodies bound into a {@code HashMap}, amounts re-parsed from their string form and replies
+ * built as another {@code HashMap}, with the typed records, on the balance and transfer paths.
+ * Each benchmark covers binding the body, validating it, building the response and serializing
+ * it to JSON; the storage work in between is left out, as it is the same for both. The batch
+ * benchmark binds a {@value #BATCH_SIZE}-entry batch and parses its amounts, as a list of maps
+ * or of {@link BatchTransferEntry} records; both build the same response, so it is left out.
+ *
+ * <p>Before measuring, the bytes allocated per request by the benchmark thread are counted over
+ * a fixed number of requests and printed.</p>
+ *
+ * <p>Run with {@code ./mvnw -Pbenchmark verify -DskipTests -Dbenchmark.include=RequestBindingBenchmark}.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBindingBenchmark {
+
+    private static final int ALLOCATION_SAMPLES = 100_000;
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+    private static final byte[] TRANSFER_BODY = "{\"targetWalletCode\":\"WAL-4F2A9C1B\",\"amount\":125.50}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final int BATCH_SIZE = 100;
+    private static final TypeReference<List<Map<String, Object>>> MAP_LIST_TYPE = new TypeReference<>() {
+    };
+    private static final TypeReference<List<BatchTransferEntry>> ENTRY_LIST_TYPE = new TypeReference<>() {
+    };
+    private static final byte[] BATCH_BODY = batchBody();
+    private static final String WALLET_CODE = "WAL-7D3E0A55";
+    private static final BigDecimal BALANCE = new BigDecimal("10432.75");
+
+    /** How request and response bodies are represented. */
+    public enum Binding { MAPS, RECORDS }
+
+    @Param({"MAPS", "RECORDS"})
+    public Binding binding;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private long transactionId;
+
+    @Setup(Level.Trial)
+    public void countAllocations() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < ALLOCATION_SAMPLES; i++) {
+            balance();
+            transfer();
+        }
+        for (int i = 0; i < ALLOCATION_SAMPLES / BATCH_SIZE; i++) {
+            transferBatch();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ALLOCATION_SAMPLES; i++) {
+            balance();
+        }
+        long afterBalance = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ALLOCATION_SAMPLES; i++) {
+            transfer();
+        }
+        long afterTransfer = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ALLOCATION_SAMPLES / BATCH_SIZE; i++) {
+            transferBatch();
+        }
+        long afterBatch = threads.getCurrentThreadAllocatedBytes();
+        System.out.printf("%n%s: %d bytes allocated per balance request, %d per transfer request, %d per batch request%n",
+                binding, (afterBalance - before) / ALLOCATION_SAMPLES, (afterTransfer - afterBalance) / ALLOCATION_SAMPLES,
+                (afterBatch - afterTransfer) / (ALLOCATION_SAMPLES / BATCH_SIZE));
+    }
+
+    @Benchmark
+    public byte[] balance() throws IOException {
+        if (binding == Binding.MAPS) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("walletCode", WALLET_CODE);
+            response.put("balance", BALANCE);
+            return objectMapper.writeValueAsBytes(response);
+        }
+        return objectMapper.writeValueAsBytes(new BalanceResponse(WALLET_CODE, BALANCE, null));
+    }
+
+    @Benchmark
+    public byte[] transfer() throws IOException {
+        if (binding == Binding.MAPS) {
+            Map<String, Object> request = objectMapper.readValue(TRANSFER_BODY, MAP_TYPE);
+            String targetWalletCode = request.get("targetWalletCode").toString();
+            BigDecimal amount = new BigDecimal(request.get("amount").toString());
+            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+                throw new IllegalArgumentException("Amount must be greater than zero");
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Transfer successful");
+            response.put("newBalance", BALANCE.subtract(amount));
+            response.put("transactionId", ++transactionId);
+            response.put("recipientWalletCode", targetWalletCode);
+            return objectMapper.writeValueAsBytes(response);
+        }
+        TransferRequest request = objectMapper.readValue(TRANSFER_BODY, TransferRequest.class);
+        return objectMapper.writeValueAsBytes(new TransferResponse("Transfer successful",
+                BALANCE.subtract(request.amount()), ++transactionId, request.targetWalletCode()));
+    }
+
+    @Benchmark
+    public BigDecimal transferBatch() throws IOException {
+        BigDecimal total = BigDecimal.ZERO;
+        if (binding == Binding.MAPS) {
+            for (Map<String, Object> entry : objectMapper.readValue(BATCH_BODY, MAP_LIST_TYPE)) {
+                total = total.add(entryAmount(entry.get("targetWalletCode").toString(), entry.get("amount").toString()));
+            }
+            return total;
+        }
+        for (BatchTransferEntry entry : objectMapper.readValue(BATCH_BODY, ENTRY_LIST_TYPE)) {
+            total = total.add(entryAmount(entry.targetWalletCode(), entry.amount()));
+        }
+        return total;
+    }
+
+    private static BigDecimal entryAmount(String targetWalletCode, String amount) {
+        return new TransferRequest(targetWalletCode, new BigDecimal(amount)).amount();
+    }
+
+    private static byte[] batchBody() {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"targetWalletCode\":\"WAL-").append(String.format("%08X", i))
+                    .append("\",\"amount\":").append(100 + i).append(".25}");
+        }
+        return body.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
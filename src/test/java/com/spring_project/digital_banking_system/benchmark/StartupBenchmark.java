@@ -0,0 +1,166 @@
+package com.spring_project.digital_banking_system.benchmark;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.JournalRecord;
+import com.spring_project.digital_banking_system.repository.LedgerJournal;
+import com.spring_project.digital_banking_system.repository.SnapshotStore;
+import com.spring_project.digital_banking_system.repository.StorageFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long {@link DataRepository} takes to start from a snapshot of
+ * {@code transactions} transactions plus a journal tail of {@code journalTail} records, with
+ * the snapshot in each {@link StorageFormat}.
+ *
+ * <p>Run with {@code ./mvnw -Pbenchmark verify -DskipTests -Dbenchmark.include=StartupBenchmark}.
+ * Generating the 10M-transaction data set needs a few GB of disk and heap.</p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final int WALLETS = 100_000;
+
+    @Param({"1000000", "10000000"})
+    public long transactions;
+
+    @Param({"10000"})
+    public int journalTail;
+
+    @Param({"JSON", "BINARY"})
+    public StorageFormat format;
+
+    private Path dataDir;
+    private DataRepository repository;
+
+    @Setup(Level.Trial)
+    public void generateData() throws IOException {
+        dataDir = Files.createTempDirectory("startup-benchmark");
+
+        List<User> users = new ArrayList<>(WALLETS);
+        List<Wallet> wallets = new ArrayList<>(WALLETS);
+        for (long id = 1; id <= WALLETS; id++) {
+            User user = new User("user" + id, "user" + id + "@example.com", "$2a$10$benchmark", Role.USER);
+            user.setId(id);
+            users.add(user);
+
+            Wallet wallet = new Wallet(id);
+            wallet.setId(id);
+            wallet.setBalance(BigDecimal.valueOf(1_000_000));
+            wallets.add(wallet);
+        }
+
+        new SnapshotStore(dataDir.toFile(), format).write(1, users, wallets, new GeneratedTransactions(1, transactions));
+
+        try (LedgerJournal journal = new LedgerJournal(dataDir.toFile())) {
+            journal.open(1);
+            for (Transaction transaction : new GeneratedTransactions(transactions + 1, journalTail)) {
+                journal.write(journal.encode(JournalRecord.put(transaction)));
+            }
+        }
+    }
+
+    @Benchmark
+    public DataRepository startup() {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.toString());
+        properties.setSnapshotIntervalMs(TimeUnit.HOURS.toMillis(1));
+        properties.setSnapshotFormat(format);
+        repository = new DataRepository(properties);
+        return repository;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeRepository() {
+        if (repository != null) {
+            repository.close();
+            repository = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException {
+        try (Stream<Path> paths = Files.walk(dataDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Produces transactions on the fly so the data set never has to be held in memory.
+     */
+    private static final class GeneratedTransactions extends AbstractCollection<Transaction> {
+        private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+        private final long firstId;
+        private final long count;
+
+        GeneratedTransactions(long firstId, long count) {
+            this.firstId = firstId;
+            this.count = count;
+        }
+
+        @Override
+        public Iterator<Transaction> iterator() {
+            return new Iterator<>() {
+                private long next = firstId;
+
+                @Override
+                public boolean hasNext() {
+                    return next < firstId + count;
+                }
+
+                @Override
+                public Transaction next() {
+                    long id = next++;
+                    Transaction transaction = new Transaction(id % WALLETS + 1, (id * 31) % WALLETS + 1,
+                            BigDecimal.valueOf(id % 10_000, 2), TransactionType.TRANSFER, TransactionStatus.SUCCESS);
+                    transaction.setId(id);
+                    transaction.setTimestamp(START.plusSeconds(id));
+                    return transaction;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, count);
+        }
+    }
+}
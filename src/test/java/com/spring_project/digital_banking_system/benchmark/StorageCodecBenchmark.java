@@ -0,0 +1,89 @@
+package com.spring_project.digital_banking_system.benchmark;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.repository.StorageCodec;
+import com.spring_project.digital_banking_system.repository.StorageFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares how fast each {@link StorageFormat} encodes and decodes snapshot transaction
+ * records, in records per second, and prints the encoded size per record.
+ *
+ * <p>Run with {@code ./mvnw -Pbenchmark verify -DskipTests -Dbenchmark.include=StorageCodecBenchmark}.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageCodecBenchmark {
+
+    private static final int RECORDS = 100_000;
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Param({"JSON", "BINARY"})
+    public StorageFormat format;
+
+    private StorageCodec codec;
+    private List<Transaction> transactions;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void encodeRecords() throws IOException {
+        codec = format.newCodec();
+        transactions = new ArrayList<>(RECORDS);
+        for (long id = 1; id <= RECORDS; id++) {
+            Transaction transaction = new Transaction(id % 1000 + 1, (id * 31) % 1000 + 1,
+                    BigDecimal.valueOf(id % 100_000, 2), TransactionType.TRANSFER, TransactionStatus.SUCCESS);
+            transaction.setId(id);
+            transaction.setTimestamp(START.plusSeconds(id).plusNanos(id * 1_000));
+            transactions.add(transaction);
+        }
+        encoded = encode();
+        System.out.printf("%n%s: %d bytes for %d transactions (%.1f bytes each)%n",
+                format, encoded.length, RECORDS, (double) encoded.length / RECORDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public byte[] write() throws IOException {
+        return encode();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void read(Blackhole blackhole) throws IOException {
+        codec.read(new ByteArrayInputStream(encoded), Transaction.class, blackhole::consume);
+    }
+
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded == null ? 1 << 20 : encoded.length);
+        codec.write(out, Transaction.class, transactions.iterator(), Long.MAX_VALUE);
+        return out.toByteArray();
+    }
+}
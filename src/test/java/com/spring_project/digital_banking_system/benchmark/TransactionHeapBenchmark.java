@@ -0,0 +1,101 @@
+package com.spring_project.digital_banking_system.benchmark;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.repository.TransactionColumns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Compares the heap used per resident transaction by the previous layout, a
+ * {@code ConcurrentHashMap} of {@link Transaction} objects, with {@link TransactionColumns},
+ * and how fast each serves a lookup by ID.
+ *
+ * <p>The heap in use is measured after repeated full collections before and after the store
+ * is filled, and the difference is printed as bytes per transaction.</p>
+ *
+ * <p>Run with {@code ./mvnw -Pbenchmark verify -DskipTests -Dbenchmark.include=TransactionHeapBenchmark}.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class TransactionHeapBenchmark {
+
+    private static final int WALLETS = 100_000;
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    /** How transactions are held in memory. */
+    public enum Layout { OBJECTS, COLUMNS }
+
+    @Param({"1000000"})
+    public int transactions;
+
+    @Param({"OBJECTS", "COLUMNS"})
+    public Layout layout;
+
+    private LongFunction<Transaction> lookup;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        long before = usedHeap();
+        if (layout == Layout.OBJECTS) {
+            Map<Long, Transaction> byId = new ConcurrentHashMap<>();
+            for (long id = 1; id <= transactions; id++) {
+                byId.put(id, transaction(id));
+            }
+            lookup = byId::get;
+        } else {
+            TransactionColumns columns = new TransactionColumns();
+            for (long id = 1; id <= transactions; id++) {
+                columns.put(transaction(id));
+            }
+            lookup = columns::get;
+        }
+        long used = usedHeap() - before;
+        System.out.printf("%n%s: %d bytes of heap for %d transactions (%.1f bytes each)%n",
+                layout, used, transactions, (double) used / transactions);
+    }
+
+    @Benchmark
+    public Transaction lookupById() {
+        return lookup.apply(ThreadLocalRandom.current().nextLong(1, transactions + 1L));
+    }
+
+    private static Transaction transaction(long id) {
+        Transaction transaction = new Transaction(id % WALLETS + 1, (id * 31) % WALLETS + 1,
+                BigDecimal.valueOf(id % 100_000, 2), TransactionType.TRANSFER, TransactionStatus.SUCCESS);
+        transaction.setId(id);
+        transaction.setTimestamp(START.plusSeconds(id).plusNanos(id * 1_000));
+        return transaction;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
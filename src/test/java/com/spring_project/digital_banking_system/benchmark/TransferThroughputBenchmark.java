@@ -0,0 +1,116 @@
+package com.spring_project.digital_banking_system.benchmark;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.dto.TransferRequest;
+import com.spring_project.digital_banking_system.dto.TransferResponse;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.DurabilityMode;
+import com.spring_project.digital_banking_system.repository.SqlStorage;
+import com.spring_project.digital_banking_system.repository.Storage;
+import com.spring_project.digital_banking_system.repository.StorageBackend;
+import com.spring_project.digital_banking_system.service.ExecutionMode;
+import com.spring_project.digital_banking_system.service.WalletService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares transfer throughput of the {@link ExecutionMode execution modes} and
+ * {@link StorageBackend storage backends}, with many request threads moving small amounts
+ * between random wallets. The durability setting only affects the {@code FILE} backend.
+ *
+ * <p>Run with {@code ./mvnw -Pbenchmark verify -DskipTests -Dbenchmark.include=TransferThroughputBenchmark}.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class TransferThroughputBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"LOCKING", "SINGLE_WRITER", "OPTIMISTIC"})
+    public ExecutionMode mode;
+
+    @Param({"FILE", "SQL"})
+    public StorageBackend backend;
+
+    @Param({"FSYNC_PER_BATCH", "OS_BUFFERED"})
+    public DurabilityMode durability;
+
+    /** Fewer wallets means more transfers touching the same wallet at once. */
+    @Param({"10", "1000"})
+    public int wallets;
+
+    private Path dataDir;
+    private Storage repository;
+    private WalletService walletService;
+    private Long[] userIds;
+    private String[] walletCodes;
+
+    @Setup(Level.Trial)
+    public void createWallets() throws IOException {
+        dataDir = Files.createTempDirectory("transfer-benchmark");
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.toString());
+        properties.setDurability(durability);
+        properties.setSnapshotIntervalMs(TimeUnit.HOURS.toMillis(1));
+        repository = backend == StorageBackend.SQL ? new SqlStorage(properties) : new DataRepository(properties);
+        walletService = new WalletService(repository, mode, 1024, 8192, 16, 256, 0);
+
+        userIds = new Long[wallets];
+        walletCodes = new String[wallets];
+        for (int i = 0; i < wallets; i++) {
+            User user = repository.saveUser(new User("user" + i, "user" + i + "@example.com", "$2a$10$benchmark", Role.USER));
+            Wallet wallet = new Wallet(user.getId());
+            wallet.setBalance(BigDecimal.valueOf(1_000_000_000));
+            repository.saveWallet(wallet);
+            userIds[i] = user.getId();
+            walletCodes[i] = wallet.getWalletCode();
+        }
+    }
+
+    @Benchmark
+    public TransferResponse transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(wallets);
+        int to = (from + 1 + random.nextInt(wallets - 1)) % wallets;
+        return walletService.transfer(userIds[from], new TransferRequest(walletCodes[to], AMOUNT), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException {
+        walletService.close();
+        repository.close();
+        try (Stream<Path> paths = Files.walk(dataDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.spring_project.digital_banking_system.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.repository.Storage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The NDJSON exports of {@code /api/admin}, read back through the whole stack and compared with
+ * the stored records.
+ */
+@SpringBootTest(properties = {
+        "app.storage.durability=OS_BUFFERED",
+        "app.admin.master-key=" + AdminControllerTests.MASTER_KEY})
+class AdminControllerTests {
+
+    static final String MASTER_KEY = "admin-controller-tests";
+
+    @TempDir
+    static File dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("app.storage.data-dir", dataDir::getAbsolutePath);
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private Storage storage;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+    }
+
+    // ==================== EXPORTS ====================
+
+    @Test
+    void exportsHoldEveryStoredRecordOnALine() throws Exception {
+        MockHttpSession admin = login(register("exportadmin", "ADMIN"));
+        List<String> walletCodes = new ArrayList<>();
+        List<MockHttpSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String username = "exportuser" + i;
+            register(username, "USER");
+            sessions.add(login(username));
+            walletCodes.add(walletCode(sessions.get(i)));
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            mockMvc.perform(post("/api/wallet/deposit").session(sessions.get(i))
+                            .contentType(MediaType.APPLICATION_JSON).content("{\"amount\": 100.00}"))
+                    .andExpect(status().isOk());
+            mockMvc.perform(post("/api/wallet/transfer").session(sessions.get(i))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"targetWalletCode\": \"" + walletCodes.get((i + 1) % walletCodes.size())
+                                    + "\", \"amount\": 12.34}"))
+                    .andExpect(status().isOk());
+        }
+
+        List<Transaction> transactions = export(admin, "/api/admin/transactions/export", Transaction.class);
+        assertFalse(transactions.isEmpty());
+        assertSameRecords(storage.findAllTransactions(), transactions, Transaction::getId);
+
+        List<User> users = export(admin, "/api/admin/users/export", User.class);
+        assertSameRecords(storage.findAllUsers(), users, User::getId);
+    }
+
+    @Test
+    void exportsAreForAdminsOnly() throws Exception {
+        register("exportplain", "USER");
+        MockHttpSession user = login("exportplain");
+
+        for (String path : List.of("/api/admin/transactions/export", "/api/admin/users/export")) {
+            mockMvc.perform(get(path).session(user)).andExpect(status().isForbidden());
+            mockMvc.perform(get(path)).andExpect(status().isForbidden());
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private String register(String username, String role) throws Exception {
+        Map<String, String> request = role.equals("ADMIN")
+                ? Map.of("username", username, "email", username + "@example.com", "password", "secret123",
+                        "role", role, "masterSecretKey", MASTER_KEY)
+                : Map.of("username", username, "email", username + "@example.com", "password", "secret123");
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+        return username;
+    }
+
+    private MockHttpSession login(String username) throws Exception {
+        return (MockHttpSession) mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("username", username, "password", "secret123"))))
+                .andExpect(status().isOk())
+                .andReturn().getRequest().getSession();
+    }
+
+    private String walletCode(MockHttpSession session) throws Exception {
+        String body = mockMvc.perform(get("/api/wallet/balance").session(session))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("walletCode").asText();
+    }
+
+    /**
+     * Reads an export, checking that it is NDJSON with one record on every line.
+     */
+    private <T> List<T> export(MockHttpSession session, String path, Class<T> type) throws Exception {
+        String body = mockMvc.perform(get(path).session(session))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        List<T> records = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            assertTrue(objectMapper.readTree(line).isObject(), line);
+            records.add(objectMapper.readValue(line, type));
+        }
+        return records;
+    }
+
+    private <T> void assertSameRecords(List<T> stored, List<T> exported, Function<T, Long> id) throws Exception {
+        assertEquals(stored.size(), exported.size());
+        assertEquals(objectMapper.writeValueAsString(stored.stream().sorted(Comparator.comparing(id)).toList()),
+                objectMapper.writeValueAsString(exported.stream().sorted(Comparator.comparing(id)).toList()));
+    }
+}
@@ -0,0 +1,51 @@
+package com.spring_project.digital_banking_system.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The response tags of the balance and history, which must tell apart requests for different
+ * points in time or pages of the same wallet.
+ */
+class WalletControllerTests {
+
+    private static final String WALLET_TAG = "lq3x8k2a-42-17";
+
+    // ==================== TAGS ====================
+
+    @Test
+    void tagsWithoutQueryParametersAreTheWalletTag() {
+        assertEquals(WALLET_TAG, WalletController.tag(WALLET_TAG));
+        assertEquals(WALLET_TAG, WalletController.tag(WALLET_TAG, null, null, null, null));
+    }
+
+    @Test
+    void tagsDifferForEveryDifferentQuery() {
+        List<Object[]> queries = List.of(
+                new Object[]{"2025-06-01T00:00", null, null, null},
+                new Object[]{"2025-06-02T00:00", null, null, null},
+                new Object[]{null, "2025-06-01T00:00", null, null},
+                new Object[]{50, null, null, null},
+                new Object[]{50, "MTIzOjQ1", null, null},
+                new Object[]{"", null, null, null},
+                new Object[]{null, "", null, null},
+                new Object[]{"a", "b", null, null},
+                new Object[]{"ab", null, null, null},
+                new Object[]{"a", null, "b", null});
+
+        Set<String> tags = new HashSet<>();
+        for (Object[] query : queries) {
+            String tag = WalletController.tag(WALLET_TAG, query);
+            assertTrue(tag.startsWith(WALLET_TAG + "-"), tag);
+            assertEquals(tag, WalletController.tag(WALLET_TAG, query.clone()));
+            tags.add(tag);
+        }
+        assertEquals(queries.size(), tags.size());
+    }
+}
@@ -0,0 +1,205 @@
+package com.spring_project.digital_banking_system.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring_project.digital_banking_system.service.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The {@code /api/wallet/events} stream through the whole stack: who may open it, which events
+ * reach it, and the authentication of its async dispatch once it ends. Ending the streams shuts
+ * the wallet service down, so the context is not reused.
+ */
+@SpringBootTest(properties = {
+        "app.storage.durability=OS_BUFFERED",
+        "app.wallet.events.heartbeat-seconds=0"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class WalletEventStreamTests {
+
+    private static final long EVENT_TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    static File dataDir;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("app.storage.data-dir", dataDir::getAbsolutePath);
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private WalletService walletService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+    }
+
+    // ==================== EVENTS ====================
+
+    @Test
+    void streamsCarryTheirOwnersEventsUntilShutdown() throws Exception {
+        MockHttpSession alice = login(register("streamalice"));
+        MockHttpSession bob = login(register("streambob"));
+        String aliceWallet = walletCode(alice);
+        String bobWallet = walletCode(bob);
+
+        MvcResult aliceStream = open(alice);
+        // Naming another wallet does not subscribe to it: the stream is always the caller's own
+        MvcResult bobStream = mockMvc.perform(get("/api/wallet/events").param("walletCode", aliceWallet).session(bob))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitEvent(aliceStream, "balance", event -> event.get("balance").decimalValue().signum() == 0);
+        awaitEvent(bobStream, "balance", event -> event.get("balance").decimalValue().signum() == 0);
+
+        send(bob, "/api/wallet/deposit", Map.of("amount", "100.00"));
+        send(bob, "/api/wallet/transfer", Map.of("targetWalletCode", aliceWallet, "amount", "25.00"));
+        send(alice, "/api/wallet/deposit", Map.of("amount", "5.00"));
+
+        JsonNode received = awaitEvent(aliceStream, "balance",
+                event -> event.get("balance").decimalValue().compareTo(new BigDecimal("30.00")) == 0);
+        assertEquals(aliceWallet, received.get("walletCode").asText());
+        awaitEvent(aliceStream, "transaction", event -> event.get("amount").decimalValue().compareTo(new BigDecimal("25.00")) == 0);
+        awaitEvent(bobStream, "balance",
+                event -> event.get("balance").decimalValue().compareTo(new BigDecimal("75.00")) == 0);
+
+        for (JsonNode event : events(aliceStream, "balance")) {
+            assertEquals(aliceWallet, event.get("walletCode").asText());
+        }
+        for (JsonNode event : events(bobStream, "balance")) {
+            assertEquals(bobWallet, event.get("walletCode").asText());
+        }
+        // Alice's own deposit never reaches Bob
+        assertTrue(events(bobStream, "transaction").stream()
+                .noneMatch(event -> event.get("amount").decimalValue().compareTo(new BigDecimal("5.00")) == 0));
+
+        // Shutting down ends every stream, and the dispatch completing each must still be authenticated
+        walletService.close();
+        for (MvcResult stream : List.of(aliceStream, bobStream)) {
+            stream.getAsyncResult(EVENT_TIMEOUT_MILLIS);
+            mockMvc.perform(asyncDispatch(stream)).andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void unauthenticatedRequestsCannotOpenTheStream() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/wallet/events"))
+                .andExpect(status().isForbidden())
+                .andReturn();
+        assertFalse(result.getRequest().isAsyncStarted());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private String register(String username) throws Exception {
+        send(null, "/api/auth/register",
+                Map.of("username", username, "email", username + "@example.com", "password", "secret123"));
+        return username;
+    }
+
+    private MockHttpSession login(String username) throws Exception {
+        return (MockHttpSession) send(null, "/api/auth/login", Map.of("username", username, "password", "secret123"))
+                .getRequest().getSession();
+    }
+
+    private MvcResult send(MockHttpSession session, String path, Map<String, String> body) throws Exception {
+        MockHttpServletRequestBuilder request = post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body));
+        if (session != null) {
+            request.session(session);
+        }
+        return mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+    }
+
+    private String walletCode(MockHttpSession session) throws Exception {
+        String body = mockMvc.perform(get("/api/wallet/balance").session(session))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("walletCode").asText();
+    }
+
+    private MvcResult open(MockHttpSession session) throws Exception {
+        return mockMvc.perform(get("/api/wallet/events").session(session))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    /**
+     * Waits until the stream has carried an event of the given name matching the condition.
+     */
+    private JsonNode awaitEvent(MvcResult stream, String name, Predicate<JsonNode> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + EVENT_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            for (JsonNode event : events(stream, name)) {
+                if (condition.test(event)) {
+                    return event;
+                }
+            }
+            Thread.sleep(10);
+        }
+        return fail("No matching " + name + " event in: " + stream.getResponse().getContentAsString());
+    }
+
+    /**
+     * Parses the events of the given name the stream has carried so far, leaving out one still
+     * being written.
+     */
+    private List<JsonNode> events(MvcResult stream, String name) throws Exception {
+        String content = stream.getResponse().getContentAsString();
+        List<JsonNode> events = new ArrayList<>();
+        for (String block : content.substring(0, content.lastIndexOf("\n\n") + 1).split("\n\n")) {
+            String event = null;
+            StringBuilder data = new StringBuilder();
+            for (String line : block.split("\n")) {
+                if (line.startsWith("event:")) {
+                    event = line.substring("event:".length()).trim();
+                } else if (line.startsWith("data:")) {
+                    data.append(line.substring("data:".length()));
+                }
+            }
+            if (name.equals(event)) {
+                events.add(objectMapper.readTree(data.toString()));
+            }
+        }
+        return events;
+    }
+}
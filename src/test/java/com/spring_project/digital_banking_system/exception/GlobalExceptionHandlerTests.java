@@ -0,0 +1,37 @@
+package com.spring_project.digital_banking_system.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The status codes exceptions are reported with.
+ */
+class GlobalExceptionHandlerTests {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    void unavailableStorageIsAServerError() {
+        assertStatus(HttpStatus.SERVICE_UNAVAILABLE, new StorageUnavailableException("Storage writer has been shut down"));
+        assertStatus(HttpStatus.SERVICE_UNAVAILABLE, new StorageUnavailableException(
+                "Storage is read-only after a failed journal write; restart to recover", new RuntimeException()));
+    }
+
+    @Test
+    void invalidRequestsAreClientErrors() {
+        assertStatus(HttpStatus.BAD_REQUEST, new IllegalArgumentException("Amount must be greater than zero"));
+        assertStatus(HttpStatus.NOT_FOUND, new RuntimeException("Wallet not found"));
+        assertStatus(HttpStatus.INTERNAL_SERVER_ERROR, new RuntimeException("Database error"));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void assertStatus(HttpStatus expected, Exception exception) {
+        var response = handler.handleGlobalException(exception);
+        assertEquals(expected, response.getStatusCode());
+        assertEquals(expected.value(), response.getBody().get("status"));
+        assertEquals(exception.getMessage(), response.getBody().get("error"));
+    }
+}
@@ -0,0 +1,202 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Point-in-time balances from running-balance checkpoints, checked against a sum over every
+ * transaction, at times before, on and between the checkpoints.
+ */
+class BalanceCheckpointsTests {
+
+    private static final int INTERVAL = 4;
+    private static final long WALLET = 1;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    // ==================== QUERIES ====================
+
+    @Test
+    void balanceBeforeTheFirstTransactionIsZero() {
+        BalanceCheckpoints balances = new BalanceCheckpoints(INTERVAL);
+        assertEquals(BigDecimal.ZERO, balances.balanceAt(WALLET, START));
+
+        balances.add(deposit(1, "10.00", START));
+
+        assertEquals(BigDecimal.ZERO, balances.balanceAt(WALLET, START.minusNanos(1)));
+        assertEquals(BigDecimal.ZERO, balances.balanceAt(WALLET, LocalDateTime.MIN));
+        assertEquals(new BigDecimal("10.00"), balances.balanceAt(WALLET, START));
+        assertEquals(BigDecimal.ZERO, balances.balanceAt(WALLET + 1, START));
+    }
+
+    @Test
+    void balanceExactlyOnACheckpointIncludesTheTransactionsAtThatTime() {
+        BalanceCheckpoints balances = new BalanceCheckpoints(INTERVAL);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 3 * INTERVAL; i++) {
+            transactions.add(deposit(i + 1, "1.00", START.plusMinutes(i)));
+        }
+        transactions.forEach(balances::add);
+
+        // The entries at positions 4 and 8 start a checkpoint; the time of each is inclusive
+        for (int k = 1; k < 3; k++) {
+            LocalDateTime checkpoint = START.plusMinutes((long) k * INTERVAL);
+            assertEquals(new BigDecimal(k * INTERVAL + 1 + ".00"), balances.balanceAt(WALLET, checkpoint));
+            assertEquals(new BigDecimal(k * INTERVAL + ".00"), balances.balanceAt(WALLET, checkpoint.minusNanos(1)));
+        }
+        assertEquals(3L, balances.getStats().get("balanceCheckpoints"));
+        assertEquals(new BigDecimal("12.00"), balances.balanceAt(WALLET, LocalDateTime.MAX));
+    }
+
+    @Test
+    void transactionsSharingATimestampAreCountedTogether() {
+        BalanceCheckpoints balances = new BalanceCheckpoints(INTERVAL);
+        for (int i = 0; i < 2 * INTERVAL + 1; i++) {
+            balances.add(deposit(i + 1, "2.50", START));
+        }
+
+        assertEquals(BigDecimal.ZERO, balances.balanceAt(WALLET, START.minusNanos(1)));
+        assertEquals(new BigDecimal("22.50"), balances.balanceAt(WALLET, START));
+    }
+
+    @Test
+    void nonPositiveIntervalIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BalanceCheckpoints(0));
+    }
+
+    // ==================== CHANGES ====================
+
+    @Test
+    void outOfOrderInsertsRemovalsAndRebuildsMatchASum() {
+        Random random = new Random(5);
+        BalanceCheckpoints balances = new BalanceCheckpoints(INTERVAL);
+        List<Transaction> held = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Transaction transaction = randomTransaction(random, i + 1);
+            held.add(transaction);
+            balances.add(transaction);
+            if (random.nextInt(4) == 0) {
+                Transaction removed = held.remove(random.nextInt(held.size()));
+                balances.remove(removed);
+            }
+        }
+        assertMatchesSum(held, balances, random);
+
+        Collections.shuffle(held, random);
+        BalanceCheckpoints rebuilt = new BalanceCheckpoints(INTERVAL);
+        rebuilt.rebuild(held);
+        assertMatchesSum(held, rebuilt, random);
+    }
+
+    @Test
+    void replacedArchivedTransactionsAreCancelled() {
+        BalanceCheckpoints balances = new BalanceCheckpoints(INTERVAL);
+        Transaction archived = deposit(7, "40.00", START);
+        Transaction copy = deposit(7, "15.00", START.plusHours(1));
+
+        // The archive contributes 40.00 at START; the copy held here replaces it
+        balances.addReplaced(archived);
+        balances.add(copy);
+        BigDecimal archivedChange = new BigDecimal("40.00");
+        assertEquals(BigDecimal.ZERO.setScale(2), balances.balanceAt(WALLET, START).add(archivedChange));
+        assertEquals(new BigDecimal("15.00"), balances.balanceAt(WALLET, START.plusHours(1)).add(archivedChange));
+
+        balances.removeReplaced(archived);
+        balances.remove(copy);
+        assertEquals(BigDecimal.ZERO, balances.balanceAt(WALLET, LocalDateTime.MAX));
+    }
+
+    @Test
+    void onlySuccessfulTransactionsBetweenDifferentWalletsChangeBalances() {
+        Transaction failed = deposit(1, "5.00", START);
+        failed.setStatus(TransactionStatus.FAILED);
+        Transaction toItself = transfer(2, WALLET, WALLET, "5.00", START);
+        Transaction untimed = deposit(3, "5.00", null);
+
+        assertEquals(0, BalanceCheckpoints.netChanges(List.of(failed, toItself, untimed)).size());
+        assertEquals(new BigDecimal("-5.00"),
+                BalanceCheckpoints.changesOf(transfer(4, WALLET, 2L, "5.00", START)).get(WALLET));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Compares the balances of every wallet with a sum over the held transactions, at every
+     * transaction time, just before it, and at random times.
+     */
+    private static void assertMatchesSum(List<Transaction> held, BalanceCheckpoints balances, Random random) {
+        List<LocalDateTime> times = new ArrayList<>();
+        for (Transaction transaction : held) {
+            times.add(transaction.getTimestamp());
+            times.add(transaction.getTimestamp().minusNanos(1));
+        }
+        for (int i = 0; i < 50; i++) {
+            times.add(START.plusSeconds(random.nextInt(3 * 24 * 3600)));
+        }
+        for (long walletId = 1; walletId <= 3; walletId++) {
+            for (LocalDateTime time : times) {
+                assertEquals(0, sum(held, walletId, time).compareTo(balances.balanceAt(walletId, time)),
+                        "wallet " + walletId + " at " + time);
+            }
+        }
+    }
+
+    private static BigDecimal sum(List<Transaction> transactions, long walletId, LocalDateTime asOf) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Transaction transaction : transactions) {
+            if (!transaction.getTimestamp().isAfter(asOf)) {
+                sum = sum.add(BalanceCheckpoints.changesOf(transaction).getOrDefault(walletId, BigDecimal.ZERO));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * A transfer among wallets 1 to 3, or a deposit or withdrawal, at a random time over three
+     * days; a few share a minute.
+     */
+    private static Transaction randomTransaction(Random random, long id) {
+        LocalDateTime timestamp = START.plusMinutes(random.nextInt(3 * 24 * 60) / 30 * 30);
+        String amount = random.nextInt(1, 10_000) / 100 + "." + random.nextInt(10, 100);
+        long sender = random.nextInt(1, 4);
+        long receiver = random.nextInt(1, 4);
+        return switch (random.nextInt(3)) {
+            case 0 -> deposit(id, amount, timestamp);
+            case 1 -> {
+                Transaction withdrawal = new Transaction(sender, null, new BigDecimal(amount),
+                        TransactionType.WITHDRAWAL, TransactionStatus.SUCCESS);
+                withdrawal.setId(id);
+                withdrawal.setTimestamp(timestamp);
+                yield withdrawal;
+            }
+            default -> transfer(id, sender, receiver, amount, timestamp);
+        };
+    }
+
+    private static Transaction deposit(long id, String amount, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction(null, WALLET, new BigDecimal(amount), TransactionType.DEPOSIT,
+                TransactionStatus.SUCCESS);
+        transaction.setId(id);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    private static Transaction transfer(long id, long sender, long receiver, String amount, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction(sender, receiver, new BigDecimal(amount), TransactionType.TRANSFER,
+                TransactionStatus.SUCCESS);
+        transaction.setId(id);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
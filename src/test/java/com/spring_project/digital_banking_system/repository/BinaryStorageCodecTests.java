@@ -0,0 +1,229 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The binary snapshot codec, checked against the JSON codec on the same records, and against
+ * files that are truncated or corrupt.
+ */
+class BinaryStorageCodecTests {
+
+    private final BinaryStorageCodec binary = new BinaryStorageCodec();
+    private final JsonStorageCodec json = new JsonStorageCodec();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    // ==================== ROUND TRIPS ====================
+
+    @Test
+    void everyRecordTypeReadsBackAsTheJsonCodecReadsIt() throws IOException {
+        assertSameRoundTrip(User.class, users());
+        assertSameRoundTrip(Wallet.class, wallets());
+        assertSameRoundTrip(Transaction.class, transactions());
+        assertSameRoundTrip(IdempotencyRecord.class, idempotencyRecords());
+    }
+
+    @Test
+    void writeStopsAtTheLimit() throws IOException {
+        List<Transaction> transactions = transactions();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, binary.write(out, Transaction.class, transactions.iterator(), 2));
+
+        assertEquals(describe(transactions.subList(0, 2)), describe(read(out.toByteArray(), Transaction.class)));
+        assertEquals(0, binary.write(new ByteArrayOutputStream(), Transaction.class, List.<Transaction>of().iterator(),
+                Long.MAX_VALUE));
+    }
+
+    @Test
+    void unrepresentableValuesAreRejectedOnWrite() {
+        Transaction tooLarge = transaction(1L, new BigDecimal("99999999999999999999.00"), LocalDateTime.now());
+        Wallet longCode = new Wallet(1L);
+        longCode.setWalletCode("WAL-0123456789");
+
+        assertThrows(IllegalArgumentException.class, () -> write(Transaction.class, List.of(tooLarge)));
+        assertThrows(IllegalArgumentException.class, () -> write(Wallet.class, List.of(longCode)));
+        assertThrows(IllegalArgumentException.class, () -> write(String.class, List.of("record")));
+    }
+
+    // ==================== DAMAGED FILES ====================
+
+    @Test
+    void everyTruncationIsDetected() throws IOException {
+        byte[] file = write(Transaction.class, transactions());
+
+        for (int length = 0; length < file.length; length++) {
+            byte[] truncated = Arrays.copyOf(file, length);
+            IOException e = assertThrows(IOException.class, () -> read(truncated, Transaction.class),
+                    "truncated to " + length + " bytes");
+            assertTrue(e.getMessage().startsWith("Truncated") || e.getMessage().startsWith("Not a"), e.getMessage());
+        }
+    }
+
+    @Test
+    void wrongHeadersAreRejected() throws IOException {
+        byte[] file = write(User.class, users());
+
+        byte[] magic = file.clone();
+        magic[0] ^= 1;
+        byte[] version = file.clone();
+        version[4] = 2;
+        byte[] marker = file.clone();
+        marker[6] = 7;
+
+        assertThrows(IOException.class, () -> read(magic, User.class));
+        assertThrows(IOException.class, () -> read(version, User.class));
+        assertThrows(IOException.class, () -> read(file, Wallet.class));
+        assertThrows(IOException.class, () -> read(marker, User.class));
+        assertThrows(IOException.class, () -> read(write(User.class, users()), Transaction.class));
+    }
+
+    @Test
+    void corruptBytesFailWithAnIOExceptionOrDecode() throws IOException {
+        Random random = new Random(3);
+        byte[] users = write(User.class, users());
+        byte[] transactions = write(Transaction.class, transactions());
+        byte[] records = write(IdempotencyRecord.class, idempotencyRecords());
+
+        // A corrupt field either decodes to some value or is reported as corrupt; nothing else escapes
+        for (int i = 0; i < 3_000; i++) {
+            readCorrupted(users, User.class, random);
+            readCorrupted(transactions, Transaction.class, random);
+            readCorrupted(records, IdempotencyRecord.class, random);
+        }
+    }
+
+    @Test
+    void aCorruptStringLengthDoesNotAllocateIt() throws IOException {
+        IdempotencyRecord record = new IdempotencyRecord("key", "fingerprint", LocalDateTime.now());
+        byte[] file = write(IdempotencyRecord.class, List.of(record));
+        // The key's length follows the 6-byte header and the record marker
+        file[7] = 0x7f;
+
+        IOException e = assertThrows(IOException.class, () -> read(file, IdempotencyRecord.class));
+        assertTrue(e.getMessage().startsWith("Truncated"), e.getMessage());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private <T> void assertSameRoundTrip(Class<T> type, List<T> records) throws IOException {
+        ByteArrayOutputStream jsonOut = new ByteArrayOutputStream();
+        json.write(jsonOut, type, records.iterator(), Long.MAX_VALUE);
+        List<T> fromJson = new ArrayList<>();
+        json.read(new ByteArrayInputStream(jsonOut.toByteArray()), type, fromJson::add);
+
+        List<T> fromBinary = read(write(type, records), type);
+
+        assertEquals(describe(records), describe(fromBinary), type.getSimpleName());
+        assertEquals(describe(fromJson), describe(fromBinary), type.getSimpleName());
+    }
+
+    private void readCorrupted(byte[] file, Class<?> type, Random random) {
+        byte[] corrupt = file.clone();
+        for (int flips = random.nextInt(1, 4); flips > 0; flips--) {
+            corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+        }
+        try {
+            read(corrupt, type);
+        } catch (IOException e) {
+            // Reported as corrupt
+        }
+    }
+
+    private <T> byte[] write(Class<T> type, List<T> records) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(records.size(), binary.write(out, type, records.iterator(), Long.MAX_VALUE));
+        return out.toByteArray();
+    }
+
+    private <T> List<T> read(byte[] file, Class<T> type) throws IOException {
+        List<T> records = new ArrayList<>();
+        binary.read(new ByteArrayInputStream(file), type, records::add);
+        return records;
+    }
+
+    /**
+     * Describes records field by field, with amounts as written, so a lost scale does not match.
+     */
+    private String describe(List<?> records) throws IOException {
+        return objectMapper.writeValueAsString(records);
+    }
+
+    private static List<User> users() {
+        User admin = new User("admin", "admin@example.com", "$2a$10$hash", Role.ADMIN);
+        admin.setId(1L);
+        User unicode = new User("zoë-ümlaut-用户", "", "pässwörd 🔑", Role.USER);
+        unicode.setId(Long.MAX_VALUE);
+        User empty = new User();
+        return List.of(admin, unicode, empty);
+    }
+
+    private static List<Wallet> wallets() {
+        Wallet wallet = new Wallet(1L);
+        wallet.setId(10L);
+        wallet.setBalance(new BigDecimal("1250.00"));
+        wallet.setVersion(42);
+        Wallet negative = new Wallet(2L);
+        negative.setId(11L);
+        negative.setBalance(new BigDecimal("-0.0001"));
+        negative.setWalletCode("WAL-ABCDEFGH");
+        Wallet empty = new Wallet();
+        empty.setBalance(null);
+        empty.setWalletCode(null);
+        return List.of(wallet, negative, empty);
+    }
+
+    private static List<Transaction> transactions() {
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(transaction(1L, new BigDecimal("100.00"), LocalDateTime.of(2024, 2, 29, 23, 59, 59, 999_999_999)));
+        transactions.add(transaction(2L, new BigDecimal("1E+3"), LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1)));
+        transactions.add(transaction(3L, new BigDecimal("0.000001"), LocalDateTime.of(2100, 1, 1, 0, 0)));
+        Transaction deposit = new Transaction(null, 7L, new BigDecimal("9223372036854775.807"),
+                TransactionType.DEPOSIT, TransactionStatus.FAILED);
+        deposit.setId(4L);
+        transactions.add(deposit);
+        Transaction empty = new Transaction();
+        transactions.add(empty);
+        return transactions;
+    }
+
+    private static Transaction transaction(Long id, BigDecimal amount, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction(3L, 4L, amount, TransactionType.TRANSFER, TransactionStatus.SUCCESS);
+        transaction.setId(id);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    private static List<IdempotencyRecord> idempotencyRecords() {
+        IdempotencyRecord record = new IdempotencyRecord("7:transfer:retry-1", "9f86d081884c7d65",
+                LocalDateTime.of(2025, 6, 1, 8, 30, 0, 123_000_000));
+        record.setResponse("{\"message\":\"Transfer successful\",\"newBalance\":500.00}");
+        IdempotencyRecord pending = new IdempotencyRecord("7:deposit:ключ", "", LocalDateTime.of(2025, 6, 1, 8, 31));
+        return List.of(record, pending, new IdempotencyRecord());
+    }
+}
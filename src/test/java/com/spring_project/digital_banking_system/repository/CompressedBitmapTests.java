@@ -0,0 +1,187 @@
+package com.spring_project.digital_banking_system.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The compressed ID set, checked against a {@link TreeSet} holding the same IDs, on both sides
+ * of its container boundaries: the upper key changing every 65,536 IDs, and a container
+ * switching between a sorted array and a bitmap at {@value #ARRAY_MAX} IDs.
+ */
+class CompressedBitmapTests {
+
+    private static final int CONTAINER_SPAN = 1 << 16;
+    private static final int ARRAY_MAX = 4096;
+    private static final long BITMAP_BYTES = CONTAINER_SPAN / Byte.SIZE;
+
+    // ==================== SET OPERATIONS ====================
+
+    @Test
+    void addRemoveAndContainsAcrossContainerBoundaries() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        long[] ids = {0, CONTAINER_SPAN - 1, CONTAINER_SPAN, 2L * CONTAINER_SPAN - 1, 1L << 40, Long.MAX_VALUE};
+
+        for (long id : ids) {
+            bitmap.add(id);
+            bitmap.add(id);
+        }
+        assertEquals(ids.length, bitmap.cardinality());
+        for (long id : ids) {
+            assertTrue(bitmap.contains(id), "contains " + id);
+            assertFalse(bitmap.contains(id + 1 == CONTAINER_SPAN ? id - 1 : id ^ 2), "neighbour of " + id);
+        }
+
+        bitmap.remove(CONTAINER_SPAN);
+        bitmap.remove(CONTAINER_SPAN);
+        bitmap.remove(12345);
+        assertFalse(bitmap.contains(CONTAINER_SPAN));
+        assertTrue(bitmap.contains(CONTAINER_SPAN - 1));
+        assertEquals(ids.length - 1, bitmap.cardinality());
+
+        bitmap.clear();
+        assertEquals(0, bitmap.cardinality());
+        assertEquals(0, bitmap.bytes());
+        assertFalse(bitmap.contains(0));
+    }
+
+    @Test
+    void containerSwitchesToABitmapAndBack() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        long base = 3L * CONTAINER_SPAN;
+        for (long i = 0; i < ARRAY_MAX; i++) {
+            add(bitmap, expected, base + i * 7);
+        }
+        assertSameIds(expected, bitmap);
+
+        add(bitmap, expected, base + 1);
+        assertEquals(BITMAP_BYTES, bitmap.bytes());
+        assertSameIds(expected, bitmap);
+
+        // Shrinking to half the array limit turns the container back into an array
+        while (expected.size() > ARRAY_MAX / 2) {
+            long id = expected.pollLast();
+            bitmap.remove(id);
+        }
+        assertTrue(bitmap.bytes() < BITMAP_BYTES);
+        assertSameIds(expected, bitmap);
+    }
+
+    @Test
+    void andMatchesTheIntersectionOfTheSets() {
+        Random random = new Random(42);
+        // Sparse, dense and mixed containers, so every pair of container kinds is intersected
+        int[] sizes = {10, 3_000, 20_000, 60_000};
+        for (int left : sizes) {
+            for (int right : sizes) {
+                TreeSet<Long> leftIds = new TreeSet<>();
+                TreeSet<Long> rightIds = new TreeSet<>();
+                CompressedBitmap leftBitmap = randomBitmap(random, left, leftIds);
+                CompressedBitmap rightBitmap = randomBitmap(random, right, rightIds);
+
+                CompressedBitmap intersection = CompressedBitmap.and(List.of(leftBitmap, rightBitmap));
+
+                TreeSet<Long> expected = new TreeSet<>(leftIds);
+                expected.retainAll(rightIds);
+                assertSameIds(expected, intersection);
+                // The inputs are left as they were
+                assertSameIds(leftIds, leftBitmap);
+                assertSameIds(rightIds, rightBitmap);
+            }
+        }
+    }
+
+    @Test
+    void andOfThreeBitmapsAndOfAnEmptyOne() {
+        CompressedBitmap even = new CompressedBitmap();
+        CompressedBitmap byThree = new CompressedBitmap();
+        CompressedBitmap byFive = new CompressedBitmap();
+        for (long id = 0; id < 3L * CONTAINER_SPAN; id++) {
+            if (id % 2 == 0) {
+                even.add(id);
+            }
+            if (id % 3 == 0) {
+                byThree.add(id);
+            }
+            if (id % 5 == 0) {
+                byFive.add(id);
+            }
+        }
+
+        CompressedBitmap all = CompressedBitmap.and(List.of(even, byThree, byFive));
+        assertEquals((3L * CONTAINER_SPAN + 29) / 30, all.cardinality());
+        assertTrue(all.contains(30L * 6_000));
+        assertFalse(all.contains(15));
+
+        assertEquals(0, CompressedBitmap.and(List.of(even, new CompressedBitmap())).cardinality());
+        assertEquals(even.cardinality(), CompressedBitmap.and(List.of(even)).cardinality());
+    }
+
+    // ==================== ITERATION ====================
+
+    @Test
+    void descendingReturnsTheHighestIdsBelowTheBound() {
+        Random random = new Random(7);
+        TreeSet<Long> expected = new TreeSet<>();
+        CompressedBitmap bitmap = randomBitmap(random, 12_000, expected);
+        for (long id : new long[]{0, CONTAINER_SPAN - 1, CONTAINER_SPAN, 2L * CONTAINER_SPAN}) {
+            add(bitmap, expected, id);
+        }
+
+        long[] bounds = {Long.MAX_VALUE, 0, 1, CONTAINER_SPAN, CONTAINER_SPAN + 1, 2L * CONTAINER_SPAN,
+                2L * CONTAINER_SPAN + 1, expected.last(), expected.last() + 1};
+        for (long bound : bounds) {
+            for (int limit : new int[]{1, 3, 100, 50_000}) {
+                assertArrayEquals(descending(expected, bound, limit), bitmap.descending(bound, limit),
+                        "below " + bound + ", limit " + limit);
+            }
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Fills a bitmap with random IDs in the first four containers, so that the larger sizes
+     * make some containers bitmaps and leave others arrays.
+     */
+    private static CompressedBitmap randomBitmap(Random random, int size, TreeSet<Long> ids) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < size; i++) {
+            long container = random.nextInt(4);
+            // Outside the first container, half the IDs fall among the lowest 64 values
+            long low = container == 0 || random.nextBoolean() ? random.nextInt(CONTAINER_SPAN) : random.nextInt(64);
+            add(bitmap, ids, container * CONTAINER_SPAN + low);
+        }
+        return bitmap;
+    }
+
+    private static void add(CompressedBitmap bitmap, TreeSet<Long> ids, long id) {
+        bitmap.add(id);
+        ids.add(id);
+    }
+
+    private static void assertSameIds(TreeSet<Long> expected, CompressedBitmap actual) {
+        assertEquals(expected.size(), actual.cardinality());
+        assertArrayEquals(descending(expected, Long.MAX_VALUE, Integer.MAX_VALUE),
+                actual.descending(Long.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    private static long[] descending(TreeSet<Long> ids, long beforeId, int limit) {
+        List<Long> result = new ArrayList<>();
+        Iterator<Long> iterator = ids.headSet(beforeId, false).descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add(iterator.next());
+        }
+        return result.stream().mapToLong(Long::longValue).toArray();
+    }
+}
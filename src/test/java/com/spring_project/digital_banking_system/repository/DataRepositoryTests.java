@@ -0,0 +1,167 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.exception.ConcurrentUpdateException;
+import com.spring_project.digital_banking_system.exception.GlobalExceptionHandler;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The file backend's wallet versions, and its ID reservations across restarts and crashes.
+ */
+class DataRepositoryTests {
+
+    @TempDir
+    File dataDir;
+
+    private DataRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    // ==================== WALLET VERSIONS ====================
+
+    @Test
+    void staleWalletSavesAreRejected() {
+        repository = open();
+        Wallet wallet = newWallet();
+        Wallet first = repository.findWalletById(wallet.getId()).orElseThrow();
+        Wallet second = repository.findWalletById(wallet.getId()).orElseThrow();
+        assertEquals(first.getVersion(), second.getVersion());
+
+        first.setBalance(new BigDecimal("60.00"));
+        repository.saveWallet(first);
+        second.setBalance(new BigDecimal("150.00"));
+        ConcurrentUpdateException conflict = assertThrows(ConcurrentUpdateException.class,
+                () -> repository.saveWallet(second));
+        assertThrows(ConcurrentUpdateException.class,
+                () -> repository.commit(repository.newUnitOfWork().saveWallet(second)));
+
+        assertEquals(2L, repository.getStorageStats().get("versionConflicts"));
+        assertEquals(new BigDecimal("60.00"), repository.findWalletById(wallet.getId()).orElseThrow().getBalance());
+        assertEquals(HttpStatus.CONFLICT, new GlobalExceptionHandler().handleGlobalException(conflict).getStatusCode());
+
+        // A copy read after the save carries its version and is accepted
+        Wallet current = repository.findWalletById(wallet.getId()).orElseThrow();
+        current.setBalance(new BigDecimal("70.00"));
+        repository.saveWallet(current);
+        assertEquals(first.getVersion() + 1, repository.findWalletById(wallet.getId()).orElseThrow().getVersion());
+    }
+
+    // ==================== ID SEQUENCES ====================
+
+    @Test
+    void idsOfDeletedRecordsAreNotReusedAfterARestart() {
+        repository = open(dataDir, 4);
+        long[] handedOut = createRecords(6);
+        List<User> users = repository.findAllUsers();
+        repository.deleteUser(users.stream().mapToLong(User::getId).max().orElseThrow());
+        repository.deleteWallet(handedOut[1]);
+        repository.deleteTransaction(handedOut[2]);
+        repository.deleteTransaction(handedOut[2] - 1);
+        repository.close();
+
+        repository = open(dataDir, 4);
+        assertNewIdsAbove(handedOut);
+    }
+
+    @Test
+    void idsReservedBeforeACrashAreNotReused() throws IOException {
+        File live = new File(dataDir, "live");
+        File image = new File(dataDir, "image");
+        repository = open(live, 4);
+        createRecords(4);
+        // The first IDs of the next blocks are handed out, reserving the blocks, and never committed
+        User user = new User("abandoned", "abandoned@example.com", "secret", Role.USER);
+        Wallet wallet = new Wallet(1L);
+        Transaction transaction = new Transaction(1L, null, new BigDecimal("1.00"),
+                TransactionType.WITHDRAWAL, TransactionStatus.SUCCESS);
+        repository.newUnitOfWork().saveUser(user).saveWallet(wallet).saveTransaction(transaction);
+
+        // What a crash at this point leaves on disk
+        copy(live.toPath(), image.toPath());
+        repository.close();
+
+        repository = open(image, 4);
+        assertNewIdsAbove(new long[]{user.getId(), wallet.getId(), transaction.getId()});
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Wallet newWallet() {
+        User user = repository.saveUser(new User("alice", "alice@example.com", "secret", Role.USER));
+        Wallet wallet = new Wallet(user.getId());
+        wallet.setBalance(new BigDecimal("100.00"));
+        return repository.saveWallet(wallet);
+    }
+
+    private DataRepository open() {
+        return open(dataDir, 1024);
+    }
+
+    private DataRepository open(File directory, int idBlockSize) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(directory.getAbsolutePath());
+        properties.setDurability(DurabilityMode.OS_BUFFERED);
+        properties.setIdBlockSize(idBlockSize);
+        return new DataRepository(properties);
+    }
+
+    /**
+     * Saves users with a wallet and a transaction each, returning the largest user, wallet and
+     * transaction IDs handed out.
+     */
+    private long[] createRecords(int count) {
+        long[] handedOut = new long[3];
+        for (int i = 0; i < count; i++) {
+            User user = repository.saveUser(new User("user" + i, "user" + i + "@example.com", "secret", Role.USER));
+            Wallet wallet = repository.saveWallet(new Wallet(user.getId()));
+            Transaction transaction = repository.saveTransaction(new Transaction(null, wallet.getId(),
+                    new BigDecimal("10.00"), TransactionType.DEPOSIT, TransactionStatus.SUCCESS));
+            handedOut = new long[]{user.getId(), wallet.getId(), transaction.getId()};
+        }
+        return handedOut;
+    }
+
+    private void assertNewIdsAbove(long[] handedOut) {
+        User user = repository.saveUser(new User("newcomer", "newcomer@example.com", "secret", Role.USER));
+        Wallet wallet = repository.saveWallet(new Wallet(user.getId()));
+        Transaction transaction = repository.saveTransaction(new Transaction(null, wallet.getId(),
+                new BigDecimal("10.00"), TransactionType.DEPOSIT, TransactionStatus.SUCCESS));
+        assertTrue(user.getId() > handedOut[0], "user " + user.getId());
+        assertTrue(wallet.getId() > handedOut[1], "wallet " + wallet.getId());
+        assertTrue(transaction.getId() > handedOut[2], "transaction " + transaction.getId());
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : paths.toList()) {
+                Files.copy(path, target.resolve(source.relativize(path)));
+            }
+        }
+    }
+}
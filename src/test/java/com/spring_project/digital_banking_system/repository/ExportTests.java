@@ -0,0 +1,223 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NDJSON exports of users and transactions on both storage backends: one line per stored
+ * record, reading back as the stored record, and a consistent cut while units of work are
+ * committed alongside.
+ */
+class ExportTests {
+
+    private static final int UNIT_SIZE = 4;
+    private static final int UNITS = 500;
+    private static final LocalDateTime START = LocalDateTime.now().withNano(0).minusDays(60);
+
+    @TempDir
+    File dataDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private Storage storage;
+    private final List<Long> walletIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    // ==================== CONTENT ====================
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void everyRecordIsExportedOnceAndReadsBack(StorageBackend backend) throws IOException {
+        storage = open(backend);
+        createWallets(5);
+        Random random = new Random(51);
+        for (int i = 0; i < 300; i++) {
+            saveTransaction(random, START.plusHours(i * 4L));
+        }
+        if (storage instanceof DataRepository repository) {
+            // Archives the first month; one archived transaction is then replaced by a copy in memory
+            repository.takeSnapshot();
+            Transaction archived = storage.findAllTransactions().stream()
+                    .min(Comparator.comparing(Transaction::getId)).orElseThrow();
+            archived.setStatus(TransactionStatus.FAILED);
+            storage.saveTransaction(archived);
+        }
+
+        assertExportMatches(storage.findAllUsers(), User.class, User::getId, storage::exportUsers);
+        assertExportMatches(storage.findAllTransactions(), Transaction.class, Transaction::getId, storage::exportTransactions);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void emptyStoresExportNothing(StorageBackend backend) throws IOException {
+        storage = open(backend);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, storage.exportTransactions(out));
+        assertEquals(0, storage.exportUsers(out));
+        assertEquals(0, out.size());
+    }
+
+    // ==================== CONSISTENCY ====================
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void unitsCommittedDuringAnExportAreInItWholeOrNotAtAll(StorageBackend backend) throws Exception {
+        storage = open(backend);
+        createWallets(3);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Every unit holds UNIT_SIZE transactions of the same amount and replaces one of the previous unit
+            Future<?> writer = executor.submit(() -> {
+                Transaction previous = null;
+                for (int unit = 1; unit <= UNITS; unit++) {
+                    UnitOfWork work = storage.newUnitOfWork();
+                    List<Transaction> transactions = new ArrayList<>();
+                    for (int i = 0; i < UNIT_SIZE; i++) {
+                        Transaction transaction = new Transaction(walletIds.get(0), walletIds.get(1),
+                                new BigDecimal(unit + ".00"), TransactionType.TRANSFER, TransactionStatus.SUCCESS);
+                        work.saveTransaction(transaction);
+                        transactions.add(transaction);
+                    }
+                    if (previous != null) {
+                        previous.setStatus(TransactionStatus.FAILED);
+                        work.saveTransaction(previous);
+                    }
+                    storage.commit(work);
+                    previous = storage.findTransactionById(transactions.get(0).getId()).orElseThrow();
+                }
+                return null;
+            });
+
+            int exports = 0;
+            do {
+                List<Transaction> exported = export(Transaction.class, storage::exportTransactions);
+                Map<BigDecimal, Integer> unitSizes = new HashMap<>();
+                Set<Long> ids = new HashSet<>();
+                for (Transaction transaction : exported) {
+                    assertTrue(ids.add(transaction.getId()), "exported twice: " + transaction.getId());
+                    unitSizes.merge(transaction.getAmount(), 1, Integer::sum);
+                }
+                for (Map.Entry<BigDecimal, Integer> unit : unitSizes.entrySet()) {
+                    assertEquals(UNIT_SIZE, unit.getValue(), "unit " + unit.getKey() + " in export " + exports);
+                }
+                exports++;
+            } while (!writer.isDone());
+            writer.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Storage open(StorageBackend backend) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setDurability(DurabilityMode.OS_BUFFERED);
+        properties.setArchiveAfterDays(30);
+        return backend == StorageBackend.SQL ? new SqlStorage(properties) : new DataRepository(properties);
+    }
+
+    private void createWallets(int count) {
+        for (int i = 0; i < count; i++) {
+            User user = new User("user" + i, "user" + i + "@example.com", "$2a$10$hash" + i,
+                    i == 0 ? Role.ADMIN : Role.USER);
+            user = storage.saveUser(user);
+            Wallet wallet = new Wallet(user.getId());
+            wallet.setBalance(new BigDecimal("1000.00"));
+            walletIds.add(storage.saveWallet(wallet).getId());
+        }
+    }
+
+    private void saveTransaction(Random random, LocalDateTime timestamp) {
+        Long sender = random.nextInt(3) == 0 ? null : walletIds.get(random.nextInt(walletIds.size()));
+        Long receiver = sender != null && random.nextInt(3) == 0 ? null : walletIds.get(random.nextInt(walletIds.size()));
+        TransactionType type = sender == null ? TransactionType.DEPOSIT
+                : receiver == null ? TransactionType.WITHDRAWAL : TransactionType.TRANSFER;
+        Transaction transaction = new Transaction(sender, receiver,
+                BigDecimal.valueOf(random.nextInt(1, 10_000_000), 2),
+                type, random.nextInt(5) == 0 ? TransactionStatus.FAILED : TransactionStatus.SUCCESS);
+        transaction.setTimestamp(timestamp);
+        storage.saveTransaction(transaction);
+    }
+
+    /**
+     * Exports records and compares them, field by field, with the stored ones. Exports are not
+     * necessarily in ID order, so both sides are sorted first.
+     */
+    private <T> void assertExportMatches(List<T> stored, Class<T> type, Function<T, Long> id, Exporter exporter)
+            throws IOException {
+        List<T> exported = export(type, exporter);
+        assertEquals(stored.size(), exported.size());
+        assertEquals(objectMapper.writeValueAsString(stored.stream().sorted(Comparator.comparing(id)).toList()),
+                objectMapper.writeValueAsString(exported.stream().sorted(Comparator.comparing(id)).toList()));
+    }
+
+    /**
+     * Exports records, checking that every line holds one record and that the count returned
+     * is the number of lines.
+     */
+    private <T> List<T> export(Class<T> type, Exporter exporter) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = exporter.export(out);
+        String text = out.toString(StandardCharsets.UTF_8);
+        List<String> lines = text.isEmpty() ? List.of() : List.of(text.split("\n", -1));
+        if (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+            lines = lines.subList(0, lines.size() - 1);
+        }
+        assertEquals(count, lines.size());
+        List<T> records = new ArrayList<>();
+        for (String line : lines) {
+            records.add(objectMapper.readValue(line, type));
+        }
+        return records;
+    }
+
+    @FunctionalInterface
+    private interface Exporter {
+        long export(OutputStream out) throws IOException;
+    }
+}
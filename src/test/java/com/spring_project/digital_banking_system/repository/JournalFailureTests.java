@@ -0,0 +1,240 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.exception.StorageUnavailableException;
+import com.spring_project.digital_banking_system.model.IdempotencyRecord;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Injects write and fsync failures into the journal's file channel and checks that a change
+ * whose commit failed never becomes durable, by a later write or by a snapshot.
+ */
+class JournalFailureTests {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100.00");
+
+    @TempDir
+    File dataDir;
+
+    private volatile boolean failWrites;
+    private volatile boolean failForce;
+    private DataRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    @Test
+    void failedCommitIsNeverMadeDurable() {
+        repository = open(DurabilityMode.FSYNC_PER_BATCH);
+        Wallet wallet = newWallet();
+
+        failWrites = true;
+        Wallet debited = repository.findWalletById(wallet.getId()).orElseThrow();
+        debited.setBalance(new BigDecimal("40.00"));
+        UnitOfWork work = repository.newUnitOfWork()
+                .saveWallet(debited)
+                .saveTransaction(new Transaction(wallet.getId(), null, new BigDecimal("60.00"),
+                        TransactionType.WITHDRAWAL, TransactionStatus.SUCCESS))
+                .saveIdempotencyRecord(new IdempotencyRecord("alice:withdraw-1", "fingerprint", LocalDateTime.now()));
+        assertThrows(StorageUnavailableException.class, () -> repository.commit(work));
+        assertTrue(repository.findIdempotencyRecord("alice:withdraw-1").isEmpty());
+
+        // The disk is back, but nothing may follow the record that never reached it
+        failWrites = false;
+        Wallet retried = repository.findWalletById(wallet.getId()).orElseThrow();
+        retried.setBalance(retried.getBalance().subtract(new BigDecimal("60.00")));
+        assertThrows(StorageUnavailableException.class, () -> repository.saveWallet(retried));
+        assertThrows(RuntimeException.class, () -> repository.takeSnapshot());
+        assertEquals(true, repository.getStorageStats().get("writerFailed"));
+        assertEquals(0, dataDir.listFiles((dir, name) -> name.startsWith("snapshot-")).length);
+
+        repository.close();
+        repository = open(DurabilityMode.FSYNC_PER_BATCH);
+        assertEquals(0, INITIAL_BALANCE.compareTo(repository.findWalletById(wallet.getId()).orElseThrow().getBalance()));
+        assertTrue(repository.findTransactionsByWalletId(wallet.getId()).isEmpty());
+        repository.saveWallet(repository.findWalletById(wallet.getId()).orElseThrow());
+    }
+
+    @Test
+    void failedPeriodicFsyncRefusesFurtherWrites() throws InterruptedException {
+        repository = open(DurabilityMode.PERIODIC_FSYNC);
+        Wallet wallet = newWallet();
+
+        failForce = true;
+        try {
+            repository.saveTransaction(new Transaction(null, wallet.getId(), new BigDecimal("50.00"),
+                    TransactionType.DEPOSIT, TransactionStatus.SUCCESS));
+        } catch (RuntimeException e) {
+            // The periodic fsync may run in the same batch
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!Boolean.TRUE.equals(repository.getStorageStats().get("writerFailed")) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(true, repository.getStorageStats().get("writerFailed"));
+
+        failForce = false;
+        Wallet current = repository.findWalletById(wallet.getId()).orElseThrow();
+        assertThrows(StorageUnavailableException.class, () -> repository.saveWallet(current));
+        assertThrows(RuntimeException.class, () -> repository.takeSnapshot());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Wallet newWallet() {
+        User user = repository.saveUser(new User("alice", "alice@example.com", "secret", Role.USER));
+        Wallet wallet = new Wallet(user.getId());
+        wallet.setBalance(INITIAL_BALANCE);
+        return repository.saveWallet(wallet);
+    }
+
+    private DataRepository open(DurabilityMode durability) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setDurability(durability);
+        properties.setFsyncIntervalMs(1);
+        properties.setSnapshotIntervalMs(TimeUnit.HOURS.toMillis(1));
+        return new DataRepository(properties, directory -> new LedgerJournal(directory) {
+            @Override
+            FileChannel open(Path file) throws IOException {
+                return new FailingChannel(super.open(file));
+            }
+        });
+    }
+
+    /**
+     * Delegates to a real file channel, except that while failures are switched on a write
+     * stores only half of its bytes before failing, and a force fails outright.
+     */
+    private final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failWrites) {
+                ByteBuffer half = src.slice(src.position(), src.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("Injected write failure");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failForce) {
+                throw new IOException("Injected fsync failure");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Replay of journal segments that a crash or a bad disk left damaged.
+ */
+class LedgerJournalTests {
+
+    @TempDir
+    File directory;
+
+    private LedgerJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = new LedgerJournal(directory);
+        journal.open(1);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    void tornLastRecordIsDiscardedAndCutOff() throws IOException {
+        write(delete(1), delete(2));
+        long complete = segment().length();
+        byte[] torn = journal.encode(delete(3));
+        appendRaw(Arrays.copyOf(torn, torn.length / 2));
+
+        List<JournalRecord> replayed = replay();
+
+        assertEquals(List.of(1L, 2L), ids(replayed));
+        assertEquals(complete, segment().length());
+    }
+
+    @Test
+    void appendsAfterRecoveryStartOnACleanLine() throws IOException {
+        write(delete(1));
+        byte[] torn = journal.encode(delete(2));
+        appendRaw(Arrays.copyOf(torn, torn.length - 1));
+        replay();
+
+        journal.open(1);
+        write(delete(3));
+
+        assertEquals(List.of(1L, 3L), ids(replay()));
+    }
+
+    @Test
+    void tornRecordLongerThanTheReadBufferIsDiscarded() throws IOException {
+        User user = new User("x".repeat(200_000), "big@example.com", "secret", Role.USER);
+        user.setId(7L);
+        write(delete(1));
+        long complete = segment().length();
+        byte[] torn = journal.encode(JournalRecord.put(user));
+        appendRaw(Arrays.copyOf(torn, torn.length - 10));
+
+        assertEquals(List.of(1L), ids(replay()));
+        assertEquals(complete, segment().length());
+    }
+
+    @Test
+    void recordLongerThanTheReadBufferIsReplayedWhole() throws IOException {
+        User user = new User("x".repeat(200_000), "big@example.com", "secret", Role.USER);
+        user.setId(7L);
+        write(delete(1), JournalRecord.put(user), delete(2));
+
+        List<JournalRecord> replayed = replay();
+
+        assertEquals(List.of(1L, 7L, 2L), ids(replayed));
+        assertEquals(user.getUsername(), replayed.get(1).getUser().getUsername());
+    }
+
+    @Test
+    void corruptRecordInTheMiddleFailsReplay() throws IOException {
+        write(delete(1), delete(2), delete(3));
+        byte[] bytes = Files.readAllBytes(segment().toPath());
+        byte[] first = journal.encode(delete(1));
+        // Break the JSON of the second record, leaving the line structure intact
+        bytes[first.length] = '#';
+        Files.write(segment().toPath(), bytes);
+
+        assertThrows(IOException.class, this::replay);
+        assertArrayEquals(bytes, Files.readAllBytes(segment().toPath()));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static JournalRecord delete(long id) {
+        return JournalRecord.delete(JournalRecord.Entity.WALLET, id);
+    }
+
+    private void write(JournalRecord... records) throws IOException {
+        for (JournalRecord record : records) {
+            journal.write(journal.encode(record));
+        }
+        journal.close();
+    }
+
+    private void appendRaw(byte[] bytes) throws IOException {
+        Files.write(segment().toPath(), bytes, StandardOpenOption.APPEND);
+    }
+
+    private List<JournalRecord> replay() throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        journal.replay(1, records::add);
+        return records;
+    }
+
+    private File segment() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".journal"));
+        assertEquals(1, files.length, "journal segments");
+        return files[0];
+    }
+
+    private static List<Long> ids(List<JournalRecord> records) {
+        List<Long> ids = new ArrayList<>();
+        for (JournalRecord record : records) {
+            ids.add(record.getUser() != null ? record.getUser().getId() : record.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,171 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.exception.ConcurrentUpdateException;
+import com.spring_project.digital_banking_system.exception.GlobalExceptionHandler;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The SQL backend's connection pool, ID reservations across restarts and crashes, and wallet
+ * versions.
+ */
+class SqlStorageTests {
+
+    @TempDir
+    File dataDir;
+
+    private SqlStorage storage;
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    void reservingIdsDuringACommitDoesNotExhaustThePool() {
+        storage = open(1);
+
+        // An ID beyond the reserved block makes the commit reserve a new one
+        User imported = new User("alice", "alice@example.com", "secret", Role.USER);
+        imported.setId(500L);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> storage.commit(storage.newUnitOfWork()
+                .saveUser(imported)
+                .saveUser(new User("bob", "bob@example.com", "secret", Role.USER))));
+
+        assertEquals(2, storage.findAllUsers().size());
+        storage.close();
+        storage = open(1);
+        User next = storage.saveUser(new User("carol", "carol@example.com", "secret", Role.USER));
+        assertEquals(true, next.getId() > 500L);
+    }
+
+    @Test
+    void idsOfDeletedRecordsAreNotReusedAfterARestart() {
+        storage = open(2, 4);
+        long[] handedOut = createRecords(6);
+        List<User> users = storage.findAllUsers();
+        storage.deleteUser(users.get(users.size() - 1).getId());
+        storage.deleteWallet(handedOut[1]);
+        storage.deleteTransaction(handedOut[2]);
+        storage.deleteTransaction(handedOut[2] - 1);
+        storage.close();
+
+        storage = open(2, 4);
+        assertNewIdsAbove(handedOut);
+    }
+
+    @Test
+    void idsReservedBeforeACrashAreNotReused() throws SQLException {
+        storage = open(2, 4);
+        createRecords(4);
+        // The first IDs of the next blocks are handed out, reserving the blocks, and never committed
+        User user = new User("abandoned", "abandoned@example.com", "secret", Role.USER);
+        Wallet wallet = new Wallet(1L);
+        Transaction transaction = new Transaction(1L, null, new BigDecimal("1.00"),
+                TransactionType.WITHDRAWAL, TransactionStatus.SUCCESS);
+        storage.newUnitOfWork().saveUser(user).saveWallet(wallet).saveTransaction(transaction);
+
+        try (Connection connection = DriverManager.getConnection(url(), "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN IMMEDIATELY");
+        }
+        storage.close();
+
+        storage = open(2, 4);
+        assertNewIdsAbove(new long[]{user.getId(), wallet.getId(), transaction.getId()});
+    }
+
+    @Test
+    void staleWalletSavesAreRejected() {
+        storage = open(2);
+        User user = storage.saveUser(new User("alice", "alice@example.com", "secret", Role.USER));
+        Wallet wallet = new Wallet(user.getId());
+        wallet.setBalance(new BigDecimal("100.00"));
+        storage.saveWallet(wallet);
+        Wallet first = storage.findWalletById(wallet.getId()).orElseThrow();
+        Wallet second = storage.findWalletById(wallet.getId()).orElseThrow();
+        assertEquals(first.getVersion(), second.getVersion());
+
+        first.setBalance(new BigDecimal("60.00"));
+        storage.saveWallet(first);
+        second.setBalance(new BigDecimal("150.00"));
+        ConcurrentUpdateException conflict = assertThrows(ConcurrentUpdateException.class,
+                () -> storage.saveWallet(second));
+        assertThrows(ConcurrentUpdateException.class,
+                () -> storage.commit(storage.newUnitOfWork().saveWallet(second)));
+
+        assertEquals(2L, storage.getStorageStats().get("versionConflicts"));
+        assertEquals(new BigDecimal("60.00"), storage.findWalletById(wallet.getId()).orElseThrow().getBalance());
+        assertEquals(HttpStatus.CONFLICT, new GlobalExceptionHandler().handleGlobalException(conflict).getStatusCode());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private SqlStorage open(int poolSize) {
+        return open(poolSize, 1);
+    }
+
+    private SqlStorage open(int poolSize, int idBlockSize) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setSqlUrl(url());
+        properties.setSqlPoolSize(poolSize);
+        properties.setIdBlockSize(idBlockSize);
+        return new SqlStorage(properties);
+    }
+
+    private String url() {
+        return "jdbc:h2:file:" + new File(dataDir, "bank").getAbsolutePath();
+    }
+
+    /**
+     * Saves users with a wallet and a transaction each, returning the largest user, wallet and
+     * transaction IDs handed out.
+     */
+    private long[] createRecords(int count) {
+        long[] handedOut = new long[3];
+        for (int i = 0; i < count; i++) {
+            User user = storage.saveUser(new User("user" + i, "user" + i + "@example.com", "secret", Role.USER));
+            Wallet wallet = storage.saveWallet(new Wallet(user.getId()));
+            Transaction transaction = storage.saveTransaction(new Transaction(null, wallet.getId(),
+                    new BigDecimal("10.00"), TransactionType.DEPOSIT, TransactionStatus.SUCCESS));
+            handedOut = new long[]{user.getId(), wallet.getId(), transaction.getId()};
+        }
+        return handedOut;
+    }
+
+    private void assertNewIdsAbove(long[] handedOut) {
+        User user = storage.saveUser(new User("newcomer", "newcomer@example.com", "secret", Role.USER));
+        Wallet wallet = storage.saveWallet(new Wallet(user.getId()));
+        Transaction transaction = storage.saveTransaction(new Transaction(null, wallet.getId(),
+                new BigDecimal("10.00"), TransactionType.DEPOSIT, TransactionStatus.SUCCESS));
+        assertTrue(user.getId() > handedOut[0], "user " + user.getId());
+        assertTrue(wallet.getId() > handedOut[1], "wallet " + wallet.getId());
+        assertTrue(transaction.getId() > handedOut[2], "transaction " + transaction.getId());
+    }
+}
@@ -0,0 +1,199 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archiving transactions into monthly segments, reopening them, and reading archived history
+ * back, directly and through {@link DataRepository}.
+ */
+class TransactionArchiveTests {
+
+    private static final LocalDateTime END_OF_JANUARY = LocalDateTime.of(2024, 1, 31, 23, 59, 59, 999_999_999);
+    private static final LocalDateTime START_OF_FEBRUARY = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @TempDir
+    File dataDir;
+
+    private DataRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    // ==================== SEGMENTS ====================
+
+    @Test
+    void eachTransactionGoesToTheSegmentOfItsMonth() throws IOException {
+        TransactionArchive archive = new TransactionArchive(dataDir, 2);
+
+        List<String> written = archive.archive(List.of(
+                transaction(1, START_OF_FEBRUARY), transaction(2, END_OF_JANUARY), transaction(3, START_OF_FEBRUARY.plusDays(28))));
+        List<String> later = archive.archive(List.of(transaction(4, END_OF_JANUARY.minusDays(10))));
+
+        assertEquals(List.of("transactions-2024-01-0001.seg", "transactions-2024-02-0001.seg"), written);
+        assertEquals(List.of("transactions-2024-01-0002.seg"), later);
+        assertEquals(List.of("transactions-2024-01-0001.seg", "transactions-2024-01-0002.seg",
+                "transactions-2024-02-0001.seg"), archive.segmentNames());
+        assertEquals(List.of(1L, 3L), ids(between(archive, START_OF_FEBRUARY, null)));
+        assertEquals(List.of(4L, 2L), sorted(between(archive, null, START_OF_FEBRUARY)));
+        assertEquals(4L, archive.maxId());
+        assertEquals(START_OF_FEBRUARY.plusDays(28), archive.newestTimestamp());
+    }
+
+    @Test
+    void reopeningReadsListedSegmentsAndDeletesTheRest() throws IOException {
+        TransactionArchive archive = new TransactionArchive(dataDir, 2);
+        List<String> listed = archive.archive(List.of(transaction(1, END_OF_JANUARY), transaction(2, START_OF_FEBRUARY)));
+        // Written by a pass whose snapshot never listed it
+        archive.archive(List.of(transaction(3, START_OF_FEBRUARY)));
+
+        TransactionArchive reopened = new TransactionArchive(dataDir, 2);
+        reopened.open(listed);
+
+        assertEquals(listed, reopened.segmentNames());
+        assertEquals(2, new File(dataDir, TransactionArchive.DIRECTORY).listFiles().length);
+        List<Transaction> all = new ArrayList<>();
+        assertEquals(2, reopened.forEach(all::add));
+        assertSameFields(transaction(1, END_OF_JANUARY), reopened.findById(1).orElseThrow());
+        assertSameFields(transaction(2, START_OF_FEBRUARY), reopened.findById(2).orElseThrow());
+        assertTrue(reopened.findById(3).isEmpty());
+        assertEquals(2L, reopened.maxId());
+    }
+
+    // ==================== LOOKUPS ====================
+
+    @Test
+    void lookupsReadOnlyTheBlocksTheyNeed() throws IOException {
+        TransactionArchive archive = new TransactionArchive(dataDir, 2);
+        int count = 3_000;
+        List<Transaction> transactions = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Transaction transaction = transaction(id, START_OF_FEBRUARY.plusMinutes(id));
+            if (id % 2 == 0) {
+                transaction = new Transaction(null, 9L, new BigDecimal("5.00"), TransactionType.DEPOSIT,
+                        TransactionStatus.SUCCESS);
+                transaction.setId(id);
+                transaction.setTimestamp(START_OF_FEBRUARY.plusMinutes(id));
+            }
+            transactions.add(transaction);
+        }
+        archive.archive(transactions);
+
+        for (long id : new long[]{1, 1024, 1025, 2048, count}) {
+            assertSameFields(transactions.get((int) id - 1), archive.findById(id).orElseThrow());
+        }
+        assertTrue(archive.findById(count + 1).isEmpty());
+        // One block per lookup; the segment holds three
+        assertEquals(5L, archive.getStats().get("archiveBlockReads"));
+
+        List<Transaction> page = archive.page(null, START_OF_FEBRUARY.plusMinutes(1500), 1500, null, 10);
+        assertEquals(List.of(1499L, 1498L, 1497L, 1496L, 1495L, 1494L, 1493L, 1492L, 1491L, 1490L), ids(page));
+
+        // Every even-numbered transaction is a deposit into wallet 9
+        List<Transaction> walletPage = archive.page(9L, null, 0, START_OF_FEBRUARY.plusMinutes(2990), 100);
+        assertEquals(List.of(3000L, 2998L, 2996L, 2994L, 2992L, 2990L), ids(walletPage));
+        assertEquals(1L, archive.getStats().get("archiveSegmentLoads"));
+    }
+
+    @Test
+    void archivedHistoryIsFoundThroughTheRepository() {
+        repository = open();
+        LocalDateTime recent = LocalDateTime.now().minusHours(1);
+        for (Transaction transaction : List.of(transaction(1, END_OF_JANUARY), transaction(2, START_OF_FEBRUARY),
+                transaction(3, recent))) {
+            transaction.setId(null);
+            repository.saveTransaction(transaction);
+        }
+
+        repository.takeSnapshot();
+
+        assertEquals(2, repository.getStorageStats().get("archiveSegments"));
+        assertEquals(2L, repository.getStorageStats().get("archivedTransactions"));
+        assertArchivedHistory();
+
+        repository.close();
+        repository = open();
+        assertArchivedHistory();
+        assertEquals(2, new File(dataDir, TransactionArchive.DIRECTORY).listFiles().length);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void assertArchivedHistory() {
+        assertSameFields(transaction(1, END_OF_JANUARY), repository.findTransactionById(1L).orElseThrow());
+        assertSameFields(transaction(2, START_OF_FEBRUARY), repository.findTransactionById(2L).orElseThrow());
+        // The history of wallet 2 spans the hot store and both segments
+        assertEquals(List.of(3L, 2L), ids(repository.findTransactionsByWalletId(2L, null, 0, null, 2)));
+        assertEquals(List.of(1L), ids(repository.findTransactionsByWalletId(2L, START_OF_FEBRUARY, 2, null, 2)));
+        assertEquals(List.of(3L, 2L, 1L), ids(repository.findTransactions(null, 0, null, 10)));
+        assertFalse(repository.findTransactionById(4L).isPresent());
+    }
+
+    private DataRepository open() {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setDurability(DurabilityMode.OS_BUFFERED);
+        properties.setArchiveAfterDays(30);
+        properties.setSnapshotIntervalMs(TimeUnit.HOURS.toMillis(1));
+        return new DataRepository(properties);
+    }
+
+    /**
+     * A transfer between wallets 2 and 3, in alternating directions.
+     */
+    private static Transaction transaction(long id, LocalDateTime timestamp) {
+        long sender = id % 2 == 0 ? 3 : 2;
+        Transaction transaction = new Transaction(sender, 5 - sender, new BigDecimal("1.25"),
+                TransactionType.TRANSFER, TransactionStatus.SUCCESS);
+        transaction.setId(id);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    private static List<Transaction> between(TransactionArchive archive, LocalDateTime from, LocalDateTime to) {
+        List<Transaction> transactions = new ArrayList<>();
+        archive.forEachBetween(from, to, transactions::add);
+        return transactions;
+    }
+
+    private static void assertSameFields(Transaction expected, Transaction actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getSenderWalletId(), actual.getSenderWalletId());
+        assertEquals(expected.getReceiverWalletId(), actual.getReceiverWalletId());
+        assertEquals(expected.getAmount(), actual.getAmount());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getStatus(), actual.getStatus());
+    }
+
+    private static List<Long> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).toList();
+    }
+
+    private static List<Long> sorted(List<Transaction> transactions) {
+        return transactions.stream().sorted(Comparator.comparing(Transaction::getTimestamp))
+                .map(Transaction::getId).toList();
+    }
+}
@@ -0,0 +1,367 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The columnar transaction store: reads and writes, compaction, bulk loading and cuts.
+ */
+class TransactionColumnsTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+    /** Rows per chunk in {@link TransactionColumns}. */
+    private static final int CHUNK_ROWS = 4096;
+
+    private final TransactionColumns columns = new TransactionColumns();
+
+    // ==================== READS AND WRITES ====================
+
+    @Test
+    void putStoresACopyThatReadsBackExactly() {
+        Transaction transfer = transaction(1, "12.50", START.plusNanos(123_456_789));
+        Transaction deposit = new Transaction(null, 3L, new BigDecimal("7"), TransactionType.DEPOSIT,
+                TransactionStatus.FAILED);
+        deposit.setId(2L);
+        // Neither the scale nor the timestamp fits the columns
+        Transaction unusual = new Transaction(4L, 5L, new BigDecimal("1E-200"), TransactionType.TRANSFER,
+                TransactionStatus.SUCCESS);
+        unusual.setId(3L);
+        unusual.setTimestamp(LocalDateTime.of(9999, 12, 31, 23, 59));
+
+        for (Transaction transaction : List.of(transfer, deposit, unusual)) {
+            assertNull(columns.put(transaction));
+        }
+        transfer.setAmount(new BigDecimal("99.00"));
+
+        assertSameFields(transaction(1, "12.50", START.plusNanos(123_456_789)), columns.get(1));
+        assertSameFields(deposit, columns.get(2));
+        assertSameFields(unusual, columns.get(3));
+        assertEquals(unusual.getTimestamp(), columns.timestamp(3));
+        assertEquals(1, columns.getStats().get("transactionOverflowRows"));
+        assertEquals(3, columns.size());
+        assertEquals(3L, columns.maxId());
+
+        // Every read is a fresh object
+        columns.get(1).setAmount(BigDecimal.ONE);
+        assertEquals(new BigDecimal("12.50"), columns.get(1).getAmount());
+        assertNull(columns.get(4));
+        assertFalse(columns.containsKey(4));
+    }
+
+    @Test
+    void putReplacesTheStoredTransaction() {
+        columns.put(transaction(1, "10.00"));
+        columns.put(transaction(2, "10.00"));
+
+        Transaction replaced = columns.put(transaction(1, "15.00"));
+
+        assertEquals(new BigDecimal("10.00"), replaced.getAmount());
+        assertEquals(new BigDecimal("15.00"), columns.get(1).getAmount());
+        assertEquals(2, columns.size());
+        // The replacement is a new row, so it comes last
+        assertEquals(List.of(2L, 1L), ids(columns.values()));
+        assertEquals(3, columns.getStats().get("transactionRows"));
+    }
+
+    @Test
+    void removeDeletesOnlyTheExpectedTransaction() {
+        columns.put(transaction(1, "10.00"));
+        columns.put(transaction(2, "10.00"));
+        columns.put(transaction(3, "10.00"));
+
+        assertEquals(new BigDecimal("10.00"), columns.remove(1).getAmount());
+        assertNull(columns.remove(1));
+        assertFalse(columns.remove(2, transaction(2, "11.00")));
+        assertTrue(columns.remove(2, transaction(2, "10.00")));
+
+        assertEquals(List.of(3L), ids(columns.values()));
+        assertEquals(1, columns.size());
+        assertFalse(columns.containsKey(2));
+        assertEquals(3L, columns.maxId());
+    }
+
+    @Test
+    void growsAcrossChunkBoundaries() {
+        int count = 3 * CHUNK_ROWS + 5;
+        for (long id = 1; id <= count; id++) {
+            columns.put(transaction(id, "1.00"));
+        }
+
+        for (long id : new long[]{1, CHUNK_ROWS, CHUNK_ROWS + 1, 2 * CHUNK_ROWS, 2 * CHUNK_ROWS + 1, count}) {
+            assertSameFields(transaction(id, "1.00"), columns.get(id));
+        }
+        List<Long> ids = ids(columns.values());
+        assertEquals(count, ids.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, ids.get(i));
+        }
+        assertEquals(count, columns.size());
+    }
+
+    // ==================== COMPACTION ====================
+
+    @Test
+    void compactionKeepsLiveRowsInOrder() {
+        int count = 2 * CHUNK_ROWS;
+        for (long id = 1; id <= count; id++) {
+            columns.put(transaction(id, "1.00"));
+        }
+        List<Long> kept = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            if (id % 10 == 0) {
+                kept.add(id);
+            } else {
+                columns.remove(id);
+            }
+        }
+
+        assertTrue((Long) columns.getStats().get("transactionCompactions") > 0);
+        assertTrue((Integer) columns.getStats().get("transactionRows") < count);
+        assertEquals(kept, ids(columns.values()));
+        for (long id : kept) {
+            assertSameFields(transaction(id, "1.00"), columns.get(id));
+        }
+        assertNull(columns.get(1));
+        assertEquals(count, columns.maxId());
+
+        // Writes after compaction append to the compacted chunks
+        columns.put(transaction(10, "2.00"));
+        columns.put(transaction(count + 1, "1.00"));
+        assertEquals(new BigDecimal("2.00"), columns.get(10).getAmount());
+        assertEquals(kept.size() + 1, columns.size());
+    }
+
+    @Test
+    void iterationWhileWritingSeesStableRowsExactlyOnce() throws Exception {
+        int stable = 2 * CHUNK_ROWS;
+        for (long id = 1; id <= stable; id++) {
+            columns.put(transaction(id, "1.00"));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        // Replaces, removes and adds rows above the stable ones, compacting now and then
+        Future<?> writes = writer.submit(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (!done.get()) {
+                long id = stable + 1 + random.nextInt(CHUNK_ROWS);
+                if (random.nextBoolean()) {
+                    columns.put(transaction(id, "2.00"));
+                } else {
+                    columns.remove(id);
+                }
+            }
+        });
+
+        try {
+            for (int pass = 0; pass < 50; pass++) {
+                Set<Long> seen = new HashSet<>();
+                int stableSeen = 0;
+                for (Transaction transaction : columns.values()) {
+                    assertTrue(seen.add(transaction.getId()), "Transaction " + transaction.getId() + " seen twice");
+                    if (transaction.getId() <= stable) {
+                        stableSeen++;
+                    }
+                }
+                assertEquals(stable, stableSeen);
+            }
+        } finally {
+            done.set(true);
+            writes.get(1, TimeUnit.MINUTES);
+            writer.shutdown();
+        }
+    }
+
+    // ==================== BULK LOADING ====================
+
+    @Test
+    void putAllStartsOnAChunkBoundaryAndReplacesDuplicates() {
+        for (long id = 1; id <= 10; id++) {
+            columns.put(transaction(id, "1.00"));
+        }
+        TransactionColumns.Batch batch = columns.newBatch();
+        for (long id = 5; id <= 15; id++) {
+            batch.accept(transaction(id, "2.00"));
+        }
+        Transaction unusual = new Transaction(1L, 2L, new BigDecimal("1E-200"), TransactionType.TRANSFER,
+                TransactionStatus.SUCCESS);
+        unusual.setId(16L);
+        batch.accept(unusual);
+        assertEquals(12, batch.size());
+
+        columns.putAll(batch);
+
+        assertEquals(16, columns.size());
+        assertEquals(16L, columns.maxId());
+        assertEquals(CHUNK_ROWS + 12, columns.getStats().get("transactionRows"));
+        assertEquals(new BigDecimal("1.00"), columns.get(4).getAmount());
+        assertEquals(new BigDecimal("2.00"), columns.get(5).getAmount());
+        assertSameFields(unusual, columns.get(16));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L, 16L),
+                ids(columns.values()));
+
+        // Rows written after the batch follow it
+        columns.put(transaction(17, "1.00"));
+        assertEquals(17L, ids(columns.values()).get(16));
+    }
+
+    @Test
+    void batchesFilledInParallelAreAllAdded() throws Exception {
+        int threads = 4;
+        int perThread = CHUNK_ROWS + 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<TransactionColumns.Batch>> batches = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long first = (long) t * perThread + 1;
+            batches.add(executor.submit(() -> {
+                TransactionColumns.Batch batch = columns.newBatch();
+                for (long id = first; id < first + perThread; id++) {
+                    batch.accept(transaction(id, "1.00"));
+                }
+                return batch;
+            }));
+        }
+        for (Future<TransactionColumns.Batch> batch : batches) {
+            columns.putAll(batch.get(1, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+
+        int count = threads * perThread;
+        assertEquals(count, columns.size());
+        assertEquals(count, ids(columns.values()).size());
+        for (long id = 1; id <= count; id += 997) {
+            assertSameFields(transaction(id, "1.00"), columns.get(id));
+        }
+    }
+
+    // ==================== CUTS ====================
+
+    @Test
+    void cutIsUnaffectedByLaterWrites() {
+        for (long id = 1; id <= 5; id++) {
+            columns.put(transaction(id, "10.00"));
+        }
+
+        TransactionColumns.Cut cut = columns.cut();
+        columns.put(transaction(2, "99.00"));
+        columns.remove(3);
+        columns.put(transaction(6, "10.00"));
+
+        assertEquals(5, cut.size());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(cut));
+        assertEquals(0, new BigDecimal("10.00").compareTo(find(cut, 2).getAmount()));
+        assertEquals(List.of(1L, 4L, 5L, 2L, 6L), ids(columns.values()));
+    }
+
+    @Test
+    void cutLeavesOutRowsDeadBeforeIt() {
+        for (long id = 1; id <= 3; id++) {
+            columns.put(transaction(id, "10.00"));
+        }
+        columns.put(transaction(1, "20.00"));
+        columns.remove(2);
+
+        TransactionColumns.Cut cut = columns.cut();
+        columns.remove(1);
+
+        assertEquals(List.of(3L, 1L), ids(cut));
+        assertEquals(0, new BigDecimal("20.00").compareTo(find(cut, 1).getAmount()));
+    }
+
+    @Test
+    void cutSurvivesCompaction() {
+        int count = 20_000;
+        for (long id = 1; id <= count; id++) {
+            columns.put(transaction(id, "1.00"));
+        }
+
+        TransactionColumns.Cut cut = columns.cut();
+        // Removing most rows compacts the store into new chunks behind the cut's back
+        for (long id = 1; id <= count - 10; id++) {
+            columns.remove(id);
+        }
+        columns.remove(count);
+        assertTrue((Long) columns.getStats().get("transactionCompactions") > 0);
+
+        assertEquals(count, ids(cut).size());
+        List<Long> seen = new ArrayList<>();
+        cut.forEachId(seen::add);
+        assertEquals(ids(cut), seen);
+        assertEquals(9, columns.size());
+    }
+
+    @Test
+    void cutIncludesRowsReplacedByALaterBatch() {
+        for (long id = 1; id <= 3; id++) {
+            columns.put(transaction(id, "1.00"));
+        }
+        TransactionColumns.Cut cut = columns.cut();
+
+        TransactionColumns.Batch batch = columns.newBatch();
+        batch.accept(transaction(2, "2.00"));
+        batch.accept(transaction(4, "2.00"));
+        columns.putAll(batch);
+
+        assertEquals(List.of(1L, 2L, 3L), ids(cut));
+        assertEquals(new BigDecimal("1.00"), find(cut, 2).getAmount());
+        assertEquals(List.of(1L, 3L, 2L, 4L), ids(columns.values()));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static Transaction transaction(long id, String amount) {
+        return transaction(id, amount, START.plusSeconds(id));
+    }
+
+    private static Transaction transaction(long id, String amount, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction(id % 7 + 1, id % 5 + 10, new BigDecimal(amount),
+                TransactionType.TRANSFER, TransactionStatus.SUCCESS);
+        transaction.setId(id);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    private static void assertSameFields(Transaction expected, Transaction actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getSenderWalletId(), actual.getSenderWalletId());
+        assertEquals(expected.getReceiverWalletId(), actual.getReceiverWalletId());
+        assertEquals(expected.getAmount(), actual.getAmount());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getStatus(), actual.getStatus());
+    }
+
+    private static List<Long> ids(Iterable<Transaction> transactions) {
+        List<Long> ids = new ArrayList<>();
+        transactions.forEach(transaction -> ids.add(transaction.getId()));
+        return ids;
+    }
+
+    private static Transaction find(Iterable<Transaction> transactions, long id) {
+        for (Transaction transaction : transactions) {
+            if (transaction.getId() == id) {
+                return transaction;
+            }
+        }
+        return null;
+    }
+}
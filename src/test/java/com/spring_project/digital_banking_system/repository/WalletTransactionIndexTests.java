@@ -0,0 +1,174 @@
+package com.spring_project.digital_banking_system.repository;
+
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The wallet transaction index, checked against a sort of the transactions it holds: pages
+ * of every wallet and of all transactions, after inserts out of time order, removals and
+ * replacements.
+ */
+class WalletTransactionIndexTests {
+
+    private static final int WALLETS = 4;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private final Map<Long, Transaction> stored = new HashMap<>();
+    private final WalletTransactionIndex index = new WalletTransactionIndex(id -> {
+        Transaction transaction = stored.get(id);
+        return transaction == null ? null : transaction.getTimestamp();
+    });
+
+    // ==================== PAGES ====================
+
+    @Test
+    void pagesWalkEveryTransactionOnceNewestFirst() {
+        Random random = new Random(11);
+        for (long id = 1; id <= 300; id++) {
+            save(randomTransaction(random, id));
+        }
+
+        assertPagesMatch(7);
+        assertPagesMatch(1);
+        assertEquals(START.minusHours(10), index.oldestTimestamp());
+    }
+
+    @Test
+    void pagesStopAtTheLowerBound() {
+        for (long id = 1; id <= 10; id++) {
+            save(transaction(id, 1L, 2L, START.plusMinutes(id)));
+        }
+
+        long[] page = index.page(1L, null, 0, START.plusMinutes(4), 100);
+        assertArrayEquals(new long[]{10, 9, 8, 7, 6, 5, 4}, page);
+        assertArrayEquals(new long[]{6, 5}, index.page(null, START.plusMinutes(7), 7, START.plusMinutes(5), 2));
+    }
+
+    @Test
+    void tiesAreBrokenById() {
+        save(transaction(3, 1L, 2L, START));
+        save(transaction(1, 1L, 2L, START));
+        save(transaction(2, 2L, 1L, START));
+
+        assertArrayEquals(new long[]{3, 2, 1}, index.page(1L, null, 0, null, 10));
+        assertArrayEquals(new long[]{1}, index.page(null, START, 2, null, 10));
+    }
+
+    // ==================== CHANGES ====================
+
+    @Test
+    void removalsAndReplacementsKeepTheOrder() {
+        Random random = new Random(12);
+        for (long id = 1; id <= 300; id++) {
+            save(randomTransaction(random, id));
+            if (random.nextInt(3) == 0) {
+                Long victim = new ArrayList<>(stored.keySet()).get(random.nextInt(stored.size()));
+                Transaction removed = stored.remove(victim);
+                index.remove(removed);
+            }
+            if (random.nextInt(3) == 0) {
+                // As in the repository, the store holds the replacement before the index is updated
+                Long replacedId = new ArrayList<>(stored.keySet()).get(random.nextInt(stored.size()));
+                Transaction previous = stored.get(replacedId);
+                Transaction replacement = randomTransaction(random, replacedId);
+                stored.put(replacedId, replacement);
+                index.remove(previous);
+                index.add(replacement);
+            }
+        }
+
+        assertPagesMatch(5);
+        index.rebuild(stored.values());
+        assertPagesMatch(5);
+    }
+
+    @Test
+    void transactionsAWalletSentToItselfAreIndexedOnce() {
+        save(transaction(1, 1L, 1L, START));
+        save(transaction(2, null, 1L, START.plusMinutes(1)));
+
+        assertArrayEquals(new long[]{2, 1}, index.page(1L, null, 0, null, 10));
+        index.remove(stored.remove(1L));
+        assertArrayEquals(new long[]{2}, index.page(1L, null, 0, null, 10));
+        index.remove(stored.remove(2L));
+        assertArrayEquals(new long[0], index.page(null, null, 0, null, 10));
+        assertNull(index.oldestTimestamp());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void save(Transaction transaction) {
+        stored.put(transaction.getId(), transaction);
+        index.add(transaction);
+    }
+
+    /**
+     * Walks every wallet's pages, and those of all transactions, and compares them with the
+     * stored transactions sorted newest first.
+     */
+    private void assertPagesMatch(int limit) {
+        for (long walletId = 0; walletId <= WALLETS; walletId++) {
+            Long wallet = walletId == 0 ? null : walletId;
+            List<Long> expected = stored.values().stream()
+                    .filter(t -> wallet == null || wallet.equals(t.getSenderWalletId())
+                            || wallet.equals(t.getReceiverWalletId()))
+                    .sorted(Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId).reversed())
+                    .map(Transaction::getId)
+                    .toList();
+
+            List<Long> walked = new ArrayList<>();
+            LocalDateTime beforeTimestamp = null;
+            long beforeId = 0;
+            long[] page;
+            do {
+                page = index.page(wallet, beforeTimestamp, beforeId, null, limit);
+                Arrays.stream(page).forEach(walked::add);
+                if (page.length > 0) {
+                    beforeId = page[page.length - 1];
+                    beforeTimestamp = stored.get(beforeId).getTimestamp();
+                }
+            } while (page.length == limit);
+
+            assertEquals(expected, walked, "wallet " + wallet);
+        }
+    }
+
+    /**
+     * A transfer between two of the wallets, or a deposit or withdrawal, at a random time
+     * around {@link #START}; many share a timestamp.
+     */
+    private static Transaction randomTransaction(Random random, long id) {
+        LocalDateTime timestamp = id == 1 ? START.minusHours(10) : START.plusMinutes(random.nextInt(-300, 600) / 15 * 15);
+        long sender = random.nextInt(1, WALLETS + 1);
+        long receiver = random.nextInt(1, WALLETS + 1);
+        return switch (random.nextInt(3)) {
+            case 0 -> transaction(id, null, receiver, timestamp);
+            case 1 -> transaction(id, sender, null, timestamp);
+            default -> transaction(id, sender, receiver, timestamp);
+        };
+    }
+
+    private static Transaction transaction(long id, Long sender, Long receiver, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction(sender, receiver, new BigDecimal("1.00"), TransactionType.TRANSFER,
+                TransactionStatus.SUCCESS);
+        transaction.setId(id);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+}
@@ -0,0 +1,82 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.spring_project.digital_banking_system.exception.StorageUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The single-writer pipeline's handling of failed commands and failed journal commits.
+ */
+class LedgerEngineTests {
+
+    private final LedgerEngine engine = new LedgerEngine(16);
+    private final AtomicInteger applied = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void failedCommandDoesNotStopTheEngine() {
+        assertThrows(IllegalArgumentException.class, () -> engine.execute(commits -> {
+            throw new IllegalArgumentException("Insufficient balance");
+        }));
+
+        assertEquals(1, engine.<Integer>execute(commits -> applied.incrementAndGet()));
+        assertEquals(false, engine.getStats().get("engineFailed"));
+    }
+
+    @Test
+    void failedCommitStopsTheEngine() {
+        assertEquals(1, engine.<Integer>execute(commits -> {
+            commits.add(CompletableFuture.completedFuture(null));
+            return applied.incrementAndGet();
+        }));
+
+        RuntimeException failure = assertThrows(StorageUnavailableException.class, () -> engine.execute(commits -> {
+            commits.add(CompletableFuture.failedFuture(new IOException("Injected write failure")));
+            return applied.incrementAndGet();
+        }));
+        assertEquals("Injected write failure", failure.getCause().getMessage());
+
+        // A command published after the failure is not applied
+        assertThrows(StorageUnavailableException.class, () -> engine.execute(commits -> applied.incrementAndGet()));
+        assertEquals(2, applied.get());
+        assertEquals(true, engine.getStats().get("engineFailed"));
+    }
+
+    @Test
+    void commandsQueuedBehindAFailedCommitAreNotApplied() throws InterruptedException {
+        CompletableFuture<Void> commit = new CompletableFuture<>();
+        Thread first = new Thread(() -> assertThrows(StorageUnavailableException.class,
+                () -> engine.execute(commits -> {
+                    commits.add(commit);
+                    return applied.incrementAndGet();
+                })));
+        first.start();
+        while (applied.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        commit.completeExceptionally(new IOException("Injected fsync failure"));
+        first.join();
+        assertThrows(StorageUnavailableException.class, () -> engine.execute(commits -> applied.incrementAndGet()));
+        assertEquals(1, applied.get());
+    }
+
+    @Test
+    void commandsPublishedAfterShutdownAreRefused() {
+        engine.close();
+
+        assertThrows(StorageUnavailableException.class, () -> engine.execute(commits -> applied.incrementAndGet()));
+        assertEquals(0, applied.get());
+    }
+}
@@ -0,0 +1,222 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.DurabilityMode;
+import com.spring_project.digital_banking_system.repository.SqlStorage;
+import com.spring_project.digital_banking_system.repository.Storage;
+import com.spring_project.digital_banking_system.repository.StorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Balances as of a past time, through {@link WalletService#getBalance}, checked against a sum
+ * over every stored transaction on both storage backends: before the first transaction, exactly
+ * on the transactions that start a checkpoint, at midnight, and between checkpoints, before
+ * and after a restart.
+ */
+class PointInTimeBalanceTests {
+
+    private static final int WALLETS = 3;
+    private static final int CHECKPOINT_INTERVAL = 4;
+    private static final int HISTORY_DAYS = 60;
+    private static final LocalDateTime START = LocalDateTime.now().withNano(0).minusDays(HISTORY_DAYS);
+
+    @TempDir
+    File dataDir;
+
+    private Storage storage;
+    private WalletService walletService;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Long> walletIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void balancesMatchASumOfEveryEarlierTransaction(StorageBackend backend) {
+        open(backend);
+        createWallets();
+        saveHistory(new Random(31));
+        assertBalancesMatch();
+
+        if (storage instanceof DataRepository repository) {
+            // Moves the first month into archive segments, whose stored net changes are read back
+            repository.takeSnapshot();
+            assertBalancesMatch();
+        }
+
+        close();
+        open(backend);
+        assertBalancesMatch();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void balancesFollowReplacementsAndDeletions(StorageBackend backend) {
+        open(backend);
+        createWallets();
+        saveHistory(new Random(32));
+        if (storage instanceof DataRepository repository) {
+            repository.takeSnapshot();
+        }
+
+        // Archived transactions can only be replaced, so only recent ones are deleted
+        LocalDateTime archived = LocalDateTime.now().minusDays(HISTORY_DAYS / 2 - 1);
+        List<Transaction> stored = storage.findAllTransactions();
+        for (int i = 0; i < stored.size(); i += 7) {
+            Transaction transaction = stored.get(i);
+            if (i % 2 == 0 && transaction.getTimestamp().isAfter(archived)) {
+                storage.deleteTransaction(transaction.getId());
+            } else {
+                transaction.setStatus(transaction.getStatus() == TransactionStatus.SUCCESS
+                        ? TransactionStatus.FAILED : TransactionStatus.SUCCESS);
+                transaction.setTimestamp(transaction.getTimestamp().plusDays(3));
+                storage.saveTransaction(transaction);
+            }
+        }
+        assertBalancesMatch();
+
+        close();
+        open(backend);
+        assertBalancesMatch();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void invalidTimesAreRejected(StorageBackend backend) {
+        open(backend);
+        createWallets();
+
+        assertThrows(IllegalArgumentException.class, () -> walletService.getBalance(userIds.get(0), "yesterday"));
+        assertEquals(BigDecimal.ZERO, walletService.getBalance(userIds.get(0), START.toString()).balance());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void open(StorageBackend backend) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setDurability(DurabilityMode.OS_BUFFERED);
+        properties.setArchiveAfterDays(HISTORY_DAYS / 2);
+        properties.setBalanceCheckpointInterval(CHECKPOINT_INTERVAL);
+        storage = backend == StorageBackend.SQL ? new SqlStorage(properties) : new DataRepository(properties);
+        walletService = new WalletService(storage, ExecutionMode.LOCKING, 16, 1024, 16, 16, 0);
+    }
+
+    private void close() {
+        if (walletService != null) {
+            walletService.close();
+            walletService = null;
+        }
+        if (storage != null) {
+            storage.close();
+            storage = null;
+        }
+    }
+
+    private void createWallets() {
+        for (int i = 0; i < WALLETS; i++) {
+            User user = storage.saveUser(new User("user" + i, "user" + i + "@example.com", "secret", Role.USER));
+            Wallet wallet = storage.saveWallet(new Wallet(user.getId()));
+            userIds.add(user.getId());
+            walletIds.add(wallet.getId());
+        }
+    }
+
+    /**
+     * Saves deposits, withdrawals and transfers, some failed and some sent to the same wallet,
+     * over the last {@value #HISTORY_DAYS} days, mostly in time order. Many share a timestamp,
+     * and some fall exactly on midnight.
+     */
+    private void saveHistory(Random random) {
+        TransactionType[] types = {TransactionType.DEPOSIT, TransactionType.WITHDRAWAL, TransactionType.TRANSFER};
+        for (int i = 0; i < 600; i++) {
+            LocalDateTime timestamp = random.nextInt(10) == 0
+                    ? START.toLocalDate().plusDays(random.nextInt(1, HISTORY_DAYS)).atStartOfDay()
+                    : START.plusMinutes((long) i * HISTORY_DAYS * 24 * 60 / 600 + random.nextInt(-300, 300) / 60 * 60);
+            TransactionType type = types[random.nextInt(types.length)];
+            Long sender = type == TransactionType.DEPOSIT ? null : walletIds.get(random.nextInt(WALLETS));
+            Long receiver = type == TransactionType.WITHDRAWAL ? null : walletIds.get(random.nextInt(WALLETS));
+            TransactionStatus status = random.nextInt(5) == 0 ? TransactionStatus.FAILED : TransactionStatus.SUCCESS;
+            Transaction transaction = new Transaction(sender, receiver,
+                    new BigDecimal(random.nextInt(1, 500) + "." + random.nextInt(10, 100)), type, status);
+            transaction.setTimestamp(timestamp);
+            storage.saveTransaction(transaction);
+        }
+    }
+
+    /**
+     * Compares every wallet's balance with a sum over the stored transactions, at each time a
+     * transaction was made and just before it, at the start of every day, and before any
+     * transaction. With a small checkpoint interval, the transaction times include those that
+     * start a checkpoint and those between two.
+     */
+    private void assertBalancesMatch() {
+        List<Transaction> transactions = storage.findAllTransactions().stream()
+                .sorted(Comparator.comparing(Transaction::getTimestamp)).toList();
+        List<LocalDateTime> times = new ArrayList<>();
+        times.add(START.minusDays(1));
+        for (Transaction transaction : transactions) {
+            times.add(transaction.getTimestamp());
+            times.add(transaction.getTimestamp().minusNanos(1));
+        }
+        for (int day = 0; day <= HISTORY_DAYS + 4; day++) {
+            times.add(START.toLocalDate().plusDays(day).atStartOfDay());
+        }
+
+        for (int i = 0; i < WALLETS; i++) {
+            for (LocalDateTime time : times) {
+                BigDecimal expected = sum(transactions, walletIds.get(i), time);
+                BigDecimal actual = walletService.getBalance(userIds.get(i), time.toString()).balance();
+                // Cancelled changes may leave a zero with two decimals, so only the values are compared
+                assertEquals(0, expected.compareTo(actual),
+                        "wallet " + walletIds.get(i) + " at " + time + ": expected " + expected + " but was " + actual);
+            }
+        }
+    }
+
+    /**
+     * Adds the amounts a wallet received and subtracts those it sent, counting successful
+     * transactions up to and including a time and leaving out those it sent to itself.
+     */
+    private static BigDecimal sum(List<Transaction> transactions, Long walletId, LocalDateTime asOf) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Transaction transaction : transactions) {
+            if (transaction.getStatus() != TransactionStatus.SUCCESS || transaction.getTimestamp().isAfter(asOf)
+                    || walletId.equals(transaction.getSenderWalletId())
+                    && walletId.equals(transaction.getReceiverWalletId())) {
+                continue;
+            }
+            if (walletId.equals(transaction.getReceiverWalletId())) {
+                sum = sum.add(transaction.getAmount());
+            }
+            if (walletId.equals(transaction.getSenderWalletId())) {
+                sum = sum.subtract(transaction.getAmount());
+            }
+        }
+        return sum;
+    }
+}
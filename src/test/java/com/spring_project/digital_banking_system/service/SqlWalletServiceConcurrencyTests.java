@@ -0,0 +1,24 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.repository.SqlStorage;
+import com.spring_project.digital_banking_system.repository.Storage;
+
+/**
+ * The concurrency scenarios of {@link WalletServiceConcurrencyTests}, run against the SQL
+ * backend on an embedded H2 database. The pool is smaller than the number of threads, and a
+ * new block of IDs is reserved every few saves, so commits compete for connections while
+ * reserving IDs.
+ */
+class SqlWalletServiceConcurrencyTests extends WalletServiceConcurrencyTests {
+
+    private static final int POOL_SIZE = 4;
+    private static final int ID_BLOCK_SIZE = 8;
+
+    @Override
+    Storage openStorage(StorageProperties properties) {
+        properties.setSqlPoolSize(POOL_SIZE);
+        properties.setIdBlockSize(ID_BLOCK_SIZE);
+        return new SqlStorage(properties);
+    }
+}
@@ -0,0 +1,244 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.DurabilityMode;
+import com.spring_project.digital_banking_system.repository.SqlStorage;
+import com.spring_project.digital_banking_system.repository.Storage;
+import com.spring_project.digital_banking_system.repository.StorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Wallet history and admin transaction pages on both storage backends, walked page by page
+ * and compared with a sort of every stored transaction: many transactions share a timestamp,
+ * some a wallet sent to itself, and on the file backend the older half is archived.
+ */
+class TransactionHistoryTests {
+
+    private static final int WALLETS = 3;
+    private static final int HISTORY_DAYS = 20;
+    private static final LocalDateTime START = LocalDateTime.now().withNano(0).minusDays(HISTORY_DAYS);
+
+    @TempDir
+    File dataDir;
+
+    private Storage storage;
+    private WalletService walletService;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Long> walletIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void pagesWalkEveryTransactionOnceNewestFirst(StorageBackend backend) {
+        open(backend);
+        createWallets();
+        saveHistory(new Random(41));
+        assertPagesMatch(null, null);
+
+        if (storage instanceof DataRepository repository) {
+            // Moves the older half into archive segments, read back after the transactions in memory
+            repository.takeSnapshot();
+            assertPagesMatch(null, null);
+        }
+
+        close();
+        open(backend);
+        assertPagesMatch(null, null);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void pagesStayWithinTheTimeBounds(StorageBackend backend) {
+        open(backend);
+        createWallets();
+        saveHistory(new Random(42));
+        if (storage instanceof DataRepository repository) {
+            repository.takeSnapshot();
+        }
+
+        LocalDateTime middle = START.plusDays(HISTORY_DAYS / 2);
+        assertPagesMatch(middle, null);
+        assertPagesMatch(null, middle);
+        assertPagesMatch(START.plusDays(3), START.plusDays(HISTORY_DAYS - 3));
+        // A bound falling on a timestamp many transactions share
+        assertPagesMatch(START.plusDays(4).plusHours(6), START.plusDays(5).plusHours(6));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void transactionsSharingATimestampAreOrderedById(StorageBackend backend) {
+        open(backend);
+        createWallets();
+        LocalDateTime timestamp = START.plusDays(1);
+        for (int i = 0; i < 5; i++) {
+            save(walletIds.get(0), walletIds.get(1), timestamp, TransactionStatus.SUCCESS);
+        }
+        save(walletIds.get(0), walletIds.get(0), timestamp, TransactionStatus.SUCCESS);
+
+        List<Long> ids = walk(0, 2, null, null);
+        assertEquals(6, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) > ids.get(i), "IDs descend: " + ids);
+        }
+        assertEquals(ids.subList(1, 6), walk(1, 2, null, null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void transactionsAWalletSentToItselfAppearOnce(StorageBackend backend) {
+        open(backend);
+        createWallets();
+        Long wallet = walletIds.get(0);
+        save(wallet, wallet, START.plusHours(1), TransactionStatus.SUCCESS);
+        save(null, wallet, START.plusHours(2), TransactionStatus.SUCCESS);
+        save(wallet, wallet, START.plusHours(3), TransactionStatus.FAILED);
+
+        List<Long> ids = walk(0, 1, null, null);
+        assertEquals(3, ids.size());
+        assertEquals(3, new HashSet<>(ids).size());
+        assertEquals(List.of(), walk(1, 1, null, null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void invalidPagesAreRejected(StorageBackend backend) {
+        open(backend);
+        createWallets();
+
+        assertThrows(IllegalArgumentException.class, () -> walletService.getHistory(userIds.get(0), 0, null, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> walletService.getHistory(userIds.get(0), 10, "not-a-cursor", null, null));
+        assertThrows(IllegalArgumentException.class, () -> walletService.getAllTransactions(10, null, "yesterday", null));
+        assertNull(walletService.getAllTransactions(10, null, null, null).get("nextCursor"));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void open(StorageBackend backend) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setDurability(DurabilityMode.OS_BUFFERED);
+        properties.setArchiveAfterDays(HISTORY_DAYS / 2);
+        storage = backend == StorageBackend.SQL ? new SqlStorage(properties) : new DataRepository(properties);
+        walletService = new WalletService(storage, ExecutionMode.LOCKING, 16, 1024, 16, 16, 0);
+    }
+
+    private void close() {
+        if (walletService != null) {
+            walletService.close();
+            walletService = null;
+        }
+        if (storage != null) {
+            storage.close();
+            storage = null;
+        }
+    }
+
+    private void createWallets() {
+        for (int i = 0; i < WALLETS; i++) {
+            User user = storage.saveUser(new User("user" + i, "user" + i + "@example.com", "secret", Role.USER));
+            Wallet wallet = storage.saveWallet(new Wallet(user.getId()));
+            userIds.add(user.getId());
+            walletIds.add(wallet.getId());
+        }
+    }
+
+    /**
+     * Saves deposits, withdrawals and transfers over {@value #HISTORY_DAYS} days, some failed
+     * and some sent to the same wallet, mostly in time order. Most share their timestamp with
+     * several others, so pages often end in the middle of a tie.
+     */
+    private void saveHistory(Random random) {
+        for (int i = 0; i < 400; i++) {
+            LocalDateTime timestamp = START.plusHours((long) i * HISTORY_DAYS * 24 / 400 / 6 * 6
+                    + random.nextInt(-12, 12) / 6 * 6);
+            Long sender = random.nextInt(3) == 0 ? null : walletIds.get(random.nextInt(WALLETS));
+            Long receiver = sender != null && random.nextInt(3) == 0 ? null : walletIds.get(random.nextInt(WALLETS));
+            save(sender, receiver, timestamp, random.nextInt(5) == 0 ? TransactionStatus.FAILED : TransactionStatus.SUCCESS);
+        }
+    }
+
+    private void save(Long sender, Long receiver, LocalDateTime timestamp, TransactionStatus status) {
+        TransactionType type = sender == null ? TransactionType.DEPOSIT
+                : receiver == null ? TransactionType.WITHDRAWAL : TransactionType.TRANSFER;
+        Transaction transaction = new Transaction(sender, receiver, new BigDecimal("10.00"), type, status);
+        transaction.setTimestamp(timestamp);
+        storage.saveTransaction(transaction);
+    }
+
+    /**
+     * Walks the pages of every wallet's history and of all transactions, with several page
+     * sizes, and compares them with the stored transactions in the bounds, sorted newest first.
+     */
+    private void assertPagesMatch(LocalDateTime from, LocalDateTime to) {
+        List<Transaction> stored = storage.findAllTransactions();
+        for (int limit : new int[]{1, 7, 1000}) {
+            for (int wallet = -1; wallet < WALLETS; wallet++) {
+                Long walletId = wallet < 0 ? null : walletIds.get(wallet);
+                List<Long> expected = stored.stream()
+                        .filter(t -> walletId == null || walletId.equals(t.getSenderWalletId())
+                                || walletId.equals(t.getReceiverWalletId()))
+                        .filter(t -> from == null || !t.getTimestamp().isBefore(from))
+                        .filter(t -> to == null || t.getTimestamp().isBefore(to))
+                        .sorted(Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId)
+                                .reversed())
+                        .map(Transaction::getId)
+                        .toList();
+                assertEquals(expected, walk(wallet, limit, from, to),
+                        "wallet " + walletId + ", limit " + limit + ", from " + from + ", to " + to);
+            }
+        }
+    }
+
+    /**
+     * Follows the cursors from the first page to the last, through a user's history or, for a
+     * negative wallet index, through all transactions.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Long> walk(int wallet, int limit, LocalDateTime from, LocalDateTime to) {
+        String fromText = from == null ? null : from.toString();
+        String toText = to == null ? null : to.toString();
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> page = wallet < 0
+                    ? walletService.getAllTransactions(limit, cursor, fromText, toText)
+                    : walletService.getHistory(userIds.get(wallet), limit, cursor, fromText, toText);
+            List<Transaction> transactions = (List<Transaction>) page.get("transactions");
+            assertTrue(transactions.size() <= limit);
+            transactions.forEach(transaction -> ids.add(transaction.getId()));
+            cursor = (String) page.get("nextCursor");
+            assertTrue(cursor == null || transactions.size() == limit);
+        } while (cursor != null);
+        return ids;
+    }
+}
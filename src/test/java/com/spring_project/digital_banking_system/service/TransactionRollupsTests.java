@@ -0,0 +1,244 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.dto.AmountRequest;
+import com.spring_project.digital_banking_system.dto.TransferRequest;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.DurabilityMode;
+import com.spring_project.digital_banking_system.repository.SqlStorage;
+import com.spring_project.digital_banking_system.repository.Storage;
+import com.spring_project.digital_banking_system.repository.StorageBackend;
+import com.spring_project.digital_banking_system.repository.TransactionRollups;
+import com.spring_project.digital_banking_system.repository.TransactionRollups.Resolution;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The transaction rollups kept by both storage backends, checked against buckets recomputed
+ * from every stored transaction, before and after a restart.
+ */
+class TransactionRollupsTests {
+
+    private static final int WALLETS = 4;
+    private static final int HISTORY_DAYS = 6;
+    private static final int MINUTE_HOURS = 48;
+    // Every amount has two decimals, so the sums have two decimals however they were computed
+    private static final String[] AMOUNTS = {"0.01", "1.50", "12.30", "100.00", "250.00"};
+
+    @TempDir
+    File dataDir;
+
+    private Storage storage;
+    private WalletService walletService;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<String> walletCodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void rollupsMatchARecomputationAfterEveryKindOfChange(StorageBackend backend) {
+        Random random = new Random(21);
+        open(backend);
+        createWallets();
+        saveHistory(random);
+        if (storage instanceof DataRepository repository) {
+            // Moves the oldest days into archive segments, whose stored hourly rollups are read back
+            repository.takeSnapshot();
+        }
+
+        for (int i = 0; i < 200; i++) {
+            int sender = random.nextInt(WALLETS);
+            BigDecimal amount = new BigDecimal(AMOUNTS[random.nextInt(AMOUNTS.length)]);
+            switch (random.nextInt(3)) {
+                case 0 -> walletService.deposit(userIds.get(sender), new AmountRequest(amount), null);
+                case 1 -> walletService.transfer(userIds.get(sender),
+                        new TransferRequest(walletCodes.get((sender + 1) % WALLETS), amount), null);
+                default -> assertThrows(RuntimeException.class, () -> walletService.withdraw(userIds.get(sender),
+                        new AmountRequest(new BigDecimal("1000000.00")), null));
+            }
+        }
+        assertRollupsMatch();
+
+        // Replaced and deleted transactions, old and new, leave their buckets
+        List<Transaction> stored = storage.findAllTransactions();
+        for (int i = 0; i < stored.size(); i += 5) {
+            Transaction transaction = stored.get(i);
+            if (i % 10 == 0) {
+                storage.deleteTransaction(transaction.getId());
+            } else {
+                transaction.setStatus(TransactionStatus.FAILED);
+                transaction.setAmount(new BigDecimal("3.33"));
+                transaction.setTimestamp(transaction.getTimestamp().minusHours(1));
+                storage.saveTransaction(transaction);
+            }
+        }
+        assertRollupsMatch();
+
+        close();
+        open(backend);
+        assertRollupsMatch();
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void bucketsEmptiedByDeletesAreDropped(StorageBackend backend) {
+        open(backend);
+        LocalDateTime hour = LocalDateTime.now().minusDays(1).withMinute(0).withSecond(0).withNano(0);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(save(TransactionType.DEPOSIT, TransactionStatus.SUCCESS, "100.00", hour.plusMinutes(i)).getId());
+        }
+
+        assertEquals(List.of(describe(hour, TransactionType.DEPOSIT, TransactionStatus.SUCCESS, 3, new BigDecimal("300.00"))),
+                describe(storage.findRollups(Resolution.HOUR, hour, hour.plusHours(1))));
+
+        ids.forEach(storage::deleteTransaction);
+        for (Resolution resolution : Resolution.values()) {
+            assertEquals(List.of(), storage.findRollups(resolution, hour.minusDays(1), hour.plusDays(1)));
+        }
+        close();
+        open(backend);
+        assertEquals(List.of(), storage.findRollups(Resolution.DAY, hour.minusDays(1), hour.plusDays(1)));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void open(StorageBackend backend) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setDurability(DurabilityMode.OS_BUFFERED);
+        properties.setArchiveAfterDays(HISTORY_DAYS / 2);
+        properties.setRollupMinuteHours(MINUTE_HOURS);
+        storage = backend == StorageBackend.SQL ? new SqlStorage(properties) : new DataRepository(properties);
+        walletService = new WalletService(storage, ExecutionMode.LOCKING, 16, 1024, 16, 16, 0);
+    }
+
+    private void close() {
+        if (walletService != null) {
+            walletService.close();
+            walletService = null;
+        }
+        if (storage != null) {
+            storage.close();
+            storage = null;
+        }
+    }
+
+    private void createWallets() {
+        for (int i = 0; i < WALLETS; i++) {
+            User user = storage.saveUser(new User("user" + i, "user" + i + "@example.com", "secret", Role.USER));
+            Wallet wallet = new Wallet(user.getId());
+            wallet.setBalance(new BigDecimal("10000.00"));
+            storage.saveWallet(wallet);
+            userIds.add(user.getId());
+            walletCodes.add(wallet.getWalletCode());
+        }
+    }
+
+    /**
+     * Saves transactions spread over the last few days, so that some are archived and some are
+     * older than the minute rollups reach.
+     */
+    private void saveHistory(Random random) {
+        LocalDateTime start = LocalDateTime.now().minusDays(HISTORY_DAYS);
+        TransactionType[] types = TransactionType.values();
+        TransactionStatus[] statuses = TransactionStatus.values();
+        for (int i = 0; i < 1_000; i++) {
+            save(types[random.nextInt(types.length)], statuses[random.nextInt(statuses.length)],
+                    AMOUNTS[random.nextInt(AMOUNTS.length)], start.plusMinutes(random.nextInt(HISTORY_DAYS * 24 * 60)));
+        }
+    }
+
+    private Transaction save(TransactionType type, TransactionStatus status, String amount, LocalDateTime timestamp) {
+        Long sender = type == TransactionType.DEPOSIT ? null : 1L;
+        Long receiver = type == TransactionType.WITHDRAWAL ? null : 2L;
+        Transaction transaction = new Transaction(sender, receiver, new BigDecimal(amount), type, status);
+        transaction.setTimestamp(timestamp);
+        return storage.saveTransaction(transaction);
+    }
+
+    /**
+     * Compares the stored rollups of every resolution with buckets grouped from every stored
+     * transaction. Minute rollups only reach back {@value #MINUTE_HOURS} hours from the newest
+     * transaction, so they are compared over that range.
+     */
+    private void assertRollupsMatch() {
+        List<Transaction> transactions = storage.findAllTransactions();
+        assertFalse(transactions.isEmpty());
+        LocalDateTime newest = transactions.stream().map(Transaction::getTimestamp)
+                .max(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime end = newest.plusDays(1);
+
+        for (Resolution resolution : Resolution.values()) {
+            LocalDateTime from = resolution == Resolution.MINUTE
+                    ? resolution.bucketOf(newest).minusHours(MINUTE_HOURS)
+                    : LocalDateTime.now().minusDays(HISTORY_DAYS + 1);
+            assertEquals(recompute(transactions, resolution, from, end),
+                    describe(storage.findRollups(resolution, from, end)), resolution.name());
+        }
+    }
+
+    /**
+     * Groups transactions by bucket, type and status, in the order rollups are returned.
+     */
+    private static List<String> recompute(List<Transaction> transactions, Resolution resolution,
+                                          LocalDateTime from, LocalDateTime to) {
+        Map<String, long[]> counts = new TreeMap<>();
+        Map<String, BigDecimal> sums = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            LocalDateTime start = resolution.bucketOf(transaction.getTimestamp());
+            if (start.isBefore(resolution.bucketOf(from)) || !start.isBefore(to)) {
+                continue;
+            }
+            // Sorts by start, then type and status in declaration order
+            String key = start + " " + transaction.getType().ordinal() + " " + transaction.getStatus().ordinal();
+            counts.computeIfAbsent(key, k -> new long[1])[0]++;
+            sums.merge(key, transaction.getAmount(), BigDecimal::add);
+        }
+        List<String> buckets = new ArrayList<>();
+        counts.forEach((key, count) -> {
+            String[] parts = key.split(" ");
+            buckets.add(describe(LocalDateTime.parse(parts[0]), TransactionType.values()[Integer.parseInt(parts[1])],
+                    TransactionStatus.values()[Integer.parseInt(parts[2])], count[0], sums.get(key)));
+        });
+        return buckets;
+    }
+
+    private static List<String> describe(List<TransactionRollups.Bucket> buckets) {
+        return buckets.stream().map(bucket -> describe(bucket.getStart(), bucket.getType(), bucket.getStatus(),
+                bucket.getCount(), bucket.getSum())).toList();
+    }
+
+    /**
+     * Describes a bucket with its sum as written, so a sum of a different scale does not match.
+     */
+    private static String describe(LocalDateTime start, TransactionType type, TransactionStatus status,
+                                   long count, BigDecimal sum) {
+        return start + " " + type + " " + status + " " + count + " " + sum;
+    }
+}
@@ -0,0 +1,226 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.TransactionStatus;
+import com.spring_project.digital_banking_system.model.TransactionType;
+import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.DurabilityMode;
+import com.spring_project.digital_banking_system.repository.SqlStorage;
+import com.spring_project.digital_banking_system.repository.Storage;
+import com.spring_project.digital_banking_system.repository.StorageBackend;
+import com.spring_project.digital_banking_system.repository.TransactionQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The admin transaction search, from the request parameters down to the search index, checked
+ * against a scan of every stored transaction, on both storage backends.
+ */
+class TransactionSearchTests {
+
+    private static final LocalDateTime START = LocalDateTime.now().withNano(0).minusDays(10);
+    private static final int TRANSACTIONS = 3_000;
+    private static final int WALLETS = 6;
+    // 10.00 and 10.005 share an amount key in hundredths, so bounds on that key are checked exactly
+    private static final String[] AMOUNTS = {"0.01", "9.99", "10.00", "10.005", "10.01", "250", "1000.50"};
+
+    @TempDir
+    File dataDir;
+
+    private Storage storage;
+    private WalletService walletService;
+
+    @AfterEach
+    void tearDown() {
+        if (walletService != null) {
+            walletService.close();
+        }
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void searchesMatchAScanOfEveryTransaction(StorageBackend backend) {
+        Random random = new Random(11);
+        fill(backend, random);
+
+        for (int i = 0; i < 200; i++) {
+            Map<String, String> params = randomParams(random);
+            List<Long> expected = scan(params);
+
+            Map<String, Object> page = search(params, 20, null);
+
+            assertEquals((long) expected.size(), page.get("total"), "total for " + params);
+            assertEquals(expected.subList(0, Math.min(20, expected.size())), ids(page), "page for " + params);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void cursorsWalkThroughEveryMatchOnce(StorageBackend backend) {
+        fill(backend, new Random(12));
+        Map<String, String> params = Map.of("type", "transfer", "minAmount", "10.00", "maxAmount", "10.005");
+        List<Long> expected = scan(params);
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            Map<String, Object> page = search(params, 7, cursor);
+            assertEquals((long) expected.size(), page.get("total"));
+            walked.addAll(ids(page));
+            cursor = (String) page.get("nextCursor");
+        } while (cursor != null);
+
+        assertEquals(expected, walked);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void searchFollowsReplacementsAndDeletions(StorageBackend backend) {
+        fill(backend, new Random(13));
+        for (long id = 1; id <= TRANSACTIONS; id += 3) {
+            Transaction transaction = storage.findTransactionById(id).orElseThrow();
+            transaction.setStatus(TransactionStatus.FAILED);
+            transaction.setAmount(new BigDecimal("77.77"));
+            storage.saveTransaction(transaction);
+        }
+        for (long id = 2; id <= TRANSACTIONS; id += 3) {
+            storage.deleteTransaction(id);
+        }
+
+        Map<String, String> params = Map.of("status", "FAILED", "minAmount", "77.77", "maxAmount", "77.77");
+        assertEquals(scan(params), ids(search(params, 1000, null)));
+        assertEquals((long) (TRANSACTIONS + 2) / 3, search(params, 1, null).get("total"));
+        assertEquals(scan(Map.of()).size() * 1L, search(Map.of(), 1, null).get("total"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageBackend.class)
+    void invalidParametersAreRejected(StorageBackend backend) {
+        fill(backend, new Random(14));
+
+        assertThrows(IllegalArgumentException.class, () -> search(Map.of(), 0, null));
+        assertThrows(IllegalArgumentException.class, () -> search(Map.of(), WalletService.MAX_PAGE_SIZE + 1, null));
+        assertThrows(IllegalArgumentException.class, () -> search(Map.of("type", "REFUND"), 10, null));
+        assertThrows(IllegalArgumentException.class, () -> search(Map.of("minAmount", "ten"), 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> search(Map.of("minAmount", "10.01", "maxAmount", "10.00"), 10, null));
+        assertThrows(IllegalArgumentException.class, () -> search(Map.of("from", "yesterday"), 10, null));
+        assertNull(search(Map.of("walletId", String.valueOf(WALLETS + 1)), 10, null).get("nextCursor"));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void fill(StorageBackend backend, Random random) {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setDurability(DurabilityMode.OS_BUFFERED);
+        storage = backend == StorageBackend.SQL ? new SqlStorage(properties) : new DataRepository(properties);
+        walletService = new WalletService(storage, ExecutionMode.LOCKING, 16, 1024, 16, 16, 0);
+
+        TransactionType[] types = TransactionType.values();
+        TransactionStatus[] statuses = TransactionStatus.values();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            TransactionType type = types[random.nextInt(types.length)];
+            Long sender = type == TransactionType.DEPOSIT ? null : (long) random.nextInt(1, WALLETS + 1);
+            Long receiver = type == TransactionType.WITHDRAWAL ? null : (long) random.nextInt(1, WALLETS + 1);
+            Transaction transaction = new Transaction(sender, receiver, new BigDecimal(AMOUNTS[random.nextInt(AMOUNTS.length)]),
+                    type, statuses[random.nextInt(statuses.length)]);
+            transaction.setTimestamp(START.plusMinutes(random.nextInt(10 * 24 * 60)));
+            storage.saveTransaction(transaction);
+        }
+    }
+
+    private Map<String, Object> search(Map<String, String> params, int limit, String cursor) {
+        return walletService.searchTransactions(params.get("type"), params.get("status"),
+                params.containsKey("walletId") ? Long.valueOf(params.get("walletId")) : null,
+                params.get("minAmount"), params.get("maxAmount"), params.get("from"), params.get("to"), limit, cursor);
+    }
+
+    /**
+     * Applies the same filters to every stored transaction, highest ID first.
+     */
+    private List<Long> scan(Map<String, String> params) {
+        TransactionQuery query = new TransactionQuery();
+        if (params.containsKey("type")) {
+            query.setType(TransactionType.valueOf(params.get("type").toUpperCase()));
+        }
+        if (params.containsKey("status")) {
+            query.setStatus(TransactionStatus.valueOf(params.get("status").toUpperCase()));
+        }
+        if (params.containsKey("walletId")) {
+            query.setWalletId(Long.valueOf(params.get("walletId")));
+        }
+        if (params.containsKey("minAmount")) {
+            query.setMinAmount(new BigDecimal(params.get("minAmount")));
+        }
+        if (params.containsKey("maxAmount")) {
+            query.setMaxAmount(new BigDecimal(params.get("maxAmount")));
+        }
+        if (params.containsKey("from")) {
+            query.setFrom(LocalDateTime.parse(params.get("from")));
+        }
+        if (params.containsKey("to")) {
+            query.setTo(LocalDateTime.parse(params.get("to")));
+        }
+        return storage.findAllTransactions().stream()
+                .filter(query::matches)
+                .map(Transaction::getId)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+    }
+
+    private static Map<String, String> randomParams(Random random) {
+        Map<String, String> params = new HashMap<>();
+        if (random.nextInt(3) == 0) {
+            params.put("type", TransactionType.values()[random.nextInt(TransactionType.values().length)].name());
+        }
+        if (random.nextInt(3) == 0) {
+            params.put("status", TransactionStatus.values()[random.nextInt(TransactionStatus.values().length)].name());
+        }
+        if (random.nextInt(3) == 0) {
+            params.put("walletId", String.valueOf(random.nextInt(1, WALLETS + 1)));
+        }
+        if (random.nextInt(3) == 0) {
+            int low = random.nextInt(AMOUNTS.length);
+            params.put("minAmount", AMOUNTS[low]);
+            if (random.nextBoolean()) {
+                params.put("maxAmount", AMOUNTS[random.nextInt(low, AMOUNTS.length)]);
+            }
+        } else if (random.nextInt(4) == 0) {
+            params.put("maxAmount", AMOUNTS[random.nextInt(AMOUNTS.length)]);
+        }
+        if (random.nextInt(3) == 0) {
+            LocalDateTime from = START.plusMinutes(random.nextInt(10 * 24 * 60));
+            params.put("from", from.toString());
+            if (random.nextBoolean()) {
+                params.put("to", from.plusHours(random.nextInt(1, 72)).toString());
+            }
+        }
+        return params;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> ids(Map<String, Object> page) {
+        return ((List<Transaction>) page.get("transactions")).stream().map(Transaction::getId).toList();
+    }
+}
@@ -0,0 +1,410 @@
+package com.spring_project.digital_banking_system.service;
+
+import com.spring_project.digital_banking_system.config.StorageProperties;
+import com.spring_project.digital_banking_system.dto.AmountRequest;
+import com.spring_project.digital_banking_system.dto.BalanceEvent;
+import com.spring_project.digital_banking_system.dto.BatchTransferEntry;
+import com.spring_project.digital_banking_system.dto.BatchTransferResponse;
+import com.spring_project.digital_banking_system.dto.TransactionResponse;
+import com.spring_project.digital_banking_system.dto.TransferRequest;
+import com.spring_project.digital_banking_system.model.Role;
+import com.spring_project.digital_banking_system.model.Transaction;
+import com.spring_project.digital_banking_system.model.User;
+import com.spring_project.digital_banking_system.model.Wallet;
+import com.spring_project.digital_banking_system.repository.DataRepository;
+import com.spring_project.digital_banking_system.repository.DurabilityMode;
+import com.spring_project.digital_banking_system.repository.Storage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers a small set of wallets with concurrent transfers, deposits and withdrawals and
+ * checks that no money is created or lost, in every {@link ExecutionMode}. Runs against the
+ * file-backed store; {@link SqlWalletServiceConcurrencyTests} runs the same scenarios against
+ * the SQL backend.
+ */
+class WalletServiceConcurrencyTests {
+
+    private static final int WALLETS = 8;
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 500;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @TempDir
+    File dataDir;
+
+    private Storage storage;
+    private WalletService walletService;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<String> walletCodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        storage = openStorage(storageProperties());
+
+        for (int i = 0; i < WALLETS; i++) {
+            User user = storage.saveUser(new User("user" + i, "user" + i + "@example.com", "secret", Role.USER));
+            Wallet wallet = new Wallet(user.getId());
+            wallet.setBalance(INITIAL_BALANCE);
+            storage.saveWallet(wallet);
+            userIds.add(user.getId());
+            walletCodes.add(wallet.getWalletCode());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (walletService != null) {
+            walletService.close();
+        }
+        storage.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void concurrentTransfersConserveMoney(ExecutionMode mode) throws Exception {
+        walletService = newWalletService(mode);
+        runConcurrently(random -> {
+            int from = random.nextInt(WALLETS);
+            int to = (from + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+            walletService.transfer(userIds.get(from), new TransferRequest(walletCodes.get(to), randomAmount(random)), null);
+            return BigDecimal.ZERO;
+        });
+
+        assertEquals(INITIAL_BALANCE.multiply(BigDecimal.valueOf(WALLETS)), totalBalance());
+        assertNoNegativeBalances();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void concurrentMixedOperationsMatchNetDeposits(ExecutionMode mode) throws Exception {
+        walletService = newWalletService(mode);
+        BigDecimal netDeposits = runConcurrently(random -> {
+            Long userId = userIds.get(random.nextInt(WALLETS));
+            BigDecimal amount = randomAmount(random);
+            switch (random.nextInt(3)) {
+                case 0:
+                    walletService.deposit(userId, new AmountRequest(amount), null);
+                    return amount;
+                case 1:
+                    walletService.withdraw(userId, new AmountRequest(amount), null);
+                    return amount.negate();
+                default:
+                    walletService.transfer(userId, new TransferRequest(walletCodes.get(random.nextInt(WALLETS)), amount), null);
+                    return BigDecimal.ZERO;
+            }
+        });
+
+        BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(WALLETS)).add(netDeposits);
+        assertEquals(expected, totalBalance());
+        assertNoNegativeBalances();
+
+        // The stored state must agree with memory after a restart
+        walletService.close();
+        walletService = null;
+        storage.close();
+        storage = openStorage(storageProperties());
+        assertEquals(expected, totalBalance());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void concurrentBatchTransfersConserveMoney(ExecutionMode mode) throws Exception {
+        walletService = newWalletService(mode);
+        runConcurrently(random -> {
+            Long userId = userIds.get(random.nextInt(WALLETS));
+            if (random.nextInt(4) > 0) {
+                walletService.transfer(userId, new TransferRequest(walletCodes.get(random.nextInt(WALLETS)), randomAmount(random)),
+                        null);
+                return BigDecimal.ZERO;
+            }
+            // Batches lock many stripes at once while single transfers lock one or two
+            List<BatchTransferEntry> batch = new ArrayList<>();
+            for (int i = random.nextInt(1, 20); i > 0; i--) {
+                batch.add(new BatchTransferEntry(walletCodes.get(random.nextInt(WALLETS)),
+                        randomAmount(random).toPlainString()));
+            }
+            walletService.transferBatch(userId, batch, null);
+            return BigDecimal.ZERO;
+        });
+
+        BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(WALLETS));
+        assertEquals(expected, totalBalance());
+        assertNoNegativeBalances();
+
+        walletService.close();
+        walletService = null;
+        storage.close();
+        storage = openStorage(storageProperties());
+        assertEquals(expected, totalBalance());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void retriedDepositsWithIdempotencyKeysApplyOnce(ExecutionMode mode) throws Exception {
+        int keys = 20;
+        AmountRequest deposit = new AmountRequest(new BigDecimal("1.00"));
+        walletService = newWalletService(mode);
+        runConcurrently(random -> {
+            walletService.deposit(userIds.get(0), deposit, "deposit-" + random.nextInt(keys));
+            return BigDecimal.ZERO;
+        });
+
+        BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(WALLETS)).add(BigDecimal.valueOf(keys));
+        assertEquals(0, expected.compareTo(totalBalance()));
+        TransactionResponse first = walletService.deposit(userIds.get(0), deposit, "deposit-0");
+
+        // The keys are stored with the deposits, so retries after a restart are still replayed
+        walletService.close();
+        storage.close();
+        storage = openStorage(storageProperties());
+        walletService = newWalletService(mode);
+        TransactionResponse replayed = walletService.deposit(userIds.get(0), deposit, "deposit-0");
+        assertEquals(first, replayed);
+        assertEquals(0, expected.compareTo(totalBalance()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void batchesWithEveryEntryRejectedStillRecordTheirKeys(ExecutionMode mode) {
+        walletService = newWalletService(mode);
+        List<BatchTransferEntry> batch = List.of(
+                new BatchTransferEntry("WAL-LATER001", "5.00"),
+                new BatchTransferEntry(walletCodes.get(1), "-1"));
+
+        BatchTransferResponse settled = walletService.bankTransferBatch(batch, "settle-1");
+        BatchTransferResponse sent = walletService.transferBatch(userIds.get(0), batch, "send-1");
+        assertEquals(0, settled.succeeded());
+        assertEquals(0, sent.succeeded());
+        assertThrows(IllegalArgumentException.class, () -> walletService.bankTransferBatch(batch, " "));
+        assertThrows(IllegalArgumentException.class,
+                () -> walletService.bankTransferBatch(batch.subList(0, 1), "settle-1"));
+        assertThrows(IllegalArgumentException.class,
+                () -> walletService.transferBatch(userIds.get(0), batch.subList(0, 1), "send-1"));
+
+        // Once the target exists the entry would succeed, but a retry gets the recorded outcome
+        Wallet later = new Wallet(userIds.get(1));
+        later.setWalletCode("WAL-LATER001");
+        storage.saveWallet(later);
+        walletService.close();
+        storage.close();
+        storage = openStorage(storageProperties());
+        walletService = newWalletService(mode);
+        assertEquals(settled, walletService.bankTransferBatch(batch, "settle-1"));
+        assertEquals(sent, walletService.transferBatch(userIds.get(0), batch, "send-1"));
+        assertEquals(INITIAL_BALANCE.multiply(BigDecimal.valueOf(WALLETS)), totalBalance());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void malformedBatchEntriesAreRejectedInTheirPlace(ExecutionMode mode) {
+        walletService = newWalletService(mode);
+        List<BatchTransferEntry> batch = new ArrayList<>();
+        batch.add(new BatchTransferEntry(walletCodes.get(1), "12.50"));
+        batch.add(null);
+        batch.add(new BatchTransferEntry(null, "1.00"));
+        batch.add(new BatchTransferEntry(walletCodes.get(1), "abc"));
+        batch.add(new BatchTransferEntry(walletCodes.get(1), null));
+        batch.add(new BatchTransferEntry(walletCodes.get(1), "0"));
+        batch.add(new BatchTransferEntry(walletCodes.get(2), "1E+1"));
+
+        BatchTransferResponse response = walletService.transferBatch(userIds.get(0), batch, null);
+
+        assertEquals(2, response.succeeded());
+        List<String> statuses = response.results().stream().map(BatchTransferResponse.Result::status).toList();
+        assertEquals(List.of("SUCCESS", "REJECTED", "REJECTED", "REJECTED", "REJECTED", "REJECTED", "SUCCESS"),
+                statuses);
+        assertEquals("Invalid amount format: abc", response.results().get(3).error());
+        // Amounts keep the scale they were sent with
+        assertEquals(new BigDecimal("12.50"), response.results().get(0).amount());
+        assertEquals(INITIAL_BALANCE.subtract(new BigDecimal("22.50")), response.newBalance());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void walletTagChangesWheneverTheWalletDoes(ExecutionMode mode) {
+        walletService = newWalletService(mode);
+        Long userId = userIds.get(0);
+        AmountRequest deposit = new AmountRequest(new BigDecimal("1.00"));
+        String tag = walletService.getWalletTag(userId);
+        assertEquals(tag, walletService.getWalletTag(userId));
+
+        walletService.deposit(userId, deposit, "tagged");
+        String deposited = walletService.getWalletTag(userId);
+        assertNotEquals(tag, deposited);
+        assertEquals(walletService.getWalletTag(userIds.get(1)), walletService.getWalletTag(userIds.get(1)));
+
+        // A replayed request changes nothing, but a rejected withdrawal still records a failed transaction
+        walletService.deposit(userId, deposit, "tagged");
+        assertEquals(deposited, walletService.getWalletTag(userId));
+        assertThrows(RuntimeException.class, () ->
+                walletService.withdraw(userId, new AmountRequest(INITIAL_BALANCE.multiply(BigDecimal.TEN)), null));
+        assertNotEquals(deposited, walletService.getWalletTag(userId));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionMode.class)
+    void eventsReachSubscribersInOrderAndSlowOnesAreEvicted(ExecutionMode mode) throws Exception {
+        int deposits = 40;
+        walletService = newWalletService(mode);
+        Long userId = userIds.get(0);
+        List<Object> received = Collections.synchronizedList(new ArrayList<>());
+        Semaphore delivered = new Semaphore(0);
+        CountDownLatch fastClosed = new CountDownLatch(1);
+        CountDownLatch slowClosed = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+
+        WalletEvents.Subscription fast = walletService.subscribe(userId, new WalletEvents.Sink() {
+            @Override
+            public void send(String name, Object data) {
+                received.add(data);
+                delivered.release();
+            }
+
+            @Override
+            public void close() {
+                fastClosed.countDown();
+            }
+        });
+        // Never reads past its first event, so its buffer overflows
+        walletService.subscribe(userId, new WalletEvents.Sink() {
+            @Override
+            public void send(String name, Object data) throws IOException {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            @Override
+            public void close() {
+                slowClosed.countDown();
+            }
+        });
+
+        assertTrue(delivered.tryAcquire(10, TimeUnit.SECONDS));
+        for (int i = 0; i < deposits; i++) {
+            walletService.deposit(userId, new AmountRequest(new BigDecimal("1.00")), null);
+            // Keeps pace with the fast subscriber, so that only the slow one can fall behind
+            assertTrue(delivered.tryAcquire(2, 10, TimeUnit.SECONDS));
+        }
+        assertTrue(slowClosed.await(10, TimeUnit.SECONDS));
+        unblock.countDown();
+
+        long version = -1;
+        for (Object event : received) {
+            if (event instanceof BalanceEvent balance) {
+                assertTrue(balance.version() > version);
+                version = balance.version();
+            }
+        }
+        BalanceEvent last = (BalanceEvent) received.stream().filter(BalanceEvent.class::isInstance)
+                .reduce((first, second) -> second).orElseThrow();
+        assertEquals(0, INITIAL_BALANCE.add(BigDecimal.valueOf(deposits)).compareTo(last.balance()));
+        assertEquals(deposits, received.stream().filter(Transaction.class::isInstance).count());
+
+        fast.close();
+        assertTrue(fastClosed.await(10, TimeUnit.SECONDS));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Runs the operation from many threads at once and sums the amounts it reports for the
+     * calls that succeeded. Rejected operations (insufficient balance, transfer to own wallet)
+     * are expected and contribute nothing.
+     */
+    private BigDecimal runConcurrently(Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BigDecimal>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                BigDecimal sum = BigDecimal.ZERO;
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    try {
+                        sum = sum.add(operation.run(random));
+                    } catch (IllegalArgumentException e) {
+                        // Transfer to own wallet
+                    } catch (RuntimeException e) {
+                        assertEquals("Insufficient balance", e.getMessage());
+                    }
+                }
+                return sum;
+            }));
+        }
+
+        start.countDown();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Future<BigDecimal> result : results) {
+            total = total.add(result.get(2, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+        return total;
+    }
+
+    private BigDecimal totalBalance() {
+        return storage.findAllWallets().stream()
+                .map(Wallet::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private void assertNoNegativeBalances() {
+        for (Wallet wallet : storage.findAllWallets()) {
+            assertTrue(wallet.getBalance().signum() >= 0, "Negative balance in " + wallet.getWalletCode());
+        }
+    }
+
+    private static BigDecimal randomAmount(ThreadLocalRandom random) {
+        return BigDecimal.valueOf(random.nextInt(1, 50_000), 2);
+    }
+
+    private WalletService newWalletService(ExecutionMode mode) {
+        // Few stripes so that unrelated wallets also share locks and transfers cross stripes in both directions
+        return new WalletService(storage, mode, 4, 1024, 1000, 16, 0);
+    }
+
+    /**
+     * Opens the storage under test, again after each simulated restart.
+     */
+    Storage openStorage(StorageProperties properties) {
+        return new DataRepository(properties);
+    }
+
+    private StorageProperties storageProperties() {
+        StorageProperties properties = new StorageProperties();
+        properties.setDataDir(dataDir.getAbsolutePath());
+        properties.setDurability(DurabilityMode.OS_BUFFERED);
+        return properties;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        BigDecimal run(ThreadLocalRandom random);
+    }
+}